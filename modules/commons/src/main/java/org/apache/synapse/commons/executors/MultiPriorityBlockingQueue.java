@@ -21,6 +21,7 @@ package org.apache.synapse.commons.executors;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.Condition;
 import java.util.*;
@@ -33,28 +34,47 @@ import java.util.*;
  * fixed priorities. When inserting an element, it will be put in to one of these queues
  * depending on its importance.</p>
  *
+ * <p> Each internal queue is guarded by a lock of its own, so that producers of different
+ * priorities and consumers taking from different internal queues do not contend with each
+ * other. An algorithm which is {@link NextQueueAlgorithm#isLockFree() lock free}, like the
+ * default {@link PRRNextQueueAlgorithm}, picks the next queue without any lock, and only the
+ * picked queue is locked to take the element. Other algorithms are invoked with all the
+ * internal queues locked, since they may look at the state of any of them.</p>
+ *
  * @param <E> E should implement the Importance interface.
  */
 public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
         implements BlockingQueue<E> {
-    
+
     /** List of queues corresponding to different priorities */
     private List<InternalQueue<E>> queues;
 
+    /** Locks guarding the internal queues, in the order of the queues */
+    private final ReentrantLock[] locks;
+
+    /** Number of items in each of the internal queues */
+    private final AtomicInteger[] counts;
+
     /** Number of items in the queue */
-    private int count = 0;
+    private final AtomicInteger count = new AtomicInteger();
 
-    /** Lock held by take, poll, etc */
-    private final ReentrantLock lock = new ReentrantLock();
+    /** Lock held by the consumers waiting for items */
+    private final ReentrantLock takeLock = new ReentrantLock();
 
     /** Waiting queue for takes */
-    private final Condition notEmpty = lock.newCondition();
+    private final Condition notEmpty = takeLock.newCondition();
+
+    /** Number of consumers waiting for items */
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
 
     private int capacity = Integer.MAX_VALUE;
 
     /** Algorithm for determining next queue */
     private NextQueueAlgorithm<E> nextQueueAlgorithm;
-    
+
+    /** whether the algorithm is called without locking the internal queues */
+    private final boolean lockFree;
+
     /** whether fixed size queues are used */
     private boolean isFixedSizeQueues;
 
@@ -65,7 +85,7 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
      * If a object is submitted with a different priority it will result in an
      * IllegalArgumentException. If the algorithm is null, this queue will use the
      * PRRNextQueueAlgorithm.</p>
-     * 
+     *
      * @param queues list of InternalQueue to be used
      * @param isFixedQueues weather fixed size queues are used
      * @param algorithm algorithm for calculating next queue
@@ -90,8 +110,13 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
             }
         });
 
-        for (InternalQueue<E> queue : this.queues) {
-            queue.setNotFullCond(lock.newCondition());
+        locks = new ReentrantLock[queues.size()];
+        counts = new AtomicInteger[queues.size()];
+        for (int i = 0; i < queues.size(); i++) {
+            locks[i] = new ReentrantLock();
+            counts[i] = new AtomicInteger(queues.get(i).size());
+            count.addAndGet(counts[i].get());
+            queues.get(i).setNotFullCond(locks[i].newCondition());
         }
 
         if (algorithm == null) {
@@ -101,6 +126,7 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
         }
         // initialize the algorithm
         nextQueueAlgorithm.init(queues);
+        lockFree = nextQueueAlgorithm.isLockFree();
     }
 
     /**
@@ -112,8 +138,9 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     public void put(E e) throws InterruptedException {
         Importance i = (Importance) e;
-        InternalQueue<E> internalQueue = getQueueForPriority(i.getPriority());
-        final ReentrantLock lock = this.lock;
+        int index = getIndexForPriority(i.getPriority());
+        InternalQueue<E> internalQueue = queues.get(index);
+        final ReentrantLock lock = locks[index];
         lock.lockInterruptibly();
         try {
             try {
@@ -126,12 +153,11 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
             }
 
             internalQueue.offer(e);
-            count++;
-
-            notEmpty.signal();
+            counts[index].incrementAndGet();
         } finally {
             lock.unlock();
-        }        
+        }
+        signalNotEmpty();
     }
 
     /**
@@ -143,21 +169,22 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     public boolean offer(E e) {
         Importance i = (Importance) e;
-        InternalQueue<E> internalQueue = getQueueForPriority(i.getPriority());
-        final ReentrantLock lock = this.lock;
+        int index = getIndexForPriority(i.getPriority());
+        InternalQueue<E> internalQueue = queues.get(index);
+        final ReentrantLock lock = locks[index];
         lock.lock();
         try {
             if (internalQueue.remainingCapacity() > 0) {
                 internalQueue.offer(e);
-                count++;
-                notEmpty.signal();
-                return true;
+                counts[index].incrementAndGet();
             } else {
                 return false;
             }
         } finally {
             lock.unlock();
         }
+        signalNotEmpty();
+        return true;
     }
 
     /**
@@ -173,18 +200,18 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
         Importance i = (Importance) e;
-        InternalQueue<E> internalQueue = getQueueForPriority(i.getPriority());
+        int index = getIndexForPriority(i.getPriority());
+        InternalQueue<E> internalQueue = queues.get(index);
 
         long nanos = unit.toNanos(timeout);
-        final ReentrantLock lock = this.lock;
+        final ReentrantLock lock = locks[index];
         lock.lockInterruptibly();
         try {
             for (;;) {
                 if (internalQueue.remainingCapacity() > 0) {
                     internalQueue.offer(e);
-                    count++;
-                    notEmpty.signal();
-                    return true;
+                    counts[index].incrementAndGet();
+                    break;
                 }
                 if (nanos <= 0)
                     return false;
@@ -198,6 +225,8 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
         } finally {
             lock.unlock();
         }
+        signalNotEmpty();
+        return true;
     }
 
     /**
@@ -206,25 +235,25 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
      * @throws InterruptedException if the thread is interrupted
      */
     public E take() throws InterruptedException {
-        final ReentrantLock lock = this.lock;
-        lock.lockInterruptibly();
-        try {
-            InternalQueue<E> internalQueue = nextQueueAlgorithm.getNextQueue();
+        for (;;) {
+            E e = pollElement();
+            if (e != null) {
+                return e;
+            }
+            final ReentrantLock lock = this.takeLock;
+            lock.lockInterruptibly();
+            waitingConsumers.incrementAndGet();
             try {
-                while (internalQueue == null) {
+                while (count.get() <= 0) {
                     notEmpty.await();
-                    internalQueue = nextQueueAlgorithm.getNextQueue();
                 }
             } catch (InterruptedException ie) {
                 notEmpty.signal();
                 throw ie;
+            } finally {
+                waitingConsumers.decrementAndGet();
+                lock.unlock();
             }
-            E e = internalQueue.poll();
-            count--;
-            internalQueue.getNotFullCond().signal();
-            return e;
-        } finally {
-            lock.unlock();
         }
     }
 
@@ -239,28 +268,27 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     public E poll(long timeout, TimeUnit unit) throws InterruptedException {
         long nanos = unit.toNanos(timeout);
-        final ReentrantLock lock = this.lock;
-        lock.lockInterruptibly();
-        try {
-            for (;;) {
-                InternalQueue<E> internalQueue = nextQueueAlgorithm.getNextQueue();
-                if (internalQueue != null) {
-                    E e = internalQueue.poll();
-                    count--;
-                    internalQueue.getNotFullCond().signal();
-                    return e;
-                }
-                if (nanos <= 0)
-                    return null;
-                try {
+        for (;;) {
+            E e = pollElement();
+            if (e != null) {
+                return e;
+            }
+            if (nanos <= 0)
+                return null;
+            final ReentrantLock lock = this.takeLock;
+            lock.lockInterruptibly();
+            waitingConsumers.incrementAndGet();
+            try {
+                while (count.get() <= 0 && nanos > 0) {
                     nanos = notEmpty.awaitNanos(nanos);
-                } catch (InterruptedException ie) {
-                    notEmpty.signal();
-                    throw ie;
                 }
+            } catch (InterruptedException ie) {
+                notEmpty.signal();
+                throw ie;
+            } finally {
+                waitingConsumers.decrementAndGet();
+                lock.unlock();
             }
-        } finally {
-            lock.unlock();
         }
     }
 
@@ -268,22 +296,26 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
      * We always give high priority to highest priority elements. We try to drain all the
      * high priority items first.
      *
-     * @param c collection to drain the items     
+     * @param c collection to drain the items
      * @return number of elements copied
      */
     public int drainTo(Collection<? super E> c) {
         int count = 0;
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-
+        lockAll();
         try {
-            for (InternalQueue<E> internalQueue : queues) {
-                count += internalQueue.drainTo(c);
+            for (int i = 0; i < queues.size(); i++) {
+                InternalQueue<E> internalQueue = queues.get(i);
+                int n = internalQueue.drainTo(c);
+                if (n > 0) {
+                    counts[i].addAndGet(-n);
+                    internalQueue.getNotFullCond().signalAll();
+                    count += n;
+                }
             }
-            this.count = this.count - count;
         } finally {
-            lock.unlock();
+            unlockAll();
         }
+        this.count.addAndGet(-count);
         return count;
     }
 
@@ -297,61 +329,60 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
      */
     public int drainTo(Collection<? super E> c, int maxElements) {
         int elementsCopied = 0;
-        final ReentrantLock lock = this.lock;
-        lock.lock();
+        lockAll();
         try {
-            for (InternalQueue<E> internalQueue : queues) {
-                elementsCopied += internalQueue.drainTo(c,
+            for (int i = 0; i < queues.size(); i++) {
+                InternalQueue<E> internalQueue = queues.get(i);
+                int n = internalQueue.drainTo(c,
                         internalQueue.size() > (maxElements - elementsCopied) ?
                                 (maxElements - elementsCopied) : internalQueue.size());
+                if (n > 0) {
+                    counts[i].addAndGet(-n);
+                    internalQueue.getNotFullCond().signalAll();
+                    elementsCopied += n;
+                }
             }
-            count = count - elementsCopied;
         } finally {
-            lock.unlock();
+            unlockAll();
         }
+        count.addAndGet(-elementsCopied);
         return elementsCopied;
     }
 
     /**
-     * Block indefinitely until a object is available for retrieval.
+     * Get an element if one is available, without waiting.
      *
-     * @return an object
+     * @return an object or null if the queue is empty
      */
     public E poll() {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            InternalQueue<E> internalQueue = nextQueueAlgorithm.getNextQueue();
-            if (internalQueue != null) {
-                count--;
-                E e = internalQueue.poll();
-                internalQueue.getNotFullCond().signal();
-                return e;
-            } else {
-                return null;
-            }
-        } finally {
-            lock.unlock();
-        }
+        return pollElement();
     }
 
     public int remainingCapacity() {
-        return capacity - count;
+        return capacity - size();
     }
 
+    /**
+     * Get the element with the highest priority without removing it.
+     *
+     * @return an object or null if the queue is empty
+     */
     public E peek() {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            InternalQueue<E> internalQueue = nextQueueAlgorithm.getNextQueue();
-            if (internalQueue != null) {
-                return internalQueue.peek();
-            } else {
-                return null;
+        for (int i = 0; i < queues.size(); i++) {
+            if (counts[i].get() > 0) {
+                final ReentrantLock lock = locks[i];
+                lock.lock();
+                try {
+                    E e = queues.get(i).peek();
+                    if (e != null) {
+                        return e;
+                    }
+                } finally {
+                    lock.unlock();
+                }
             }
-        } finally {
-            lock.unlock();
         }
+        return null;
     }
 
     public Iterator<E> iterator() {
@@ -359,45 +390,49 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
     }
 
     public int size() {
-        return count;
+        // the count may be negative for a moment, when an item is taken before the
+        // producer which put it has updated the count
+        return Math.max(0, count.get());
     }
 
     public boolean isEmpty() {
-        return count == 0;
+        return size() == 0;
     }
 
     public boolean remove(Object o) {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            for (InternalQueue<E> internalQueue : queues) {
+        for (int i = 0; i < queues.size(); i++) {
+            InternalQueue<E> internalQueue = queues.get(i);
+            final ReentrantLock lock = locks[i];
+            lock.lock();
+            try {
                 if (internalQueue.remove(o)) {
-                    count--;
+                    counts[i].decrementAndGet();
+                    count.decrementAndGet();
+                    internalQueue.getNotFullCond().signal();
                     return true;
                 }
+            } finally {
+                lock.unlock();
             }
-            return false;
-        } finally {
-            lock.unlock();
         }
+        return false;
     }
 
     public boolean contains(Object o) {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
-        try {
-            for (InternalQueue<E> internalQueue : queues) {
-                if (internalQueue.contains(o)) return true;
+        for (int i = 0; i < queues.size(); i++) {
+            final ReentrantLock lock = locks[i];
+            lock.lock();
+            try {
+                if (queues.get(i).contains(o)) return true;
+            } finally {
+                lock.unlock();
             }
-            return false;
-        } finally {
-            lock.unlock();
         }
+        return false;
     }
 
     public String toString() {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
+        lockAll();
         try {
             StringBuffer s = new StringBuffer();
             for (InternalQueue<E> internalQueue : queues) {
@@ -405,27 +440,29 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
             }
             return s.toString();
         } finally {
-            lock.unlock();
+            unlockAll();
         }
     }
 
     public void clear() {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
+        int removed = 0;
+        lockAll();
         try {
-            for (InternalQueue<E> intQueue : queues) {
+            for (int i = 0; i < queues.size(); i++) {
+                InternalQueue<E> intQueue = queues.get(i);
                 intQueue.clear();
+                removed += counts[i].getAndSet(0);
+                intQueue.getNotFullCond().signalAll();
             }
-            count = 0;
         } finally {
-            lock.unlock();
-        }                
+            unlockAll();
+        }
+        count.addAndGet(-removed);
     }
 
     @SuppressWarnings({"SuspiciousToArrayCall"})
     public <T> T[] toArray(T[] a) {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
+        lockAll();
         try {
             List<E> list = new ArrayList<E>();
             for (InternalQueue<E> internalQueue : queues) {
@@ -433,13 +470,12 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
             }
             return list.toArray(a);
         } finally {
-            lock.unlock();
+            unlockAll();
         }
     }
 
     public Object[] toArray() {
-        final ReentrantLock lock = this.lock;
-        lock.lock();
+        lockAll();
         try {
             List<E> list = new ArrayList<E>();
             for (InternalQueue<E> internalQueue : queues) {
@@ -447,14 +483,105 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
             }
             return list.toArray();
         } finally {
-            lock.unlock();
+            unlockAll();
         }
     }
 
-    private InternalQueue<E> getQueueForPriority(int priority) {
-        for (InternalQueue<E> q : queues) {
-            if (q.getPriority() == priority) {
-                return q;
+    /**
+     * Take an element from the next internal queue, without waiting.
+     *
+     * @return an element or null if none is available
+     */
+    private E pollElement() {
+        if (!lockFree) {
+            return pollWithAlgorithm();
+        }
+        for (;;) {
+            if (count.get() <= 0) {
+                return null;
+            }
+            InternalQueue<E> internalQueue = nextQueueAlgorithm.getNextQueue();
+            if (internalQueue == null) {
+                // the algorithm may have seen out of date sizes, ask again with the queues locked
+                return pollWithAlgorithm();
+            }
+            int index = queues.indexOf(internalQueue);
+            E e;
+            final ReentrantLock lock = locks[index];
+            lock.lock();
+            try {
+                e = internalQueue.poll();
+                if (e != null) {
+                    counts[index].decrementAndGet();
+                    internalQueue.getNotFullCond().signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (e != null) {
+                count.decrementAndGet();
+                return e;
+            }
+            // another consumer took the last item of the queue, pick again
+        }
+    }
+
+    /**
+     * Take an element from the queue chosen by the configured algorithm, with all the internal
+     * queues locked.
+     *
+     * @return an element or null if none is available
+     */
+    private E pollWithAlgorithm() {
+        E e = null;
+        lockAll();
+        try {
+            InternalQueue<E> internalQueue = nextQueueAlgorithm.getNextQueue();
+            if (internalQueue != null) {
+                e = internalQueue.poll();
+                if (e != null) {
+                    counts[queues.indexOf(internalQueue)].decrementAndGet();
+                    internalQueue.getNotFullCond().signal();
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+        if (e != null) {
+            count.decrementAndGet();
+        }
+        return e;
+    }
+
+    private void signalNotEmpty() {
+        count.incrementAndGet();
+        if (waitingConsumers.get() > 0) {
+            final ReentrantLock lock = this.takeLock;
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private int getIndexForPriority(int priority) {
+        for (int i = 0; i < queues.size(); i++) {
+            if (queues.get(i).getPriority() == priority) {
+                return i;
             }
         }
         throw new IllegalArgumentException();
@@ -486,18 +613,21 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
                 throw new IllegalStateException();
             Object x = array[lastRet];
             lastRet = -1;
-            lock.lock();
+            lockAll();
             try {
-                for (InternalQueue<E> internalQueue : queues) {
-                    for (Iterator<E> it = internalQueue.iterator(); it.hasNext();) {
+                for (int i = 0; i < queues.size(); i++) {
+                    for (Iterator<E> it = queues.get(i).iterator(); it.hasNext();) {
                         if (it.next() == x) {
                             it.remove();
+                            counts[i].decrementAndGet();
+                            count.decrementAndGet();
+                            queues.get(i).getNotFullCond().signal();
                             return;
                         }
                     }
                 }
             } finally {
-                lock.unlock();
+                unlockAll();
             }
         }
     }
@@ -45,5 +45,16 @@ public interface NextQueueAlgorithm<E> {
      *
      * @return the queue
      */
-    InternalQueue<E> getNextQueue();    
+    InternalQueue<E> getNextQueue();
+
+    /**
+     * Whether {@link #getNextQueue()} can be called without locking the internal queues. Such
+     * an algorithm must be thread safe, and the queue it returns may already be empty when it
+     * is polled, in which case the next queue is asked for again.
+     *
+     * @return true if the algorithm can be called without locking the internal queues
+     */
+    default boolean isLockFree() {
+        return false;
+    }
 }
@@ -20,71 +20,115 @@
 package org.apache.synapse.commons.executors;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This is a priority based round robin algorithm for getting the next queue </p>
  *
- * <p>This algorithm works in cycles. Lets say we have queues with following priorities.
- * 7, 5, 2 and assume we name the queues as 1, 2, 3 in the order. </p>
- * <p>Here is how messages are picked in a single cycle </p>
- * <p> 1, 1, 1, 1, 1, 1, 1 all the messages for the queue with priority 1 are sent for this cycle
- * 2, 2, 2, 2, 2,  all the messages for the queue with priority 2 are sent for this cycle
- * 3, 3 all the messages with priority 2 are sent for this cycle</p>
+ * <p>This algorithm works in cycles, in which each queue is picked as many times as its
+ * priority. Lets say we have queues with following priorities 2, 1 and assume we name the
+ * queues as 1, 2 in the order. Here is how messages are picked in a single cycle </p>
+ * <p> 1, 2, 1 </p>
+ *
+ * <p>The picks of a queue are spread evenly over the cycle instead of being made one after
+ * the other, and priorities with a common divisor are reduced by it, so that the cycle is as
+ * short as possible.</p>
  *
  * <p>This algorithm choose the queues in the above order if all the queues have messages at the
- * point of selection. If a queue doesn't have messages it will skip the queue and move to the
- * next. If none of the queues have messages it will return null.
+ * point of selection. If a queue doesn't have messages it will move to the next queue of the
+ * cycle which has messages, so the empty queues give their share to the others in proportion
+ * to their priorities. If none of the queues have messages it will return null.</p>
+ *
+ * <p>The cycle is fixed once the algorithm is initialized and the position in it is kept in
+ * an atomic counter, so the algorithm can be called concurrently without locking the
+ * queues. The sizes of the queues are read without locking them, so a queue which has just
+ * got or lost messages may be skipped or returned empty.</p>
  */
 public class PRRNextQueueAlgorithm<E> implements NextQueueAlgorithm<E> {
     
     /** Reference to the actual queue */
     private List<InternalQueue<E>> queues;
 
-    /** Number of queues, we keep this to avoid the overhead of calculation this again and again */
-    private int size = 0;
-
-    /** Current queue we are operating on */
-    private int currentQueue = 0;
+    /** Indexes of the queues in the order they are picked in a cycle */
+    private int[] cycle;
 
-    /** Number of messages sent from the current queue */
-    private int currentCount = 0;
+    /** Position of the next pick in the cycle */
+    private final AtomicInteger position = new AtomicInteger();
 
     public InternalQueue<E> getNextQueue() {
-        InternalQueue<E> internalQueue = queues.get(currentQueue);
-
-        int priority = internalQueue.getPriority();
+        if (cycle.length == 0) {
+            return null;
+        }
+        int current = (position.getAndIncrement() & Integer.MAX_VALUE) % cycle.length;
+        for (int i = 0; i < cycle.length; i++) {
+            InternalQueue<E> internalQueue = queues.get(cycle[current]);
+            if (internalQueue.size() > 0) {
+                return internalQueue;
+            }
+            // we move forward until we find a non empty queue or everything is empty
+            if (++current == cycle.length) {
+                current = 0;
+            }
+        }
+        return null;
+    }
 
-        if (priority == currentCount || internalQueue.size() == 0) {
-            currentCount = 0;
-            // we need to move to the next queue not empty
-            int c = 0;
-            do {
-                if (currentQueue == queues.size() - 1) {
-                    currentQueue = 0;
-                } else {
-                    currentQueue++;
-                }
+    public boolean isLockFree() {
+        return true;
+    }
 
-                internalQueue = queues.get(currentQueue);
+    public void init(List<InternalQueue<E>> queues) {
+        this.queues = queues;
+        cycle = createCycle(queues);
+    }
 
-                c++;
-                // we move forward until we find a non empty queue or everything is empty
-            } while (internalQueue.size() == 0 && c < size);
+    /**
+     * Create a smooth weighted round robin cycle, in which each queue appears as many times
+     * as its priority (reduced by the greatest common divisor of the priorities), spread evenly
+     * over the cycle.
+     *
+     * @param queues queues sorted according to the priority
+     * @return indexes of the queues in the order they are picked
+     */
+    private static <E> int[] createCycle(List<InternalQueue<E>> queues) {
+        int size = queues.size();
+        if (size == 0) {
+            return new int[0];
+        }
+        int[] weights = new int[size];
+        int gcd = 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] = Math.max(1, queues.get(i).getPriority());
+            gcd = gcd(gcd, weights[i]);
+        }
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            weights[i] /= gcd;
+            total += weights[i];
+        }
 
-            // if we come to the initial queue, that means all the queues are empty.
-            if (internalQueue.size() == 0) {
-                currentQueue = 0;
-                return null;
+        int[] cycle = new int[total];
+        int[] current = new int[size];
+        for (int n = 0; n < total; n++) {
+            int selected = 0;
+            for (int i = 0; i < size; i++) {
+                current[i] += weights[i];
+                if (current[i] > current[selected]) {
+                    selected = i;
+                }
             }
+            current[selected] -= total;
+            cycle[n] = selected;
         }
-
-        currentCount++;
-
-        return internalQueue;
+        return cycle;
     }
 
-    public void init(List<InternalQueue<E>> queues) {
-        this.queues = queues;
-        size = queues.size();
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
     }
 }
@@ -0,0 +1,215 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor which runs tasks on virtual threads, as an alternative to a pool of platform threads
+ * for tasks which spend most of their time blocked (e.g. on blocking calls to backends or databases).
+ * The number of tasks running at the same time is limited by a semaphore. A virtual thread is only
+ * created for a task which obtained a permit. Tasks submitted beyond the limit are queued, as in the
+ * unbounded queue of a platform thread pool, and are run by the virtual threads of the completed tasks,
+ * so submitting a task never blocks the caller and is never rejected until the executor is shut down.
+ *
+ * Note that a virtual thread blocking while holding a monitor pins its carrier thread.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private static final Log log = LogFactory.getLog(VirtualThreadExecutor.class);
+
+    private final ThreadFactory threadFactory;
+
+    /** limits the number of running tasks, null if unlimited */
+    private final Semaphore permits;
+
+    /** tasks waiting for a permit */
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<Runnable>();
+
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final Object terminationLock = new Object();
+
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param threadNamePrefix prefix of the names of the virtual threads
+     * @param maxConcurrency   maximum number of tasks running at the same time, unlimited if not positive
+     */
+    public VirtualThreadExecutor(String threadNamePrefix, int maxConcurrency) {
+        this.threadFactory = Thread.ofVirtual().name(threadNamePrefix + "-", 0).factory();
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+    }
+
+    public void execute(final Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("Task cannot be null");
+        }
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        if (permits == null) {
+            startThread(task);
+            return;
+        }
+        pending.offer(task);
+        // a running thread which could not take the task releases its permit before checking the
+        // queue again, so the task cannot be left behind if no permit is available here
+        if (permits.tryAcquire()) {
+            startThread(null);
+        }
+    }
+
+    /**
+     * Starts a virtual thread holding a permit, which runs the given task if any and then the queued
+     * tasks until the queue is empty
+     */
+    private void startThread(final Runnable firstTask) {
+        Thread thread;
+        try {
+            thread = threadFactory.newThread(new Runnable() {
+                public void run() {
+                    try {
+                        if (firstTask != null) {
+                            runTask(firstTask);
+                        } else {
+                            runPendingTasks();
+                        }
+                    } finally {
+                        threads.remove(Thread.currentThread());
+                        signalTermination();
+                    }
+                }
+            });
+            threads.add(thread);
+        } catch (RuntimeException e) {
+            if (firstTask == null) {
+                permits.release();
+            }
+            throw e;
+        }
+        thread.start();
+    }
+
+    private void runPendingTasks() {
+        for (;;) {
+            Runnable task = pending.poll();
+            if (task == null) {
+                permits.release();
+                // a task queued before the permit was released may have found no permit
+                if (pending.isEmpty() || !permits.tryAcquire()) {
+                    return;
+                }
+                continue;
+            }
+            runTask(task);
+        }
+    }
+
+    private void runTask(Runnable task) {
+        activeCount.incrementAndGet();
+        try {
+            task.run();
+        } catch (Throwable t) {
+            log.error("Unhandled exception in task executed on a virtual thread", t);
+        } finally {
+            activeCount.decrementAndGet();
+        }
+    }
+
+    private void signalTermination() {
+        if (isTerminated()) {
+            synchronized (terminationLock) {
+                terminationLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the number of tasks which are running
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * @return the number of tasks waiting for the concurrency limit
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        signalTermination();
+    }
+
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        Runnable task;
+        while ((task = pending.poll()) != null) {
+            tasks.add(task);
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        signalTermination();
+        return tasks;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public boolean isTerminated() {
+        return shutdown && threads.isEmpty() && pending.isEmpty();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (terminationLock) {
+            while (!isTerminated()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                terminationLock.wait(remaining);
+            }
+            return true;
+        }
+    }
+}
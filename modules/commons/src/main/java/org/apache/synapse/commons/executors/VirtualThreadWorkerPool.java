@@ -0,0 +1,54 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.executors;
+
+import org.apache.axis2.transport.base.threads.WorkerPool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A transport {@link WorkerPool} backed by a {@link VirtualThreadExecutor}. The queue size reported
+ * is the number of tasks waiting for the concurrency limit.
+ */
+public class VirtualThreadWorkerPool implements WorkerPool {
+
+    private final VirtualThreadExecutor executor;
+
+    public VirtualThreadWorkerPool(String threadNamePrefix, int maxConcurrency) {
+        this.executor = new VirtualThreadExecutor(threadNamePrefix, maxConcurrency);
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getPendingCount();
+    }
+
+    public void shutdown(int timeout) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+}
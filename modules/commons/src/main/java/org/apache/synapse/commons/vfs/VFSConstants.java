@@ -76,6 +76,26 @@ public final class VFSConstants {
     public static final String APPEND = "transport.vfs.Append";
     public static final String SUBFOLDER_TIMESTAMP = "transport.vfs.SubFolderTimestampFormat";
 
+    /**
+     * Append messages to local files through a pooled, buffered file channel which is kept open across messages
+     */
+    public static final String POOLED_WRITER = "transport.vfs.PooledWriter";
+    /** Size of the write buffer of a pooled file channel, in bytes */
+    public static final String WRITER_BUFFER_SIZE = "transport.vfs.WriterBufferSize";
+    /** Interval at which pooled file channels are flushed, in milliseconds. Configured on the transport sender */
+    public static final String WRITER_FLUSH_INTERVAL = "transport.vfs.WriterFlushInterval";
+    /** Size in bytes after which a file written through a pooled file channel is rotated */
+    public static final String WRITER_ROTATE_SIZE = "transport.vfs.WriterRotateSize";
+    /** Time in milliseconds after which a file written through a pooled file channel is rotated */
+    public static final String WRITER_ROTATE_INTERVAL = "transport.vfs.WriterRotateInterval";
+
+    /** Maximum number of pooled file channels kept open at a time. Configured on the transport sender */
+    public static final String WRITER_MAX_OPEN_FILES = "transport.vfs.WriterMaxOpenFiles";
+
+    public static final int DEFAULT_WRITER_BUFFER_SIZE = 64 * 1024;
+    public static final long DEFAULT_WRITER_FLUSH_INTERVAL = 1000;
+    public static final int DEFAULT_WRITER_MAX_OPEN_FILES = 256;
+
     /**
      * parameter to set synchronous uploading of the files for a file protocol on host basis
      */
@@ -150,7 +170,68 @@ public final class VFSConstants {
      * This specify the file count that will be processed in a cycle/batch 
      * */    
     public static final String TRANSPORT_FILE_COUNT = "transport.vfs.FileProcessCount";
-    
+
+    /**
+     * This specify the number of files of a directory scan that will be processed concurrently
+     * */
+    public static final String TRANSPORT_FILE_PROCESSING_PARALLELISM = "transport.vfs.FileProcessingParallelism";
+
+    /**
+     * When files are processed concurrently, complete (move/delete) them in the order of the directory listing
+     * */
+    public static final String TRANSPORT_FILE_PROCESSING_ORDERED = "transport.vfs.FileProcessingOrdered";
+
+    public static final int DEFAULT_FILE_PROCESSING_PARALLELISM = 1;
+
+    /**
+     * Pick up files of local (file://) directories through native file system notifications. The poll interval
+     * is then used for the periodic reconciliation scan
+     * */
+    public static final String TRANSPORT_FILE_WATCH = "transport.vfs.WatchDirectory";
+
+    /**
+     * Time (in milliseconds) to wait for further file system notifications before scanning the notified files
+     * */
+    public static final String TRANSPORT_FILE_WATCH_DEBOUNCE_INTERVAL = "transport.vfs.WatchDebounceInterval";
+
+    public static final long DEFAULT_FILE_WATCH_DEBOUNCE_INTERVAL = 50;
+
+    /**
+     * Split a file into chunks which are injected as separate messages, instead of building a single message
+     * out of the whole file. Supported values are "line", "delimiter" and "element"
+     * */
+    public static final String TRANSPORT_FILE_CHUNK_MODE = "transport.vfs.ChunkMode";
+
+    /**
+     * The delimiter separating the records of a file when the chunk mode is "delimiter"
+     * */
+    public static final String TRANSPORT_FILE_CHUNK_DELIMITER = "transport.vfs.ChunkDelimiter";
+
+    /**
+     * The local name of the repeating XML element when the chunk mode is "element"
+     * */
+    public static final String TRANSPORT_FILE_CHUNK_ELEMENT = "transport.vfs.ChunkElement";
+
+    /**
+     * The number of lines, records or elements grouped into a single message. When more than one element is
+     * grouped, the elements are wrapped in an element named after their parent element
+     * */
+    public static final String TRANSPORT_FILE_CHUNK_SIZE = "transport.vfs.ChunkSize";
+
+    /**
+     * Whether empty lines or records are skipped when the chunk mode is "line" or "delimiter". Empty records
+     * are kept by default
+     * */
+    public static final String TRANSPORT_FILE_CHUNK_SKIP_EMPTY = "transport.vfs.ChunkSkipEmptyRecords";
+
+    /**
+     * The maximum number of chunks of a file which are mediated at the same time
+     * */
+    public static final String TRANSPORT_FILE_MAX_INFLIGHT_CHUNKS = "transport.vfs.MaxInFlightChunks";
+
+    public static final int DEFAULT_FILE_CHUNK_SIZE = 1;
+    public static final int DEFAULT_FILE_MAX_INFLIGHT_CHUNKS = 1;
+
     /**
      * Lock release true/false
      * */
@@ -192,6 +273,7 @@ public final class VFSConstants {
     public static final String FILE_NAME = "FILE_NAME";
     public static final String FILE_LENGTH = "FILE_LENGTH";
     public static final String LAST_MODIFIED = "LAST_MODIFIED";
+    public static final String FILE_CHUNK_INDEX = "FILE_CHUNK_INDEX";
 
     // identifies the scheme in use, i.e. file, ftp, sftp, http etc..
     public static final String SCHEME = "VFS_SCHEME";
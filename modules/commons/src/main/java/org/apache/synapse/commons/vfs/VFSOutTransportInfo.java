@@ -54,6 +54,10 @@ public class VFSOutTransportInfo implements OutTransportInfo {
     //When the folder structure does not exists forcefully create
     private boolean forceCreateFolder = false;
     private boolean updateLastModified = true;
+    private boolean pooledWriter = false;
+    private int writerBufferSize = VFSConstants.DEFAULT_WRITER_BUFFER_SIZE;
+    private long writerRotateSize = -1;
+    private long writerRotateInterval = -1;
     
     private static final String[] uriParamsToDelete = {VFSConstants.APPEND+"=true", VFSConstants.APPEND+"=false"};
 
@@ -152,6 +156,25 @@ public class VFSOutTransportInfo implements OutTransportInfo {
             updateLastModified = Boolean.parseBoolean(strUpdateLastModified);
         }
 
+        if (properties.containsKey(VFSConstants.POOLED_WRITER)) {
+            pooledWriter = Boolean.parseBoolean(properties.get(VFSConstants.POOLED_WRITER));
+        }
+
+        if (properties.containsKey(VFSConstants.WRITER_BUFFER_SIZE)) {
+            writerBufferSize = (int) parseWriterProperty(properties, VFSConstants.WRITER_BUFFER_SIZE, 1,
+                    Integer.MAX_VALUE);
+        }
+
+        if (properties.containsKey(VFSConstants.WRITER_ROTATE_SIZE)) {
+            writerRotateSize = parseWriterProperty(properties, VFSConstants.WRITER_ROTATE_SIZE, Long.MIN_VALUE,
+                    Long.MAX_VALUE);
+        }
+
+        if (properties.containsKey(VFSConstants.WRITER_ROTATE_INTERVAL)) {
+            writerRotateInterval = parseWriterProperty(properties, VFSConstants.WRITER_ROTATE_INTERVAL,
+                    Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
         if (log.isDebugEnabled()) {
             log.debug("Using the fileURI        : " + this.outFileURI);
             log.debug("Using the maxRetryCount  : " + maxRetryCount);
@@ -301,4 +324,41 @@ public class VFSOutTransportInfo implements OutTransportInfo {
 
         return updateLastModified;
     }
+
+    /**
+     * Parses a numeric setting of the pooled writer
+     *
+     * @throws IllegalArgumentException if the value is not a number within the given range
+     */
+    private static long parseWriterProperty(Map<String, String> properties, String name, long min, long max) {
+        String value = properties.get(name);
+        long number;
+        try {
+            number = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value : " + value + " of the parameter : " + name
+                    + ", a number is expected", e);
+        }
+        if (number < min || number > max) {
+            throw new IllegalArgumentException("Invalid value : " + value + " of the parameter : " + name
+                    + ", a number between " + min + " and " + max + " is expected");
+        }
+        return number;
+    }
+
+    public boolean isPooledWriter() {
+        return pooledWriter;
+    }
+
+    public int getWriterBufferSize() {
+        return writerBufferSize;
+    }
+
+    public long getWriterRotateSize() {
+        return writerRotateSize;
+    }
+
+    public long getWriterRotateInterval() {
+        return writerRotateInterval;
+    }
 }
@@ -0,0 +1,245 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.executors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.synapse.commons.executors.queues.UnboundedQueue;
+
+/**
+ * Tests the MultiPriorityBlockingQueue with several producers and consumers working on it
+ * concurrently, and checks that the items are still taken in proportion to their priorities.
+ */
+public class MultiPriorityBlockingQueueThroughputTest extends MultiPriorityBlockingQueueAbstractTest {
+
+    private static final int ITEMS_PER_PRODUCER = 50000;
+    private static final int PRODUCERS_PER_PRIORITY = 2;
+    private static final int CONSUMERS = 4;
+
+    private final int[] priorities = {10, 5, 1};
+
+    public void testConcurrentThroughput() throws Exception {
+        final MultiPriorityBlockingQueue<DummyTask> queue = createUnboundedQueue(3, priorities);
+        final int total = priorities.length * PRODUCERS_PER_PRIORITY * ITEMS_PER_PRODUCER;
+        final AtomicInteger taken = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(CONSUMERS);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final int priority : priorities) {
+            for (int p = 0; p < PRODUCERS_PER_PRIORITY; p++) {
+                threads.add(new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                                queue.put(new DummyTask(priority));
+                            }
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                        }
+                    }
+                }));
+            }
+        }
+        for (int c = 0; c < CONSUMERS; c++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        while (taken.get() < total) {
+                            if (queue.poll(10, TimeUnit.MILLISECONDS) != null) {
+                                taken.incrementAndGet();
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+
+        start.countDown();
+        assertTrue("Items were not taken in time", done.await(60, TimeUnit.SECONDS));
+
+        assertNull(failure.get());
+        assertEquals(total, taken.get());
+        assertEquals(0, queue.size());
+    }
+
+    public void testTakenInProportionToPrioritiesConcurrently() throws Exception {
+        final MultiPriorityBlockingQueue<DummyTask> queue = createUnboundedQueue(3, priorities);
+        final int cycles = 500;
+        final int cycle = 10 + 5 + 1;
+        // enough items for none of the queues to run out while the cycles are taken
+        for (int priority : priorities) {
+            for (int i = 0; i < 10 * cycles + 1000; i++) {
+                queue.put(new DummyTask(priority));
+            }
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(cycle * cycles);
+        final AtomicIntegerArray counts = new AtomicIntegerArray(11);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(CONSUMERS + priorities.length);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final int priority : priorities) {
+            // producers keep adding items while the consumers take them
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+                            queue.put(new DummyTask(priority));
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < CONSUMERS; c++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        while (remaining.getAndDecrement() > 0) {
+                            counts.incrementAndGet(queue.take().getPriority());
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+
+        start.countDown();
+        assertTrue("Items were not taken in time", done.await(60, TimeUnit.SECONDS));
+
+        assertNull(failure.get());
+        assertEquals(10 * cycles, counts.get(10));
+        assertEquals(5 * cycles, counts.get(5));
+        assertEquals(cycles, counts.get(1));
+    }
+
+    public void testTakenInProportionToPriorities() throws Exception {
+        int items = 1600;
+        MultiPriorityBlockingQueue<DummyTask> queue = createUnboundedQueue(3, priorities);
+        for (int priority : priorities) {
+            for (int i = 0; i < items; i++) {
+                queue.put(new DummyTask(priority));
+            }
+        }
+
+        // take a multiple of the cycle, while all the queues still have items
+        int[] counts = new int[101];
+        int cycle = 10 + 5 + 1;
+        for (int i = 0; i < cycle * 100; i++) {
+            counts[queue.take().getPriority()]++;
+        }
+        assertEquals(1000, counts[10]);
+        assertEquals(500, counts[5]);
+        assertEquals(100, counts[1]);
+
+        // once the high priority items are over the others share the consumers
+        while (!queue.isEmpty()) {
+            counts[queue.take().getPriority()]++;
+        }
+        assertEquals(items, counts[10]);
+        assertEquals(items, counts[5]);
+        assertEquals(items, counts[1]);
+    }
+
+    public void testSubclassedAlgorithmIsUsed() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        List<InternalQueue<DummyTask>> internalQueueList =
+                new ArrayList<InternalQueue<DummyTask>>();
+        for (int priority : priorities) {
+            internalQueueList.add(new UnboundedQueue<DummyTask>(priority));
+        }
+        MultiPriorityBlockingQueue<DummyTask> queue = new MultiPriorityBlockingQueue<DummyTask>(
+                internalQueueList, false, new PRRNextQueueAlgorithm<DummyTask>() {
+            public InternalQueue<DummyTask> getNextQueue() {
+                calls.incrementAndGet();
+                return super.getNextQueue();
+            }
+        });
+        for (int priority : priorities) {
+            for (int i = 0; i < 100; i++) {
+                queue.put(new DummyTask(priority));
+            }
+        }
+
+        int[] counts = new int[11];
+        int cycle = 10 + 5 + 1;
+        for (int i = 0; i < cycle * 5; i++) {
+            counts[queue.take().getPriority()]++;
+        }
+        assertEquals(cycle * 5, calls.get());
+        assertEquals(50, counts[10]);
+        assertEquals(25, counts[5]);
+        assertEquals(5, counts[1]);
+    }
+
+    public void testConsumersWaitForItems() throws Exception {
+        final MultiPriorityBlockingQueue<DummyTask> queue = createUnboundedQueue(3, priorities);
+        final CountDownLatch done = new CountDownLatch(CONSUMERS);
+        for (int c = 0; c < CONSUMERS; c++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        queue.take();
+                        done.countDown();
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            }).start();
+        }
+
+        Thread.sleep(50);
+        assertEquals(CONSUMERS, done.getCount());
+        for (int c = 0; c < CONSUMERS; c++) {
+            queue.offer(new DummyTask(priorities[c % priorities.length]));
+        }
+        assertTrue("Waiting consumers were not woken up", done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.size());
+    }
+}
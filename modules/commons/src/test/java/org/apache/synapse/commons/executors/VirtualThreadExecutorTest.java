@@ -0,0 +1,143 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.executors;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the {@link VirtualThreadExecutor}
+ */
+public class VirtualThreadExecutorTest extends TestCase {
+
+    public void testConcurrencyLimit() throws Exception {
+        final int limit = 4;
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test", limit);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        final CountDownLatch done = new CountDownLatch(50);
+
+        // tasks beyond the limit are queued, neither rejected nor given a thread of their own
+        for (int i = 0; i < 50; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    threads.add(Thread.currentThread());
+                    int current = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(current, Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException ignore) {
+                    } finally {
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue("Concurrency limit exceeded: " + maxRunning.get(), maxRunning.get() <= limit);
+        assertTrue("Too many threads created: " + threads.size(), threads.size() <= limit);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    public void testPendingTasksAreCounted() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test", 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            });
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((executor.getActiveCount() != 1 || executor.getPendingCount() != 2)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, executor.getActiveCount());
+        assertEquals(2, executor.getPendingCount());
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+    }
+
+    public void testShutdownNowReturnsQueuedTasks() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test", 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        DummyTask queued = new DummyTask(1);
+        executor.execute(queued);
+        assertEquals(1, executor.getPendingCount());
+
+        List<Runnable> tasks = executor.shutdownNow();
+        assertEquals(1, tasks.size());
+        assertSame(queued, tasks.get(0));
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    public void testShutdownNowInterruptsTasks() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test", 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        try {
+            executor.execute(new DummyTask(1));
+            fail("Tasks must be rejected after shutdown");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+}
@@ -296,6 +296,15 @@ public final class SynapseConstants {
          */
         public static final long DEFAULT_TIMEOUT_HANDLER_INTERVAL = 15000;
 
+        /**
+         * The System property that states the precision at which callbacks are timed out. Callbacks are
+         * expired at most this much later than their timeout
+         */
+        public static final String TIMEOUT_HANDLER_PRECISION = "synapse.timeout_handler_precision";
+
+        /** The default precision of callback timeouts in milliseconds */
+        public static final long DEFAULT_TIMEOUT_HANDLER_PRECISION = 1000;
+
         /**
          * The default endpoint suspend duration on failure (i hour)
          */
@@ -621,6 +630,18 @@ public final class SynapseConstants {
     // directory or not. By default this property is set to true.
     public static final String STORE_ARTIFACTS_LOCALLY = "synapse.artifacts.file.storage.enabled";
 
+    // Parses the artifact files of the artifact repository concurrently at startup, and initializes independent
+    // artifacts in parallel following the references between them. Disabled by default.
+    public static final String PARALLEL_ARTIFACT_DEPLOYMENT = "synapse.artifacts.parallel.deployment";
+    // Number of threads used by the parallel artifact deployment, the number of processors by default
+    public static final String PARALLEL_ARTIFACT_DEPLOYMENT_THREADS = "synapse.artifacts.parallel.deployment.threads";
+    // Initializes the endpoints, sequences, sequence templates and message stores when they are first used instead
+    // of at startup. Proxy services, APIs, inbound endpoints and message processors are always initialized at
+    // startup. Disabled by default.
+    public static final String LAZY_ARTIFACT_INIT = "synapse.artifacts.lazy.init";
+    // Comma separated names of the artifacts initialized on first use, all of them if not set
+    public static final String LAZY_ARTIFACT_INIT_ARTIFACTS = "synapse.artifacts.lazy.init.artifacts";
+
     public static final int DEFAULT_MAX_FAILOVER_RETRIES = -1; //Default set to unlimited retries
     public static final String MAX_FAILOVER_RETRIES_CONFIG = "maximum.failover.retries";
     public static final String SUSPEND_DURATION_ON_MAX_FAILOVER_CONFIG = "suspend.duration.on.maximum.failover";
@@ -628,6 +649,9 @@ public final class SynapseConstants {
     public static final String MAX_FAILOVER_RECUSIVE_RETRIES_CONFIG = "maximum.failover.recursive.retries";
     public static final String SUSPEND_DURATION_ON_MAX_RECURSIVE_FAILOVER_CONFIG =
             "suspend.duration.on.maximum.recursive.failover";
+    // Interval in ms at which the changes of the endpoint states are replicated in a cluster
+    public static final String ENDPOINT_STATE_REPLICATION_INTERVAL = "synapse.endpoint.state.replication.interval";
+    public static final long DEFAULT_ENDPOINT_STATE_REPLICATION_INTERVAL = 100;
     public static final String EXCLUDE_PAYLOAD_DETAILS_FROM_ERROR = "exclude.payload.details.from.error";
 
     /**
@@ -0,0 +1,409 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the references between the artifacts of a configuration deployed from an artifact repository
+ * (e.g. the sequences and endpoints referred by a proxy service or an API) along with the time taken
+ * to deploy each artifact. The references are used to initialize the artifacts in parallel, an
+ * artifact being initialized once all the artifacts it refers to have been initialized.
+ */
+public class ArtifactDependencyGraph {
+
+    private static final Log log = LogFactory.getLog(ArtifactDependencyGraph.class);
+
+    /** number of the slowest artifacts listed in the deployment summary */
+    private static final int SUMMARY_SIZE = 10;
+
+    /**
+     * Types of the artifacts initialized following their references
+     */
+    public enum ArtifactType {
+        ENDPOINT, SEQUENCE_TEMPLATE, SEQUENCE, PROXY_SERVICE, API, INBOUND_ENDPOINT, MESSAGE_STORE,
+        MESSAGE_PROCESSOR, OTHER
+    }
+
+    private final Map<String, Set<String>> references = new ConcurrentHashMap<String, Set<String>>();
+
+    private final ConcurrentHashMap<String, ArtifactTimes> deployTimes =
+            new ConcurrentHashMap<String, ArtifactTimes>();
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism the number of threads used to initialize the artifacts
+     */
+    public ArtifactDependencyGraph(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @return the number of threads used to initialize the artifacts
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Records the names of the artifacts referred by an artifact. Names which do not match another
+     * artifact initialized through this graph (e.g. registry keys) are ignored.
+     *
+     * @param type       type of the artifact
+     * @param name       name of the artifact
+     * @param references names of the artifacts referred by the artifact
+     */
+    public void addReferences(ArtifactType type, String name, Collection<String> references) {
+        this.references.put(key(type, name), new HashSet<String>(references));
+    }
+
+    /**
+     * Records the time taken to read and build an artifact from its file
+     *
+     * @param type     type of the artifact
+     * @param name     name of the artifact
+     * @param fileName file of the artifact
+     * @param nanos    the time taken in nanoseconds
+     */
+    public void recordBuildTime(ArtifactType type, String name, String fileName, long nanos) {
+        getTimes(type, name, fileName).buildTime = nanos;
+    }
+
+    private ArtifactTimes getTimes(ArtifactType type, String name, String fileName) {
+        return deployTimes.computeIfAbsent(key(type, name), k -> new ArtifactTimes(type, name, fileName));
+    }
+
+    /**
+     * Initializes a set of artifacts, running the initializers of independent artifacts in parallel.
+     * The calling thread waits on the given monitor, so that the initializers can call synchronized
+     * methods of the object which owns the monitor while the caller holds it.
+     *
+     * @param initializers the initializers of the artifacts, by artifact
+     * @param monitor      the monitor held by the calling thread, if any
+     */
+    public void initialize(Map<Artifact, Runnable> initializers, final Object monitor) {
+        final Map<Artifact, Node> nodes = new LinkedHashMap<Artifact, Node>();
+        Map<String, List<Node>> nodesByName = new HashMap<String, List<Node>>();
+        for (Map.Entry<Artifact, Runnable> entry : initializers.entrySet()) {
+            Node node = new Node(entry.getKey(), entry.getValue());
+            nodes.put(entry.getKey(), node);
+            List<Node> named = nodesByName.get(entry.getKey().name);
+            if (named == null) {
+                named = new ArrayList<Node>();
+                nodesByName.put(entry.getKey().name, named);
+            }
+            named.add(node);
+        }
+        for (Node node : nodes.values()) {
+            Set<String> refs = references.get(key(node.artifact.type, node.artifact.name));
+            if (refs == null) {
+                continue;
+            }
+            for (String ref : refs) {
+                List<Node> targets = nodesByName.get(ref);
+                if (targets == null) {
+                    continue;
+                }
+                for (Node target : targets) {
+                    if (target != node) {
+                        target.dependents.add(node);
+                        node.pending.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(nodes.size());
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "artifact-init-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final Object lock = monitor != null ? monitor : new Object();
+        try {
+            for (Node node : nodes.values()) {
+                if (node.pending.get() == 0) {
+                    submit(executor, node, remaining, cancelled, lock);
+                }
+            }
+            synchronized (lock) {
+                while (remaining.get() > 0 && !allBlocked(nodes.values())) {
+                    lock.wait(100);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while initializing the artifacts in parallel, the remaining artifacts " +
+                    "are initialized one after the other");
+            // no artifact is started anymore, and the ones being initialized must be done before the
+            // remaining ones are initialized by this thread
+            cancelled.set(true);
+            awaitRunning(nodes.values(), lock);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+
+        // artifacts referring to each other (or left by an interruption) are initialized one after the other
+        for (Node node : nodes.values()) {
+            if (!node.started && node.claim()) {
+                log.debug("Initializing " + node.artifact + (cancelled.get() ? " after the interruption" :
+                        " which is part of a reference cycle"));
+                run(node);
+            }
+        }
+    }
+
+    private void submit(final ExecutorService executor, final Node node, final AtomicInteger remaining,
+                        final AtomicBoolean cancelled, final Object lock) {
+        if (cancelled.get() || !node.claim()) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    ArtifactDependencyGraph.this.run(node);
+                } finally {
+                    for (Node dependent : node.dependents) {
+                        if (dependent.pending.decrementAndGet() == 0) {
+                            submit(executor, dependent, remaining, cancelled, lock);
+                        }
+                    }
+                    remaining.decrementAndGet();
+                    node.done = true;
+                    synchronized (lock) {
+                        lock.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    private void run(Node node) {
+        long start = System.nanoTime();
+        try {
+            node.initializer.run();
+        } catch (Exception e) {
+            log.error("Error in initializing " + node.artifact + " " + e.getMessage());
+        } finally {
+            getTimes(node.artifact.type, node.artifact.name, null).initTime = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Waits, without being interrupted, until none of the artifacts is being initialized
+     */
+    private void awaitRunning(Collection<Node> nodes, Object lock) {
+        synchronized (lock) {
+            while (isRunning(nodes)) {
+                try {
+                    lock.wait(100);
+                } catch (InterruptedException ignore) {
+                    // the interruption is restored by the caller
+                }
+            }
+        }
+    }
+
+    private boolean isRunning(Collection<Node> nodes) {
+        for (Node node : nodes) {
+            if (node.started && !node.done) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if no artifact is being initialized and the remaining ones wait on a cycle
+     */
+    private boolean allBlocked(Collection<Node> nodes) {
+        for (Node node : nodes) {
+            if (node.started && !node.done) {
+                return false;
+            }
+            if (!node.started && node.pending.get() == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the time taken to build and initialize each artifact, slowest first
+     */
+    public List<ArtifactTimes> getDeployTimes() {
+        List<ArtifactTimes> times = new ArrayList<ArtifactTimes>(deployTimes.values());
+        Collections.sort(times, (a, b) -> Long.compare(b.getTotalTime(), a.getTotalTime()));
+        return times;
+    }
+
+    /**
+     * Logs the number of artifacts deployed and the slowest ones in debug mode, and each artifact in
+     * trace mode
+     */
+    public void logSummary() {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        List<ArtifactTimes> times = getDeployTimes();
+        long total = 0;
+        for (ArtifactTimes t : times) {
+            total += t.getTotalTime();
+        }
+        log.debug("Deployed " + times.size() + " artifacts, " + TimeUnit.NANOSECONDS.toMillis(total) +
+                "ms spent building and initializing them using " + parallelism + " threads");
+        for (int i = 0; i < times.size(); i++) {
+            if (i < SUMMARY_SIZE) {
+                log.debug("  " + times.get(i));
+            } else if (log.isTraceEnabled()) {
+                log.trace("  " + times.get(i));
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static String key(ArtifactType type, String name) {
+        return type + ":" + name;
+    }
+
+    /**
+     * An artifact of the graph
+     */
+    public static final class Artifact {
+
+        private final ArtifactType type;
+        private final String name;
+
+        public Artifact(ArtifactType type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof Artifact && ((Artifact) o).type == type && ((Artifact) o).name.equals(name);
+        }
+
+        public int hashCode() {
+            return 31 * type.hashCode() + name.hashCode();
+        }
+
+        public String toString() {
+            return type + " [" + name + "]";
+        }
+    }
+
+    /**
+     * The time taken to build and initialize an artifact
+     */
+    public static final class ArtifactTimes {
+
+        private final ArtifactType type;
+        private final String name;
+        private final String fileName;
+        private volatile long buildTime;
+        private volatile long initTime;
+
+        ArtifactTimes(ArtifactType type, String name, String fileName) {
+            this.type = type;
+            this.name = name;
+            this.fileName = fileName;
+        }
+
+        public ArtifactType getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the time in nanoseconds taken to read and build the artifact from its file
+         */
+        public long getBuildTime() {
+            return buildTime;
+        }
+
+        /**
+         * @return the time in nanoseconds taken to initialize the artifact
+         */
+        public long getInitTime() {
+            return initTime;
+        }
+
+        public long getTotalTime() {
+            return buildTime + initTime;
+        }
+
+        public String toString() {
+            return type + " [" + name + "]" + (fileName != null ? " from " + fileName : "") + " : " +
+                    TimeUnit.NANOSECONDS.toMillis(getTotalTime()) + "ms (build " +
+                    TimeUnit.NANOSECONDS.toMillis(buildTime) + "ms, init " +
+                    TimeUnit.NANOSECONDS.toMillis(initTime) + "ms)";
+        }
+    }
+
+    private static final class Node {
+
+        private final Artifact artifact;
+        private final Runnable initializer;
+        private final List<Node> dependents = new ArrayList<Node>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean started;
+        private volatile boolean done;
+
+        Node(Artifact artifact, Runnable initializer) {
+            this.artifact = artifact;
+            this.initializer = initializer;
+        }
+
+        synchronized boolean claim() {
+            if (started) {
+                return false;
+            }
+            started = true;
+            return true;
+        }
+    }
+}
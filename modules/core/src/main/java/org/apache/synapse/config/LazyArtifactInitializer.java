@@ -0,0 +1,323 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.ArtifactDependencyGraph.ArtifactType;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Initializes the artifacts of a configuration when they are first looked up instead of at startup,
+ * and keeps the time taken to initialize the artifacts of each type. A deferred artifact is initialized
+ * once, by the first thread looking it up, while the other threads looking it up at the same time wait
+ * for the initialization to complete.
+ */
+public class LazyArtifactInitializer {
+
+    private static final Log log = LogFactory.getLog(LazyArtifactInitializer.class);
+
+    private final ConcurrentHashMap<Object, LazyArtifact> pending = new ConcurrentHashMap<Object, LazyArtifact>();
+
+    private final Map<ArtifactType, InitMetrics> metrics = new EnumMap<ArtifactType, InitMetrics>(ArtifactType.class);
+
+    private final boolean enabled;
+
+    /** names of the artifacts to initialize on first use, null for all of them */
+    private final Set<String> lazyArtifacts;
+
+    /**
+     * @param enabled       whether artifacts are initialized on first use
+     * @param lazyArtifacts names of the artifacts to initialize on first use, or null for all of them
+     */
+    public LazyArtifactInitializer(boolean enabled, Collection<String> lazyArtifacts) {
+        this.enabled = enabled;
+        this.lazyArtifacts = lazyArtifacts != null ? new HashSet<String>(lazyArtifacts) : null;
+        for (ArtifactType type : ArtifactType.values()) {
+            metrics.put(type, new InitMetrics());
+        }
+    }
+
+    /**
+     * @return an initializer configured by the synapse properties
+     */
+    public static LazyArtifactInitializer fromProperties() {
+        boolean enabled = SynapsePropertiesLoader.getBooleanProperty(SynapseConstants.LAZY_ARTIFACT_INIT, false);
+        String names = SynapsePropertiesLoader.getPropertyValue(SynapseConstants.LAZY_ARTIFACT_INIT_ARTIFACTS, null);
+        Set<String> lazyArtifacts = null;
+        if (names != null && !"".equals(names.trim())) {
+            lazyArtifacts = new HashSet<String>();
+            for (String name : names.split(",")) {
+                if (!"".equals(name.trim())) {
+                    lazyArtifacts.add(name.trim());
+                }
+            }
+        }
+        return new LazyArtifactInitializer(enabled, lazyArtifacts);
+    }
+
+    /**
+     * @param name name of the artifact
+     * @return true if the artifact should be initialized on first use
+     */
+    public boolean isLazy(String name) {
+        return enabled && name != null && (lazyArtifacts == null || lazyArtifacts.contains(name));
+    }
+
+    /**
+     * Initializes an artifact at startup, or registers it to be initialized on first use if it is lazy
+     *
+     * @param type        type of the artifact
+     * @param name        name of the artifact
+     * @param artifact    the artifact
+     * @param initializer initializes the artifact
+     */
+    public void initializeOrDefer(ArtifactType type, String name, Object artifact, Runnable initializer) {
+        if (isLazy(name)) {
+            defer(type, name, artifact, initializer);
+        } else {
+            initialize(type, name, initializer);
+        }
+    }
+
+    /**
+     * Initializes an artifact at startup, recording the time taken
+     *
+     * @param type        type of the artifact
+     * @param name        name of the artifact
+     * @param initializer initializes the artifact
+     */
+    public void initialize(ArtifactType type, String name, Runnable initializer) {
+        long start = System.nanoTime();
+        try {
+            initializer.run();
+        } catch (Exception e) {
+            log.error("Error in initializing " + type + " [" + name + "] " + e.getMessage());
+        } finally {
+            metrics.get(type).recordStartup(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Wraps the initializer of an artifact initialized at startup so that the time it takes is recorded
+     *
+     * @param type        type of the artifact
+     * @param initializer initializes the artifact
+     * @return the initializer recording the time taken
+     */
+    public Runnable timed(final ArtifactType type, final Runnable initializer) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                initializer.run();
+            } finally {
+                metrics.get(type).recordStartup(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Registers an artifact to be initialized on first use
+     *
+     * @param type        type of the artifact
+     * @param name        name of the artifact
+     * @param artifact    the artifact
+     * @param initializer initializes the artifact
+     */
+    public void defer(ArtifactType type, String name, Object artifact, Runnable initializer) {
+        pending.put(artifact, new LazyArtifact(type, name, artifact, initializer));
+        metrics.get(type).deferred.incrementAndGet();
+    }
+
+    /**
+     * Initializes the given artifact if it was deferred and has not been initialized yet. This is called
+     * whenever an artifact is looked up, so it returns right away once all artifacts are initialized.
+     *
+     * @param artifact the artifact being looked up
+     */
+    public void ensureInitialized(Object artifact) {
+        if (artifact == null || pending.isEmpty()) {
+            return;
+        }
+        LazyArtifact lazy = pending.get(artifact);
+        if (lazy != null && lazy.artifact == artifact) {
+            lazy.initialize();
+            pending.remove(artifact, lazy);
+        }
+    }
+
+    /**
+     * @param artifact an artifact
+     * @return true if the artifact was deferred and has not been initialized yet
+     */
+    public boolean isPending(Object artifact) {
+        LazyArtifact lazy = artifact != null ? pending.get(artifact) : null;
+        return lazy != null && lazy.artifact == artifact && !lazy.done;
+    }
+
+    /**
+     * Forgets an artifact which is removed from the configuration
+     *
+     * @param artifact the artifact
+     * @return true if the artifact was deferred and has not been initialized, in which case it does not
+     * have to be destroyed
+     */
+    public boolean discard(Object artifact) {
+        if (artifact == null) {
+            return false;
+        }
+        LazyArtifact lazy = pending.remove(artifact);
+        return lazy != null && lazy.artifact == artifact && !lazy.done;
+    }
+
+    /**
+     * @return the number of artifacts waiting for their first use
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @param type type of the artifacts
+     * @return the initialization counts and times of the artifacts of the given type
+     */
+    public InitMetrics getMetrics(ArtifactType type) {
+        return metrics.get(type);
+    }
+
+    /**
+     * Logs the number of artifacts of each type initialized at startup and deferred to their first use
+     */
+    public void logSummary() {
+        for (Map.Entry<ArtifactType, InitMetrics> entry : metrics.entrySet()) {
+            InitMetrics m = entry.getValue();
+            if (m.getStartupCount() == 0 && m.getDeferredCount() == 0) {
+                continue;
+            }
+            log.info("Initialized " + m.getStartupCount() + " artifacts of type " + entry.getKey() +
+                    " at startup in " + TimeUnit.NANOSECONDS.toMillis(m.getStartupTime()) + "ms" +
+                    (m.getDeferredCount() > 0 ? ", " + m.getDeferredCount() + " deferred to their first use" : ""));
+        }
+    }
+
+    /**
+     * Initialization counts and times of the artifacts of a type
+     */
+    public static final class InitMetrics {
+
+        private final AtomicLong startupCount = new AtomicLong();
+        private final AtomicLong startupTime = new AtomicLong();
+        private final AtomicLong deferred = new AtomicLong();
+        private final AtomicLong lazyCount = new AtomicLong();
+        private final AtomicLong lazyTime = new AtomicLong();
+
+        private void recordStartup(long nanos) {
+            startupCount.incrementAndGet();
+            startupTime.addAndGet(nanos);
+        }
+
+        private void recordLazy(long nanos) {
+            lazyCount.incrementAndGet();
+            lazyTime.addAndGet(nanos);
+        }
+
+        public long getStartupCount() {
+            return startupCount.get();
+        }
+
+        /**
+         * @return the time in nanoseconds spent initializing artifacts at startup
+         */
+        public long getStartupTime() {
+            return startupTime.get();
+        }
+
+        public long getDeferredCount() {
+            return deferred.get();
+        }
+
+        /**
+         * @return the number of deferred artifacts initialized on their first use so far
+         */
+        public long getLazyCount() {
+            return lazyCount.get();
+        }
+
+        /**
+         * @return the time in nanoseconds spent initializing artifacts on their first use
+         */
+        public long getLazyTime() {
+            return lazyTime.get();
+        }
+    }
+
+    private final class LazyArtifact {
+
+        private final ArtifactType type;
+        private final String name;
+        private final Object artifact;
+        private final Runnable initializer;
+        private volatile boolean done;
+        private boolean initializing;
+
+        LazyArtifact(ArtifactType type, String name, Object artifact, Runnable initializer) {
+            this.type = type;
+            this.name = name;
+            this.artifact = artifact;
+            this.initializer = initializer;
+        }
+
+        void initialize() {
+            if (done) {
+                return;
+            }
+            synchronized (this) {
+                // the artifact may look itself up while it is being initialized
+                if (done || initializing) {
+                    return;
+                }
+                initializing = true;
+                long start = System.nanoTime();
+                try {
+                    initializer.run();
+                } catch (Exception e) {
+                    log.error("Error in initializing " + type + " [" + name + "] on first use " + e.getMessage());
+                } finally {
+                    long time = System.nanoTime() - start;
+                    metrics.get(type).recordLazy(time);
+                    done = true;
+                    initializing = false;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Initialized " + type + " [" + name + "] on first use");
+                }
+            }
+        }
+    }
+}
@@ -42,6 +42,7 @@ import org.apache.synapse.commons.datasource.DataSourceRepositoryHolder;
 import org.apache.synapse.commons.executors.PriorityExecutor;
 import org.apache.synapse.commons.util.ext.TenantInfoInitiator;
 import org.apache.synapse.commons.util.ext.TenantInfoInitiatorProvider;
+import org.apache.synapse.config.ArtifactDependencyGraph.ArtifactType;
 import org.apache.synapse.config.xml.FactoryUtils;
 import org.apache.synapse.config.xml.MediatorFactoryFinder;
 import org.apache.synapse.config.xml.TemplateMediatorFactory;
@@ -76,6 +77,7 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -227,6 +229,17 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
      */
     private SynapseArtifactDeploymentStore artifactDeploymentStore = new SynapseArtifactDeploymentStore();
 
+    /**
+     * The references between the artifacts deployed from the artifact repository, null if the
+     * configuration was not built from an artifact repository
+     */
+    private ArtifactDependencyGraph artifactDependencyGraph;
+
+    /**
+     * Initializes the artifacts deferred to their first use and keeps the startup times of the artifacts
+     */
+    private volatile LazyArtifactInitializer artifactInitializer = new LazyArtifactInitializer(false, null);
+
     /**
      * Holds synapse Libraries indexed by library qualified name
      */
@@ -609,6 +622,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     public TemplateMediator getSequenceTemplate(String key) {
         Object o = getEntry(key);
         if (o instanceof TemplateMediator) {
+            artifactInitializer.ensureInitialized(o);
             return (TemplateMediator) o;
         }
 
@@ -703,6 +717,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         Object o = getEntry(key);
         if (o instanceof Mediator) {
+            artifactInitializer.ensureInitialized(o);
             return (Mediator) o;
         }
 
@@ -800,6 +815,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         Object sequence = localRegistry.get(key);
         if (sequence instanceof Mediator) {
             localRegistry.remove(key);
+            artifactInitializer.discard(sequence);
             for (SynapseObserver o : observers) {
                 o.sequenceRemoved((Mediator) sequence);
             }
@@ -817,6 +833,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         Object sequence = localRegistry.get(name);
         if (sequence instanceof TemplateMediator) {
             localRegistry.remove(name);
+            artifactInitializer.discard(sequence);
             for (SynapseObserver o : observers) {
                 o.sequenceTemplateRemoved((Mediator) sequence);
             }
@@ -1173,6 +1190,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         Object o = getEntry(key);
         if (o != null && o instanceof Endpoint) {
+            artifactInitializer.ensureInitialized(o);
             return (Endpoint) o;
         }
 
@@ -1235,6 +1253,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         Object endpoint = localRegistry.get(key);
         if (endpoint instanceof Endpoint) {
             localRegistry.remove(key);
+            artifactInitializer.discard(endpoint);
             for (SynapseObserver o : observers) {
                 o.endpointRemoved((Endpoint) endpoint);
             }
@@ -1600,14 +1619,18 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
             }
         }
 
-        // destroy the managed mediators
+        // destroy the managed mediators, except the ones never used since they were deferred
         for (ManagedLifecycle seq : getDefinedSequences().values()) {
-            seq.destroy();
+            if (!artifactInitializer.discard(seq)) {
+                seq.destroy();
+            }
         }
 
         //destroy sequence templates
         for (TemplateMediator seqTemplate : getSequenceTemplates().values()) {
-            seqTemplate.destroy();
+            if (!artifactInitializer.discard(seqTemplate)) {
+                seqTemplate.destroy();
+            }
         }
 
         //destroy inbound endpoint
@@ -1619,7 +1642,9 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         // destroy the managed endpoints
         for (Endpoint endpoint : getDefinedEndpoints().values()) {
-            endpoint.destroy();
+            if (!artifactInitializer.discard(endpoint)) {
+                endpoint.destroy();
+            }
         }
         
         // destroy the startups
@@ -1657,6 +1682,9 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         // destroy the Message Stores
         for (MessageStore ms : messageStores.values()) {
+            if (artifactInitializer.discard(ms)) {
+                continue;
+            }
             if (ms instanceof AbstractMessageProcessor) {
                 ((AbstractMessageProcessor) ms).destroy(preserverState);
             } else {
@@ -1689,24 +1717,37 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         initCarbonTenantConfigurator(se);
 
-        //initialize endpoints
-        for (Endpoint endpoint : getDefinedEndpoints().values()) {
-			try {
-				endpoint.init(se);
-			} catch (Exception e) {
-				log.error(" Error in initializing endpoint ["
-						+ endpoint.getName() + "] " + e.getMessage());
-			}
-        }
+        final LazyArtifactInitializer initializer = LazyArtifactInitializer.fromProperties();
+        artifactInitializer = initializer;
 
-        //initialize sequence templates
-        for (TemplateMediator seqTemplate : getSequenceTemplates().values()) {
-			try {
-				seqTemplate.init(se);
-			} catch (Exception e) {
-				log.error(" Error in initializing Sequence Template ["
-						+ seqTemplate.getName() + "] " + e.getMessage());
-			}
+        boolean parallelInit = artifactDependencyGraph != null && artifactDependencyGraph.getParallelism() > 1;
+        if (parallelInit) {
+            initArtifactsInParallel(se, EnumSet.of(ArtifactType.ENDPOINT, ArtifactType.SEQUENCE_TEMPLATE));
+        } else {
+            //initialize endpoints
+            for (final Endpoint endpoint : getDefinedEndpoints().values()) {
+                initializer.initializeOrDefer(ArtifactType.ENDPOINT, endpoint.getName(), endpoint, () -> {
+                    try {
+                        endpoint.init(se);
+                    } catch (Exception e) {
+                        log.error(" Error in initializing endpoint ["
+                                + endpoint.getName() + "] " + e.getMessage());
+                    }
+                });
+            }
+
+            //initialize sequence templates
+            for (final TemplateMediator seqTemplate : getSequenceTemplates().values()) {
+                initializer.initializeOrDefer(ArtifactType.SEQUENCE_TEMPLATE, seqTemplate.getName(), seqTemplate,
+                        () -> {
+                    try {
+                        seqTemplate.init(se);
+                    } catch (Exception e) {
+                        log.error(" Error in initializing Sequence Template ["
+                                + seqTemplate.getName() + "] " + e.getMessage());
+                    }
+                });
+            }
         }
 
         String tenantDomain = getTenantDomain(se);
@@ -1719,50 +1760,52 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
             destroyExistingInbounds(previouseConfiguration);
         }
 
-		for (InboundEndpoint endpoint : getInboundEndpoints()) {
-			try {
-				endpoint.init(se);
-			} catch (Exception e) {
-                inboundEndpointMap.remove(endpoint.getName());
-				log.error(" Error in initializing inbound endpoint [" + endpoint.getName() + "] " +
-				          e.getMessage());
-			}
-		}
-        
-        // initialize managed mediators
-        for (ManagedLifecycle seq : getDefinedSequences().values()) {
-            if (seq != null) {
+		for (final InboundEndpoint endpoint : getInboundEndpoints()) {
+			initializer.initialize(ArtifactType.INBOUND_ENDPOINT, endpoint.getName(), () -> {
 				try {
-					seq.init(se);
+					endpoint.init(se);
 				} catch (Exception e) {
-					log.error(" Error in initializing Sequence "
-							+ e.getMessage());
+					inboundEndpointMap.remove(endpoint.getName());
+					log.error(" Error in initializing inbound endpoint [" + endpoint.getName() + "] " +
+					          e.getMessage());
 				}
+			});
+		}
+        
+        if (parallelInit) {
+            initArtifactsInParallel(se, EnumSet.of(ArtifactType.SEQUENCE, ArtifactType.PROXY_SERVICE));
+        } else {
+            // initialize managed mediators
+            for (Map.Entry<String, SequenceMediator> entry : getDefinedSequences().entrySet()) {
+                final SequenceMediator seq = entry.getValue();
+                if (seq != null) {
+                    Runnable seqInitializer = () -> {
+                        try {
+                            seq.init(se);
+                        } catch (Exception e) {
+                            log.error(" Error in initializing Sequence "
+                                    + e.getMessage());
+                        }
+                    };
+                    if (isLazySequence(entry.getKey(), seq)) {
+                        initializer.defer(ArtifactType.SEQUENCE, entry.getKey(), seq, seqInitializer);
+                    } else {
+                        initializer.initialize(ArtifactType.SEQUENCE, entry.getKey(), seqInitializer);
+                    }
+                }
             }
-        }
 
-        // initialize all the proxy services
-        for (ProxyService proxy : getProxyServices()) {
-			try {
-				if (proxy.getTargetInLineEndpoint() != null) {
-					proxy.getTargetInLineEndpoint().init(se);
-				}
-
-				if (proxy.getTargetInLineInSequence() != null) {
-					proxy.getTargetInLineInSequence().init(se);
-				}
-
-				if (proxy.getTargetInLineOutSequence() != null) {
-					proxy.getTargetInLineOutSequence().init(se);
-				}
-
-				if (proxy.getTargetInLineFaultSequence() != null) {
-					proxy.getTargetInLineFaultSequence().init(se);
-				}
-			} catch (Exception e) {
-				log.error(" Error in initializing Proxy Service [ "
-						+ proxy.getName() + "] " + e.getMessage());
-			}
+            // initialize all the proxy services
+            for (final ProxyService proxy : getProxyServices()) {
+                initializer.initialize(ArtifactType.PROXY_SERVICE, proxy.getName(), () -> {
+                    try {
+                        initProxyService(proxy, se);
+                    } catch (Exception e) {
+                        log.error(" Error in initializing Proxy Service [ "
+                                + proxy.getName() + "] " + e.getMessage());
+                    }
+                });
+            }
         }
 
         // initialize the startups
@@ -1788,37 +1831,167 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         }
 
         //initialize message stores
-        for(MessageStore messageStore : messageStores.values()) {
-			try {
-				messageStore.init(se);
-			} catch (Exception e) {
-				log.error(" Error in initializing Message Store [ "
-						+ messageStore.getName() + "] " + e.getMessage());
-			}
+        for (final MessageStore messageStore : messageStores.values()) {
+			initializer.initializeOrDefer(ArtifactType.MESSAGE_STORE, messageStore.getName(), messageStore, () -> {
+				try {
+					messageStore.init(se);
+				} catch (Exception e) {
+					log.error(" Error in initializing Message Store [ "
+							+ messageStore.getName() + "] " + e.getMessage());
+				}
+			});
         }
 
         // initialize message processors
-        for(MessageProcessor messageProcessor : messageProcessors.values()) {
-			try {
-				messageProcessor.init(se);
-			} catch (Exception e) {
-				log.error(" Error in initializing Message Processor [ "
-						+ messageProcessor.getName() + "] " + e.getMessage());
-			}
+        for (final MessageProcessor messageProcessor : messageProcessors.values()) {
+			initializer.initialize(ArtifactType.MESSAGE_PROCESSOR, messageProcessor.getName(), () -> {
+				try {
+					messageProcessor.init(se);
+				} catch (Exception e) {
+					log.error(" Error in initializing Message Processor [ "
+							+ messageProcessor.getName() + "] " + e.getMessage());
+				}
+			});
         }
 
-        for (API api : apiTable.values()) {
-			try {
-				api.init(se);
-			} catch (Exception e) {
-				log.error(" Error in initializing API [ " + api.getName()
-						+ "] " + e.getMessage());
-			}
+        if (parallelInit) {
+            initArtifactsInParallel(se, EnumSet.of(ArtifactType.API));
+            artifactDependencyGraph.logSummary();
+        } else {
+            for (final API api : apiTable.values()) {
+                initializer.initialize(ArtifactType.API, api.getName(), () -> {
+                    try {
+                        api.init(se);
+                    } catch (Exception e) {
+                        log.error(" Error in initializing API [ " + api.getName()
+                                + "] " + e.getMessage());
+                    }
+                });
+            }
         }
+        initializer.logSummary();
 
         initImportedLibraries(se);
     }
 
+    /**
+     * The main, fault and mandatory sequences are used by every message, so they are never deferred
+     *
+     * @param key      the key of the sequence
+     * @param sequence the sequence
+     * @return true if the sequence should be initialized on first use
+     */
+    private boolean isLazySequence(String key, Mediator sequence) {
+        return !SynapseConstants.MAIN_SEQUENCE_KEY.equals(key) && !SynapseConstants.FAULT_SEQUENCE_KEY.equals(key)
+                && sequence != mandatorySequence && artifactInitializer.isLazy(key);
+    }
+
+    private void initProxyService(ProxyService proxy, SynapseEnvironment se) {
+        if (proxy.getTargetInLineEndpoint() != null) {
+            proxy.getTargetInLineEndpoint().init(se);
+        }
+
+        if (proxy.getTargetInLineInSequence() != null) {
+            proxy.getTargetInLineInSequence().init(se);
+        }
+
+        if (proxy.getTargetInLineOutSequence() != null) {
+            proxy.getTargetInLineOutSequence().init(se);
+        }
+
+        if (proxy.getTargetInLineFaultSequence() != null) {
+            proxy.getTargetInLineFaultSequence().init(se);
+        }
+    }
+
+    /**
+     * Initializes the artifacts of the given types in parallel, each artifact once the artifacts it
+     * refers to have been initialized. The types are initialized at the same point of the startup as
+     * in sequential mode, so the artifacts of the other types (e.g. inbound endpoints, startups and
+     * message stores) are initialized in the same order relative to them. This thread waits on the
+     * monitor of the configuration, so the artifacts can call the synchronized methods of the
+     * configuration while they are initialized. Artifacts deferred to their first use are left out.
+     *
+     * @param se    the synapse environment
+     * @param types the types of the artifacts to initialize, among endpoints, sequence templates,
+     *              sequences, proxy services and APIs
+     */
+    private void initArtifactsInParallel(final SynapseEnvironment se, Set<ArtifactType> types) {
+        LazyArtifactInitializer initializer = artifactInitializer;
+        Map<ArtifactDependencyGraph.Artifact, Runnable> initializers =
+                new LinkedHashMap<ArtifactDependencyGraph.Artifact, Runnable>();
+        if (types.contains(ArtifactType.ENDPOINT)) {
+            for (Map.Entry<String, Endpoint> entry : getDefinedEndpoints().entrySet()) {
+                final Endpoint endpoint = entry.getValue();
+                if (initializer.isLazy(entry.getKey())) {
+                    initializer.defer(ArtifactType.ENDPOINT, entry.getKey(), endpoint, () -> endpoint.init(se));
+                    continue;
+                }
+                initializers.put(new ArtifactDependencyGraph.Artifact(ArtifactType.ENDPOINT, entry.getKey()),
+                        initializer.timed(ArtifactType.ENDPOINT, () -> endpoint.init(se)));
+            }
+        }
+        if (types.contains(ArtifactType.SEQUENCE_TEMPLATE)) {
+            for (final TemplateMediator template : getSequenceTemplates().values()) {
+                if (initializer.isLazy(template.getName())) {
+                    initializer.defer(ArtifactType.SEQUENCE_TEMPLATE, template.getName(), template,
+                            () -> template.init(se));
+                    continue;
+                }
+                initializers.put(
+                        new ArtifactDependencyGraph.Artifact(ArtifactType.SEQUENCE_TEMPLATE, template.getName()),
+                        initializer.timed(ArtifactType.SEQUENCE_TEMPLATE, () -> template.init(se)));
+            }
+        }
+        if (types.contains(ArtifactType.SEQUENCE)) {
+            for (Map.Entry<String, SequenceMediator> entry : getDefinedSequences().entrySet()) {
+                final SequenceMediator sequence = entry.getValue();
+                if (sequence == null) {
+                    continue;
+                }
+                if (isLazySequence(entry.getKey(), sequence)) {
+                    initializer.defer(ArtifactType.SEQUENCE, entry.getKey(), sequence, () -> sequence.init(se));
+                    continue;
+                }
+                initializers.put(new ArtifactDependencyGraph.Artifact(ArtifactType.SEQUENCE, entry.getKey()),
+                        initializer.timed(ArtifactType.SEQUENCE, () -> sequence.init(se)));
+            }
+        }
+        if (types.contains(ArtifactType.PROXY_SERVICE)) {
+            for (final ProxyService proxy : getProxyServices()) {
+                initializers.put(new ArtifactDependencyGraph.Artifact(ArtifactType.PROXY_SERVICE, proxy.getName()),
+                        initializer.timed(ArtifactType.PROXY_SERVICE, () -> initProxyService(proxy, se)));
+            }
+        }
+        if (types.contains(ArtifactType.API)) {
+            for (final API api : new ArrayList<API>(apiTable.values())) {
+                initializers.put(new ArtifactDependencyGraph.Artifact(ArtifactType.API, api.getName()),
+                        initializer.timed(ArtifactType.API, () -> api.init(se)));
+            }
+        }
+        artifactDependencyGraph.initialize(initializers, this);
+    }
+
+    /**
+     * @return the references between the artifacts deployed from the artifact repository and the
+     * time taken to deploy them, or null if the configuration was not built from an artifact repository
+     */
+    public ArtifactDependencyGraph getArtifactDependencyGraph() {
+        return artifactDependencyGraph;
+    }
+
+    public void setArtifactDependencyGraph(ArtifactDependencyGraph artifactDependencyGraph) {
+        this.artifactDependencyGraph = artifactDependencyGraph;
+    }
+
+    /**
+     * @return the initializer of the artifacts deferred to their first use, which also keeps the time
+     * taken to initialize the artifacts of each type
+     */
+    public LazyArtifactInitializer getArtifactInitializer() {
+        return artifactInitializer;
+    }
+
     private void handleException(String msg) {
         log.error(msg);
         throw new SynapseException(msg);
@@ -1954,7 +2127,9 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
      * @return a MessageStore instance or null
      */
     public MessageStore getMessageStore(String name) {
-        return messageStores.get(name) ;
+        MessageStore messageStore = messageStores.get(name);
+        artifactInitializer.ensureInitialized(messageStore);
+        return messageStore;
     }
 
     /**
@@ -1998,7 +2173,9 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
                 (messageProcessors.get(processorName)).destroy();
             }
         }
-        return messageStores.remove(name);
+        MessageStore messageStore = messageStores.remove(name);
+        artifactInitializer.discard(messageStore);
+        return messageStore;
     }
 
     /**
@@ -40,7 +40,7 @@ import java.util.Properties;
  * Base class for factories for database related mediators.
  * <p/>
  * <pre>
- * &lt;dbreport | dblookup | .. etc>
+ * &lt;dbreport | dblookup | .. etc [batchSize="int"] [batchWindow="long"]>
  *   &lt;connection>
  *     &lt;pool>
  *     (
@@ -60,7 +60,7 @@ import java.util.Properties;
  *       &lt;property name="name" value="value"/>*
  *     &lt;/pool>
  *   &lt;/connection>
- *   &lt;statement>
+ *   &lt;statement [keyColumn="column"]>
  *     &lt;sql>insert into table values (?, ?, ..) OR select target from destinations where src = ?&lt;/sql>
  *     &lt;parameter (value="const" | expression="xpath") type="INTEGER|VARCHAR|..."/>*
  *     &lt;result name="propName" column="target | number"/>*
@@ -104,6 +104,9 @@ public abstract class AbstractDBMediatorFactory extends AbstractMediatorFactory
 
     static final QName ATT_COLUMN = new QName("column");
     static final QName ATT_TYPE = new QName("type");
+    static final QName ATT_KEY_COLUMN = new QName("keyColumn");
+    static final QName ATT_BATCH_SIZE = new QName("batchSize");
+    static final QName ATT_BATCH_WINDOW = new QName("batchWindow");
 
     /**
      * Reads the data source configuration for all mediators based on the <code>AbstractDBMediator</code>
@@ -313,6 +316,33 @@ public abstract class AbstractDBMediatorFactory extends AbstractMediatorFactory
         }
     }
 
+    /**
+     * Reads the optional batching configuration of the mediator, which coalesces the executions of a
+     * statement by concurrent messages into a single database round trip
+     *
+     * @param elem the configuration element of the mediator
+     * @param mediator the mediator on which the configuration shall be stored
+     */
+    protected void processBatchConfig(OMElement elem, AbstractDBMediator mediator) {
+
+        String batchSize = getAttribute(elem, ATT_BATCH_SIZE);
+        if (batchSize != null) {
+            try {
+                mediator.setBatchSize(Integer.parseInt(batchSize.trim()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid batchSize : " + batchSize + " specified for the DB mediator", e);
+            }
+        }
+        String batchWindow = getAttribute(elem, ATT_BATCH_WINDOW);
+        if (batchWindow != null) {
+            try {
+                mediator.setBatchWindow(Long.parseLong(batchWindow.trim()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid batchWindow : " + batchWindow + " specified for the DB mediator", e);
+            }
+        }
+    }
+
     protected void processStatements(OMElement elem, AbstractDBMediator mediator) {
 
         Iterator iter = elem.getChildrenWithName(STMNT_Q);
@@ -359,6 +389,17 @@ public abstract class AbstractDBMediatorFactory extends AbstractMediatorFactory
                         getAttribute(resultElt, ATT_COLUMN));
             }
 
+            String keyColumn = getAttribute(stmntElt, ATT_KEY_COLUMN);
+            if (keyColumn != null) {
+                // lookups are batched by expanding the single parameter into an IN list
+                if (statement.getParameters().size() != 1 ||
+                        statement.getRawStatement().indexOf('?') != statement.getRawStatement().lastIndexOf('?')) {
+                    handleException("A statement with a keyColumn must have exactly one parameter, " +
+                            "used in an IN clause : " + statement.getRawStatement());
+                }
+                statement.setKeyColumn(keyColumn);
+            }
+
             mediator.addStatement(statement);
         }
     }
@@ -93,6 +93,19 @@ public abstract class AbstractDBMediatorSerializer extends AbstractMediatorSeria
         }
     }
 
+    protected void serializeBatchConfig(AbstractDBMediator mediator, OMElement dbParent) {
+        if (mediator.isBatchingEnabled()) {
+            dbParent.addAttribute(fac.createOMAttribute(
+                AbstractDBMediatorFactory.ATT_BATCH_SIZE.getLocalPart(), nullNS,
+                String.valueOf(mediator.getBatchSize())));
+        }
+        if (mediator.getBatchWindow() != AbstractDBMediator.DEFAULT_BATCH_WINDOW) {
+            dbParent.addAttribute(fac.createOMAttribute(
+                AbstractDBMediatorFactory.ATT_BATCH_WINDOW.getLocalPart(), nullNS,
+                String.valueOf(mediator.getBatchWindow())));
+        }
+    }
+
     private OMNode createPoolElement(AbstractDBMediator mediator) {
         OMElement poolElt = fac.createOMElement("pool", synNS);
 
@@ -193,6 +206,10 @@ public abstract class AbstractDBMediatorSerializer extends AbstractMediatorSeria
         
         OMElement stmntElt = fac.createOMElement(
             AbstractDBMediatorFactory.STMNT_Q.getLocalPart(), synNS);
+        if (statement.getKeyColumn() != null) {
+            stmntElt.addAttribute(fac.createOMAttribute(
+                AbstractDBMediatorFactory.ATT_KEY_COLUMN.getLocalPart(), nullNS, statement.getKeyColumn()));
+        }
 
         OMElement sqlElt = fac.createOMElement(
             AbstractDBMediatorFactory.SQL_Q.getLocalPart(), synNS);
@@ -0,0 +1,216 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config.xml;
+
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMElement;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.ArtifactDependencyGraph;
+import org.apache.synapse.config.ArtifactDependencyGraph.ArtifactType;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Reads the artifact files of an artifact repository for the {@link MultiXMLConfigurationBuilder}.
+ * In parallel mode all the files are parsed concurrently up front, while the artifacts are still
+ * built from the parsed documents one at a time in the usual order. The time taken to deploy each
+ * artifact and the references between the artifacts are recorded in an {@link ArtifactDependencyGraph}.
+ */
+class ArtifactLoader {
+
+    private static final Log log = LogFactory.getLog(ArtifactLoader.class);
+
+    /**
+     * Attributes which refer to other artifacts by name, e.g. the sequences of a proxy service or of
+     * an API resource, a sequence or endpoint by key, or the target of a template call
+     */
+    private static final Set<String> REFERENCE_ATTRIBUTES = new HashSet<String>(Arrays.asList(
+            "key", "sequence", "inSequence", "outSequence", "faultSequence", "onError", "endpoint",
+            "target"));
+
+    private final Function<File, OMElement> parser;
+    private final ArtifactDependencyGraph graph;
+    private final ExecutorService executor;
+    private final Map<String, Future<ParsedFile>> parsedFiles = new ConcurrentHashMap<String, Future<ParsedFile>>();
+    /** time spent waiting for the documents parsed in parallel, by file */
+    private final Map<String, ParsedFile> waited = new ConcurrentHashMap<String, ParsedFile>();
+
+    /**
+     * @param parser  parses an artifact file
+     * @param graph   the graph recording the artifacts
+     * @param threads the number of threads parsing the files, files are parsed on demand if less than 2
+     */
+    ArtifactLoader(Function<File, OMElement> parser, ArtifactDependencyGraph graph, int threads) {
+        this.parser = parser;
+        this.graph = graph;
+        if (threads > 1) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "artifact-parser-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Starts parsing the artifact files of the given directories, in parallel mode
+     *
+     * @param root        the root of the artifact repository
+     * @param directories the artifact directories
+     * @param extensions  the extensions of the artifact files
+     */
+    void parseAll(String root, String[] directories, String[] extensions) {
+        if (executor == null) {
+            return;
+        }
+        int count = 0;
+        for (String directory : directories) {
+            File dir = new File(root, directory);
+            if (!dir.isDirectory()) {
+                continue;
+            }
+            Iterator files = FileUtils.iterateFiles(dir, extensions, false);
+            while (files.hasNext()) {
+                final File file = (File) files.next();
+                parsedFiles.put(file.getAbsolutePath(), executor.submit(() -> {
+                    long start = System.nanoTime();
+                    OMElement document = parser.apply(file);
+                    return new ParsedFile(document, System.nanoTime() - start);
+                }));
+                count++;
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Parsing " + count + " artifact files in parallel");
+        }
+    }
+
+    /**
+     * Returns the document of an artifact file, parsing the file if it has not been parsed in advance
+     *
+     * @param file the artifact file
+     * @return the document element of the file
+     */
+    OMElement getDocument(File file) {
+        Future<ParsedFile> future = parsedFiles.remove(file.getAbsolutePath());
+        if (future == null) {
+            return parser.apply(file);
+        }
+        long start = System.nanoTime();
+        try {
+            ParsedFile parsed = future.get();
+            parsed.waitTime = System.nanoTime() - start;
+            waited.put(file.getAbsolutePath(), parsed);
+            return parsed.document;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SynapseException("Interrupted while parsing the file: " + file.getName(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SynapseException) {
+                throw (SynapseException) e.getCause();
+            }
+            throw new SynapseException("Error while parsing the file: " + file.getName(), e.getCause());
+        }
+    }
+
+    /**
+     * Records an artifact built from a file
+     *
+     * @param type     type of the artifact
+     * @param name     name of the artifact
+     * @param file     file of the artifact
+     * @param document document element of the file
+     * @param start    the value of {@link System#nanoTime()} when the deployment of the artifact started
+     */
+    void deployed(ArtifactType type, String name, File file, OMElement document, long start) {
+        long time = System.nanoTime() - start;
+        ParsedFile parsed = waited.remove(file.getAbsolutePath());
+        if (parsed != null) {
+            // count the time taken to parse the file in parallel rather than the time waited for it
+            time = time - parsed.waitTime + parsed.parseTime;
+        }
+        graph.recordBuildTime(type, name, file.getName(), time);
+        if (type != ArtifactType.OTHER && document != null) {
+            Set<String> references = new HashSet<String>();
+            collectReferences(document, references);
+            references.remove(name);
+            graph.addReferences(type, name, references);
+        }
+    }
+
+    private void collectReferences(OMElement element, Collection<String> references) {
+        Iterator attributes = element.getAllAttributes();
+        while (attributes.hasNext()) {
+            OMAttribute attribute = (OMAttribute) attributes.next();
+            String value = attribute.getAttributeValue();
+            // dynamic keys are only known at runtime
+            if (REFERENCE_ATTRIBUTES.contains(attribute.getLocalName()) && value != null
+                    && !value.startsWith("{")) {
+                references.add(value.trim());
+            }
+        }
+        Iterator children = element.getChildElements();
+        while (children.hasNext()) {
+            collectReferences((OMElement) children.next(), references);
+        }
+    }
+
+    void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        parsedFiles.clear();
+        waited.clear();
+    }
+
+    private static final class ParsedFile {
+
+        private final OMElement document;
+        private final long parseTime;
+        private long waitTime;
+
+        ParsedFile(OMElement document, long parseTime) {
+            this.document = document;
+            this.parseTime = parseTime;
+        }
+    }
+}
@@ -32,7 +32,7 @@ import java.util.Properties;
  * <p>
  * Configuration syntax:
  * <pre>
- * &lt;dblookup&gt;
+ * &lt;dblookup [batchSize="int"] [batchWindow="long"] [cacheTimeout="long"] [cacheMaxSize="int"]&gt;
  *   &lt;connection&gt;
  *     &lt;pool&gt;
  *      (
@@ -50,25 +50,50 @@ import java.util.Properties;
  *       &lt;property name="name" value="value"/&gt;*
  *     &lt;/pool&gt;
  *   &lt;/connection&gt;
- *   &lt;statement&gt;
+ *   &lt;statement [keyColumn="column"]&gt;
  *     &lt;sql&gt;select something from table where something_else = ?&lt;/sql&gt;
  *     &lt;parameter [value="" | expression=""] type="int|string"/&gt;*
  *     &lt;result name="string" column="int|string"/&gt;*
  *   &lt;/statement&gt;+
  * &lt;/dblookup&gt;
  * </pre>
+ * When batching is enabled, lookups of concurrent messages using a statement with a key column are
+ * executed as a single query, by expanding its single parameter into an IN list, for example
+ * <code>select target, source from destinations where source in (?)</code> with
+ * <code>keyColumn="source"</code>. The results of lookups are cached for <code>cacheTimeout</code>
+ * milliseconds when it is specified.
  */
 public class DBLookupMediatorFactory extends AbstractDBMediatorFactory {
 
     private static final QName DBLOOKUP_Q =
         new QName(SynapseConstants.SYNAPSE_NAMESPACE, "dblookup");
+    static final QName ATT_CACHE_TIMEOUT = new QName("cacheTimeout");
+    static final QName ATT_CACHE_MAX_SIZE = new QName("cacheMaxSize");
 
     public Mediator createSpecificMediator(OMElement elem, Properties properties) {
 
         DBLookupMediator mediator = new DBLookupMediator();
         processAuditStatus(mediator, elem);
         buildDataSource(elem, mediator);
+        processBatchConfig(elem, mediator);
         processStatements(elem, mediator);
+
+        String cacheTimeout = getAttribute(elem, ATT_CACHE_TIMEOUT);
+        if (cacheTimeout != null) {
+            try {
+                mediator.setCacheTimeout(Long.parseLong(cacheTimeout.trim()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid cacheTimeout : " + cacheTimeout + " specified for the DBLookup mediator", e);
+            }
+        }
+        String cacheMaxSize = getAttribute(elem, ATT_CACHE_MAX_SIZE);
+        if (cacheMaxSize != null) {
+            try {
+                mediator.setCacheMaxSize(Integer.parseInt(cacheMaxSize.trim()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid cacheMaxSize : " + cacheMaxSize + " specified for the DBLookup mediator", e);
+            }
+        }
         addAllCommentChildrenToList(elem, mediator.getCommentsList());
         return mediator;
     }
@@ -38,6 +38,17 @@ public class DBLookupMediatorSerializer extends AbstractDBMediatorSerializer {
 
         DBLookupMediator mediator = (DBLookupMediator) m;
         OMElement dbLookup = fac.createOMElement("dblookup", synNS);
+        serializeBatchConfig(mediator, dbLookup);
+        if (mediator.getCacheTimeout() > 0) {
+            dbLookup.addAttribute(fac.createOMAttribute(
+                DBLookupMediatorFactory.ATT_CACHE_TIMEOUT.getLocalPart(), nullNS,
+                String.valueOf(mediator.getCacheTimeout())));
+        }
+        if (mediator.getCacheMaxSize() != DBLookupMediator.DEFAULT_CACHE_MAX_SIZE) {
+            dbLookup.addAttribute(fac.createOMAttribute(
+                DBLookupMediatorFactory.ATT_CACHE_MAX_SIZE.getLocalPart(), nullNS,
+                String.valueOf(mediator.getCacheMaxSize())));
+        }
         saveTracingState(dbLookup,mediator);
         serializeDBInformation(mediator, dbLookup);
         serializeComments(dbLookup, mediator.getCommentsList());
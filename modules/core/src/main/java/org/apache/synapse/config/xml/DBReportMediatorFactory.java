@@ -31,7 +31,7 @@ import java.util.Properties;
 /**
  * Factory for {@link DBReportMediator} instances.
  * <pre>
- * &lt;dbreport useTransaction="true|false"&gt;
+ * &lt;dbreport useTransaction="true|false" [batchSize="int"] [batchWindow="long"]&gt;
  *   &lt;connection&gt;
  *     &lt;pool&gt;
  *      (
@@ -55,6 +55,8 @@ import java.util.Properties;
  *    &lt;/statement&gt;+
  * &lt;/dblreport&gt;
  * </pre>
+ * When batching is enabled, inserts of concurrent messages which do not participate in a transaction
+ * are executed as a single JDBC batch.
  */
 public class DBReportMediatorFactory extends AbstractDBMediatorFactory {
 
@@ -76,6 +78,7 @@ public class DBReportMediatorFactory extends AbstractDBMediatorFactory {
             }
         }
         buildDataSource(elem, mediator);
+        processBatchConfig(elem, mediator);
         processStatements(elem, mediator);
         addAllCommentChildrenToList(elem, mediator.getCommentsList());
         return mediator;
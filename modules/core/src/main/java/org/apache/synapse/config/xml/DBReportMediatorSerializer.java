@@ -41,6 +41,7 @@ public class DBReportMediatorSerializer extends AbstractDBMediatorSerializer {
         if (mediator.isUseTransaction()) {
             dbReport.addAttribute(fac.createOMAttribute("useTransaction", nullNS, "true"));
         }
+        serializeBatchConfig(mediator, dbReport);
         saveTracingState(dbReport, mediator);
         serializeDBInformation(mediator, dbReport);
 
@@ -35,9 +35,12 @@ import org.apache.synapse.SynapseException;
 import org.apache.synapse.message.processor.MessageProcessor;
 import org.apache.synapse.message.store.MessageStore;
 import org.apache.synapse.commons.executors.PriorityExecutor;
+import org.apache.synapse.config.ArtifactDependencyGraph;
+import org.apache.synapse.config.ArtifactDependencyGraph.ArtifactType;
 import org.apache.synapse.config.Entry;
 import org.apache.synapse.config.SynapseConfigUtils;
 import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.axis2.ProxyService;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.eventing.SynapseEventSource;
@@ -103,6 +106,13 @@ public class MultiXMLConfigurationBuilder {
 
     private static final String[] extensions = { "xml" };
 
+    /**
+     * The directories of the artifacts parsed in advance in parallel deployment mode
+     */
+    private static final String[] ARTIFACT_DIRS = { SYNAPSE_IMPORTS_DIR, LOCAL_ENTRY_DIR, ENDPOINTS_DIR,
+            SEQUENCES_DIR, TEMPLATES_DIR, PROXY_SERVICES_DIR, TASKS_DIR, EVENTS_DIR, EXECUTORS_DIR,
+            MESSAGE_STORE_DIR, MESSAGE_PROCESSOR_DIR, REST_API_DIR, INBOUND_ENDPOINT_DIR };
+
     private static Log log = LogFactory.getLog(MultiXMLConfigurationBuilder.class);
 
     public static SynapseConfiguration getConfiguration(String root, Properties properties) {
@@ -139,22 +149,57 @@ public class MultiXMLConfigurationBuilder {
         }
 
 
-        createSynapseImports(synapseConfig, root, properties);
-        createLocalEntries(synapseConfig, root, properties);
-        createEndpoints(synapseConfig, root, properties);
-        createSequences(synapseConfig, root, properties);
-        createTemplates(synapseConfig, root, properties);
-        createProxyServices(synapseConfig, root, properties);
-        createTasks(synapseConfig, root, properties);
-        createEventSources(synapseConfig, root, properties);
-        createExecutors(synapseConfig, root, properties);
-        createMessageStores(synapseConfig, root, properties);
-        createMessageProcessors(synapseConfig, root, properties);
-        createAPIs(synapseConfig, root, properties);
-        createInboundEndpoint(synapseConfig, root, properties);
+        int threads = getDeploymentThreads();
+        ArtifactDependencyGraph dependencyGraph = new ArtifactDependencyGraph(threads);
+        ArtifactLoader loader = new ArtifactLoader(MultiXMLConfigurationBuilder::getOMElement,
+                dependencyGraph, threads);
+        try {
+            loader.parseAll(root, ARTIFACT_DIRS, extensions);
+            createSynapseImports(synapseConfig, root, properties, loader);
+            createLocalEntries(synapseConfig, root, properties, loader);
+            createEndpoints(synapseConfig, root, properties, loader);
+            createSequences(synapseConfig, root, properties, loader);
+            createTemplates(synapseConfig, root, properties, loader);
+            createProxyServices(synapseConfig, root, properties, loader);
+            createTasks(synapseConfig, root, properties, loader);
+            createEventSources(synapseConfig, root, properties, loader);
+            createExecutors(synapseConfig, root, properties, loader);
+            createMessageStores(synapseConfig, root, properties, loader);
+            createMessageProcessors(synapseConfig, root, properties, loader);
+            createAPIs(synapseConfig, root, properties, loader);
+            createInboundEndpoint(synapseConfig, root, properties, loader);
+        } finally {
+            loader.close();
+        }
+
+        synapseConfig.setArtifactDependencyGraph(dependencyGraph);
+        if (threads < 2) {
+            // in parallel mode the summary is logged once the artifacts are initialized
+            dependencyGraph.logSummary();
+        }
         return synapseConfig;
     }
 
+    /**
+     * @return the number of threads deploying the artifacts, 1 unless parallel deployment is enabled
+     */
+    private static int getDeploymentThreads() {
+        if (!SynapsePropertiesLoader.getBooleanProperty(SynapseConstants.PARALLEL_ARTIFACT_DEPLOYMENT, false)) {
+            return 1;
+        }
+        String threads = SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.PARALLEL_ARTIFACT_DEPLOYMENT_THREADS, null);
+        if (threads != null) {
+            try {
+                return Math.max(1, Integer.parseInt(threads.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value for " + SynapseConstants.PARALLEL_ARTIFACT_DEPLOYMENT_THREADS +
+                        " : " + threads + ", using the number of processors");
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     private static SynapseConfiguration createConfigurationFromSynapseXML(
             String rootDirPath, Properties properties) {
 
@@ -228,7 +273,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createLocalEntries(SynapseConfiguration synapseConfig, String rootDirPath,
-                                           Properties properties) {
+                                           Properties properties, ArtifactLoader loader) {
 
         File localEntriesDir = new File(rootDirPath, LOCAL_ENTRY_DIR);
         if (localEntriesDir.exists()) {
@@ -240,13 +285,15 @@ public class MultiXMLConfigurationBuilder {
             while (entryDefinitions.hasNext()) {
                 File file = (File) entryDefinitions.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     Entry entry = SynapseXMLConfigurationFactory.defineEntry(synapseConfig, document,
                             properties);
                     if (entry != null) {
                         entry.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(file.getAbsolutePath(),
                                 entry.getKey());
+                        loader.deployed(ArtifactType.OTHER, entry.getKey(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Local Entry configuration cannot be built from : " + file.getName();
@@ -257,7 +304,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createProxyServices(SynapseConfiguration synapseConfig, String rootDirPath,
-                                            Properties properties) {
+                                            Properties properties, ArtifactLoader loader) {
 
         File proxyServicesDir = new File(rootDirPath, PROXY_SERVICES_DIR);
         if (proxyServicesDir.exists()) {
@@ -270,13 +317,15 @@ public class MultiXMLConfigurationBuilder {
             while (proxyDefinitions.hasNext()) {
                 File file = (File) proxyDefinitions.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     ProxyService proxy = SynapseXMLConfigurationFactory.defineProxy(synapseConfig,
                             document, properties);
                     if (proxy != null) {
                         proxy.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(
                                 file.getAbsolutePath(), proxy.getName());
+                        loader.deployed(ArtifactType.PROXY_SERVICE, proxy.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Proxy configuration cannot be built from : " + file.getName();
@@ -287,7 +336,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createTasks(SynapseConfiguration synapseConfig, String rootDirPath,
-                                    Properties properties) {
+                                    Properties properties, ArtifactLoader loader) {
 
         File tasksDir = new File(rootDirPath, TASKS_DIR);
         if (tasksDir.exists()) {
@@ -299,12 +348,14 @@ public class MultiXMLConfigurationBuilder {
             while (taskDefinitions.hasNext()) {
                 File file = (File) taskDefinitions.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     Startup startup = SynapseXMLConfigurationFactory.defineStartup(synapseConfig,
                             document, properties);
                     startup.setFileName(file.getName());
                     synapseConfig.getArtifactDeploymentStore().addArtifact(
                             file.getAbsolutePath(), startup.getName());
+                    loader.deployed(ArtifactType.OTHER, startup.getName(), file, document, start);
                 } catch (Exception e) {
                     String msg = "Task configuration cannot be built from : " + file.getName();
                     handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_TASKS, msg, e);
@@ -314,7 +365,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createSequences(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ArtifactLoader loader) {
 
         File sequencesDir = new File(rootDirPath, SEQUENCES_DIR);
         if (sequencesDir.exists()) {
@@ -326,7 +377,8 @@ public class MultiXMLConfigurationBuilder {
             while (sequences.hasNext()) {
                 File file = (File) sequences.next();
                 try{
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     Mediator seq = SynapseXMLConfigurationFactory.defineSequence(synapseConfig,
                             document, properties);
                     if (seq != null && seq instanceof SequenceMediator) {
@@ -334,6 +386,7 @@ public class MultiXMLConfigurationBuilder {
                         sequence.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(
                                 file.getAbsolutePath(), sequence.getName());
+                        loader.deployed(ArtifactType.SEQUENCE, sequence.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Sequence configuration cannot be built from : " + file.getName();
@@ -345,7 +398,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createTemplates(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ArtifactLoader loader) {
 
         File templatesDir = new File(rootDirPath, TEMPLATES_DIR);
         if (templatesDir.exists()) {
@@ -356,7 +409,8 @@ public class MultiXMLConfigurationBuilder {
             while (templates.hasNext()) {
                 File file = (File) templates.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     OMElement element = document.getFirstChildWithName(
                             new QName(SynapseConstants.SYNAPSE_NAMESPACE, "sequence"));
                     if (element != null) {
@@ -367,6 +421,8 @@ public class MultiXMLConfigurationBuilder {
                             mediator.setFileName(file.getName());
                             synapseConfig.getArtifactDeploymentStore().addArtifact(
                                     file.getAbsolutePath(), mediator.getName());
+                            loader.deployed(ArtifactType.SEQUENCE_TEMPLATE, mediator.getName(), file, document,
+                                    start);
                         }
                     } else {
                         element = document.getFirstChildWithName(
@@ -379,6 +435,8 @@ public class MultiXMLConfigurationBuilder {
                                 endpointTemplate.setFileName(file.getName());
                                 synapseConfig.getArtifactDeploymentStore().addArtifact(
                                         file.getAbsolutePath(), endpointTemplate.getName());
+                                loader.deployed(ArtifactType.OTHER, endpointTemplate.getName(), file, document,
+                                        start);
                             }
                         }
                     }
@@ -391,7 +449,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createEndpoints(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ArtifactLoader loader) {
 
         File endpointsDir = new File(rootDirPath, ENDPOINTS_DIR);
         if (endpointsDir.exists()) {
@@ -403,13 +461,15 @@ public class MultiXMLConfigurationBuilder {
             while (endpoints.hasNext()) {
                 File file = (File) endpoints.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     Endpoint endpoint = SynapseXMLConfigurationFactory.defineEndpoint(
                             synapseConfig, document, properties);
                     if (endpoint != null) {
                         endpoint.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(
                                 file.getAbsolutePath(), endpoint.getName());
+                        loader.deployed(ArtifactType.ENDPOINT, endpoint.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Endpoint configuration cannot be built from : " + file.getName();
@@ -420,7 +480,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createEventSources(SynapseConfiguration synapseConfig, String rootDirPath,
-                                           Properties properties) {
+                                           Properties properties, ArtifactLoader loader) {
 
         File eventsDir = new File(rootDirPath, EVENTS_DIR);
         if (eventsDir.exists()) {
@@ -432,13 +492,15 @@ public class MultiXMLConfigurationBuilder {
             while (events.hasNext()) {
                 File file = (File) events.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     SynapseEventSource eventSource = SynapseXMLConfigurationFactory.
                             defineEventSource(synapseConfig, document, properties);
                     if (eventSource != null) {
                         eventSource.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(
                                 file.getAbsolutePath(), eventSource.getName());
+                        loader.deployed(ArtifactType.OTHER, eventSource.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Event source configuration cannot be built from : " + file.getName();
@@ -449,7 +511,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createExecutors(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ArtifactLoader loader) {
 
         File executorsDir = new File(rootDirPath, EXECUTORS_DIR);
         if (executorsDir.exists()) {
@@ -461,13 +523,15 @@ public class MultiXMLConfigurationBuilder {
             while (executors.hasNext()) {
                 File file = (File) executors.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     PriorityExecutor executor = SynapseXMLConfigurationFactory.
                             defineExecutor(synapseConfig, document, properties);
                     if (executor != null) {
                         executor.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(
                                 file.getAbsolutePath(), executor.getName());
+                        loader.deployed(ArtifactType.OTHER, executor.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Executor configuration cannot be built from : " + file.getName();
@@ -478,7 +542,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createMessageStores(SynapseConfiguration synapseConfig ,
-                                            String rootDirPath, Properties properties) {
+                                            String rootDirPath, Properties properties, ArtifactLoader loader) {
 
         File messageStoresDir = new File(rootDirPath, MESSAGE_STORE_DIR);
         if (messageStoresDir.exists() ) {
@@ -490,13 +554,15 @@ public class MultiXMLConfigurationBuilder {
             while (messageStores.hasNext()) {
                 File file = (File) messageStores.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     MessageStore messageStore = SynapseXMLConfigurationFactory.defineMessageStore(
                             synapseConfig, document, properties);
                     if (messageStore != null) {
                         messageStore.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(file.getAbsolutePath(),
                                 messageStore.getName());
+                        loader.deployed(ArtifactType.OTHER, messageStore.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Message store configuration cannot be built from : " + file.getName();
@@ -508,7 +574,7 @@ public class MultiXMLConfigurationBuilder {
 
 
     private static void createMessageProcessors(SynapseConfiguration synapseConfig,
-                                            String rootDirPath, Properties properties) {
+                                            String rootDirPath, Properties properties, ArtifactLoader loader) {
 
         File messageProcessorDir = new File(rootDirPath, MESSAGE_PROCESSOR_DIR);
         if (messageProcessorDir.exists()) {
@@ -520,13 +586,15 @@ public class MultiXMLConfigurationBuilder {
             while (messageProcessors.hasNext()) {
                 File file = (File) messageProcessors.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     MessageProcessor messageProcessor = SynapseXMLConfigurationFactory.defineMessageProcessor(
                             synapseConfig, document, properties);
                     if (messageProcessor != null) {
                         messageProcessor.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(file.getAbsolutePath(),
                                 messageProcessor.getName());
+                        loader.deployed(ArtifactType.OTHER, messageProcessor.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Message processor configuration cannot be built from : " + file.getName();
@@ -536,7 +604,8 @@ public class MultiXMLConfigurationBuilder {
         }
     }
 
-    private static void createSynapseImports(SynapseConfiguration synapseConfig, String root, Properties properties) {
+    private static void createSynapseImports(SynapseConfiguration synapseConfig, String root, Properties properties,
+                                             ArtifactLoader loader) {
         File synImportsDir = new File(root, SYNAPSE_IMPORTS_DIR);
         if (synImportsDir.exists()) {
             if (log.isDebugEnabled()) {
@@ -546,13 +615,15 @@ public class MultiXMLConfigurationBuilder {
             while (synImports.hasNext()) {
                 File file = (File) synImports.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     SynapseImport synImp = SynapseXMLConfigurationFactory.defineImport(
                             synapseConfig, document, properties);
                     if (synImp != null) {
                         synImp.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(file.getAbsolutePath(),
                                 synImp.getName());
+                        loader.deployed(ArtifactType.OTHER, synImp.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Import configuration cannot be built from : " + file.getName();
@@ -565,7 +636,7 @@ public class MultiXMLConfigurationBuilder {
 
 
     private static void createAPIs(SynapseConfiguration synapseConfig,
-                                   String rootDirPath, Properties properties) {
+                                   String rootDirPath, Properties properties, ArtifactLoader loader) {
 
         try {
             File apiDir = new File(rootDirPath, REST_API_DIR);
@@ -585,13 +656,15 @@ public class MultiXMLConfigurationBuilder {
                     for (String fileName : apiFileDirectories) {
                         try {
                             File file = new File(apiDir, fileName);
-                            OMElement document = getOMElement(file);
+                            long start = System.nanoTime();
+                            OMElement document = loader.getDocument(file);
                             API api = SynapseXMLConfigurationFactory.defineAPI(synapseConfig, document, properties,
                                     false);
                             if (api != null) {
                                 api.setFileName(file.getName());
                                 synapseConfig.getArtifactDeploymentStore()
                                         .addArtifact(file.getAbsolutePath(), api.getName());
+                                loader.deployed(ArtifactType.API, api.getName(), file, document, start);
                             }
                         } catch (Exception e) {
                             String msg = "API configuration cannot be built from: " + fileName;
@@ -615,7 +688,7 @@ public class MultiXMLConfigurationBuilder {
 
 
     private static void createInboundEndpoint(SynapseConfiguration synapseConfig,
-                                              String rootDirPath, Properties properties) {
+                                              String rootDirPath, Properties properties, ArtifactLoader loader) {
         File inboundEndpointDir = new File(rootDirPath, INBOUND_ENDPOINT_DIR);
         if (inboundEndpointDir.exists()) {
             if (log.isDebugEnabled()) {
@@ -626,12 +699,14 @@ public class MultiXMLConfigurationBuilder {
             while (inboundEndpointIterator.hasNext()) {
                 File file = (File) inboundEndpointIterator.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    long start = System.nanoTime();
+                    OMElement document = loader.getDocument(file);
                     InboundEndpoint inboundEndpoint = SynapseXMLConfigurationFactory.defineInboundEndpoint(synapseConfig, document, properties);
                     if (inboundEndpoint != null) {
                         inboundEndpoint.setFileName(file.getName());
                         synapseConfig.getArtifactDeploymentStore().addArtifact(file.getAbsolutePath(),
                                 inboundEndpoint.getName());
+                        loader.deployed(ArtifactType.OTHER, inboundEndpoint.getName(), file, document, start);
                     }
                 } catch (Exception e) {
                     String msg = "Inbound Endpoint configuration cannot be built from : " + file.getName();
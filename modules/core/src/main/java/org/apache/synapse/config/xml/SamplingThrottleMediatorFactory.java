@@ -23,6 +23,7 @@ import org.apache.axiom.om.OMAttribute;
 import org.apache.axiom.om.OMElement;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.mediators.eip.Target;
+import org.apache.synapse.mediators.eip.sample.BoundedMessageQueue;
 import org.apache.synapse.mediators.eip.sample.MessageQueue;
 import org.apache.synapse.mediators.eip.sample.SamplingThrottleMediator;
 
@@ -33,8 +34,9 @@ import java.util.Properties;
  * Builds the {@link org.apache.synapse.mediators.eip.sample.SamplingThrottleMediator} instance by looking at the
  * following configuration</p>
  *
- * <pre>&lt;sampler id="string" rate="int" unitTime="long"&gt;
- *   &lt;messageQueue class="string"/&gt;
+ * <pre>&lt;sampler id="string" rate="int" unitTime="long" [targetLatency="long"] [targetErrorRate="double"]
+ *          [minRate="int"] [maxRate="int"]&gt;
+ *   &lt;messageQueue class="string" [capacity="int"]/&gt;
  *   &lt;target .../&gt;
  * &lt;sampler/&gt;
  * </pre>
@@ -55,6 +57,16 @@ public class SamplingThrottleMediatorFactory extends AbstractMediatorFactory {
             = new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "messageQueue");
     private static final QName CLASS_ATTR
             = new QName(XMLConfigConstants.NULL_NAMESPACE, "class");
+    private static final QName CAPACITY_ATTR
+            = new QName(XMLConfigConstants.NULL_NAMESPACE, "capacity");
+    private static final QName TARGET_LATENCY_ATTR
+            = new QName(XMLConfigConstants.NULL_NAMESPACE, "targetLatency");
+    private static final QName TARGET_ERROR_RATE_ATTR
+            = new QName(XMLConfigConstants.NULL_NAMESPACE, "targetErrorRate");
+    private static final QName MIN_RATE_ATTR
+            = new QName(XMLConfigConstants.NULL_NAMESPACE, "minRate");
+    private static final QName MAX_RATE_ATTR
+            = new QName(XMLConfigConstants.NULL_NAMESPACE, "maxRate");
 
     public Mediator createSpecificMediator(OMElement omElement, Properties properties) {
 
@@ -88,6 +100,48 @@ public class SamplingThrottleMediatorFactory extends AbstractMediatorFactory {
             }
         }
 
+        OMAttribute targetLatencyAttribute = omElement.getAttribute(TARGET_LATENCY_ATTR);
+        if (targetLatencyAttribute != null) {
+            try {
+                samplingThrottleMediator.setTargetLatency(
+                        Long.parseLong(targetLatencyAttribute.getAttributeValue()));
+            } catch (NumberFormatException nfe) {
+                handleException("Sampling targetLatency has to be a long value in milliseconds, " +
+                        "but found : " + targetLatencyAttribute.getAttributeValue());
+            }
+        }
+
+        OMAttribute targetErrorRateAttribute = omElement.getAttribute(TARGET_ERROR_RATE_ATTR);
+        if (targetErrorRateAttribute != null) {
+            try {
+                samplingThrottleMediator.setTargetErrorRate(
+                        Double.parseDouble(targetErrorRateAttribute.getAttributeValue()));
+            } catch (NumberFormatException nfe) {
+                handleException("Sampling targetErrorRate has to be a ratio between 0 and 1, " +
+                        "but found : " + targetErrorRateAttribute.getAttributeValue());
+            }
+        }
+
+        OMAttribute minRateAttribute = omElement.getAttribute(MIN_RATE_ATTR);
+        if (minRateAttribute != null) {
+            try {
+                samplingThrottleMediator.setMinRate(Integer.parseInt(minRateAttribute.getAttributeValue()));
+            } catch (NumberFormatException nfe) {
+                handleException("Sampling minRate has to be an integer value, but found : "
+                        + minRateAttribute.getAttributeValue());
+            }
+        }
+
+        OMAttribute maxRateAttribute = omElement.getAttribute(MAX_RATE_ATTR);
+        if (maxRateAttribute != null) {
+            try {
+                samplingThrottleMediator.setMaxRate(Integer.parseInt(maxRateAttribute.getAttributeValue()));
+            } catch (NumberFormatException nfe) {
+                handleException("Sampling maxRate has to be an integer value, but found : "
+                        + maxRateAttribute.getAttributeValue());
+            }
+        }
+
         OMElement targetElem = omElement.getFirstChildWithName(TARGET_Q);
         if (targetElem != null) {
             Target target = TargetFactory.createTarget(targetElem, properties);
@@ -103,6 +157,20 @@ public class SamplingThrottleMediatorFactory extends AbstractMediatorFactory {
                 Class messageQueueImplClass = Class.forName(className);
                 Object obj = messageQueueImplClass.newInstance();
                 if (obj instanceof MessageQueue) {
+                    String capacity = messageQueueElem.getAttributeValue(CAPACITY_ATTR);
+                    if (capacity != null) {
+                        if (!(obj instanceof BoundedMessageQueue)) {
+                            handleException("Message queue : " + className + " doesn't support a capacity");
+                        }
+                        try {
+                            ((BoundedMessageQueue) obj).setCapacity(Integer.parseInt(capacity));
+                        } catch (NumberFormatException nfe) {
+                            handleException("Message queue capacity has to be an integer value, " +
+                                    "but found : " + capacity);
+                        } catch (IllegalArgumentException e) {
+                            handleException(e.getMessage());
+                        }
+                    }
                     samplingThrottleMediator.setMessageQueue((MessageQueue) obj);
                 } else {
                     handleException("Provided message queue class : " + className
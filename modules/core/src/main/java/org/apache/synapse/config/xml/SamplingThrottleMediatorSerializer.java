@@ -21,6 +21,7 @@ package org.apache.synapse.config.xml;
 
 import org.apache.axiom.om.OMElement;
 import org.apache.synapse.Mediator;
+import org.apache.synapse.mediators.eip.sample.BoundedMessageQueue;
 import org.apache.synapse.mediators.eip.sample.SamplingThrottleMediator;
 
 /**
@@ -47,10 +48,31 @@ public class SamplingThrottleMediatorSerializer extends AbstractMediatorSerializ
         samplerElem.addAttribute("unitTime",
                 Long.toString(samplingThrottleMediator.getUnitTime()), nullNS);
 
+        if (samplingThrottleMediator.isAdaptive()) {
+            if (samplingThrottleMediator.getTargetLatency() > 0) {
+                samplerElem.addAttribute("targetLatency",
+                        Long.toString(samplingThrottleMediator.getTargetLatency()), nullNS);
+            }
+            if (samplingThrottleMediator.getTargetErrorRate() >= 0) {
+                samplerElem.addAttribute("targetErrorRate",
+                        Double.toString(samplingThrottleMediator.getTargetErrorRate()), nullNS);
+            }
+            samplerElem.addAttribute("minRate",
+                    Integer.toString(samplingThrottleMediator.getMinRate()), nullNS);
+            if (samplingThrottleMediator.getMaxRate() > 0) {
+                samplerElem.addAttribute("maxRate",
+                        Integer.toString(samplingThrottleMediator.getMaxRate()), nullNS);
+            }
+        }
+
         if (samplingThrottleMediator.isMessageQueueExplicitlySet()) {
             OMElement messageQueueElem = fac.createOMElement("messageQueue", synNS);
             messageQueueElem.addAttribute("class",
                     samplingThrottleMediator.getMessageQueue().getClass().getName(), nullNS);
+            if (samplingThrottleMediator.getMessageQueue() instanceof BoundedMessageQueue) {
+                messageQueueElem.addAttribute("capacity", Integer.toString(
+                        ((BoundedMessageQueue) samplingThrottleMediator.getMessageQueue()).getCapacity()), nullNS);
+            }
             samplerElem.addChild(messageQueueElem);
         }
 
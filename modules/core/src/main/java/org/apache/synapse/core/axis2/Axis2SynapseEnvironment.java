@@ -45,6 +45,7 @@ import org.apache.synapse.aspects.flow.statistics.collectors.OpenEventCollector;
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.aspects.flow.statistics.store.MessageDataStore;
 import org.apache.synapse.carbonext.TenantInfoConfigurator;
+import org.apache.synapse.commons.executors.VirtualThreadExecutor;
 import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.commons.util.ext.TenantInfoInitiator;
 import org.apache.synapse.config.SequenceFlowObserversLoader;
@@ -181,11 +182,23 @@ public class Axis2SynapseEnvironment implements SynapseEnvironment {
             keepAlive = Long.parseLong(synCfg.getProperty(SynapseThreadPool.SYN_THREAD_ALIVE));
         } catch (Exception ignore) {}
 
-        this.executorService = new SynapseThreadPool(coreThreads, maxThreads, keepAlive, qLength,
-            synCfg.getProperty(SynapseThreadPool.SYN_THREAD_GROUP,
-                SynapseThreadPool.SYNAPSE_THREAD_GROUP),
-            synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
-                SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX));
+        if (Boolean.parseBoolean(synCfg.getProperty(SynapseThreadPool.SYN_THREAD_VIRTUAL))) {
+            int maxConcurrency = SynapseThreadPool.SYNAPSE_VIRTUAL_MAX_CONCURRENCY;
+            try {
+                maxConcurrency = Integer.parseInt(
+                        synCfg.getProperty(SynapseThreadPool.SYN_THREAD_VIRTUAL_MAX_CONCURRENCY));
+            } catch (Exception ignore) {}
+
+            this.executorService = new VirtualThreadExecutor(
+                synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
+                    SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX), maxConcurrency);
+        } else {
+            this.executorService = new SynapseThreadPool(coreThreads, maxThreads, keepAlive, qLength,
+                synCfg.getProperty(SynapseThreadPool.SYN_THREAD_GROUP,
+                    SynapseThreadPool.SYNAPSE_THREAD_GROUP),
+                synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
+                    SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX));
+        }
 
 		int ibCoreThreads = InboundThreadPool.INBOUND_CORE_THREADS;
 		int ibMaxThreads = InboundThreadPool.INBOUND_MAX_THREADS;
@@ -200,14 +213,21 @@ public class Axis2SynapseEnvironment implements SynapseEnvironment {
 		} catch (Exception ignore) {
 		}
 
-		this.executorServiceInbound =
-		                              new InboundThreadPool(
-		                                                    ibCoreThreads,
-		                                                    ibMaxThreads,
-		                                                    InboundThreadPool.INBOUND_KEEP_ALIVE,
-		                                                    InboundThreadPool.INBOUND_THREAD_QLEN,
-		                                                    InboundThreadPool.INBOUND_THREAD_GROUP,
-		                                                    InboundThreadPool.INBOUND_THREAD_ID_PREFIX);
+		if (Boolean.parseBoolean(synCfg.getProperty(InboundThreadPool.IB_THREAD_VIRTUAL))) {
+			int ibMaxConcurrency = InboundThreadPool.INBOUND_VIRTUAL_MAX_CONCURRENCY;
+			try {
+				ibMaxConcurrency = Integer.parseInt(
+				        synCfg.getProperty(InboundThreadPool.IB_THREAD_VIRTUAL_MAX_CONCURRENCY));
+			} catch (Exception ignore) {
+			}
+
+			this.executorServiceInbound = new VirtualThreadExecutor(
+			        InboundThreadPool.INBOUND_THREAD_ID_PREFIX, ibMaxConcurrency);
+		} else {
+			this.executorServiceInbound = new InboundThreadPool(ibCoreThreads, ibMaxThreads,
+			        InboundThreadPool.INBOUND_KEEP_ALIVE, InboundThreadPool.INBOUND_THREAD_QLEN,
+			        InboundThreadPool.INBOUND_THREAD_GROUP, InboundThreadPool.INBOUND_THREAD_ID_PREFIX);
+		}
 
         taskManager = new SynapseTaskManager();
         restHandler = new RESTRequestHandler();
@@ -86,6 +86,8 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
     private static final Log log = LogFactory.getLog(SynapseCallbackReceiver.class);
     private final boolean isCallbackControlledAckEnabled;
     private final boolean isClientApiNonBlockingModeEnabled;
+    /** The callbacks of outstanding requests, indexed by their timeout */
+    private final TimeoutIndexedCallbackStore callbacks;
 
     /**
      * Create the *single* instance of this class that would be used by all anonymous services
@@ -96,27 +98,39 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
     public SynapseCallbackReceiver(SynapseConfiguration synCfg,
                                    ServerContextInformation contextInformation) {
 
+        long timeoutHandlerInterval = SynapseConfigUtils.getTimeoutHandlerInterval();
+        long timeoutHandlerPrecision = SynapseConfigUtils.getTimeoutHandlerPrecision();
+        callbacks = new TimeoutIndexedCallbackStore(timeoutHandlerPrecision);
+
         // create the Timer object and a TimeoutHandler task
-        TimeoutHandler timeoutHandler = new TimeoutHandler(callbackStore, contextInformation);
+        TimeoutHandler timeoutHandler = new TimeoutHandler(callbacks, contextInformation);
         isCallbackControlledAckEnabled = CallbackAckConfigUtil.isCallbackControlledAckEnabled();
         isClientApiNonBlockingModeEnabled = CallbackAckConfigUtil.isClientApiNonBlockingModeEnabled();
         Timer timeOutTimer = synCfg.getSynapseTimer();
-        long timeoutHandlerInterval = SynapseConfigUtils.getTimeoutHandlerInterval();
 
-        // schedule timeout handler to run every n seconds (n : specified or defaults to 15s)
-        timeOutTimer.schedule(timeoutHandler, 0, timeoutHandlerInterval);
+        // schedule timeout handler to run at the timeout precision (defaults to 1s), as it only visits
+        // expired callbacks, but not less frequently than every n seconds (n : specified or defaults to 15s)
+        timeOutTimer.schedule(timeoutHandler, 0, Math.max(1, Math.min(timeoutHandlerInterval,
+                timeoutHandlerPrecision)));
     }
 
     public int getCallbackCount() {
-        return callbackStore.size();
+        return callbacks.size();
     }
 
     public void addCallback(String MsgID, AxisCallback callback) {
-        callbackStore.put(MsgID, callback);
+        if (!(callback instanceof AsyncCallback)) {
+            // only Synapse callbacks carry the timeout the callbacks are indexed by
+            throw new IllegalArgumentException("Unsupported callback type : "
+                    + (callback == null ? null : callback.getClass().getName())
+                    + " for message ID : " + MsgID);
+        }
+        AsyncCallback asyncCallback = (AsyncCallback) callback;
+        callbacks.put(MsgID, asyncCallback);
         if (log.isDebugEnabled()) {
-            log.debug("Callback added. Total callbacks waiting for : " + callbackStore.size());
+            log.debug("Callback added. Total callbacks waiting for : " + callbacks.size());
         }
-        org.apache.synapse.MessageContext synCtx = ((AsyncCallback) callback).getSynapseOutMsgCtx();
+        org.apache.synapse.MessageContext synCtx = asyncCallback.getSynapseOutMsgCtx();
         if (RuntimeStatisticCollector.isStatisticsEnabled()) {
             CallbackStatisticCollector.addCallback(synCtx, MsgID);
         }
@@ -166,8 +180,8 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
          */
         if (messageCtx.getProperty(NhttpConstants.HTTP_202_RECEIVED) != null && "true".equals(
                 messageCtx.getProperty(NhttpConstants.HTTP_202_RECEIVED))) {
-            if (callbackStore.containsKey(messageCtx.getMessageID())) {
-                AsyncCallback callback = (AsyncCallback) callbackStore.remove(messageCtx.getMessageID());
+            if (callbacks.containsKey(messageCtx.getMessageID())) {
+                AsyncCallback callback = callbacks.remove(messageCtx.getMessageID());
                 if (RuntimeStatisticCollector.isStatisticsEnabled()) {
                     CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(),
                             messageCtx.getMessageID());
@@ -190,10 +204,10 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
         }
 
         if (messageID != null) {
-            AsyncCallback callback = (AsyncCallback)callbackStore.remove(messageID);
+            AsyncCallback callback = callbacks.remove(messageID);
             if (log.isDebugEnabled()) {
                 log.debug("Callback removed for request message id : " + messageID +
-                        ". Pending callbacks count : " + callbackStore.size());
+                        ". Pending callbacks count : " + callbacks.size());
             }
 
             RelatesTo[] relates = messageCtx.getRelationships();
@@ -626,6 +640,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                     if(failOver) {
                         popFailOverEPFromFaultStack(synapseOutMsgCtx);
                     }
+                    LoadbalanceEndpoint.completeTrackedRequests(synapseOutMsgCtx, true);
                     if (isChildOfLoadBalanceEP(successfulEndpoint)) {
                         popLoadBalanceEPFromFaultStack(synapseOutMsgCtx);
                     }
@@ -636,6 +651,7 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                 if(failOver) {
                     popFailOverEPFromFaultStack(synapseOutMsgCtx);
                 }
+                LoadbalanceEndpoint.completeTrackedRequests(synapseOutMsgCtx, true);
                 if (isChildOfLoadBalanceEP(successfulEndpoint)) {
                     popLoadBalanceEPFromFaultStack(synapseOutMsgCtx);
                 }
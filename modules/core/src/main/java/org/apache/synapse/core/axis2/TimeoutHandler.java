@@ -34,6 +34,7 @@ import org.apache.synapse.aspects.flow.statistics.collectors.CallbackStatisticCo
 import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.commons.CorrelationConstants;
 import org.apache.synapse.config.SynapseConfigUtils;
+import org.apache.synapse.endpoints.LoadbalanceEndpoint;
 import org.apache.synapse.endpoints.dispatch.SALSessions;
 import org.apache.synapse.commons.logger.ContextAwareLogger;
 import org.apache.synapse.rest.RESTConstants;
@@ -47,7 +48,6 @@ import org.wso2.config.mapper.ConfigParser;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Stack;
 import java.util.TimerTask;
 
@@ -67,8 +67,8 @@ public class TimeoutHandler extends TimerTask {
 
     private static final Log log = LogFactory.getLog(TimeoutHandler.class);
 
-    /** The callback map - already a Collections.synchronized() hash map */
-    private final Map callbackStore;
+    /** The callback store, indexing the callbacks by their timeout */
+    private final TimeoutIndexedCallbackStore callbackStore;
     /** a lock to prevent concurrent execution while ensuring least overhead */
     private final Object lock = new Object();
     private boolean alreadyExecuting = false;
@@ -77,11 +77,15 @@ public class TimeoutHandler extends TimerTask {
     private static final String SEND_TIMEOUT_MESSAGE = "Send timeout";
     private ServerContextInformation contextInfo = null;
     private PassThroughConfiguration conf = PassThroughConfiguration.getInstance();
+    /** The interval at which expired sessions are cleared, the handler itself runs at the timeout precision */
+    private final long sessionCleanupInterval;
+    private long lastSessionCleanup = 0;
 
-    public TimeoutHandler(Map callbacks, ServerContextInformation contextInfo) {
+    public TimeoutHandler(TimeoutIndexedCallbackStore callbacks, ServerContextInformation contextInfo) {
         this.callbackStore = callbacks;
         this.contextInfo = contextInfo;
         this.globalTimeout = SynapseConfigUtils.getGlobalTimeoutInterval();
+        this.sessionCleanupInterval = SynapseConfigUtils.getTimeoutHandlerInterval();
         log.info("This engine will expire all callbacks after " +
                 SynapseConstants.ENDPOINT_TIMEOUT_TYPE.GLOBAL_TIMEOUT.toString() + ": " + (globalTimeout / 1000) +
                 " seconds, irrespective of the timeout action," +
@@ -112,189 +116,189 @@ public class TimeoutHandler extends TimerTask {
     private void processCallbacks() {
 
         //clear all the expired sessions
-        SALSessions.getInstance().clearSessions();
+        long currentTime = currentTime();
+        if (currentTime - lastSessionCleanup >= sessionCleanupInterval) {
+            lastSessionCleanup = currentTime;
+            SALSessions.getInstance().clearSessions();
+        }
 
-        // checks if callback store contains at least one entry before proceeding. otherwise getting
-        // the time for doing nothing would be a inefficient task.
+        // callbacks are indexed by their timeout, hence only the expired callbacks are visited and
+        // the callback store is not locked, so that responses received meanwhile are not blocked
+        List<String> expiredKeys = callbackStore.getExpired(currentTime);
+        if (!expiredKeys.isEmpty()) {
 
-        // we have to synchronize this on the callbackStore as iterators of thread safe collections
-        // are not thread safe. callbackStore can be modified
-        // concurrently by the SynapseCallbackReceiver.
-        synchronized(callbackStore) {
+            boolean closeSocketOnEndpointTimeout = false;
+            List toRemove = new ArrayList();
 
-            if (callbackStore.size() > 0) {
+            for (Object key : expiredKeys) {
 
-                long currentTime = currentTime();
-                boolean closeSocketOnEndpointTimeout = false;
-                List toRemove = new ArrayList();
+                AsyncCallback callback = callbackStore.get((String) key);
+                if (callback == null) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("There is no callback for key :" + key);
+                    }
+                    continue;
+                }
 
-                for (Object key : callbackStore.keySet()) {
+                if (callback.getTimeOutOn() <= currentTime) {
 
-                    AsyncCallback callback = (AsyncCallback) callbackStore.get(key);
-                    if (callback == null) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("There is no callback for key :" + key);
+                    synchronized (callback) {
+                        if (callback.isMarkedForRemoval()) {
+                            continue;
                         }
-                        continue;
+                        callback.setMarkedForRemoval();
+                        toRemove.add(key);
                     }
-
-                    if (callback.getTimeOutOn() <= currentTime) {
-
-                        synchronized (callback) {
-                            if (callback.isMarkedForRemoval()) {
-                                continue;
-                            }
-                            callback.setMarkedForRemoval();
-                            toRemove.add(key);
+                    // no child endpoint is notified when the timeout action is NONE, so release the
+                    // requests load-balance endpoints track for this message here
+                    LoadbalanceEndpoint.completeTrackedRequests(callback.getSynapseOutMsgCtx(), false);
+                    if (!"true".equals(callback.getSynapseOutMsgCtx().getProperty(SynapseConstants.OUT_ONLY))) {
+                        org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
+                        String timeoutWarnLog = "Expiring message ID : " + key + "; dropping message after "
+                                + callback.getTimeoutType().toString() + " of : "
+                                + (callback.getTimeoutDuration() / 1000) + " seconds for "
+                                + getEndpointLogMessage(callback.getSynapseOutMsgCtx(),
+                                callback.getAxis2OutMsgCtx()) + ", "
+                                + getServiceLogMessage(callback.getSynapseOutMsgCtx())
+                                + "Correlation ID : " + callback.getAxis2OutMsgCtx().getProperty(
+                                CorrelationConstants.CORRELATION_ID);
+                        if (conf.isCloseSocketOnEndpointTimeout()) {
+                            ContextAwareLogger.getLogger(axis2MessageContext, log, true)
+                                    .warn(timeoutWarnLog + ", Closing the Target Connection");
+                        } else {
+                            ContextAwareLogger.getLogger(axis2MessageContext, log, true)
+                                    .warn(timeoutWarnLog);
                         }
-                        if (!"true".equals(callback.getSynapseOutMsgCtx().getProperty(SynapseConstants.OUT_ONLY))) {
-                            org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
-                            String timeoutWarnLog = "Expiring message ID : " + key + "; dropping message after "
-                                    + callback.getTimeoutType().toString() + " of : "
-                                    + (callback.getTimeoutDuration() / 1000) + " seconds for "
-                                    + getEndpointLogMessage(callback.getSynapseOutMsgCtx(),
-                                    callback.getAxis2OutMsgCtx()) + ", "
-                                    + getServiceLogMessage(callback.getSynapseOutMsgCtx())
-                                    + "Correlation ID : " + callback.getAxis2OutMsgCtx().getProperty(
-                                    CorrelationConstants.CORRELATION_ID);
-                            if (conf.isCloseSocketOnEndpointTimeout()) {
-                                ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                        .warn(timeoutWarnLog + ", Closing the Target Connection");
-                            } else {
-                                ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                        .warn(timeoutWarnLog);
+                    }
+
+                    if (callback.getTimeOutAction() != SynapseConstants.NONE) {
+
+                        // activate the fault sequence of the current sequence mediator
+                        MessageContext msgContext = callback.getSynapseOutMsgCtx();
+                        org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
+
+                        // Callback-controlled ack: for RabbitMQ timeouts we:
+                        // 1. Set CLIENT_API_NON_BLOCKING so Timer Thread Does not get blocked in any scenario.
+                        // 2. Log and explicitly invoke onAppError to close channel / release resources early
+                        //    preventing connection / buffer leaks since the message has already timed out.
+                        if (CallbackAckConfigUtil.isCallbackControlledAckEnabled()) {
+                            if (CallbackAckConfigUtil.isRabbitMQTransport(axis2MessageContext)) {
+                                TransportOutDescription transportOut =
+                                        callback.getAxis2OutMsgCtx().getTransportOut();
+
+                                ((Axis2MessageContext) msgContext).getAxis2MessageContext().setProperty
+                                        (SynapseConstants.CLIENT_API_NON_BLOCKING, Boolean.TRUE);
+                                log.warn("Callback Controlled ack is enabled. " +
+                                        "Closing the RabbitMQ Channel for the timed out message : " + key);
+                                transportOut.getSender().onAppError(callback.getAxis2OutMsgCtx());
                             }
                         }
 
-                        if (callback.getTimeOutAction() != SynapseConstants.NONE) {
-
-                            // activate the fault sequence of the current sequence mediator
-                            MessageContext msgContext = callback.getSynapseOutMsgCtx();
-                            org.apache.axis2.context.MessageContext axis2MessageContext = callback.getAxis2OutMsgCtx();
-
-                            // Callback-controlled ack: for RabbitMQ timeouts we:
-                            // 1. Set CLIENT_API_NON_BLOCKING so Timer Thread Does not get blocked in any scenario.
-                            // 2. Log and explicitly invoke onAppError to close channel / release resources early
-                            //    preventing connection / buffer leaks since the message has already timed out.
-                            if (CallbackAckConfigUtil.isCallbackControlledAckEnabled()) {
-                                if (CallbackAckConfigUtil.isRabbitMQTransport(axis2MessageContext)) {
-                                    TransportOutDescription transportOut =
-                                            callback.getAxis2OutMsgCtx().getTransportOut();
-
-                                    ((Axis2MessageContext) msgContext).getAxis2MessageContext().setProperty
-                                            (SynapseConstants.CLIENT_API_NON_BLOCKING, Boolean.TRUE);
-                                    log.warn("Callback Controlled ack is enabled. " +
-                                            "Closing the RabbitMQ Channel for the timed out message : " + key);
-                                    transportOut.getSender().onAppError(callback.getAxis2OutMsgCtx());
-                                }
+                        /* Clear the pipe to prevent release of the associated writer buffer
+                           to the buffer factory.
+                           This is to prevent same buffer is getting released to both source
+                           and target buffer factories. Otherwise when a late response arrives,
+                           buffer is released to both factories and makes system unstable
+                        */
+                        ((Axis2MessageContext) msgContext).getAxis2MessageContext().
+                                removeProperty(PassThroughConstants.PASS_THROUGH_PIPE);
+
+                        // add an error code to the message context, so that error sequences
+                        // can identify the cause of error
+                        msgContext.setProperty(SynapseConstants.ERROR_CODE,
+                                               SynapseConstants.HANDLER_TIME_OUT);
+                        msgContext.setProperty(SynapseConstants.ERROR_MESSAGE,
+                                               SEND_TIMEOUT_MESSAGE);
+                        NHttpServerConnection sourceConn = (NHttpServerConnection) axis2MessageContext.
+                                getProperty(PassThroughConstants.PASS_THROUGH_SOURCE_CONNECTION);
+                        if (sourceConn != null && SourceContext.get(sourceConn).getState()
+                                != ProtocolState.REQUEST_DONE) {
+                            //Suspend input to avoid invoking input ready method and set this property here
+                            //to avoid invoking the input ready method, while fault response is mediating through
+                            //the mediation since we have set REQUEST_DONE state in SourceHandler responseReady
+                            // method
+                            sourceConn.suspendInput();
+                            SourceContext sourceContext = (SourceContext) sourceConn.getContext().getAttribute
+                                    (TargetContext.CONNECTION_INFORMATION);
+                            if (sourceContext != null) {
+                                sourceContext.setIsSourceRequestMarkedToBeDiscarded(true);
                             }
+                            // This is to gurantee that the connection is closed after the response is sent and
+                            // not to release the buffer to the factory
+                            SourceContext.get(sourceConn).setShutDown(true);
 
-                            /* Clear the pipe to prevent release of the associated writer buffer
-                               to the buffer factory.
-                               This is to prevent same buffer is getting released to both source
-                               and target buffer factories. Otherwise when a late response arrives,
-                               buffer is released to both factories and makes system unstable
-                            */
-                            ((Axis2MessageContext) msgContext).getAxis2MessageContext().
-                                    removeProperty(PassThroughConstants.PASS_THROUGH_PIPE);
-
-                            // add an error code to the message context, so that error sequences
-                            // can identify the cause of error
-                            msgContext.setProperty(SynapseConstants.ERROR_CODE,
-                                                   SynapseConstants.HANDLER_TIME_OUT);
-                            msgContext.setProperty(SynapseConstants.ERROR_MESSAGE,
-                                                   SEND_TIMEOUT_MESSAGE);
-                            NHttpServerConnection sourceConn = (NHttpServerConnection) axis2MessageContext.
-                                    getProperty(PassThroughConstants.PASS_THROUGH_SOURCE_CONNECTION);
-                            if (sourceConn != null && SourceContext.get(sourceConn).getState()
-                                    != ProtocolState.REQUEST_DONE) {
-                                //Suspend input to avoid invoking input ready method and set this property here
-                                //to avoid invoking the input ready method, while fault response is mediating through
-                                //the mediation since we have set REQUEST_DONE state in SourceHandler responseReady
-                                // method
-                                sourceConn.suspendInput();
-                                SourceContext sourceContext = (SourceContext) sourceConn.getContext().getAttribute
-                                        (TargetContext.CONNECTION_INFORMATION);
-                                if (sourceContext != null) {
-                                    sourceContext.setIsSourceRequestMarkedToBeDiscarded(true);
-                                }
-                                // This is to gurantee that the connection is closed after the response is sent and
-                                // not to release the buffer to the factory
-                                SourceContext.get(sourceConn).setShutDown(true);
+                            // We have to close the target connection since the request is invalid
+                            closeSocketOnEndpointTimeout = true;
+                        }
 
-                                // We have to close the target connection since the request is invalid
-                                closeSocketOnEndpointTimeout = true;
+                        /* Clear the NO_KEEPALIVE property to prevent closing response connection when going through
+                           the fault sequence due to end point time out. Since the axis2 message context used here
+                           is the same axis2 message context used in request path and the intention of this property
+                           is to Disable HTTP keep alive for outgoing requests. If it is required this can be put
+                           in fault sequence.
+                        */
+                        ((Axis2MessageContext) msgContext).getAxis2MessageContext().
+                                removeProperty(PassThroughConstants.NO_KEEPALIVE);
+
+                        if (!CallbackAckConfigUtil.isPreservePayloadOnTimeout()) {
+                            SOAPEnvelope soapEnvelope;
+                            if (msgContext.isSOAP11()) {
+                                soapEnvelope = OMAbstractFactory.
+                                        getSOAP11Factory().createSOAPEnvelope();
+                                soapEnvelope.addChild(
+                                        OMAbstractFactory.getSOAP11Factory().createSOAPBody());
+                            } else {
+                                soapEnvelope = OMAbstractFactory.
+                                        getSOAP12Factory().createSOAPEnvelope();
+                                soapEnvelope.addChild(
+                                        OMAbstractFactory.getSOAP12Factory().createSOAPBody());
+                            }
+                            try {
+                                msgContext.setEnvelope(soapEnvelope);
+                            } catch (Throwable ex) {
+                                ContextAwareLogger.getLogger(axis2MessageContext, log, true)
+                                        .error("Exception or Error occurred resetting SOAP Envelope", ex);
+                                continue;
                             }
+                        }
 
-                            /* Clear the NO_KEEPALIVE property to prevent closing response connection when going through
-                               the fault sequence due to end point time out. Since the axis2 message context used here
-                               is the same axis2 message context used in request path and the intention of this property
-                               is to Disable HTTP keep alive for outgoing requests. If it is required this can be put
-                               in fault sequence.
-                            */
-                            ((Axis2MessageContext) msgContext).getAxis2MessageContext().
-                                    removeProperty(PassThroughConstants.NO_KEEPALIVE);
-
-                            if (!CallbackAckConfigUtil.isPreservePayloadOnTimeout()) {
-                                SOAPEnvelope soapEnvelope;
-                                if (msgContext.isSOAP11()) {
-                                    soapEnvelope = OMAbstractFactory.
-                                            getSOAP11Factory().createSOAPEnvelope();
-                                    soapEnvelope.addChild(
-                                            OMAbstractFactory.getSOAP11Factory().createSOAPBody());
-                                } else {
-                                    soapEnvelope = OMAbstractFactory.
-                                            getSOAP12Factory().createSOAPEnvelope();
-                                    soapEnvelope.addChild(
-                                            OMAbstractFactory.getSOAP12Factory().createSOAPBody());
-                                }
+                        Stack<FaultHandler> faultStack = msgContext.getFaultStack();
+                        if (!faultStack.isEmpty()) {
+                            FaultHandler faultHandler = faultStack.pop();
+                            if (faultHandler != null) {
                                 try {
-                                    msgContext.setEnvelope(soapEnvelope);
+                                    faultHandler.handleFault(msgContext);
                                 } catch (Throwable ex) {
                                     ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                            .error("Exception or Error occurred resetting SOAP Envelope", ex);
+                                            .warn("Exception or Error occurred while "
+                                                    + "executing the fault handler", ex);
                                     continue;
                                 }
                             }
-
-                            Stack<FaultHandler> faultStack = msgContext.getFaultStack();
-                            if (!faultStack.isEmpty()) {
-                                FaultHandler faultHandler = faultStack.pop();
-                                if (faultHandler != null) {
-                                    try {
-                                        faultHandler.handleFault(msgContext);
-                                    } catch (Throwable ex) {
-                                        ContextAwareLogger.getLogger(axis2MessageContext, log, true)
-                                                .warn("Exception or Error occurred while "
-                                                        + "executing the fault handler", ex);
-                                        continue;
-                                    }
-                                }
-                            }
                         }
                     }
                 }
+            }
 
-                for(Object key : toRemove) {
+            for(Object key : toRemove) {
 
-                    AsyncCallback callback = (AsyncCallback) callbackStore.get(key);
-                    if (callback == null) {
-                        // we will get here if we get a response from the Backend while clearing callbacks
-                        continue;
-                    }
+                // removing atomically, as a response may be received for the callback concurrently
+                AsyncCallback callback = callbackStore.remove((String) key);
+                if (callback == null) {
+                    // we will get here if we get a response from the Backend while clearing callbacks
+                    continue;
+                }
 
-                    org.apache.synapse.MessageContext synapseOutMsgCtx = callback.getSynapseOutMsgCtx();
-                    ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synapseOutMsgCtx);
-                    callbackStore.remove(key);
-                    if (RuntimeStatisticCollector.isStatisticsEnabled()) {
-                        CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(), (String) key);
-                    }
+                org.apache.synapse.MessageContext synapseOutMsgCtx = callback.getSynapseOutMsgCtx();
+                ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synapseOutMsgCtx);
+                if (RuntimeStatisticCollector.isStatisticsEnabled()) {
+                    CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(), (String) key);
+                }
 
-                    if (closeSocketOnEndpointTimeout || conf.isCloseSocketOnEndpointTimeout() ) {                        TransportOutDescription transportOut = callback.getAxis2OutMsgCtx().getTransportOut();
-                        if (transportOut != null && transportOut.getSender() != null) {
-                            // Call the TransportSender's onAppError method to release any resources
-                            transportOut.getSender().onAppError(callback.getAxis2OutMsgCtx());
-                        }
+                if (closeSocketOnEndpointTimeout || conf.isCloseSocketOnEndpointTimeout() ) {                        TransportOutDescription transportOut = callback.getAxis2OutMsgCtx().getTransportOut();
+                    if (transportOut != null && transportOut.getSender() != null) {
+                        // Call the TransportSender's onAppError method to release any resources
+                        transportOut.getSender().onAppError(callback.getAxis2OutMsgCtx());
                     }
                 }
             }
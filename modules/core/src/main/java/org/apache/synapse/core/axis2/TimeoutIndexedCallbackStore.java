@@ -0,0 +1,165 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Holds the callbacks of outstanding requests by message ID, and indexes them by the time they
+ * time out, so that the {@link TimeoutHandler} only visits the callbacks which have expired instead
+ * of scanning all of them.
+ *
+ * Timeouts are grouped into buckets of the configured precision. Adding and removing callbacks does
+ * not take any locks. A callback removed on receiving its response is also removed from the bucket
+ * of its timeout, so that the index only holds the callbacks still in the store.
+ */
+public class TimeoutIndexedCallbackStore {
+
+    private final ConcurrentHashMap<String, AsyncCallback> callbacks =
+            new ConcurrentHashMap<String, AsyncCallback>();
+
+    /** message IDs of the callbacks by the bucket of their timeout */
+    private final ConcurrentSkipListMap<Long, Bucket> timeouts = new ConcurrentSkipListMap<Long, Bucket>();
+
+    /** the bucket each message ID is indexed in */
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+    private final long precision;
+
+    /**
+     * @param precision the width of a timeout bucket in milliseconds, callbacks are expired at most
+     *                  this much later than their timeout
+     */
+    public TimeoutIndexedCallbackStore(long precision) {
+        this.precision = Math.max(1, precision);
+    }
+
+    public void put(String messageID, AsyncCallback callback) {
+        callbacks.put(messageID, callback);
+        index(messageID, callback.getTimeOutOn());
+    }
+
+    public AsyncCallback get(String messageID) {
+        return callbacks.get(messageID);
+    }
+
+    public AsyncCallback remove(String messageID) {
+        AsyncCallback callback = callbacks.remove(messageID);
+        Bucket bucket = buckets.remove(messageID);
+        if (bucket != null) {
+            bucket.messageIDs.remove(messageID);
+        }
+        return callback;
+    }
+
+    public boolean containsKey(String messageID) {
+        return callbacks.containsKey(messageID);
+    }
+
+    public int size() {
+        return callbacks.size();
+    }
+
+    public long getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return the number of message IDs in the timeout index
+     */
+    int getIndexedCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Removes the buckets which have expired at the given time from the timeout index and returns the
+     * message IDs of the callbacks in them, which are still in the store. The callbacks themselves are
+     * not removed from the store.
+     *
+     * @param currentTime the current time in milliseconds
+     * @return the message IDs of the expired callbacks
+     */
+    public List<String> getExpired(long currentTime) {
+        List<String> expired = new ArrayList<String>();
+        long currentBucket = currentTime / precision;
+        Map.Entry<Long, Bucket> entry;
+        while ((entry = timeouts.firstEntry()) != null && entry.getKey() <= currentBucket) {
+            Bucket bucket = entry.getValue();
+            if (!timeouts.remove(entry.getKey(), bucket)) {
+                continue;
+            }
+            bucket.closed = true;
+            for (String messageID : bucket.messageIDs) {
+                bucket.messageIDs.remove(messageID);
+                buckets.remove(messageID, bucket);
+                AsyncCallback callback = callbacks.get(messageID);
+                if (callback == null) {
+                    // the response has already been received
+                    continue;
+                }
+                if (callback.getTimeOutOn() <= currentTime) {
+                    expired.add(messageID);
+                } else {
+                    // the message ID was reused by a callback with a later timeout
+                    index(messageID, callback.getTimeOutOn());
+                }
+            }
+        }
+        return expired;
+    }
+
+    private void index(String messageID, long timeOutOn) {
+        // round up, so that a bucket never expires before the callbacks in it
+        long key = timeOutOn <= 0 ? 0 : (timeOutOn + precision - 1) / precision;
+        while (true) {
+            Bucket bucket = timeouts.get(key);
+            if (bucket == null) {
+                Bucket created = new Bucket();
+                bucket = timeouts.putIfAbsent(key, created);
+                if (bucket == null) {
+                    bucket = created;
+                }
+            }
+            bucket.messageIDs.add(messageID);
+            Bucket previous = buckets.put(messageID, bucket);
+            if (previous != null && previous != bucket) {
+                // the message ID was reused before the previous callback was removed
+                previous.messageIDs.remove(messageID);
+            }
+            if (!bucket.closed) {
+                return;
+            }
+            // the bucket was expired concurrently and may have been drained without this entry,
+            // a duplicate entry is harmless as expired callbacks are only processed once
+        }
+    }
+
+    private static class Bucket {
+        private final Set<String> messageIDs =
+                Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        private volatile boolean closed = false;
+    }
+}
@@ -817,6 +817,9 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
         }
         metricsMBean = null;
 
+        if (context != null) {
+            context.destroy();
+        }
         this.initialized = false;
     }
 
@@ -16,6 +16,7 @@
 *  specific language governing permissions and limitations
 *  under the License.
 */
+
 package org.apache.synapse.endpoints;
 
 import org.apache.axis2.context.ConfigurationContext;
@@ -30,10 +31,18 @@ import org.apache.synapse.util.Replicator;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class is one of the key classes of the Endpoint management in Synapse. It maintains the
  * runtime state of an endpoint for local and clustered endpoint configurations.
+ *
+ * The state is always kept in atomic fields of the context, so that checking and updating it never
+ * takes a lock nor looks up the configuration context. In a clustered environment, the changes are
+ * replicated asynchronously by the {@link EndpointStateReplicator}, which also applies the changes
+ * made by the other members of the cluster.
  */
 public class EndpointContext {
 
@@ -64,19 +73,19 @@ public class EndpointContext {
     public static final int ST_OFF = 4;
 
     /** The state of the endpoint at present */
-    private int  localState = ST_ACTIVE;
+    private final AtomicInteger state = new AtomicInteger(ST_ACTIVE);
     /** The time in ms, until the next retry - depending on a timeout or suspension */
-    private long localNextRetryTime = -1;
+    private final AtomicLong nextRetryTime = new AtomicLong(-1);
     /** The number of attempts left for timeout failures, until they make the endpoint suspended */
-    private int  localRemainingRetries = -1;
+    private final AtomicInteger remainingRetries = new AtomicInteger(-1);
     /** The duration in ms for the last suspension */
-    private long localLastSuspendDuration = -1;
+    private final AtomicLong lastSuspendDuration = new AtomicLong(-1);
     /** The maximum number of failover attempts allowed for the endpoint */
     private int maximumRetryLimit =
             Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(SynapseConstants.MAX_FAILOVER_RETRIES_CONFIG,
                     String.valueOf(SynapseConstants.DEFAULT_MAX_FAILOVER_RETRIES)));
     /** The number of attempts left for endpoint failures, until they make the endpoint suspended */
-    private int maximumRemainingRetries = maximumRetryLimit;
+    private final AtomicInteger maximumRemainingRetries = new AtomicInteger(maximumRetryLimit);
     /** The endpoint suspension duration in ms if the maximum retry attempts exceeded */
     private long suspendDurationOnMaximumFailover = Long.parseLong(SynapsePropertiesLoader
             .getPropertyValue(SynapseConstants.SUSPEND_DURATION_ON_MAX_FAILOVER_CONFIG,
@@ -87,14 +96,25 @@ public class EndpointContext {
             Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(SynapseConstants.MAX_FAILOVER_RECUSIVE_RETRIES_CONFIG,
                     String.valueOf(SynapseConstants.DEFAULT_MAX_FAILOVER_RETRIES)));
     /** The number of attempts left for endpoint failures, until they make the endpoint suspended */
-    private int maximumRemainingRecursiveRetries = maximumRecursiveRetryLimit;
+    private final AtomicInteger maximumRemainingRecursiveRetries = new AtomicInteger(maximumRecursiveRetryLimit);
     /** The endpoint suspension duration in ms if the maximum retry attempts exceeded */
     private long suspendDurationOnMaximumRecursiveFailover = Long.parseLong(SynapsePropertiesLoader
             .getPropertyValue(SynapseConstants.SUSPEND_DURATION_ON_MAX_RECURSIVE_FAILOVER_CONFIG,
                     String.valueOf(SynapseConstants.DEFAULT_ENDPOINT_SUSPEND_TIME)));
 
-    /** Is the environment clustered ? */
-    private boolean isClustered = false;
+    /** The number of times the endpoint entered each state, indexed by the state */
+    private final AtomicLong[] transitions = new AtomicLong[ST_OFF + 1];
+
+    /** Is the state replicated across the cluster ? */
+    private boolean isReplicated = false;
+    /** Has the state changed since it was last replicated ? */
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    /** The state and next retry time last seen in the configuration context */
+    private int replicatedState = ST_ACTIVE;
+    private long replicatedNextRetryTime = -1;
+    /** The number of times the state of the endpoint was replicated */
+    private final AtomicLong replications = new AtomicLong();
+
     /** Name of the endpoint - mainly for logging */
     private String endpointName = SynapseConstants.ANONYMOUS_ENDPOINT;
     /** The Axis2 configuration context - to replicate state in a cluster */
@@ -105,9 +125,6 @@ public class EndpointContext {
     /** Metrics bean to notify the state changes */
     private EndpointView metricsBean = null;
 
-    /** Endpoint is in switch off status or not */
-    private boolean isSwitchOff  = false;
-
     // for clustered mode operation, keys pre-computed and used for replication
     private final String STATE_KEY;
     private final String NEXT_RETRY_TIME_KEY;
@@ -115,6 +132,7 @@ public class EndpointContext {
     private final String LAST_SUSPEND_DURATION_KEY;
     private final String MAXIMUM_REMAINING_RETRIES_KEY;
     private final String MAXIMUM_REMAINING_RECURSIVE_RETRIES_KEY;
+    private final String[] REPLICATED_KEYS;
 
     /**
      * Create an EndpointContext to hold runtime state of an Endpoint
@@ -135,7 +153,6 @@ public class EndpointContext {
                         "be uniquely named");
                 }
             }
-            this.isClustered = true;
             this.cfgCtx = cfgCtx;
         }
 
@@ -148,26 +165,34 @@ public class EndpointContext {
 
         this.metricsBean = metricsBean;
 
+        for (int i = 0; i < transitions.length; i++) {
+            transitions[i] = new AtomicLong();
+        }
+
         STATE_KEY = KEY_PREFIX + endpointName + STATE;
         NEXT_RETRY_TIME_KEY = KEY_PREFIX + endpointName + NEXT_RETRY_TIME;
         REMAINING_RETRIES_KEY = KEY_PREFIX + endpointName + REMAINING_RETRIES;
         LAST_SUSPEND_DURATION_KEY = KEY_PREFIX + endpointName + LAST_SUSPEND_DURATION;
         MAXIMUM_REMAINING_RETRIES_KEY = KEY_PREFIX + endpointName + MAXIMUM_REMAINING_RETRIES;
         MAXIMUM_REMAINING_RECURSIVE_RETRIES_KEY = KEY_PREFIX + endpointName + MAXIMUM_REMAINING_RECURSIVE_RETRIES;
+        REPLICATED_KEYS = new String[] {STATE_KEY, NEXT_RETRY_TIME_KEY, REMAINING_RETRIES_KEY,
+                LAST_SUSPEND_DURATION_KEY, MAXIMUM_REMAINING_RETRIES_KEY, MAXIMUM_REMAINING_RECURSIVE_RETRIES_KEY};
 
-        if (isClustered && (endpointDefinition == null ||
+        if (clustered && (endpointDefinition == null ||
                 !endpointDefinition.isReplicationDisabled())) {
             //In a clustered environment, we need to set the state of an Endpoint when it is created.
             cfgCtx.setNonReplicableProperty(STATE_KEY, ST_ACTIVE);
+            this.isReplicated = true;
+            EndpointStateReplicator.register(this);
         }
     }
 
-    private void recordStatistics(int state) {
+    private void recordStatistics(int newState) {
         if (metricsBean == null) {
             return;
         }
 
-        switch (state) {
+        switch (newState) {
             case ST_ACTIVE:
                 metricsBean.resetConsecutiveSuspensions();
                 metricsBean.resetConsecutiveTimeouts();
@@ -178,7 +203,7 @@ public class EndpointContext {
             case ST_TIMEOUT:
                 metricsBean.resetConsecutiveSuspensions();
                 metricsBean.incrementTimeouts();
-                if (localState != ST_TIMEOUT) {
+                if (state.get() != ST_TIMEOUT) {
                     metricsBean.setTimedoutAt(Calendar.getInstance().getTime());
                     metricsBean.setSuspendedAt(null);
                 }
@@ -187,7 +212,7 @@ public class EndpointContext {
             case ST_SUSPENDED:
                 metricsBean.resetConsecutiveTimeouts();
                 metricsBean.incrementSuspensions();
-                if (localState != ST_SUSPENDED) {
+                if (state.get() != ST_SUSPENDED) {
                     metricsBean.setSuspendedAt(Calendar.getInstance().getTime());
                     metricsBean.setTimedoutAt(null);
                 }
@@ -195,136 +220,88 @@ public class EndpointContext {
         }
     }
 
+    /**
+     * Moves the endpoint to the given state, counting the transition if the state changed
+     *
+     * @param newState the new state of the endpoint
+     */
+    private void enterState(int newState) {
+        if (state.getAndSet(newState) != newState) {
+            transitions[newState].incrementAndGet();
+        }
+    }
+
     /**
      * Update the internal state of the endpoint
      *
-     * @param state the new state of the endpoint
+     * @param newState the new state of the endpoint
      */
-    private void setState(int state) {
+    private void setState(int newState) {
 
-        recordStatistics(state);
+        recordStatistics(newState);
+
+        int retries = -1;
+        if (newState == ST_TIMEOUT && definition != null) {
+            retries = takeTimeoutRetry();
+            if (retries < 0) {
+                log.info("Endpoint : " + endpointName + printEndpointAddress()
+                        + " has been marked for SUSPENSION, "
+                        + "but no further retries remain. Thus it will be SUSPENDED.");
 
-        if (isClustered) {
-            Replicator.setAndReplicateState(STATE_KEY, state, cfgCtx);
+                setState(ST_SUSPENDED);
+                return;
+            }
+        }
+
+        enterState(newState);
+        try {
             if (definition == null) return;
-            switch (state) {
-                case ST_ACTIVE: {
-                    Replicator.setAndReplicateState(REMAINING_RETRIES_KEY,
-                            definition.getRetriesOnTimeoutBeforeSuspend(), cfgCtx);
-                    Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, null, cfgCtx);
-                    Replicator.setAndReplicateState(REMAINING_RETRIES_KEY, maximumRetryLimit, cfgCtx);
+            switch (newState) {
+                case ST_ACTIVE:
+                case ST_OFF: {
+                    // when switched off, mark as in maintenence, and reset all other information
+                    remainingRetries.set(definition.getRetriesOnTimeoutBeforeSuspend());
+                    lastSuspendDuration.set(-1);
+                    maximumRemainingRetries.set(maximumRetryLimit);
                     if (maximumRecursiveRetryLimit != -1) {
-                        Replicator.setAndReplicateState(REMAINING_RETRIES_KEY, maximumRecursiveRetryLimit, cfgCtx);
+                        maximumRemainingRetries.set(maximumRecursiveRetryLimit);
                     }
                     break;
                 }
                 case ST_TIMEOUT: {
-                    Integer retries
-                            = (Integer) cfgCtx.getPropertyNonReplicable(REMAINING_RETRIES_KEY);
-                    if (retries == null) {
-                        retries = definition.getRetriesOnTimeoutBeforeSuspend();
-                    }
-
-                    if (retries <= 0) {
-                        log.info("Endpoint : " + endpointName + printEndpointAddress() +
-                                " has been marked for SUSPENSION," +
-                                " but no further retries remain. Thus it will be SUSPENDED.");
-
-                        setState(ST_SUSPENDED);
-
-                    } else {
-                        Replicator.setAndReplicateState(
-                                REMAINING_RETRIES_KEY, (retries - 1), cfgCtx);
-                        long nextRetry = System.currentTimeMillis()
-                                + definition.getRetryDurationOnTimeout();
-                        Replicator.setAndReplicateState(NEXT_RETRY_TIME_KEY, nextRetry, cfgCtx);
-
-                        log.warn("Endpoint : " + endpointName + printEndpointAddress() +
-                                " is marked as TIMEOUT and " +
-                                "will be retried : " + (retries - 1) + " more time/s after : " +
-                                new Date(nextRetry) + " until its marked SUSPENDED for failure");
-                    }
+                    long nextRetry = System.currentTimeMillis() + definition.getRetryDurationOnTimeout();
+                    nextRetryTime.set(nextRetry);
+                    log.warn("Endpoint : " + endpointName + printEndpointAddress()
+                            + " is marked as TIMEOUT and " +
+                            "will be retried : " + retries + " more time/s " +
+                            "after : " + new Date(nextRetry)
+                            + " until its marked SUSPENDED for failure");
                     break;
                 }
                 case ST_SUSPENDED: {
                     computeNextRetryTimeForSuspended();
                     break;
                 }
-                case ST_OFF: {
-                    // mark as in maintenence, and reset all other information
-                    Replicator.setAndReplicateState(REMAINING_RETRIES_KEY,
-                            definition == null ? -1 :
-                                    definition.getRetriesOnTimeoutBeforeSuspend(), cfgCtx);
-                    Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, null, cfgCtx);
-                    Replicator.setAndReplicateState(REMAINING_RETRIES_KEY, maximumRetryLimit, cfgCtx);
-                    if (maximumRecursiveRetryLimit != -1) {
-                        Replicator.setAndReplicateState(REMAINING_RETRIES_KEY, maximumRecursiveRetryLimit, cfgCtx);
-                    }
-                    break;
-                }
             }
+        } finally {
+            markChanged();
+        }
+    }
 
-        } else {
-            /**
-             * The isSwitchOff flag becomes true when the endpoint is switched off manually. This state is maintained
-             * until the endpoint is activated.
-             */
-            if (isSwitchOff) {
-                localState = ST_OFF;
-            } else {
-                localState = state;
-                if (definition == null) return;
-                switch (state) {
-                    case ST_ACTIVE: {
-                        localRemainingRetries = definition.getRetriesOnTimeoutBeforeSuspend();
-                        localLastSuspendDuration = -1;
-                        maximumRemainingRetries = maximumRetryLimit;
-                        if (maximumRecursiveRetryLimit != -1) {
-                            maximumRemainingRetries = maximumRecursiveRetryLimit;
-                        }
-                        break;
-                    }
-                    case ST_TIMEOUT: {
-                        int retries = localRemainingRetries;
-                        if (retries == -1) {
-                            retries = definition.getRetriesOnTimeoutBeforeSuspend();
-                        }
-
-                        if (retries <= 0) {
-                            log.info("Endpoint : " + endpointName + printEndpointAddress()
-                                    + " has been marked for SUSPENSION, "
-                                    + "but no further retries remain. Thus it will be SUSPENDED.");
-
-                            setState(ST_SUSPENDED);
-
-                        } else {
-                            localRemainingRetries = retries - 1;
-                            localNextRetryTime =
-                                    System.currentTimeMillis() + definition.getRetryDurationOnTimeout();
-                            log.warn("Endpoint : " + endpointName + printEndpointAddress()
-                                    + " is marked as TIMEOUT and " +
-                                    "will be retried : " + localRemainingRetries + " more time/s " +
-                                    "after : " + new Date(localNextRetryTime)
-                                    + " until its marked SUSPENDED for failure");
-                        }
-                        break;
-                    }
-                    case ST_SUSPENDED: {
-                        computeNextRetryTimeForSuspended();
-                        break;
-                    }
-                    case ST_OFF: {
-                        // mark as in maintenence, and reset all other information
-                        localRemainingRetries = definition == null ?
-                                -1 : definition.getRetriesOnTimeoutBeforeSuspend();
-                        localLastSuspendDuration = -1;
-                        maximumRemainingRetries = maximumRetryLimit;
-                        if (maximumRecursiveRetryLimit != -1) {
-                            maximumRemainingRetries = maximumRecursiveRetryLimit;
-                        }
-                        break;
-                    }
-                }
+    /**
+     * Takes one of the attempts left for timeout failures
+     *
+     * @return the number of attempts left after this one, or -1 if no attempt was left
+     */
+    private int takeTimeoutRetry() {
+        while (true) {
+            int current = remainingRetries.get();
+            int retries = current == -1 ? definition.getRetriesOnTimeoutBeforeSuspend() : current;
+            if (retries <= 0) {
+                return -1;
+            }
+            if (remainingRetries.compareAndSet(current, retries - 1)) {
+                return retries - 1;
             }
         }
     }
@@ -333,22 +310,12 @@ public class EndpointContext {
      * Endpoint has processed a message successfully
      */
     public void onSuccess() {
-        if (isClustered) {
-            Integer state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
-
-            if ((state != null) && ((state != ST_ACTIVE) && (state != ST_OFF))) {
-                log.info("Endpoint : " + endpointName + printEndpointAddress()
-                        + " currently " + getStateAsString() +
-                        " will now be marked active since it processed its last message");
-                setState(ST_ACTIVE);
-            }
-        } else {
-            if (localState != ST_ACTIVE && localState != ST_OFF) {
-                log.info("Endpoint : " + endpointName + printEndpointAddress()
-                        + " currently " + getStateAsString() +
-                        " will now be marked active since it processed its last message");
-                setState(ST_ACTIVE);
-            }
+        int current = state.get();
+        if (current != ST_ACTIVE && current != ST_OFF) {
+            log.info("Endpoint : " + endpointName + printEndpointAddress()
+                    + " currently " + getStateAsString() +
+                    " will now be marked active since it processed its last message");
+            setState(ST_ACTIVE);
         }
     }
 
@@ -377,15 +344,10 @@ public class EndpointContext {
      */
     private void computeNextRetryTimeForSuspended() {
         boolean notYetSuspended = true;
-        long lastSuspendDuration = definition.getInitialSuspendDuration();
-        if (isClustered) {
-            Long lastDuration = (Long) cfgCtx.getPropertyNonReplicable(LAST_SUSPEND_DURATION_KEY);
-            if (lastDuration != null) {
-                lastSuspendDuration = lastDuration;
-                notYetSuspended = false;
-            }
-        } else if (localLastSuspendDuration > 0) {
-            lastSuspendDuration = localLastSuspendDuration;
+        long lastDuration = definition.getInitialSuspendDuration();
+        long previousDuration = lastSuspendDuration.get();
+        if (previousDuration > 0) {
+            lastDuration = previousDuration;
             notYetSuspended = false;
         }
 
@@ -399,7 +361,7 @@ public class EndpointContext {
         }
 
         long nextSuspendDuration = (notYetSuspended ?
-                initialSuspendDuration : (long) (lastSuspendDuration * suspendProgressionFactor));
+                initialSuspendDuration : (long) (lastDuration * suspendProgressionFactor));
 
         if (nextSuspendDuration > definition.getSuspendMaximumDuration()) {
             nextSuspendDuration = definition.getSuspendMaximumDuration();
@@ -407,26 +369,19 @@ public class EndpointContext {
             nextSuspendDuration = SynapseConstants.DEFAULT_ENDPOINT_SUSPEND_TIME;
         }
 
-        long nextRetryTime = System.currentTimeMillis() + nextSuspendDuration;
-
-        if (isClustered) {
-            Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, nextSuspendDuration, cfgCtx);
-            Replicator.setAndReplicateState(NEXT_RETRY_TIME_KEY, nextRetryTime, cfgCtx);
-        } else {
-            localLastSuspendDuration = nextSuspendDuration;
-            localNextRetryTime = nextRetryTime;
-        }
+        long nextRetry = System.currentTimeMillis() + nextSuspendDuration;
+        lastSuspendDuration.set(nextSuspendDuration);
+        nextRetryTime.set(nextRetry);
 
         log.warn("Suspending endpoint : " + endpointName + printEndpointAddress() +
                 (notYetSuspended ? " -" :
-                        " - last suspend duration was : " + lastSuspendDuration + "ms and") +
+                        " - last suspend duration was : " + lastDuration + "ms and") +
                 " current suspend duration is : " + nextSuspendDuration + "ms - " +
-                "Next retry after : " + new Date(nextRetryTime));
+                "Next retry after : " + new Date(nextRetry));
     }
 
     /**
-     * Checks if the endpoint is in the state ST_ACTIVE. In a clustered environment, the non
-     * availability of a clustered STATE_KEY implies that this endpoint is active
+     * Checks if the endpoint is in the state ST_ACTIVE, or if it can be retried
      *
      * @return Returns true if the endpoint should be considered as active
      */
@@ -436,96 +391,38 @@ public class EndpointContext {
             log.debug("Checking if endpoint : " + endpointName + printEndpointAddress() + " currently at state " +
                     getStateAsString() + " can be used now?");
         }
-        Integer state;
-        if (isClustered) {
-            if (isSwitchOff) {
-                state = ST_OFF;
-            } else {
-                // gets the value from configuration context (The shared state across all instances)
-                state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
-            }
 
-            Integer remainingRetries
-                    = (Integer) cfgCtx.getPropertyNonReplicable(REMAINING_RETRIES_KEY);
-            Long nextRetryTime = (Long) cfgCtx.getPropertyNonReplicable(NEXT_RETRY_TIME_KEY);
+        int current = state.get();
+        if (current == ST_ACTIVE) {
+            return true;
 
-            if (state == null) {
-                // state has not yet been replicated..
-                // first replication occurs on first timeout or fault
-                return true;
+        } else if (current == ST_OFF) {
+            return false;
 
-            } else {
-                if (state == ST_ACTIVE) {
-                    return true;
-
-                } else if (state == ST_OFF) {
-                    return false;
-
-                } else if (System.currentTimeMillis() >= nextRetryTime) {
-                    // if we are not active, but reached the next retry time, return true but do not
-                    // make a state change. We will make the state change on a successful send
-                    // if we are in the ST_TIMEOUT state, reduce a remaining retry
-                    if (state == ST_TIMEOUT) {
-                        remainingRetries--;
-                        Replicator.setAndReplicateState(
-                                REMAINING_RETRIES_KEY, remainingRetries, cfgCtx);
-
-                        if (log.isDebugEnabled()) {
-                            log.debug("Endpoint : " + endpointName + printEndpointAddress()
-                                    + " which is currently in " +
-                                    "timeout state is ready to be retried. Remaining retries " +
-                                    "before suspension : " + remainingRetries);
-                        }
-
-                    } else {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Endpoint : " + endpointName + printEndpointAddress()
-                                    + " which is currently " +
-                                    "SUSPENDED, is ready to be retried now");
-                        }
-                    }
-                    return true;
-                }
-            }
-
-        } else {
-
-            if (localState == ST_ACTIVE) {
-                return true;
-
-            } else if (localState == ST_OFF) {
-                return false;
-
-            } else if (System.currentTimeMillis() >= localNextRetryTime) {
-
-                // if we are not active, but reached the next retry time, return true but do not
-                // make a state change. We will make the state change on a successful send
-                // if we are in the ST_TIMEOUT state, reduce a remaining retry
-                if (localState == ST_TIMEOUT) {
-
-                    if (log.isDebugEnabled()) {
-                        log.debug("Endpoint : " + endpointName + printEndpointAddress()
-                                + " which is currently in timeout " +
-                                "state is ready to be retried. Remaining retries before " +
-                                "suspension : " + localRemainingRetries);
-                    }
+        } else if (System.currentTimeMillis() >= nextRetryTime.get()) {
 
+            // if we are not active, but reached the next retry time, return true but do not
+            // make a state change. We will make the state change on a successful send
+            if (log.isDebugEnabled()) {
+                if (current == ST_TIMEOUT) {
+                    log.debug("Endpoint : " + endpointName + printEndpointAddress()
+                            + " which is currently in timeout " +
+                            "state is ready to be retried. Remaining retries before " +
+                            "suspension : " + remainingRetries.get());
                 } else {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Endpoint : " + endpointName + printEndpointAddress()
-                                + " which is currently SUSPENDED," +
-                                " is ready to be retried now");
-                    }
+                    log.debug("Endpoint : " + endpointName + printEndpointAddress()
+                            + " which is currently SUSPENDED," +
+                            " is ready to be retried now");
                 }
-                return true;
             }
+            return true;
         }
 
         if (log.isDebugEnabled()) {
             log.debug("Endpoint : " + endpointName + printEndpointAddress()
                     + " not ready and is currently : "
                     + getStateAsString() + ". Next retry will be after : "
-                    + new Date(localNextRetryTime));
+                    + new Date(nextRetryTime.get()));
         }
 
         return false;
@@ -548,24 +445,112 @@ public class EndpointContext {
     }
 
     public boolean isState(int s) {
-        if (isClustered) {
-            Integer state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
-            // state has not yet been replicated..
-            // first replication occurs on first timeout or fault
-            boolean isState = false;
-            if (state == null) {
-                if (s == ST_ACTIVE) {
-                    isState = true;
-                }
-            } else {
-                isState = state == s;
-            }
-            return isState;
-        } else {
-            return localState == s;
+        return state.get() == s;
+    }
+
+    /**
+     * @param s one of the states of the endpoint
+     * @return the number of times the endpoint entered the given state
+     */
+    public long getTransitionCount(int s) {
+        return s > 0 && s < transitions.length ? transitions[s].get() : 0;
+    }
+
+    /**
+     * @return the number of times the state of the endpoint was replicated across the cluster
+     */
+    public long getReplicationCount() {
+        return replications.get();
+    }
+
+    /**
+     * Stops replicating the state of the endpoint, if it was replicated
+     */
+    public void destroy() {
+        if (isReplicated) {
+            EndpointStateReplicator.unregister(this);
         }
     }
 
+    /**
+     * Notes that the state has changed, so that it is replicated by the next replication run
+     */
+    private void markChanged() {
+        if (isReplicated) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Publishes the state of the endpoint to the cluster if it changed since it was last
+     * replicated, or else applies the state replicated by the other members of the cluster if it
+     * changed. Called by the {@link EndpointStateReplicator}.
+     */
+    void replicateState() {
+        if (!isReplicated) {
+            return;
+        }
+
+        if (dirty.getAndSet(false)) {
+            int currentState = state.get();
+            long currentNextRetryTime = nextRetryTime.get();
+            cfgCtx.setNonReplicableProperty(STATE_KEY, currentState);
+            cfgCtx.setNonReplicableProperty(NEXT_RETRY_TIME_KEY, currentNextRetryTime);
+            cfgCtx.setNonReplicableProperty(REMAINING_RETRIES_KEY, remainingRetries.get());
+            cfgCtx.setNonReplicableProperty(LAST_SUSPEND_DURATION_KEY, lastSuspendDuration.get());
+            cfgCtx.setNonReplicableProperty(MAXIMUM_REMAINING_RETRIES_KEY, maximumRemainingRetries.get());
+            cfgCtx.setNonReplicableProperty(MAXIMUM_REMAINING_RECURSIVE_RETRIES_KEY,
+                    maximumRemainingRecursiveRetries.get());
+            replicatedState = currentState;
+            replicatedNextRetryTime = currentNextRetryTime;
+            try {
+                Replicator.replicateState(REPLICATED_KEYS, cfgCtx);
+                replications.incrementAndGet();
+            } catch (SynapseException e) {
+                // try again on the next run
+                dirty.set(true);
+                throw e;
+            }
+            return;
+        }
+
+        Integer remoteState = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
+        Long remoteNextRetryTime = (Long) cfgCtx.getPropertyNonReplicable(NEXT_RETRY_TIME_KEY);
+        if (remoteState == null) {
+            return;
+        }
+        long remoteRetryTime = remoteNextRetryTime != null ? remoteNextRetryTime : -1;
+        if (remoteState == replicatedState && remoteRetryTime == replicatedNextRetryTime) {
+            return;
+        }
+
+        // the state was changed by another member of the cluster
+        int localState = state.get();
+        if (!dirty.get() && state.compareAndSet(localState, remoteState)) {
+            nextRetryTime.set(remoteRetryTime);
+            Integer retries = (Integer) cfgCtx.getPropertyNonReplicable(REMAINING_RETRIES_KEY);
+            if (retries != null) {
+                remainingRetries.set(retries);
+            }
+            Long suspendDuration = (Long) cfgCtx.getPropertyNonReplicable(LAST_SUSPEND_DURATION_KEY);
+            lastSuspendDuration.set(suspendDuration != null ? suspendDuration : -1);
+            Integer maxRetries = (Integer) cfgCtx.getPropertyNonReplicable(MAXIMUM_REMAINING_RETRIES_KEY);
+            if (maxRetries != null) {
+                maximumRemainingRetries.set(maxRetries);
+            }
+            Integer maxRecursiveRetries =
+                    (Integer) cfgCtx.getPropertyNonReplicable(MAXIMUM_REMAINING_RECURSIVE_RETRIES_KEY);
+            if (maxRecursiveRetries != null) {
+                maximumRemainingRecursiveRetries.set(maxRecursiveRetries);
+            }
+            replicatedState = remoteState;
+            replicatedNextRetryTime = remoteRetryTime;
+            if (log.isDebugEnabled()) {
+                log.debug("Endpoint : " + endpointName + printEndpointAddress() + " is now " +
+                        getStateAsString() + " as replicated from the cluster");
+            }
+        }
+    }
 
     /**
      * Private method to return the current state as a loggable string
@@ -573,14 +558,7 @@ public class EndpointContext {
      * @return the current state as a string
      */
     private String getStateAsString() {
-        Integer state = localState;
-        if (isClustered) {
-            state = (Integer) cfgCtx.getPropertyNonReplicable(STATE_KEY);
-            if (state == null) {
-                return "ACTIVE";
-            }
-        }
-        switch (state) {
+        switch (state.get()) {
             case ST_ACTIVE : return "ACTIVE";
             case ST_TIMEOUT : return "TIMEOUT";
             case ST_SUSPENDED : return "SUSPENDED";
@@ -619,69 +597,28 @@ public class EndpointContext {
      */
     public boolean isMaxRetryLimitReached(boolean isRecursiveEndpoint) {
 
-        if (isClustered) {
-            Integer remainingMaxRetries;
-            int maximumRetryLimitCount;
-            if (isRecursiveEndpoint) {
-                remainingMaxRetries = (Integer) cfgCtx.getPropertyNonReplicable(MAXIMUM_REMAINING_RECURSIVE_RETRIES_KEY);
-                maximumRetryLimitCount = maximumRecursiveRetryLimit;
-            } else {
-                remainingMaxRetries = (Integer) cfgCtx.getPropertyNonReplicable(MAXIMUM_REMAINING_RETRIES_KEY);
-                maximumRetryLimitCount = maximumRetryLimit;
-            }
-            if (remainingMaxRetries == null) {
-                remainingMaxRetries = maximumRetryLimitCount;
-            }
-
-            if (remainingMaxRetries == -1) {
-                //disable endpoint suspension
-                return false;
-            }
-            if (log.isDebugEnabled()) {
-                log.debug("Endpoint : " + endpointName + printEndpointAddress()
-                        + " has " + remainingMaxRetries + " maximum retries before suspension");
-            }
+        AtomicInteger remaining = isRecursiveEndpoint ? maximumRemainingRecursiveRetries :
+                maximumRemainingRetries;
+        if (log.isDebugEnabled() && remaining.get() != -1) {
+            log.debug("Endpoint : " + endpointName + printEndpointAddress()
+                    + " has " + remaining.get() + " maximum retries before suspension");
+        }
 
-            if (remainingMaxRetries <= 0) {
-                if (isRecursiveEndpoint) {
-                    Replicator.setAndReplicateState(MAXIMUM_REMAINING_RECURSIVE_RETRIES_KEY,
-                            maximumRecursiveRetryLimit, cfgCtx);
-                }
-                return true;
-            } else {
-                if (isRecursiveEndpoint) {
-                    Replicator.setAndReplicateState(MAXIMUM_REMAINING_RECURSIVE_RETRIES_KEY,
-                            (remainingMaxRetries - 1), cfgCtx);
-                } else {
-                    Replicator.setAndReplicateState(MAXIMUM_REMAINING_RETRIES_KEY, (remainingMaxRetries - 1), cfgCtx);
-                }
-                return false;
-            }
-        } else {
-            int maximumRemainingRetriesCount = isRecursiveEndpoint ? maximumRemainingRecursiveRetries :
-                    maximumRemainingRetries;
+        while (true) {
+            int maximumRemainingRetriesCount = remaining.get();
             if (maximumRemainingRetriesCount == -1) {
                 //disable endpoint suspension
                 return false;
             }
 
-            if (log.isDebugEnabled()) {
-                log.debug("Endpoint : " + endpointName + printEndpointAddress()
-                        + " has " + maximumRemainingRetriesCount + " maximum retries before suspension");
-            }
-
             if (maximumRemainingRetriesCount <= 0) {
                 if (isRecursiveEndpoint) {
-                    maximumRemainingRecursiveRetries = maximumRecursiveRetryLimit;
+                    remaining.set(maximumRecursiveRetryLimit);
+                    markChanged();
                 }
                 return true;
-            } else {
-                maximumRemainingRetriesCount -= 1;
-                if (isRecursiveEndpoint) {
-                    maximumRemainingRecursiveRetries = maximumRemainingRetriesCount;
-                } else {
-                    maximumRemainingRetries = maximumRemainingRetriesCount;
-                }
+            } else if (remaining.compareAndSet(maximumRemainingRetriesCount, maximumRemainingRetriesCount - 1)) {
+                markChanged();
                 return false;
             }
         }
@@ -695,20 +632,15 @@ public class EndpointContext {
         recordStatistics(ST_SUSPENDED);
         long suspendDuration = isRecursiveEndpoint ? suspendDurationOnMaximumRecursiveFailover :
                 suspendDurationOnMaximumFailover;
-        long nextRetryTime = System.currentTimeMillis() + suspendDuration;
-        if (isClustered) {
-            Replicator.setAndReplicateState(STATE_KEY, ST_SUSPENDED, cfgCtx);
-            Replicator.setAndReplicateState(LAST_SUSPEND_DURATION_KEY, suspendDuration, cfgCtx);
-            Replicator.setAndReplicateState(NEXT_RETRY_TIME_KEY, nextRetryTime, cfgCtx);
-        } else {
-            localState = ST_SUSPENDED;
-            localLastSuspendDuration = suspendDuration;
-            localNextRetryTime = nextRetryTime;
-        }
+        long nextRetry = System.currentTimeMillis() + suspendDuration;
+        enterState(ST_SUSPENDED);
+        lastSuspendDuration.set(suspendDuration);
+        nextRetryTime.set(nextRetry);
+        markChanged();
 
         log.warn("Endpoint : " + endpointName + printEndpointAddress() +
                 " will be marked SUSPENDED as it failed until the maximum failover retry limit. Current suspend " +
                 "duration is : " +
-                suspendDuration + "ms - Next retry after : " + new Date(nextRetryTime));
+                suspendDuration + "ms - Next retry after : " + new Date(nextRetry));
     }
 }
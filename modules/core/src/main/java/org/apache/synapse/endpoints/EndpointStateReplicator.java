@@ -0,0 +1,118 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.endpoints;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicates the state of the endpoints across the cluster in the background. The endpoint
+ * contexts keep their state in local fields, and the replicator periodically publishes the
+ * contexts whose state has changed since the last run, and picks up the changes made by the other
+ * members of the cluster for the others. State changes are thus never replicated on the thread
+ * processing the message, and successive changes of the same endpoint are sent together.
+ */
+class EndpointStateReplicator {
+
+    private static final Log log = LogFactory.getLog(EndpointStateReplicator.class);
+
+    private static final Set<EndpointContext> contexts = ConcurrentHashMap.newKeySet();
+
+    private static ScheduledExecutorService scheduler;
+
+    private EndpointStateReplicator() {
+    }
+
+    /**
+     * Starts replicating the state of the given endpoint context
+     *
+     * @param context the context of a clustered endpoint
+     */
+    static void register(EndpointContext context) {
+        contexts.add(context);
+        synchronized (EndpointStateReplicator.class) {
+            if (scheduler == null) {
+                long interval = getInterval();
+                scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "endpoint-state-replicator");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+                scheduler.scheduleWithFixedDelay(new Runnable() {
+                    public void run() {
+                        replicate();
+                    }
+                }, interval, interval, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stops replicating the state of the given endpoint context, after publishing its pending changes
+     *
+     * @param context the context of a clustered endpoint
+     */
+    static void unregister(EndpointContext context) {
+        if (contexts.remove(context)) {
+            replicate(context);
+        }
+    }
+
+    /**
+     * Publishes or picks up the changes of the state of all the registered endpoint contexts
+     */
+    static void replicate() {
+        for (EndpointContext context : contexts) {
+            replicate(context);
+        }
+    }
+
+    private static void replicate(EndpointContext context) {
+        try {
+            context.replicateState();
+        } catch (RuntimeException e) {
+            log.warn("Error replicating the state of the endpoint " + context, e);
+        }
+    }
+
+    private static long getInterval() {
+        String value = SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.ENDPOINT_STATE_REPLICATION_INTERVAL,
+                String.valueOf(SynapseConstants.DEFAULT_ENDPOINT_STATE_REPLICATION_INTERVAL));
+        try {
+            return Math.max(1, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for " + SynapseConstants.ENDPOINT_STATE_REPLICATION_INTERVAL + " : " +
+                    value + ", using the default");
+            return SynapseConstants.DEFAULT_ENDPOINT_STATE_REPLICATION_INTERVAL;
+        }
+    }
+}
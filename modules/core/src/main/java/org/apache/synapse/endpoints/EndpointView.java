@@ -394,6 +394,61 @@ public class EndpointView implements EndpointViewMBean, MessageLevelMetricsColle
         return getTotal(timeoutCounts, 15);
     }
 
+    /**
+     * Number of times a leaf endpoint became active, or the total for the children of a group
+     * @return # of transitions to the active state
+     */
+    public long getTransitionsToActive() {
+        return getTransitions(EndpointContext.ST_ACTIVE);
+    }
+
+    public long getTransitionsToTimeout() {
+        return getTransitions(EndpointContext.ST_TIMEOUT);
+    }
+
+    public long getTransitionsToSuspended() {
+        return getTransitions(EndpointContext.ST_SUSPENDED);
+    }
+
+    public long getTransitionsToSwitchedOff() {
+        return getTransitions(EndpointContext.ST_OFF);
+    }
+
+    /**
+     * Number of times the state of a leaf endpoint was replicated across the cluster, or the total
+     * for the children of a group
+     * @return # of state replications
+     */
+    public long getStateReplications() {
+        if (endpoint.getChildren() != null) {
+            long replications = 0;
+            for (Endpoint e : endpoint.getChildren()) {
+                if (e.getMetricsMBean() != null) {
+                    replications += e.getMetricsMBean().getStateReplications();
+                }
+            }
+            return replications;
+        } else if (endpoint.getContext() != null) {
+            return endpoint.getContext().getReplicationCount();
+        }
+        return 0;
+    }
+
+    private long getTransitions(int state) {
+        if (endpoint.getChildren() != null) {
+            long transitions = 0;
+            for (Endpoint e : endpoint.getChildren()) {
+                if (e.getMetricsMBean() != null) {
+                    transitions += e.getMetricsMBean().getTransitions(state);
+                }
+            }
+            return transitions;
+        } else if (endpoint.getContext() != null) {
+            return endpoint.getContext().getTransitionCount(state);
+        }
+        return 0;
+    }
+
     private int getTotal(Queue<Integer> queue, int count) {
         int sum = 0;
         Integer[] array = queue.toArray(new Integer[queue.size()]);
@@ -56,6 +56,11 @@ public interface EndpointViewMBean {
     public int getLastMinuteEndpointTimeouts();
     public int getLast5MinuteEndpointTimeouts();
     public int getLast15MinuteEndpointTimeouts();
+    public long getTransitionsToActive();
+    public long getTransitionsToTimeout();
+    public long getTransitionsToSuspended();
+    public long getTransitionsToSwitchedOff();
+    public long getStateReplications();
 
     // JMX Operations
     public void switchOn() throws Exception;
@@ -39,6 +39,7 @@ import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.endpoints.algorithms.AlgorithmContext;
 import org.apache.synapse.endpoints.algorithms.LoadbalanceAlgorithm;
+import org.apache.synapse.endpoints.algorithms.RequestTrackingAlgorithm;
 import org.apache.synapse.transport.util.MessageHandlerProvider;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.json.JSONObject;
@@ -106,6 +107,10 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
      */
     private boolean buildMessageAtt = false;
 
+    private static final String TRACKED_REQUEST_PREFIX = "LB_TRACKED_REQUEST_";
+    /** the message property holding the request in flight, when the algorithm tracks the requests */
+    private final String trackedRequestProperty = TRACKED_REQUEST_PREFIX + System.identityHashCode(this);
+
     @Override
     public void init(SynapseEnvironment synapseEnvironment) {
         ConfigurationContext cc =
@@ -241,6 +246,7 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
                 }
             }
             synCtx.pushFaultHandler(this);
+            trackRequestStart(endpoint, synCtx);
             endpoint.send(synCtx);
 
         } else if (activeMembers != null && !activeMembers.isEmpty()) {
@@ -343,6 +349,7 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
     @Override
     public void onChildEndpointFail(Endpoint endpoint, MessageContext synMessageContext) {
 
+        trackRequestComplete(synMessageContext, false);
         //If there is a failure in child endpoint, restore the original message envelope from the message context
         if (synMessageContext.getProperty(SynapseConstants.LB_FO_ENDPOINT_ORIGINAL_MESSAGE) != null) {
             try {
@@ -382,6 +389,58 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
         }
     }
 
+    void trackRequestStart(Endpoint endpoint, MessageContext synCtx) {
+        if (algorithm instanceof RequestTrackingAlgorithm
+                && !"true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY))) {
+            RequestTrackingAlgorithm trackingAlgorithm = (RequestTrackingAlgorithm) algorithm;
+            trackingAlgorithm.onRequestStart(endpoint);
+            synCtx.setProperty(trackedRequestProperty,
+                    new TrackedRequest(trackingAlgorithm, endpoint, System.nanoTime()));
+        }
+    }
+
+    private void trackRequestComplete(MessageContext synCtx, boolean success) {
+        Object tracked = synCtx.getProperty(trackedRequestProperty);
+        if (tracked instanceof TrackedRequest) {
+            removeProperty(synCtx, trackedRequestProperty);
+            ((TrackedRequest) tracked).complete(success);
+        }
+    }
+
+    /**
+     * Completes the requests that load-balance endpoints are still tracking for the given message.
+     * Called when the response to the message is received, and when its callback times out since
+     * no child endpoint is notified of a timeout whose action is {@link SynapseConstants#NONE}.
+     * The requests are found from the message itself, as the endpoint which received the response
+     * is not always a direct child of the load-balance endpoint, e.g. with indirect, template or
+     * nested endpoints.
+     *
+     * @param synCtx  the request message context
+     * @param success false if the request failed or timed out
+     */
+    public static void completeTrackedRequests(MessageContext synCtx, boolean success) {
+        Set properties = synCtx == null ? null : synCtx.getPropertyKeySet();
+        if (properties == null || properties.isEmpty()) {
+            return;
+        }
+        for (Object key : properties.toArray()) {
+            if (key instanceof String && ((String) key).startsWith(TRACKED_REQUEST_PREFIX)) {
+                Object tracked = synCtx.getProperty((String) key);
+                if (tracked instanceof TrackedRequest) {
+                    removeProperty(synCtx, (String) key);
+                    ((TrackedRequest) tracked).complete(success);
+                }
+            }
+        }
+    }
+
+    private static void removeProperty(MessageContext synCtx, String name) {
+        Set properties = synCtx.getPropertyKeySet();
+        if (properties != null) {
+            properties.remove(name);
+        }
+    }
+
     public boolean isFailover() {
         return failover;
     }
@@ -410,6 +469,26 @@ public class LoadbalanceEndpoint extends AbstractEndpoint {
         return algorithm.getNextEndpoint(synCtx, algorithmContext);
     }
     
+    /**
+     * A request sent to a child endpoint, for the algorithms tracking the requests in flight
+     */
+    private static class TrackedRequest {
+
+        private final RequestTrackingAlgorithm algorithm;
+        private final Endpoint endpoint;
+        private final long startTime;
+
+        private TrackedRequest(RequestTrackingAlgorithm algorithm, Endpoint endpoint, long startTime) {
+            this.algorithm = algorithm;
+            this.endpoint = endpoint;
+            this.startTime = startTime;
+        }
+
+        private void complete(boolean success) {
+            algorithm.onRequestComplete(endpoint, System.nanoTime() - startTime, success);
+        }
+    }
+
     /**
      * This FaultHandler will try to resend the message to another member if an error occurs
      * while sending to some member. This is a failover mechanism
@@ -0,0 +1,209 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.axis2.clustering.Member;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.ManagedLifecycle;
+import org.apache.synapse.PropertyInclude;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.mediators.MediatorProperty;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of the algorithms choosing the endpoints by their load. It keeps the requests in flight
+ * and the average response time of each endpoint, as reported by the load balance endpoint, and
+ * lets the implementations choose an endpoint without taking any lock.
+ *
+ * The decay time of the average response times can be set with the
+ * {@value #LB_LATENCY_DECAY_TIME} property of the load balance endpoint, in milliseconds.
+ */
+public abstract class AbstractRequestTrackingAlgorithm implements RequestTrackingAlgorithm, ManagedLifecycle {
+
+    private static final Log log = LogFactory.getLog(AbstractRequestTrackingAlgorithm.class);
+
+    public static final String LB_LATENCY_DECAY_TIME = "loadbalance.latency.decayTime";
+
+    public static final long DEFAULT_LATENCY_DECAY_TIME = 10000;
+
+    private volatile Loads loads = new Loads(new ArrayList<Endpoint>());
+
+    private Endpoint loadBalanceEndpoint;
+    private volatile long decayTime = TimeUnit.MILLISECONDS.toNanos(DEFAULT_LATENCY_DECAY_TIME);
+
+    private volatile List<Member> members;
+    private final AtomicInteger memberCursor = new AtomicInteger();
+
+    /** used to spread the requests among endpoints with the same load */
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    public void setApplicationMembers(List<Member> members) {
+        this.members = members;
+    }
+
+    public void setEndpoints(List<Endpoint> endpoints) {
+        this.loads = new Loads(endpoints != null ? endpoints : new ArrayList<Endpoint>());
+    }
+
+    public void setLoadBalanceEndpoint(Endpoint endpoint) {
+        this.loadBalanceEndpoint = endpoint;
+    }
+
+    public void init(SynapseEnvironment se) {
+        if (loadBalanceEndpoint instanceof PropertyInclude) {
+            MediatorProperty property = ((PropertyInclude) loadBalanceEndpoint).getProperty(LB_LATENCY_DECAY_TIME);
+            if (property != null) {
+                try {
+                    decayTime = TimeUnit.MILLISECONDS.toNanos(Math.max(1, Long.parseLong(property.getValue().trim())));
+                } catch (NumberFormatException e) {
+                    String msg = "Invalid value for the property " + LB_LATENCY_DECAY_TIME + " : " +
+                            property.getValue();
+                    log.error(msg);
+                    throw new SynapseException(msg, e);
+                }
+            }
+        }
+    }
+
+    public void destroy() {
+    }
+
+    public void onRequestStart(Endpoint endpoint) {
+        EndpointLoad load = loads.get(endpoint);
+        if (load != null) {
+            load.start();
+        }
+    }
+
+    public void onRequestComplete(Endpoint endpoint, long latency, boolean success) {
+        EndpointLoad load = loads.get(endpoint);
+        if (load != null) {
+            load.complete(latency, success, decayTime);
+        }
+    }
+
+    /**
+     * Chooses the next member in round robin order, as the load of the members is not tracked
+     */
+    public Member getNextApplicationMember(AlgorithmContext algorithmContext) {
+        List<Member> current = members;
+        if (current == null || current.isEmpty()) {
+            return null;
+        }
+        int size = current.size();
+        int start = Math.floorMod(memberCursor.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Member member = current.get((start + i) % size);
+            if (!member.isSuspended()) {
+                return member;
+            }
+        }
+        return current.get(start);
+    }
+
+    public void reset(AlgorithmContext algorithmContext) {
+        if (log.isDebugEnabled()) {
+            log.debug("Resetting the " + getName() + " loadbalancing algorithm ...");
+        }
+        for (EndpointLoad load : loads.loads) {
+            load.reset();
+        }
+    }
+
+    public String getName() {
+        return getClass().getName();
+    }
+
+    public abstract LoadbalanceAlgorithm clone();
+
+    /**
+     * @param endpoint a child endpoint of the load balance endpoint
+     * @return the number of requests sent to the endpoint which are not complete, -1 if the
+     * endpoint is unknown
+     */
+    public int getOutstandingRequests(Endpoint endpoint) {
+        EndpointLoad load = loads.get(endpoint);
+        return load != null ? load.getOutstanding() : -1;
+    }
+
+    /**
+     * @param endpoint a child endpoint of the load balance endpoint
+     * @return the average response time of the endpoint in milliseconds, -1 if the endpoint is unknown
+     */
+    public double getAverageLatency(Endpoint endpoint) {
+        EndpointLoad load = loads.get(endpoint);
+        return load != null ? load.getLatency(decayTime) / TimeUnit.MILLISECONDS.toNanos(1) : -1;
+    }
+
+    /**
+     * @return the endpoints along with their loads, at the same positions
+     */
+    Loads getLoads() {
+        return loads;
+    }
+
+    protected long getDecayTime() {
+        return decayTime;
+    }
+
+    /**
+     * @return the position to start looking for an endpoint, different for successive requests
+     */
+    protected int nextStartPosition(int size) {
+        return Math.floorMod(cursor.getAndIncrement(), size);
+    }
+
+    /**
+     * The endpoints of the algorithm and their loads
+     */
+    static final class Loads {
+
+        final List<Endpoint> endpoints;
+        final EndpointLoad[] loads;
+        private final Map<Endpoint, EndpointLoad> loadsByEndpoint = new IdentityHashMap<Endpoint, EndpointLoad>();
+
+        Loads(List<Endpoint> endpoints) {
+            this.endpoints = endpoints;
+            this.loads = new EndpointLoad[endpoints.size()];
+            for (int i = 0; i < loads.length; i++) {
+                loads[i] = new EndpointLoad();
+                loadsByEndpoint.put(endpoints.get(i), loads[i]);
+            }
+        }
+
+        EndpointLoad get(Endpoint endpoint) {
+            return loadsByEndpoint.get(endpoint);
+        }
+
+        int size() {
+            return loads.length;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.endpoints.algorithms;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The load of an endpoint, i.e. its requests in flight and an exponentially weighted moving
+ * average of its response times. Both are updated without locks by the threads sending the
+ * requests and receiving the responses.
+ *
+ * The average is a peak EWMA: a response slower than the average replaces it right away, while
+ * faster responses lower it gradually, with a weight depending on the time since the previous
+ * response. The average also decays while the endpoint receives no responses, so that an endpoint
+ * which was slow is tried again after a while.
+ */
+class EndpointLoad {
+
+    /** the latency recorded for a failed request, relative to the current average */
+    private static final double FAILURE_PENALTY = 2.0;
+
+    private static final Sample NO_SAMPLE = new Sample(0, 0);
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicReference<Sample> latency = new AtomicReference<Sample>(NO_SAMPLE);
+
+    void start() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * @param latencyNanos the response time of the request
+     * @param success      false if the request failed
+     * @param decayNanos   the decay time of the average
+     */
+    void complete(long latencyNanos, boolean success, long decayNanos) {
+        outstanding.updateAndGet(count -> count > 0 ? count - 1 : 0);
+
+        long now = System.nanoTime();
+        Sample current;
+        Sample next;
+        do {
+            current = latency.get();
+            double observed = Math.max(0, latencyNanos);
+            if (!success) {
+                observed = Math.max(observed, current.value * FAILURE_PENALTY);
+            }
+            double value;
+            if (current == NO_SAMPLE || observed >= current.value) {
+                value = observed;
+            } else {
+                double weight = Math.exp(-Math.max(0, now - current.time) / (double) decayNanos);
+                value = current.value * weight + observed * (1 - weight);
+            }
+            next = new Sample(value, now);
+        } while (!latency.compareAndSet(current, next));
+    }
+
+    int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @param decayNanos the decay time of the average
+     * @return the average response time in nanoseconds, 0 if no request completed yet
+     */
+    double getLatency(long decayNanos) {
+        Sample sample = latency.get();
+        if (sample == NO_SAMPLE) {
+            return 0;
+        }
+        long idle = Math.max(0, System.nanoTime() - sample.time);
+        return sample.value * Math.exp(-idle / (double) decayNanos);
+    }
+
+    void reset() {
+        outstanding.set(0);
+        latency.set(NO_SAMPLE);
+    }
+
+    private static final class Sample {
+
+        private final double value;
+        private final long time;
+
+        Sample(double value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.endpoints.Endpoint;
+
+/**
+ * Least outstanding requests load balancing algorithm. Each message is sent to the ready endpoint
+ * with the least requests in flight, so that slow endpoints, which keep their requests longer,
+ * automatically receive less traffic. Endpoints with the same number of requests in flight are
+ * chosen in turn.
+ */
+public class LeastOutstandingRequests extends AbstractRequestTrackingAlgorithm {
+
+    public Endpoint getNextEndpoint(MessageContext synCtx, AlgorithmContext algorithmContext) {
+        Loads loads = getLoads();
+        int size = loads.size();
+        if (size == 0) {
+            return null;
+        }
+
+        int start = nextStartPosition(size);
+        Endpoint chosen = null;
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int position = (start + i) % size;
+            int outstanding = loads.loads[position].getOutstanding();
+            if (outstanding < least) {
+                Endpoint endpoint = loads.endpoints.get(position);
+                if (endpoint.readyToSend()) {
+                    chosen = endpoint;
+                    least = outstanding;
+                    if (outstanding == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        return chosen;
+    }
+
+    public LoadbalanceAlgorithm clone() {
+        return new LeastOutstandingRequests();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.endpoints.Endpoint;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices load balancing algorithm with a peak EWMA of the response times. For each
+ * message two ready endpoints are picked at random, and the message is sent to the one with the
+ * lowest cost, the cost of an endpoint being its average response time multiplied by its requests
+ * in flight (plus one). Slow endpoints and endpoints with many requests in flight thus receive less
+ * traffic, while the random choice avoids sending all the messages to the endpoint which looked the
+ * fastest at a given time.
+ */
+public class PowerOfTwoChoices extends AbstractRequestTrackingAlgorithm {
+
+    /** the latency assumed for an endpoint without any completed request */
+    private static final double MIN_LATENCY = 1000;
+
+    public Endpoint getNextEndpoint(MessageContext synCtx, AlgorithmContext algorithmContext) {
+        Loads loads = getLoads();
+        int size = loads.size();
+        if (size == 0) {
+            return null;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = pickReady(loads, random, -1);
+        if (first < 0) {
+            return null;
+        }
+        int second = pickReady(loads, random, first);
+        if (second < 0) {
+            return loads.endpoints.get(first);
+        }
+        return cost(loads.loads[first]) <= cost(loads.loads[second]) ?
+                loads.endpoints.get(first) : loads.endpoints.get(second);
+    }
+
+    /**
+     * Picks a ready endpoint at random, falling back to the first ready endpoint from a random
+     * position if the random picks were not ready
+     *
+     * @return the position of the endpoint, or -1 if no other endpoint is ready
+     */
+    private int pickReady(Loads loads, ThreadLocalRandom random, int excluded) {
+        int size = loads.size();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            int position = random.nextInt(size);
+            if (position != excluded && loads.endpoints.get(position).readyToSend()) {
+                return position;
+            }
+        }
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int position = (start + i) % size;
+            if (position != excluded && loads.endpoints.get(position).readyToSend()) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private double cost(EndpointLoad load) {
+        return Math.max(MIN_LATENCY, load.getLatency(getDecayTime())) * (load.getOutstanding() + 1);
+    }
+
+    public LoadbalanceAlgorithm clone() {
+        return new PowerOfTwoChoices();
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+
+package org.apache.synapse.endpoints.algorithms;
+
+import org.apache.synapse.endpoints.Endpoint;
+
+/**
+ * A load balance algorithm which takes the requests in flight and the response times of the
+ * endpoints into account. The load balance endpoint reports every request it sends to an endpoint
+ * chosen by such an algorithm, and the completion of the request when the response or the fault
+ * is received.
+ */
+public interface RequestTrackingAlgorithm extends LoadbalanceAlgorithm {
+
+    /**
+     * Called when a request is sent to an endpoint chosen by the algorithm
+     *
+     * @param endpoint the endpoint the request is sent to
+     */
+    void onRequestStart(Endpoint endpoint);
+
+    /**
+     * Called when a request sent to an endpoint is complete
+     *
+     * @param endpoint the endpoint the request was sent to
+     * @param latency  the time in nanoseconds between sending the request and its completion
+     * @param success  false if the request failed, e.g. with a timeout or a connection error
+     */
+    void onRequestComplete(Endpoint endpoint, long latency, boolean success);
+}
@@ -36,6 +36,7 @@ import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.AddressEndpoint;
 import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.SynapseMessageReceiver;
@@ -49,9 +50,12 @@ import org.wso2.eventing.SubscriptionManager;
 import org.wso2.eventing.exceptions.EventException;
 
 import javax.xml.namespace.QName;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Eventsource that accepts the event requests using a message receiver.
@@ -212,23 +216,86 @@ public class SynapseEventSource extends SynapseMessageReceiver {
             } catch (EventException e) {
                 handleException("Matching subscriptions fetching error", e);
             }
+            if (subscriptions.isEmpty()) {
+                return;
+            }
+
+            synCtx.setProperty(SynapseConstants.OUT_ONLY,
+                    "true");    // Set one way message for events
 
+            // clone the event for each subscriber on this thread, and send the clones in parallel
+            int groups = Math.min(getDeliveryParallelism(), subscriptions.size());
+            List<List<Delivery>> deliveries = new ArrayList<List<Delivery>>(groups);
+            for (int i = 0; i < groups; i++) {
+                deliveries.add(new ArrayList<Delivery>());
+            }
+            int i = 0;
             for (Subscription subscription : subscriptions) {
-                synCtx.setProperty(SynapseConstants.OUT_ONLY,
-                        "true");    // Set one way message for events
                 try {
-                    getEndpointFromURL(subscription.getEndpointUrl(), synCtx.getEnvironment())
-                            .send(MessageHelper.cloneMessageContext(synCtx));
+                    deliveries.get(i++ % groups).add(
+                            new Delivery(subscription, MessageHelper.cloneMessageContext(synCtx)));
                 } catch (AxisFault axisFault) {
                     log.error("Event sending failure " + axisFault.toString());
                 }
+            }
+
+            ExecutorService executor = synCtx.getEnvironment().getExecutorService();
+            for (int g = 1; g < groups; g++) {
+                final List<Delivery> group = deliveries.get(g);
+                try {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            deliver(group);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    deliver(group);
+                }
+            }
+            deliver(deliveries.get(0));
+        }
+
+        private void deliver(List<Delivery> group) {
+            for (Delivery delivery : group) {
+                try {
+                    getEndpointFromURL(delivery.subscription.getEndpointUrl(), synCtx.getEnvironment())
+                            .send(delivery.message);
+                } catch (RuntimeException e) {
+                    log.error("Event sending failure to : " + delivery.subscription.getEndpointUrl(), e);
+                }
                 if (log.isDebugEnabled()) {
-                    log.debug("Event push to  : " + subscription.getEndpointUrl());
+                    log.debug("Event push to  : " + delivery.subscription.getEndpointUrl());
                 }
             }
         }
     }
 
+    /**
+     * An event to send to a subscriber
+     */
+    private static class Delivery {
+        private final Subscription subscription;
+        private final org.apache.synapse.MessageContext message;
+
+        Delivery(Subscription subscription, org.apache.synapse.MessageContext message) {
+            this.subscription = subscription;
+            this.message = message;
+        }
+    }
+
+    private int getDeliveryParallelism() {
+        String value = SynapsePropertiesLoader.getPropertyValue(
+                SynapseEventingConstants.DELIVERY_PARALLELISM, null);
+        if (value != null) {
+            try {
+                return Math.max(1, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value for " + SynapseEventingConstants.DELIVERY_PARALLELISM + " : " + value);
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Process the subscription message request
      *
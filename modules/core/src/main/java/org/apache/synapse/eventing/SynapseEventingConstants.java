@@ -28,4 +28,6 @@ public class SynapseEventingConstants {
     public static final String STATIC_ENTRY = "staticEntry";
     public static final String SERVICE_TYPE = "serviceType";
     public static final String EVENTING_ST  = "eventing";
+    /** Number of threads delivering an event to its subscribers, the number of processors by default */
+    public static final String DELIVERY_PARALLELISM = "synapse.eventing.delivery.parallelism";
 }
@@ -62,7 +62,35 @@ public class TopicBasedEventFilter implements EventFilter<MessageContext> {
     }
 
     public boolean match(Event<MessageContext> event) {
-        MessageContext messageContext = event.getMessage();
+        return matches(evaluateTopic(sourceXpath, event.getMessage()));
+    }
+
+    /**
+     * Checks whether a topic matches the filter, i.e. whether it is the topic of the filter or a
+     * topic below it
+     *
+     * @param evaluatedValue the topic of an event, may be null
+     * @return true if the topic matches the filter
+     */
+    public boolean matches(String evaluatedValue) {
+        if (evaluatedValue != null){
+            if (evaluatedValue.equals(resultValue)) {
+                return true;
+            } else if (evaluatedValue.startsWith((resultValue + FILTER_SEP).trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates the topic of a message
+     *
+     * @param sourceXpath the XPath selecting the topic element of the message
+     * @param messageContext the message
+     * @return the text of the topic element, or null if the message has no topic
+     */
+    public static String evaluateTopic(AXIOMXPath sourceXpath, MessageContext messageContext) {
         String evaluatedValue = null;
         try {
             OMElement topicNode = (OMElement) sourceXpath.selectSingleNode(
@@ -73,17 +101,10 @@ public class TopicBasedEventFilter implements EventFilter<MessageContext> {
         } catch (JaxenException e) {
             handleException("Error creating topic xpath",e);
         }
-        if (evaluatedValue != null){
-            if (evaluatedValue.equals(resultValue)) {
-                return true;
-            } else if (evaluatedValue.startsWith((resultValue + FILTER_SEP).trim())) {
-                return true;
-            }
-        }
-        return false;
+        return evaluatedValue;
     }
 
-    private void handleException(String message, Exception e) {
+    private static void handleException(String message, Exception e) {
         log.error(message, e);
         throw new SynapseException(message, e);
     }
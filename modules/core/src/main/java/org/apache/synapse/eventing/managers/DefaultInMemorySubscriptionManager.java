@@ -40,6 +40,8 @@ public class DefaultInMemorySubscriptionManager implements SubscriptionManager<M
 
     private final Map<String, Subscription> store =
             new ConcurrentHashMap<String, Subscription>();
+    /** the subscriptions indexed by their topic, to find the subscriptions matching an event */
+    private final TopicSubscriptionIndex topicIndex = new TopicSubscriptionIndex();
     private String topicHeaderName;
     private String topicHeaderNS;
     private SynapseXPath topicXPath;
@@ -60,14 +62,19 @@ public class DefaultInMemorySubscriptionManager implements SubscriptionManager<M
         if (subscription.getId() == null) {
             subscription.setId(org.apache.axiom.om.util.UUIDGenerator.getUUID());
         }
-        store.put(subscription.getId(), subscription);
+        Subscription previous = store.put(subscription.getId(), subscription);
+        if (previous != null) {
+            topicIndex.remove(previous);
+        }
+        topicIndex.add(subscription);
         return subscription.getId();
 
     }
 
   public boolean unsubscribe(String id) throws EventException {
-        if (store.containsKey(id)) {
-            store.remove(id);
+        Subscription subscription = store.remove(id);
+        if (subscription != null) {
+            topicIndex.remove(subscription);
             return true;
         } else {
             return false;
@@ -101,31 +108,31 @@ public class DefaultInMemorySubscriptionManager implements SubscriptionManager<M
         return list;
     }
 
+    /**
+     * Finds the subscriptions matching the topic of an event. The topic of the event is evaluated
+     * once, and the matching subscriptions are looked up in the topic index.
+     *
+     * @param event the event
+     * @return the subscriptions to the topic of the event which have not expired
+     * @throws EventException if the matching subscriptions cannot be found
+     */
     public List<Subscription> getMatchingSubscriptions(Event<MessageContext> event)
             throws EventException {
         final LinkedList<Subscription> list = new LinkedList<Subscription>();
-        for (Map.Entry<String, Subscription> stringSubscriptionEntry : store.entrySet()) {
-            //TODO : pick the filter based on the dialect
-            //XPathBasedEventFilter filter = new XPathBasedEventFilter();
-            TopicBasedEventFilter filter = new TopicBasedEventFilter();
-            if (filter != null) {
-                filter.setResultValue(stringSubscriptionEntry.getValue().getFilterValue());
-                filter.setSourceXpath(topicXPath);
-                //evaluatedValue = topicXPath.stringValueOf(mc);
-            }
-            if (filter == null || filter.match(event)) {
-                Subscription subscription = stringSubscriptionEntry.getValue();
-                Calendar current = Calendar.getInstance(); //Get current date and time
-                if (subscription.getExpires() != null) {
-                    if (current.before(subscription.getExpires())) {
-                        // add only valid subscriptions by checking the expiration
-                        list.add(subscription);
-                    }
-                } else {
-                    // If a expiration dosen't exisits treat it as a never expire subscription, valid till unsubscribe
+        String topic = TopicBasedEventFilter.evaluateTopic(topicXPath, event.getMessage());
+        if (topic == null) {
+            return list;
+        }
+        Calendar current = Calendar.getInstance(); //Get current date and time
+        for (Subscription subscription : topicIndex.getMatchingSubscriptions(topic)) {
+            if (subscription.getExpires() != null) {
+                if (current.before(subscription.getExpires())) {
+                    // add only valid subscriptions by checking the expiration
                     list.add(subscription);
                 }
-
+            } else {
+                // If a expiration dosen't exisits treat it as a never expire subscription, valid till unsubscribe
+                list.add(subscription);
             }
         }
         return list;
@@ -0,0 +1,182 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing.managers;
+
+import org.wso2.eventing.Subscription;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the subscriptions by their topic filter, so that the subscriptions matching the topic
+ * of an event are found without matching the event against every subscription.
+ *
+ * Topics are hierarchical, with levels separated by '/'. A subscription to a topic matches the
+ * events of the topic and of all the topics below it, e.g. a subscription to "weather/europe"
+ * matches "weather/europe" and "weather/europe/paris" but not "weather/europeans". A level of a
+ * filter may also be a wildcard: {@value #SINGLE_LEVEL_WILDCARD} matches any single level and
+ * {@value #MULTI_LEVEL_WILDCARD} matches any number of levels, including none.
+ *
+ * The subscriptions are kept in a trie of the topic levels, which can be updated and searched
+ * concurrently.
+ */
+public class TopicSubscriptionIndex {
+
+    public static final String LEVEL_SEPARATOR = "/";
+    public static final String SINGLE_LEVEL_WILDCARD = "*";
+    public static final String MULTI_LEVEL_WILDCARD = "#";
+
+    private final Node root = new Node();
+
+    /**
+     * Adds a subscription to the index. Subscriptions without a filter are not indexed, as they
+     * do not match any topic.
+     *
+     * @param subscription the subscription to add
+     */
+    public void add(Subscription subscription) {
+        String filter = subscription.getFilterValue();
+        if (filter == null) {
+            return;
+        }
+        Node node = root;
+        for (String level : split(filter)) {
+            node = node.getOrAddChild(level);
+        }
+        node.subscriptions.put(subscription.getId(), subscription);
+    }
+
+    /**
+     * Removes a subscription from the index
+     *
+     * @param subscription the subscription to remove
+     */
+    public void remove(Subscription subscription) {
+        String filter = subscription.getFilterValue();
+        if (filter == null) {
+            return;
+        }
+        Node node = root;
+        for (String level : split(filter)) {
+            node = node.children.get(level);
+            if (node == null) {
+                return;
+            }
+        }
+        node.subscriptions.remove(subscription.getId());
+    }
+
+    /**
+     * Finds the subscriptions matching a topic
+     *
+     * @param topic the topic of an event
+     * @return the subscriptions whose filter matches the topic, each subscription at most once
+     */
+    public Collection<Subscription> getMatchingSubscriptions(String topic) {
+        Map<String, Subscription> matches = new HashMap<String, Subscription>();
+        if (topic != null) {
+            collect(root, split(topic), 0, matches);
+        }
+        return matches.values();
+    }
+
+    private void collect(Node node, String[] levels, int position, Map<String, Subscription> matches) {
+        // a subscription matches the events of all the topics below its own topic
+        matches.putAll(node.subscriptions);
+        if (node.children.isEmpty()) {
+            return;
+        }
+
+        Node multiLevel = node.children.get(MULTI_LEVEL_WILDCARD);
+        if (multiLevel != null) {
+            for (int i = position; i <= levels.length; i++) {
+                collectExact(multiLevel, levels, i, matches);
+            }
+        }
+        if (position == levels.length) {
+            return;
+        }
+        Node child = node.children.get(levels[position]);
+        if (child != null) {
+            collect(child, levels, position + 1, matches);
+        }
+        Node singleLevel = node.children.get(SINGLE_LEVEL_WILDCARD);
+        if (singleLevel != null) {
+            collect(singleLevel, levels, position + 1, matches);
+        }
+    }
+
+    /**
+     * Collects the subscriptions of a multi level wildcard and below it, the levels of the topic
+     * before the given position being matched by the wildcard
+     */
+    private void collectExact(Node wildcard, String[] levels, int position, Map<String, Subscription> matches) {
+        matches.putAll(wildcard.subscriptions);
+        if (position == levels.length) {
+            return;
+        }
+        Node child = wildcard.children.get(levels[position]);
+        if (child != null) {
+            collect(child, levels, position + 1, matches);
+        }
+        Node singleLevel = wildcard.children.get(SINGLE_LEVEL_WILDCARD);
+        if (singleLevel != null) {
+            collect(singleLevel, levels, position + 1, matches);
+        }
+    }
+
+    /**
+     * @return the number of subscriptions in the index
+     */
+    public int size() {
+        return count(root);
+    }
+
+    private int count(Node node) {
+        int count = node.subscriptions.size();
+        for (Node child : node.children.values()) {
+            count += count(child);
+        }
+        return count;
+    }
+
+    private static String[] split(String topic) {
+        return topic.split(LEVEL_SEPARATOR, -1);
+    }
+
+    /**
+     * A level of the topic trie
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new ConcurrentHashMap<String, Node>();
+        private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<String, Subscription>();
+
+        private Node getOrAddChild(String level) {
+            Node child = children.get(level);
+            if (child == null) {
+                child = children.computeIfAbsent(level, k -> new Node());
+            }
+            return child;
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.apache.synapse.mediators.builtin;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jsonschema.core.exceptions.ProcessingException;
 import com.github.fge.jsonschema.core.report.ProcessingMessage;
@@ -28,6 +29,15 @@ import com.github.fge.jsonschema.main.JsonSchema;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
 import org.apache.axiom.om.OMNode;
 import org.apache.axiom.om.impl.llom.OMTextImpl;
+import org.apache.axiom.om.util.StAXParserConfiguration;
+import org.apache.axiom.om.util.StAXUtils;
+import org.apache.axiom.soap.SOAP11Constants;
+import org.apache.axiom.soap.SOAP12Constants;
+import org.apache.axis2.Constants;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.synapse.ContinuationState;
 import org.apache.synapse.FaultHandler;
 import org.apache.synapse.Mediator;
@@ -52,8 +62,13 @@ import org.apache.synapse.mediators.AbstractListMediator;
 import org.apache.synapse.mediators.FlowContinuableMediator;
 import org.apache.synapse.mediators.MediatorProperty;
 import org.apache.synapse.mediators.Value;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.apache.synapse.transport.util.MessageHandlerProvider;
 import org.apache.synapse.util.AXIOMUtils;
 import org.apache.synapse.util.jaxp.SchemaResourceResolver;
+import org.apache.synapse.util.jaxp.ValidatorPool;
 import org.apache.synapse.util.resolver.ResourceMap;
 import org.apache.synapse.util.resolver.UserDefinedXmlSchemaURIResolver;
 import org.apache.synapse.util.xpath.SourceXPathSupport;
@@ -65,12 +80,18 @@ import org.xml.sax.SAXParseException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Source;
+import javax.xml.transform.stax.StAXSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -87,9 +108,18 @@ import static org.apache.synapse.SynapseConstants.SYNAPSE_VALIDATE_MEDIATOR_REDE
  * memory leaks. Hence this initial implementation will create a single parser instance
  * for each unique mediator instance, and re-use it to validate multiple messages - even
  * concurrently - by synchronizing access
+ * <p/>
+ * Validators of cached schemas are pooled. When the message has not been built yet and the default
+ * source is used, the raw payload is validated while it is read from the pipe (through StAX for XML)
+ * instead of being built into an AXIOM tree first, and the message is then built from the same bytes.
  */
 public class ValidateMediator extends AbstractListMediator implements FlowContinuableMediator {
 
+    /**
+     * The maximum number of idle validators kept for each cached schema
+     */
+    private static final int MAX_IDLE_VALIDATORS = Runtime.getRuntime().availableProcessors() * 2;
+
     /**
      * A list of property keys, referring to the schemas to be used for the validation
      * key can be static or dynamic(xpath) key
@@ -147,18 +177,18 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
      */
     private Map<String, JsonSchema> cachedJsonSchemaMap = new ConcurrentHashMap<String, JsonSchema>();
 
+    /**
+     * Concurrent hash map for the validator pools of the cached schemas.
+     */
+    private Map<String, ValidatorPool> validatorPoolMap = new ConcurrentHashMap<String, ValidatorPool>();
+
     /**
      * Whether schema need to cache or not. Default cache every schema.
      */
     private boolean cacheSchema = true;
 
-    @SuppressWarnings({"ThrowableResultOfMethodCallIgnored"})
     public boolean mediate(MessageContext synCtx) {
 
-    	// This is the actual schema instance used to create a new schema
-    	Schema cachedSchema = null;
-    	JsonSchema cachedJsonSchema = null;
-    	
         if (synCtx.getEnvironment().isDebuggerEnabled()) {
             if (super.divertMediationRoute(synCtx)) {
                 return true;
@@ -168,12 +198,30 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
         SynapseLog synLog = getLog(synCtx);
 
         synLog.traceOrDebug("Start : Validate mediator");
+
+        org.apache.axis2.context.MessageContext a2mc = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+        // raw payload of a message which was not built before reaching this mediator
+        RawPayload rawPayload = buildMessage(synCtx, a2mc, synLog);
+        try {
+            return validate(synCtx, a2mc, rawPayload, synLog);
+        } finally {
+            // the message must be available to the following mediators or the fault sequence
+            buildMessage(synCtx, rawPayload);
+        }
+    }
+
+    @SuppressWarnings({"ThrowableResultOfMethodCallIgnored"})
+    private boolean validate(MessageContext synCtx, org.apache.axis2.context.MessageContext a2mc,
+                             RawPayload rawPayload, SynapseLog synLog) {
+
+    	// This is the actual schema instance used to create a new schema
+    	Schema cachedSchema = null;
+    	JsonSchema cachedJsonSchema = null;
+
         if (synLog.isTraceTraceEnabled()) {
             synLog.traceTrace("Message : " + synCtx.getEnvelope());
         }
-
-        org.apache.axis2.context.MessageContext a2mc = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
-        if (JsonUtil.hasAJsonPayload(a2mc)) {
+        if (rawPayload != null ? rawPayload.isJson() : JsonUtil.hasAJsonPayload(a2mc)) {
             ProcessingReport report;
 
             // This JsonSchema used if user decide not to cache the schema. In such a situation jsonSchema will not used.
@@ -277,26 +325,35 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
                 if (cachedJsonSchema == null && uncachedJsonSchema == null) {
                     handleException("Failed to create JSON Schema Validator", synCtx);
                 }
-                String jsonPayload = null;
+                JsonNode jsonPayload = null;
                 if (sourcePath != null) {
                     //evaluating
                     if (sourcePath instanceof SynapseJsonPath || sourcePath instanceof SynapseExpression) {
-                        jsonPayload = sourcePath.stringValueOf(synCtx);
+                        String jsonString = sourcePath.stringValueOf(synCtx);
+                        if (jsonString != null && jsonString.length() > 0) {
+                            jsonPayload = JsonLoader.fromString(jsonString);
+                        }
                     } else {
                         handleException("Could not find JSONPath or Synapse Expression to extract the message " +
                                 "to validate from the payload", synCtx);
                     }
+                } else if (rawPayload != null) {
+                    try {
+                        jsonPayload = readJsonPayload(rawPayload.getInputStream());
+                    } finally {
+                        buildMessage(synCtx, rawPayload);
+                    }
                 } else {
-                    jsonPayload = JsonUtil.jsonPayloadToString(a2mc);
+                    jsonPayload = readJsonPayload(JsonUtil.getJsonPayload(a2mc));
                 }
-                if(jsonPayload == null || jsonPayload.length() == 0) {
-                    //making empty json string
-                    jsonPayload = "{}";
+                if (jsonPayload == null) {
+                    //making empty json object
+                    jsonPayload = JacksonUtils.nodeFactory().objectNode();
                 }
                 if (cacheSchema) {
-                    report = cachedJsonSchema.validate(JsonLoader.fromString(jsonPayload));
+                    report = cachedJsonSchema.validate(jsonPayload);
                 } else {
-                    report = uncachedJsonSchema.validate(JsonLoader.fromString(jsonPayload));
+                    report = uncachedJsonSchema.validate(jsonPayload);
                 }
                 if (report.isSuccess()) {
                     return true;
@@ -340,13 +397,18 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
             Source validateSrc;
             try {
                 // Input source for the validation
-                validateSrc = getValidationSource(synCtx, synLog);
+                if (rawPayload != null) {
+                    validateSrc = getStreamingValidationSource(rawPayload.getInputStream());
+                } else {
+                    validateSrc = getValidationSource(synCtx, synLog);
+                }
 
             } catch (SynapseException e) {
                 /* Catches the exception here to forward to 'on-fail' sequence.
                    The 'on-fail' sequence will get invoked when the given xpath source is not available
                    in the message.
                  */
+                buildMessage(synCtx, rawPayload);
 
                 String errorMessage = "Error occurred while accessing source element: " + source;
 
@@ -474,18 +536,24 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
                 }
             }
 
-            // no need to synchronize, schema instances are thread-safe
+            // no need to synchronize, schema instances are thread-safe and validators are not shared
+            Validator validator;
+            ValidatorPool validatorPool = null;
+            if (cacheSchema) {
+                validatorPool = getValidatorPool(combinedPropertyKey.toString(), cachedSchema);
+                validator = validatorPool.borrow();
+            } else {
+                validator = uncachedSchema.newValidator();
+            }
             try {
-                Validator validator;
-                if (cacheSchema) {
-                    validator = cachedSchema.newValidator();
-                } else {
-                    validator = uncachedSchema.newValidator();
-                }
                 validator.setErrorHandler(errorHandler);
 
                 // perform actual validation
-                validator.validate(validateSrc);
+                try {
+                    validator.validate(validateSrc);
+                } finally {
+                    buildMessage(synCtx, rawPayload);
+                }
 
                 if (errorHandler.isValidationError()) {
 
@@ -519,6 +587,11 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
                 handleException("Error validating " + source + " element", e, synCtx);
             } catch (IOException e) {
                 handleException("Error validating " + source + " element", e, synCtx);
+            } finally {
+                if (validatorPool != null) {
+                    validatorPool.release(validator);
+                }
+                closeStreamingSource(validateSrc);
             }
         }
         if (synLog.isTraceOrDebugEnabled()) {
@@ -530,6 +603,19 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
         return true;
     }
 
+    /**
+     * Returns the validator pool of a cached schema, replacing the pool of a previous version of the
+     * schema cached under the same key
+     */
+    private ValidatorPool getValidatorPool(String schemaKey, Schema schema) {
+        ValidatorPool pool = validatorPoolMap.get(schemaKey);
+        if (pool == null || pool.getSchema() != schema) {
+            pool = new ValidatorPool(schema, MAX_IDLE_VALIDATORS);
+            validatorPoolMap.put(schemaKey, pool);
+        }
+        return pool;
+    }
+
     private boolean isReCreate(MessageContext synCtx, StringBuilder combinedPropertyKey) {
         boolean reCreate = false;
         for (Value schemaKey : schemaKeys) {
@@ -645,6 +731,204 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
         return AXIOMUtils.asSource(validateSource);
     }
 
+    /**
+     * Builds a message which has not been built before reaching this mediator. When the default source
+     * is validated and the payload is XML or JSON, the message is not built here. The raw payload is
+     * validated while it is read from the pass-through pipe instead, and the message is built from what
+     * was read once the validation is over, so that the payload is neither traversed as an AXIOM tree
+     * nor read in full before the validation starts.
+     *
+     * @param synCtx the current message
+     * @param a2mc   the axis2 message context of the current message
+     * @param synLog SynapseLog instance
+     * @return the raw payload to validate, or null if the message was already built or if it must be
+     * validated through AXIOM
+     */
+    private RawPayload buildMessage(MessageContext synCtx, org.apache.axis2.context.MessageContext a2mc,
+                                    SynapseLog synLog) {
+        if (Boolean.TRUE.equals(a2mc.getProperty(PassThroughConstants.MESSAGE_BUILDER_INVOKED))) {
+            return null;
+        }
+        // the whole message is logged before the validation when tracing
+        if (sourcePath == null && a2mc.getProperty(PassThroughConstants.PASS_THROUGH_PIPE) != null
+                && isStreamable(a2mc) && !synLog.isTraceTraceEnabled()) {
+            return new RawPayload(a2mc);
+        }
+        try {
+            MessageHandlerProvider.getMessageHandler(a2mc).buildMessage(a2mc, false);
+        } catch (Exception e) {
+            handleException("Error while building message. " + e.getMessage(), e, synCtx);
+        }
+        return null;
+    }
+
+    /**
+     * Builds a message whose raw payload was validated, from the part of the payload read during the
+     * validation and the rest of the pipe
+     *
+     * @param synCtx     the current message
+     * @param rawPayload the raw payload of the message, may be null
+     */
+    private void buildMessage(MessageContext synCtx, RawPayload rawPayload) {
+        if (rawPayload == null) {
+            return;
+        }
+        try {
+            rawPayload.build();
+        } catch (Exception e) {
+            handleException("Error while building message. " + e.getMessage(), e, synCtx);
+        }
+    }
+
+    private boolean isStreamable(org.apache.axis2.context.MessageContext a2mc) {
+        Object contentType = a2mc.getProperty(Constants.Configuration.CONTENT_TYPE);
+        if (!(contentType instanceof String)) {
+            return false;
+        }
+        String type = ((String) contentType).toLowerCase();
+        return !type.contains("multipart") && (type.contains("xml") || type.contains("json"));
+    }
+
+    /**
+     * Returns a StAX source positioned on the element to validate in a raw XML payload, which is the
+     * first child of the SOAP body for a SOAP envelope and the document element otherwise
+     *
+     * @param payload the raw XML payload
+     * @return the validation source
+     * @throws SynapseException if the payload does not contain an element to validate
+     */
+    private Source getStreamingValidationSource(InputStream payload) throws SynapseException {
+        try {
+            XMLStreamReader reader = StAXUtils.createXMLStreamReader(StAXParserConfiguration.SOAP, payload);
+            reader.nextTag();
+            String namespace = reader.getNamespaceURI();
+            if (SOAP11Constants.SOAP_ENVELOPE_NAMESPACE_URI.equals(namespace)
+                    || SOAP12Constants.SOAP_ENVELOPE_NAMESPACE_URI.equals(namespace)) {
+                // skip the header, if any, up to the first child of the body
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT
+                        && !"Body".equals(reader.getLocalName())) {
+                    skipElement(reader);
+                }
+                if (reader.getEventType() != XMLStreamConstants.START_ELEMENT
+                        || reader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+                    throw new SynapseException("The SOAP body of the message does not contain an element");
+                }
+            }
+            return new StAXSource(reader);
+        } catch (XMLStreamException e) {
+            throw new SynapseException("Error reading the message payload : " + e.getMessage(), e);
+        }
+    }
+
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private void closeStreamingSource(Source validateSrc) {
+        if (validateSrc instanceof StAXSource && ((StAXSource) validateSrc).getXMLStreamReader() != null) {
+            try {
+                ((StAXSource) validateSrc).getXMLStreamReader().close();
+            } catch (XMLStreamException e) {
+                log.debug("Error closing the reader of the validated payload", e);
+            }
+        }
+    }
+
+    /**
+     * Reads a JSON payload straight from its bytes
+     *
+     * @param in the JSON payload, may be null
+     * @return the JSON tree of the payload, or null if there is no payload
+     * @throws IOException if the payload is not valid JSON
+     */
+    private JsonNode readJsonPayload(InputStream in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        JsonNode node = JacksonUtils.getReader().readTree(in);
+        return node == null || node.isMissingNode() ? null : node;
+    }
+
+    /**
+     * The raw payload of a message which reached this mediator unbuilt on the pass-through transport.
+     * The bytes read from the pipe for the validation are kept, and the message is built from them and
+     * from the rest of the pipe afterwards.
+     */
+    private static class RawPayload {
+
+        private final org.apache.axis2.context.MessageContext a2mc;
+
+        private final boolean json;
+
+        private InputStream in;
+
+        private ByteArrayOutputStream readBytes;
+
+        private boolean built = false;
+
+        RawPayload(org.apache.axis2.context.MessageContext a2mc) {
+            this.a2mc = a2mc;
+            this.json = ((String) a2mc.getProperty(Constants.Configuration.CONTENT_TYPE)).toLowerCase()
+                    .contains("json");
+        }
+
+        /**
+         * @return whether the payload is JSON, the message is not built yet to tell from its envelope
+         */
+        boolean isJson() {
+            return json;
+        }
+
+        /**
+         * @return the payload read from the pipe, which cannot be closed by the parsers
+         */
+        InputStream getInputStream() {
+            if (in == null) {
+                InputStream pipeIn;
+                BufferedInputStream bufferedInputStream = (BufferedInputStream) a2mc.getProperty(
+                        PassThroughConstants.BUFFERED_INPUT_STREAM);
+                if (bufferedInputStream != null) {
+                    // the payload has already been read in part, e.g. to check whether it is empty
+                    try {
+                        bufferedInputStream.reset();
+                    } catch (IOException e) {
+                        throw new SynapseException("Error reading the message payload : " + e.getMessage(), e);
+                    }
+                    pipeIn = bufferedInputStream;
+                    a2mc.setProperty(PassThroughConstants.BUFFERED_INPUT_STREAM, null);
+                } else {
+                    pipeIn = ((Pipe) a2mc.getProperty(PassThroughConstants.PASS_THROUGH_PIPE)).getInputStream();
+                }
+                readBytes = new ByteArrayOutputStream();
+                in = new TeeInputStream(pipeIn, readBytes);
+            }
+            return CloseShieldInputStream.wrap(in);
+        }
+
+        void build() throws IOException, XMLStreamException {
+            if (built) {
+                return;
+            }
+            built = true;
+            if (in == null) {
+                // the payload was not read, e.g. the schema could not be loaded
+                MessageHandlerProvider.getMessageHandler(a2mc).buildMessage(a2mc, false);
+            } else {
+                // e.g. the end of the SOAP envelope after the validated element
+                IOUtils.consume(in);
+                RelayUtils.buildMessage(a2mc, false, readBytes.toInputStream());
+            }
+        }
+    }
+
     /**
      * This class handles validation errors to be used for the error reporting
      */
@@ -817,9 +1101,13 @@ public class ValidateMediator extends AbstractListMediator implements FlowContin
         return cacheSchema;
     }
 
+    /**
+     * The message is not built ahead of this mediator when the default source is validated, as the
+     * mediator can validate the raw payload and builds the message itself
+     */
     @Override
     public boolean isContentAware() {
-        return true;
+        return sourcePath != null;
     }
 
     @Override
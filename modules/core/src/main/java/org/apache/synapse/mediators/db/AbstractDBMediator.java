@@ -64,6 +64,11 @@ import java.util.Properties;
  */
 public abstract class AbstractDBMediator extends AbstractMediator implements ManagedLifecycle {
 
+    /**
+     * Default time in milliseconds a message waits for other messages to join its batch
+     */
+    public static final long DEFAULT_BATCH_WINDOW = 10;
+
     /**
      * The information needed to create a data source
      */
@@ -119,6 +124,17 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
 
     private SynapseEnvironment synapseEnvironment;
 
+    /**
+     * Maximum number of executions of a statement by concurrent messages which are coalesced into a
+     * single database round trip. Batching is disabled unless it is greater than one
+     */
+    private int batchSize = 1;
+
+    /**
+     * Maximum time in milliseconds a message waits for other messages to join its batch
+     */
+    private long batchWindow = DEFAULT_BATCH_WINDOW;
+
     /**
      * Initializes the mediator - either an existing data source will be looked up
      * from an in- or external JNDI provider or a custom data source will be created
@@ -319,6 +335,29 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
         return statementList;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(long batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    /**
+     * @return true if executions of statements by concurrent messages are coalesced into batches
+     */
+    public boolean isBatchingEnabled() {
+        return batchSize > 1;
+    }
+
     public DBPoolView getDbPoolView() {
         return dbPoolView;
     }
@@ -338,12 +377,53 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
      */
     protected PreparedStatement getPreparedStatement(Statement stmnt, Connection con,
                                                      MessageContext msgCtx) throws SQLException {
+        return getPreparedStatement(stmnt, con, getParameterValues(stmnt, msgCtx), msgCtx);
+    }
+
+    /**
+     * Return a Prepared statement for the given Statement object and the already resolved values of
+     * its parameters, which is ready to be executed
+     *
+     * @param stmnt  SQL stataement to be executed
+     * @param con    The connection to be used
+     * @param values the values of the parameters of the statement
+     * @param msgCtx Current message context
+     * @return a PreparedStatement
+     * @throws SQLException on error
+     */
+    protected PreparedStatement getPreparedStatement(Statement stmnt, Connection con, List<String> values,
+                                                     MessageContext msgCtx) throws SQLException {
+
+        SynapseLog synLog = getLog(msgCtx);
+        PreparedStatement ps = prepareStatement(stmnt.getRawStatement(), con, msgCtx);
+
+        // set parameters if any
+        setParameters(ps, stmnt, values, msgCtx);
+
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Successfully prepared statement : " + stmnt.getRawStatement() +
+                    " against DataSource : " + getDSName());
+        }
+        return ps;
+    }
+
+    /**
+     * Prepare the given SQL against the given connection, updating the connection pool statistics
+     *
+     * @param sql    the SQL to prepare
+     * @param con    The connection to be used
+     * @param msgCtx Current message context
+     * @return a PreparedStatement without any parameters set
+     * @throws SQLException on error
+     */
+    protected PreparedStatement prepareStatement(String sql, Connection con, MessageContext msgCtx)
+            throws SQLException {
 
         SynapseLog synLog = getLog(msgCtx);
 
         if (synLog.isTraceOrDebugEnabled()) {
             synLog.traceOrDebug("Getting a connection from DataSource " + getDSName() +
-                    " and preparing statement : " + stmnt.getRawStatement());
+                    " and preparing statement : " + sql);
         }
 
         if (con == null) {
@@ -375,152 +455,190 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
             }
         }
 
-        PreparedStatement ps = con.prepareStatement(stmnt.getRawStatement());
-
-        // set parameters if any
-        List<Statement.Parameter> params = stmnt.getParameters();
-        int column = 1;
+        return con.prepareStatement(sql);
+    }
 
-        for (Statement.Parameter param : params) {
+    /**
+     * Resolve the values of the parameters of the given statement against the current message
+     *
+     * @param stmnt  SQL statement
+     * @param msgCtx Current message context
+     * @return the values of the parameters, in the order of the parameters of the statement
+     */
+    protected List<String> getParameterValues(Statement stmnt, MessageContext msgCtx) {
+        List<String> values = new ArrayList<String>(stmnt.getParameters().size());
+        for (Statement.Parameter param : stmnt.getParameters()) {
             if (param == null) {
                 continue;
             }
-            String value = (param.getPropertyName() != null ?
+            values.add(param.getPropertyName() != null ?
                     param.getPropertyName() : param.getPath().stringValueOf(msgCtx));
+        }
+        return values;
+    }
 
-            if (synLog.isTraceOrDebugEnabled()) {
-                synLog.traceOrDebug("Setting as parameter : " + column + " value : " + value +
-                        " as JDBC Type : " + param.getType() + "(see java.sql.Types for valid " +
-                        "types)");
+    /**
+     * Set the values of all the parameters of the given statement on a prepared statement
+     *
+     * @param ps     the prepared statement
+     * @param stmnt  SQL statement the prepared statement was created for
+     * @param values the values of the parameters, as returned by {@link #getParameterValues}
+     * @param msgCtx Current message context
+     * @throws SQLException on error
+     */
+    protected void setParameters(PreparedStatement ps, Statement stmnt, List<String> values,
+                                 MessageContext msgCtx) throws SQLException {
+        int column = 1;
+        int index = 0;
+        for (Statement.Parameter param : stmnt.getParameters()) {
+            if (param == null) {
+                continue;
             }
+            setParameter(ps, column++, param, values.get(index++), stmnt, msgCtx);
+        }
+    }
 
-            switch (param.getType()) {
-                // according to J2SE 1.5 /docs/guide/jdbc/getstart/mapping.html
-                case Types.CHAR:
-                case Types.VARCHAR:
-                case Types.LONGVARCHAR: {
-                    if (value != null && value.length() != 0) {
-                        ps.setString(column++, value);
-                    } else {
-                        ps.setString(column++, null);
-                    }
-                    break;
-                }
-                case Types.NUMERIC:
-                case Types.DECIMAL: {
-                    if (value != null && value.length() != 0) {
-                        ps.setBigDecimal(column++, new BigDecimal(value));
-                    } else {
-                        ps.setBigDecimal(column++, null);
-                    }
-                    break;
+    /**
+     * Set the value of a single parameter of a prepared statement according to its JDBC type
+     *
+     * @param ps     the prepared statement
+     * @param column the index of the parameter
+     * @param param  the parameter definition
+     * @param value  the value of the parameter
+     * @param stmnt  SQL statement the prepared statement was created for
+     * @param msgCtx Current message context
+     * @throws SQLException on error
+     */
+    protected void setParameter(PreparedStatement ps, int column, Statement.Parameter param, String value,
+                                Statement stmnt, MessageContext msgCtx) throws SQLException {
+
+        SynapseLog synLog = getLog(msgCtx);
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Setting as parameter : " + column + " value : " + value +
+                    " as JDBC Type : " + param.getType() + "(see java.sql.Types for valid " +
+                    "types)");
+        }
+
+        switch (param.getType()) {
+            // according to J2SE 1.5 /docs/guide/jdbc/getstart/mapping.html
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR: {
+                if (value != null && value.length() != 0) {
+                    ps.setString(column, value);
+                } else {
+                    ps.setString(column, null);
                 }
-                case Types.BIT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setBoolean(column++, Boolean.parseBoolean(value));
-                    } else {
-                        ps.setNull(column++, Types.BIT);
-                    }
-                    break;
+                break;
+            }
+            case Types.NUMERIC:
+            case Types.DECIMAL: {
+                if (value != null && value.length() != 0) {
+                    ps.setBigDecimal(column, new BigDecimal(value));
+                } else {
+                    ps.setBigDecimal(column, null);
                 }
-                case Types.TINYINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setByte(column++, Byte.parseByte(value));
-                    } else {
-                        ps.setNull(column++, Types.TINYINT);
-                    }
-                    break;
+                break;
+            }
+            case Types.BIT: {
+                if (value != null && value.length() != 0) {
+                    ps.setBoolean(column, Boolean.parseBoolean(value));
+                } else {
+                    ps.setNull(column, Types.BIT);
                 }
-                case Types.SMALLINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setShort(column++, Short.parseShort(value));
-                    } else {
-                        ps.setNull(column++, Types.SMALLINT);
-                    }
-                    break;
+                break;
+            }
+            case Types.TINYINT: {
+                if (value != null && value.length() != 0) {
+                    ps.setByte(column, Byte.parseByte(value));
+                } else {
+                    ps.setNull(column, Types.TINYINT);
                 }
-                case Types.INTEGER: {
-                    if (value != null && value.length() != 0) {
-                        ps.setInt(column++, Integer.parseInt(value));
-                    } else {
-                        ps.setNull(column++, Types.INTEGER);
-                    }
-                    break;
+                break;
+            }
+            case Types.SMALLINT: {
+                if (value != null && value.length() != 0) {
+                    ps.setShort(column, Short.parseShort(value));
+                } else {
+                    ps.setNull(column, Types.SMALLINT);
                 }
-                case Types.BIGINT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setLong(column++, Long.parseLong(value));
-                    } else {
-                        ps.setNull(column++, Types.BIGINT);
-                    }
-                    break;
+                break;
+            }
+            case Types.INTEGER: {
+                if (value != null && value.length() != 0) {
+                    ps.setInt(column, Integer.parseInt(value));
+                } else {
+                    ps.setNull(column, Types.INTEGER);
                 }
-                case Types.REAL: {
-                    if (value != null && value.length() != 0) {
-                        ps.setFloat(column++, Float.parseFloat(value));
-                    } else {
-                        ps.setNull(column++, Types.REAL);
-                    }
-                    break;
+                break;
+            }
+            case Types.BIGINT: {
+                if (value != null && value.length() != 0) {
+                    ps.setLong(column, Long.parseLong(value));
+                } else {
+                    ps.setNull(column, Types.BIGINT);
                 }
-                case Types.FLOAT: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDouble(column++, Double.parseDouble(value));
-                    } else {
-                        ps.setNull(column++, Types.FLOAT);
-                    }
-                    break;
+                break;
+            }
+            case Types.REAL: {
+                if (value != null && value.length() != 0) {
+                    ps.setFloat(column, Float.parseFloat(value));
+                } else {
+                    ps.setNull(column, Types.REAL);
                 }
-                case Types.DOUBLE: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDouble(column++, Double.parseDouble(value));
-                    } else {
-                        ps.setNull(column++, Types.DOUBLE);
-                    }
-                    break;
+                break;
+            }
+            case Types.FLOAT: {
+                if (value != null && value.length() != 0) {
+                    ps.setDouble(column, Double.parseDouble(value));
+                } else {
+                    ps.setNull(column, Types.FLOAT);
                 }
-                // skip BINARY, VARBINARY and LONGVARBINARY
-                case Types.DATE: {
-                    if (value != null && value.length() != 0) {
-                        ps.setDate(column++, Date.valueOf(value));
-                    } else {
-                        ps.setNull(column++, Types.DATE);
-                    }
-                    break;
+                break;
+            }
+            case Types.DOUBLE: {
+                if (value != null && value.length() != 0) {
+                    ps.setDouble(column, Double.parseDouble(value));
+                } else {
+                    ps.setNull(column, Types.DOUBLE);
                 }
-                case Types.TIME: {
-                    if (value != null && value.length() != 0) {
-                        ps.setTime(column++, Time.valueOf(value));
-                    } else {
-                        ps.setNull(column++, Types.TIME);
-                    }
-                    break;
+                break;
+            }
+            // skip BINARY, VARBINARY and LONGVARBINARY
+            case Types.DATE: {
+                if (value != null && value.length() != 0) {
+                    ps.setDate(column, Date.valueOf(value));
+                } else {
+                    ps.setNull(column, Types.DATE);
                 }
-                case Types.TIMESTAMP: {
-                    if (value != null && value.length() != 0) {
-                        ps.setTimestamp(column++, Timestamp.valueOf(value));
-                    } else {
-                        ps.setNull(column++, Types.TIMESTAMP);
-                    }
-                    break;
+                break;
+            }
+            case Types.TIME: {
+                if (value != null && value.length() != 0) {
+                    ps.setTime(column, Time.valueOf(value));
+                } else {
+                    ps.setNull(column, Types.TIME);
                 }
-                // skip CLOB, BLOB, ARRAY, DISTINCT, STRUCT, REF, JAVA_OBJECT
-                default: {
-                    String msg = "Trying to set an un-supported JDBC Type : " + param.getType() +
-                            " against column : " + column + " and statement : " +
-                            stmnt.getRawStatement() +
-                            " used by a DB mediator against DataSource : " + getDSName() +
-                            " (see java.sql.Types for valid type values)";
-                    handleException(msg, msgCtx);
+                break;
+            }
+            case Types.TIMESTAMP: {
+                if (value != null && value.length() != 0) {
+                    ps.setTimestamp(column, Timestamp.valueOf(value));
+                } else {
+                    ps.setNull(column, Types.TIMESTAMP);
                 }
+                break;
+            }
+            // skip CLOB, BLOB, ARRAY, DISTINCT, STRUCT, REF, JAVA_OBJECT
+            default: {
+                String msg = "Trying to set an un-supported JDBC Type : " + param.getType() +
+                        " against column : " + column + " and statement : " +
+                        stmnt.getRawStatement() +
+                        " used by a DB mediator against DataSource : " + getDSName() +
+                        " (see java.sql.Types for valid type values)";
+                handleException(msg, msgCtx);
             }
         }
-
-        if (synLog.isTraceOrDebugEnabled()) {
-            synLog.traceOrDebug("Successfully prepared statement : " + stmnt.getRawStatement() +
-                    " against DataSource : " + getDSName());
-        }
-        return ps;
     }
 
     /**
@@ -22,19 +22,111 @@ package org.apache.synapse.mediators.db;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.commons.transaction.TranscationManger;
+import org.apache.synapse.core.SynapseEnvironment;
 
+import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Connection;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Simple database table lookup mediator. Designed only for read/lookup
  */
 public class DBLookupMediator extends AbstractDBMediator {
-	
+
+    /**
+     * Default maximum number of lookup results kept in the result cache
+     */
+    public static final int DEFAULT_CACHE_MAX_SIZE = 1000;
+
+    /**
+     * Time in milliseconds the results of a lookup are cached, caching is disabled unless it is positive
+     */
+    private long cacheTimeout = 0;
+
+    /**
+     * Maximum number of lookup results kept in the result cache
+     */
+    private int cacheMaxSize = DEFAULT_CACHE_MAX_SIZE;
+
+    private StatementResultCache resultCache;
+
+    /**
+     * Batchers of the statements of this mediator which declare a key column, used when batching is enabled
+     */
+    private final Map<Statement, StatementBatcher<Map<String, String>>> batchers =
+            new ConcurrentHashMap<Statement, StatementBatcher<Map<String, String>>>();
+
+    @Override
+    public void init(SynapseEnvironment se) {
+        super.init(se);
+        if (cacheTimeout > 0) {
+            resultCache = new StatementResultCache(cacheTimeout, cacheMaxSize);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (resultCache != null) {
+            resultCache.clear();
+        }
+        super.destroy();
+    }
+
     protected void processStatement(Statement stmnt, MessageContext msgCtx) {
 
+        SynapseLog synLog = getLog(msgCtx);
+        boolean threadInTx = TranscationManger.isThreadHasEnlistment();
+        List<String> values = getParameterValues(stmnt, msgCtx);
+
+        // a transaction may see its own uncommitted changes, hence results are not shared with it
+        Map<String, String> results = null;
+        if (resultCache != null && !threadInTx) {
+            results = resultCache.get(stmnt, values);
+            if (results != null && synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Using the cached result of statement : " + stmnt.getRawStatement());
+            }
+        }
+
+        if (results == null) {
+            if (isBatchedLookup(stmnt) && !threadInTx) {
+                results = processBatchedStatement(stmnt, values, msgCtx);
+            } else {
+                results = executeStatement(stmnt, values, msgCtx);
+            }
+            if (resultCache != null && !threadInTx && results != null) {
+                resultCache.put(stmnt, values, results);
+            }
+        }
+
+        if (results != null) {
+            setResultProperties(stmnt, results, msgCtx);
+        }
+    }
+
+    /**
+     * @return true if lookups of concurrent messages using the statement are batched into IN queries
+     */
+    private boolean isBatchedLookup(Statement stmnt) {
+        return isBatchingEnabled() && stmnt.getKeyColumn() != null && stmnt.getParameters().size() == 1;
+    }
+
+    /**
+     * Executes the statement for the current message and reads the first row returned
+     *
+     * @return the values of the result columns of the first row, empty if no rows were returned
+     */
+    private Map<String, String> executeStatement(Statement stmnt, List<String> values, MessageContext msgCtx) {
+
         SynapseLog synLog = getLog(msgCtx);
 
         // execute the prepared statement, and extract the first result row and
@@ -59,7 +151,7 @@ public class DBLookupMediator extends AbstractDBMediator {
         	}
         	
         	 
-            ps = getPreparedStatement(stmnt, con, msgCtx);
+            ps = getPreparedStatement(stmnt, con, values, msgCtx);
             rs = ps.executeQuery();
 
             if (rs.next()) {
@@ -67,37 +159,13 @@ public class DBLookupMediator extends AbstractDBMediator {
                     synLog.traceOrDebug(
                         "Processing the first row returned : " + stmnt.getRawStatement());
                 }
-
-                for (String propName : stmnt.getResultsMap().keySet()) {
-
-                    String columnStr =  stmnt.getResultsMap().get(propName);
-                    Object obj;
-                    try {
-                        int colNum = Integer.parseInt(columnStr);
-                        obj = rs.getObject(colNum);
-                    } catch (NumberFormatException ignore) {
-                        obj = rs.getObject(columnStr);
-                    }
-
-                    if (obj != null) {
-                        if (synLog.isTraceOrDebugEnabled()) {
-                            synLog.traceOrDebug("Column : " + columnStr +
-                                    " returned value : " + obj +
-                                    " Setting this as the message property : " + propName);
-                        }
-                        msgCtx.setProperty(propName, obj.toString());
-                    } else {
-                        if (synLog.isTraceOrDebugEnabled()) {
-                            synLog.traceOrDebugWarn("Column : " + columnStr +
-                                    " returned null Skip setting message property : " + propName);
-                        }
-                    }
-                }
+                return readRow(stmnt, rs, synLog);
             } else {
                 if (synLog.isTraceOrDebugEnabled()) {
                     synLog.traceOrDebug("Statement : "
                         + stmnt.getRawStatement() + " returned 0 rows");
                 }
+                return Collections.emptyMap();
             }
             
         } catch (SQLException e) {
@@ -124,6 +192,238 @@ public class DBLookupMediator extends AbstractDBMediator {
                 } catch (SQLException ignore) {}
             }
         }
+        return null;
+    }
+
+    /**
+     * Reads the values of the result columns of the statement from the current row
+     */
+    private Map<String, String> readRow(Statement stmnt, ResultSet rs, SynapseLog synLog) throws SQLException {
+
+        Map<String, String> results = new HashMap<String, String>();
+        for (String propName : stmnt.getResultsMap().keySet()) {
+
+            String columnStr =  stmnt.getResultsMap().get(propName);
+            Object obj;
+            try {
+                int colNum = Integer.parseInt(columnStr);
+                obj = rs.getObject(colNum);
+            } catch (NumberFormatException ignore) {
+                obj = rs.getObject(columnStr);
+            }
+
+            if (obj != null) {
+                results.put(propName, obj.toString());
+            } else {
+                if (synLog.isTraceOrDebugEnabled()) {
+                    synLog.traceOrDebugWarn("Column : " + columnStr +
+                            " returned null Skip setting message property : " + propName);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(results);
+    }
+
+    private void setResultProperties(Statement stmnt, Map<String, String> results, MessageContext msgCtx) {
+
+        SynapseLog synLog = getLog(msgCtx);
+        for (Map.Entry<String, String> result : results.entrySet()) {
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Column : " + stmnt.getResultsMap().get(result.getKey()) +
+                        " returned value : " + result.getValue() +
+                        " Setting this as the message property : " + result.getKey());
+            }
+            msgCtx.setProperty(result.getKey(), result.getValue());
+        }
+    }
+
+    /**
+     * Adds the lookup to an IN query shared with concurrent messages, and waits for the query to be executed
+     */
+    private Map<String, String> processBatchedStatement(Statement stmnt, List<String> values,
+                                                        MessageContext msgCtx) {
+        try {
+            return getBatcher(stmnt).execute(values, msgCtx);
+        } catch (SQLException e) {
+            handleException("SQL Exception occurred while executing batched statement : " +
+                            stmnt.getRawStatement() +
+                            " against DataSource : " + getDSName(), e, msgCtx);
+        } catch (Exception e) {
+            handleException("Error executing batched statement : " + stmnt.getRawStatement() +
+                            " against DataSource : " + getDSName(), e, msgCtx);
+        }
+        return null;
+    }
+
+    private StatementBatcher<Map<String, String>> getBatcher(Statement stmnt) {
+        StatementBatcher<Map<String, String>> batcher = batchers.get(stmnt);
+        if (batcher == null) {
+            batcher = new StatementBatcher<Map<String, String>>(stmnt, getBatchSize(), getBatchWindow(),
+                    new StatementBatcher.BatchExecutor<Map<String, String>>() {
+                        public void execute(Statement statement,
+                                            List<StatementBatcher.Request<Map<String, String>>> batch)
+                                throws SQLException {
+                            executeBatch(statement, batch);
+                        }
+                    });
+            StatementBatcher<Map<String, String>> existing = batchers.putIfAbsent(stmnt, batcher);
+            if (existing != null) {
+                batcher = existing;
+            }
+        }
+        return batcher;
+    }
+
+    /**
+     * Executes the lookups of all the messages of a batch as a single query, by expanding the single
+     * parameter of the statement into an IN list of the distinct keys of the batch. The rows returned are
+     * matched back to the messages using the key column of the statement.
+     */
+    private void executeBatch(Statement stmnt, List<StatementBatcher.Request<Map<String, String>>> batch)
+            throws SQLException {
+
+        Statement.Parameter keyParam = stmnt.getParameters().get(0);
+        Map<String, String> noResults = Collections.emptyMap();
+        Map<String, List<StatementBatcher.Request<Map<String, String>>>> requestsByKey =
+                new LinkedHashMap<String, List<StatementBatcher.Request<Map<String, String>>>>();
+        for (StatementBatcher.Request<Map<String, String>> request : batch) {
+            String value = request.getValues().get(0);
+            if (value == null || value.length() == 0) {
+                // a null key never matches a row
+                request.complete(noResults);
+                continue;
+            }
+            String key = normalizeKey(value, keyParam.getType());
+            List<StatementBatcher.Request<Map<String, String>>> requests = requestsByKey.get(key);
+            if (requests == null) {
+                requests = new ArrayList<StatementBatcher.Request<Map<String, String>>>();
+                requestsByKey.put(key, requests);
+            }
+            requests.add(request);
+        }
+        if (requestsByKey.isEmpty()) {
+            return;
+        }
+
+        MessageContext msgCtx = batch.get(0).getMessageContext();
+        SynapseLog synLog = getLog(msgCtx);
+        String sql = expandKeyParameter(stmnt.getRawStatement(), requestsByKey.size());
+        Connection con = this.getDataSource().getConnection();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = prepareStatement(sql, con, msgCtx);
+            int column = 1;
+            for (List<StatementBatcher.Request<Map<String, String>>> requests : requestsByKey.values()) {
+                StatementBatcher.Request<Map<String, String>> request = requests.get(0);
+                setParameter(ps, column++, keyParam, request.getValues().get(0), stmnt,
+                        request.getMessageContext());
+            }
+            rs = ps.executeQuery();
+
+            int matched = 0;
+            while (rs.next()) {
+                Object keyObj = rs.getObject(stmnt.getKeyColumn());
+                if (keyObj == null) {
+                    continue;
+                }
+                // only the first row of each key is used, as for a single lookup
+                List<StatementBatcher.Request<Map<String, String>>> requests =
+                        requestsByKey.remove(normalizeKey(keyObj.toString(), keyParam.getType()));
+                if (requests == null) {
+                    continue;
+                }
+                Map<String, String> results = readRow(stmnt, rs, synLog);
+                for (StatementBatcher.Request<Map<String, String>> request : requests) {
+                    request.complete(results);
+                }
+                matched++;
+            }
+            for (List<StatementBatcher.Request<Map<String, String>>> requests : requestsByKey.values()) {
+                for (StatementBatcher.Request<Map<String, String>> request : requests) {
+                    request.complete(noResults);
+                }
+            }
+
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Executed a batch of " + batch.size() + " lookups, " + matched +
+                        " key/s matched using statement : " + sql);
+            }
+        } finally {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException ignore) {}
+            }
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {}
+            }
+            try {
+                con.close();
+            } catch (SQLException ignore) {}
+        }
+    }
+
+    /**
+     * Replaces the single parameter placeholder of the statement with the given number of placeholders
+     */
+    private static String expandKeyParameter(String sql, int count) {
+        int index = sql.indexOf('?');
+        StringBuilder placeholders = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                placeholders.append(", ");
+            }
+            placeholders.append('?');
+        }
+        return sql.substring(0, index) + placeholders + sql.substring(index + 1);
+    }
+
+    /**
+     * Normalizes a key so that a parameter value and the value read from the key column compare equal
+     */
+    private static String normalizeKey(String key, int type) {
+        switch (type) {
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE: {
+                try {
+                    return new BigDecimal(key.trim()).stripTrailingZeros().toPlainString();
+                } catch (NumberFormatException ignore) {
+                    return key;
+                }
+            }
+            case Types.CHAR: {
+                // fixed length values are padded by the database
+                return key.trim();
+            }
+            default:
+                return key;
+        }
+    }
+
+    public long getCacheTimeout() {
+        return cacheTimeout;
+    }
+
+    public void setCacheTimeout(long cacheTimeout) {
+        this.cacheTimeout = cacheTimeout;
+    }
+
+    public int getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(int cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
     }
 
     @Override
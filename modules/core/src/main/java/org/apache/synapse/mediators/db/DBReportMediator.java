@@ -23,9 +23,13 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.commons.transaction.TranscationManger;
 
+import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A mediator that writes (i.e. inserts one row) to a table using message information
@@ -46,8 +50,19 @@ public class DBReportMediator extends AbstractDBMediator {
     // default do not participate in a distribute tx
     boolean useTransaction = false;
 
+    /**
+     * Batchers of the statements of this mediator, used when batching is enabled
+     */
+    private final Map<Statement, StatementBatcher<Integer>> batchers =
+            new ConcurrentHashMap<Statement, StatementBatcher<Integer>>();
+
     protected void processStatement(Statement stmnt, MessageContext msgCtx) {
 
+        // statements participating in a transaction are bound to the connection of the message
+        if (isBatchingEnabled() && !useTransaction && !TranscationManger.isThreadHasEnlistment()) {
+            processBatchedStatement(stmnt, msgCtx);
+            return;
+        }
 
         SynapseLog synLog = getLog(msgCtx);
         Connection con = null;
@@ -112,6 +127,163 @@ public class DBReportMediator extends AbstractDBMediator {
         }
     }
 
+    /**
+     * Adds the execution of the statement to a JDBC batch shared with concurrent messages, and waits
+     * for the batch to be executed
+     */
+    private void processBatchedStatement(Statement stmnt, MessageContext msgCtx) {
+
+        SynapseLog synLog = getLog(msgCtx);
+        try {
+            Integer count = getBatcher(stmnt).execute(getParameterValues(stmnt, msgCtx), msgCtx);
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Inserted " + (count < 0 ? "an unknown number of" : count) +
+                        " row/s using batched statement : " + stmnt.getRawStatement());
+            }
+            // the row count is -1 when the driver does not report it for the batched statements
+            msgCtx.setProperty(MODIFIED_ROW_COUNT_PROP_NAME, count);
+        } catch (SQLException e) {
+            handleException("SQL Error while executing batched insert statement : " +
+                            stmnt.getRawStatement() +
+                            " against DataSource : " + getDSName(), e, msgCtx);
+        } catch (Exception e) {
+            handleException("Error while executing batched insert statement : " + stmnt.getRawStatement() +
+                            " against DataSource : " + getDSName(), e, msgCtx);
+        }
+    }
+
+    private StatementBatcher<Integer> getBatcher(Statement stmnt) {
+        StatementBatcher<Integer> batcher = batchers.get(stmnt);
+        if (batcher == null) {
+            batcher = new StatementBatcher<Integer>(stmnt, getBatchSize(), getBatchWindow(),
+                    new StatementBatcher.BatchExecutor<Integer>() {
+                        public void execute(Statement statement, List<StatementBatcher.Request<Integer>> batch)
+                                throws SQLException {
+                            executeBatch(statement, batch);
+                        }
+                    });
+            StatementBatcher<Integer> existing = batchers.putIfAbsent(stmnt, batcher);
+            if (existing != null) {
+                batcher = existing;
+            }
+        }
+        return batcher;
+    }
+
+    /**
+     * Executes the statement for all the messages of a batch as a single JDBC batch. If the batch
+     * fails, the statements not known to be applied are executed again one by one, so that only the
+     * messages whose statement fails are failed.
+     */
+    private void executeBatch(Statement stmnt, List<StatementBatcher.Request<Integer>> batch)
+            throws SQLException {
+
+        MessageContext msgCtx = batch.get(0).getMessageContext();
+        SynapseLog synLog = getLog(msgCtx);
+        Connection con = this.getDataSource().getConnection();
+        PreparedStatement ps = null;
+        try {
+            ps = prepareStatement(stmnt.getRawStatement(), con, msgCtx);
+            for (StatementBatcher.Request<Integer> request : batch) {
+                setParameters(ps, stmnt, request.getValues(), request.getMessageContext());
+                ps.addBatch();
+            }
+            int[] counts;
+            try {
+                counts = ps.executeBatch();
+                if (!con.getAutoCommit()) {
+                    con.commit();
+                }
+            } catch (BatchUpdateException e) {
+                rollback(con);
+                if (synLog.isTraceOrDebugEnabled()) {
+                    synLog.traceOrDebug("Batch of " + batch.size() + " failed, executing the statements one " +
+                            "by one using statement : " + stmnt.getRawStatement() + " : " + e.getMessage());
+                }
+                // with auto commit the statements executed before the failure are already applied
+                int[] applied = con.getAutoCommit() && e.getUpdateCounts() != null ?
+                        e.getUpdateCounts() : new int[0];
+                for (int i = 0; i < batch.size(); i++) {
+                    StatementBatcher.Request<Integer> request = batch.get(i);
+                    if (i >= applied.length) {
+                        executeSingle(stmnt, request, con);
+                    } else if (applied[i] == java.sql.Statement.EXECUTE_FAILED) {
+                        request.fail(e);
+                    } else {
+                        request.complete(getRowCount(applied[i]));
+                    }
+                }
+                return;
+            }
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Executed a batch of " + batch.size() + " using statement : " +
+                        stmnt.getRawStatement());
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                // drivers may not report the row count of each statement in the batch
+                batch.get(i).complete(getRowCount(i < counts.length ? counts[i] :
+                        java.sql.Statement.SUCCESS_NO_INFO));
+            }
+        } catch (SQLException e) {
+            rollback(con);
+            throw e;
+        } finally {
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            try {
+                con.close();
+            } catch (SQLException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Executes the statement for a single message of a failed batch, failing only that message if
+     * the statement fails
+     */
+    private void executeSingle(Statement stmnt, StatementBatcher.Request<Integer> request, Connection con) {
+        PreparedStatement ps = null;
+        try {
+            ps = prepareStatement(stmnt.getRawStatement(), con, request.getMessageContext());
+            setParameters(ps, stmnt, request.getValues(), request.getMessageContext());
+            int count = ps.executeUpdate();
+            if (!con.getAutoCommit()) {
+                con.commit();
+            }
+            request.complete(count);
+        } catch (SQLException e) {
+            rollback(con);
+            request.fail(e);
+        } finally {
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the row count of a statement in a batch, or -1 if the driver did not report it
+     */
+    private int getRowCount(int count) {
+        return count == java.sql.Statement.SUCCESS_NO_INFO ? -1 : count;
+    }
+
+    private void rollback(Connection con) {
+        try {
+            if (!con.getAutoCommit()) {
+                con.rollback();
+            }
+        } catch (SQLException ignore) {
+        }
+    }
+
     protected void closeConnection(long key) {
         TranscationManger.removeConnectionUsed(key);
     }
@@ -38,6 +38,12 @@ public class Statement {
     private final List<Parameter> parameters = new ArrayList<Parameter>();
     private final Map<String, String> resultsMap = new HashMap<String, String>();
 
+    /**
+     * Column holding the value of the single parameter of a lookup, which allows lookups of
+     * concurrent messages to be batched into a single IN query
+     */
+    private String keyColumn = null;
+
     public Statement(String rawStatement) {
         this.rawStatement = rawStatement;
     }
@@ -62,6 +68,14 @@ public class Statement {
         return resultsMap;
     }
 
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    public void setKeyColumn(String keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
     public static class Parameter {
         String propertyName = null;
         SynapsePath path = null;
@@ -0,0 +1,194 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Coalesces executions of a single statement by concurrent messages into one database round trip.
+ * The first message arriving for an empty batch becomes the leader of the batch. When no other batch
+ * of the statement is being executed the leader executes its batch at once, so that a message is not
+ * delayed when there is nothing to coalesce it with. Otherwise it waits until the batch is full, the
+ * batch window has elapsed or the other batches are done, executes the whole batch on behalf of all
+ * the messages in it, and hands each message its own result. Messages never wait longer than the
+ * batch window plus the execution time of the batch.
+ *
+ * @param <R> the type of the result of a single execution
+ */
+class StatementBatcher<R> {
+
+    /**
+     * Executes a closed batch of requests, setting the result of each of them
+     */
+    interface BatchExecutor<R> {
+        void execute(Statement statement, List<Request<R>> batch) throws Exception;
+    }
+
+    private final Statement statement;
+    private final int batchSize;
+    private final long batchWindow;
+    private final BatchExecutor<R> executor;
+
+    /** the batch currently accepting requests, null if there is none */
+    private List<Request<R>> current;
+    /** the number of batches being executed */
+    private int executing;
+
+    StatementBatcher(Statement statement, int batchSize, long batchWindow, BatchExecutor<R> executor) {
+        this.statement = statement;
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+        this.executor = executor;
+    }
+
+    /**
+     * Adds an execution of the statement to the next batch and waits for its result
+     *
+     * @param values the resolved parameter values of the statement for the message
+     * @param msgCtx the current message
+     * @return the result of the execution for the message
+     * @throws Exception if the batch could not be executed
+     */
+    R execute(List<String> values, MessageContext msgCtx) throws Exception {
+        Request<R> request = new Request<R>(values, msgCtx);
+        List<Request<R>> batch;
+        boolean leader = false;
+        synchronized (this) {
+            if (current == null) {
+                current = new ArrayList<Request<R>>(batchSize);
+                leader = true;
+            }
+            batch = current;
+            batch.add(request);
+            if (batch.size() >= batchSize) {
+                current = null;
+                notifyAll();
+            }
+        }
+
+        if (leader) {
+            close(batch);
+            try {
+                executor.execute(statement, batch);
+            } catch (Exception e) {
+                for (Request<R> r : batch) {
+                    r.fail(e);
+                }
+            } finally {
+                synchronized (this) {
+                    executing--;
+                    notifyAll();
+                }
+                // never leave a follower waiting on a result which will not be set
+                for (Request<R> r : batch) {
+                    r.fail(new SynapseException("No result was set for the execution of the batched " +
+                            "statement : " + statement.getRawStatement()));
+                }
+            }
+        }
+        return request.await();
+    }
+
+    /**
+     * Waits until the batch can be executed and stops it from accepting more requests
+     */
+    private void close(List<Request<R>> batch) {
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + batchWindow;
+            long remaining = batchWindow;
+            try {
+                while (current == batch && executing > 0 && remaining > 0) {
+                    wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (current == batch) {
+                current = null;
+            }
+            executing++;
+        }
+    }
+
+    /**
+     * A single execution of the statement within a batch
+     */
+    static class Request<R> {
+
+        private final List<String> values;
+        private final MessageContext msgCtx;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile R result;
+        private volatile Exception error;
+
+        Request(List<String> values, MessageContext msgCtx) {
+            this.values = values;
+            this.msgCtx = msgCtx;
+        }
+
+        List<String> getValues() {
+            return values;
+        }
+
+        MessageContext getMessageContext() {
+            return msgCtx;
+        }
+
+        void complete(R result) {
+            if (done.getCount() > 0) {
+                this.result = result;
+                done.countDown();
+            }
+        }
+
+        void fail(Exception error) {
+            if (done.getCount() > 0) {
+                this.error = error;
+                done.countDown();
+            }
+        }
+
+        R await() throws Exception {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // the leader always completes the request, so wait for it
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (error != null) {
+                throw error;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of lookup results keyed by the SQL statement and its parameter
+ * values. Entries expire after a fixed time to live. Lookups which returned no rows are cached as an
+ * empty result as well.
+ */
+class StatementResultCache {
+
+    private final long timeToLive;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    StatementResultCache(long timeToLive, final int maxSize) {
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cached result properties of the statement, or null if there is no live entry
+     */
+    Map<String, String> get(Statement statement, List<String> values) {
+        Key key = new Key(statement.getRawStatement(), values);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiry < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.results;
+        }
+    }
+
+    void put(Statement statement, List<String> values, Map<String, String> results) {
+        Key key = new Key(statement.getRawStatement(), new ArrayList<String>(values));
+        synchronized (entries) {
+            entries.put(key, new Entry(results, System.currentTimeMillis() + timeToLive));
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static class Entry {
+        private final Map<String, String> results;
+        private final long expiry;
+
+        Entry(Map<String, String> results, long expiry) {
+            this.results = results;
+            this.expiry = expiry;
+        }
+    }
+
+    private static class Key {
+        private final String sql;
+        private final List<String> values;
+
+        Key(String sql, List<String> values) {
+            this.sql = sql;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return sql.equals(key.sql) && values.equals(key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sql.hashCode() + values.hashCode();
+        }
+    }
+}
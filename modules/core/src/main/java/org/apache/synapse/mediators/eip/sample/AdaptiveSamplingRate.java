@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.eip.sample;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adapts the sampling rate to the health of the backend, in the manner of an additive increase,
+ * multiplicative decrease (AIMD) controller. The latency and the outcome of the responses are
+ * recorded as they come back, and at the end of each unit time the rate is halved if the average
+ * latency or the error rate exceeded its target, or increased by a tenth of the initial rate if
+ * messages were left waiting on the queue.
+ */
+public class AdaptiveSamplingRate {
+
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int minRate;
+    private final int maxRate;
+    private final long targetLatency;
+    private final double targetErrorRate;
+    private final int increment;
+
+    private volatile int rate;
+    private volatile long lastAverageLatency = -1;
+    private volatile double lastErrorRate = 0;
+
+    private final LongAdder totalLatency = new LongAdder();
+    private final LongAdder responseCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+
+    /**
+     * @param initialRate     the rate to start with
+     * @param minRate         the lowest rate
+     * @param maxRate         the highest rate, unbounded if not positive
+     * @param targetLatency   the highest acceptable average latency in milliseconds, ignored if not positive
+     * @param targetErrorRate the highest acceptable ratio of failed responses, ignored if negative
+     */
+    public AdaptiveSamplingRate(int initialRate, int minRate, int maxRate, long targetLatency,
+                                double targetErrorRate) {
+        this.minRate = Math.max(1, minRate);
+        this.maxRate = maxRate > 0 ? Math.max(this.minRate, maxRate) : Integer.MAX_VALUE;
+        this.targetLatency = targetLatency;
+        this.targetErrorRate = targetErrorRate;
+        this.rate = Math.min(this.maxRate, Math.max(this.minRate, initialRate));
+        this.increment = Math.max(1, this.rate / 10);
+    }
+
+    /**
+     * Records a response of the backend
+     *
+     * @param latency the time taken by the backend to respond, in milliseconds
+     * @param error   whether the backend failed to process the message
+     */
+    public void recordResponse(long latency, boolean error) {
+        totalLatency.add(latency);
+        responseCount.increment();
+        if (error) {
+            errorCount.increment();
+        }
+    }
+
+    /**
+     * Adjusts the rate with the responses recorded since the last adjustment
+     *
+     * @param backlogged whether messages were left on the queue at the end of the unit time
+     * @return the new rate
+     */
+    public synchronized int adjust(boolean backlogged) {
+        long responses = responseCount.sumThenReset();
+        long latency = totalLatency.sumThenReset();
+        long errors = errorCount.sumThenReset();
+
+        boolean overloaded = false;
+        if (responses > 0) {
+            lastAverageLatency = latency / responses;
+            lastErrorRate = (double) errors / responses;
+            overloaded = (targetLatency > 0 && lastAverageLatency > targetLatency) ||
+                    (targetErrorRate >= 0 && lastErrorRate > targetErrorRate);
+        }
+
+        if (overloaded) {
+            rate = Math.max(minRate, (int) (rate * DECREASE_FACTOR));
+        } else if (backlogged) {
+            rate = (int) Math.min(maxRate, (long) rate + increment);
+        }
+        return rate;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * @return the average latency of the responses of the last unit time with responses, or -1
+     */
+    public long getLastAverageLatency() {
+        return lastAverageLatency;
+    }
+
+    /**
+     * @return the ratio of failed responses of the last unit time with responses
+     */
+    public double getLastErrorRate() {
+        return lastErrorRate;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.eip.sample;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free {@link MessageQueue} for any number of producers and consumers, backed by a
+ * ring buffer. Each slot carries a sequence number telling whether it is ready to be written or
+ * read for the current lap, so that producers and consumers only contend on the head and tail
+ * counters. Messages added while the queue is full are rejected and counted.
+ */
+public class BoundedMessageQueue implements MessageQueue {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private AtomicReferenceArray<MessageContext> buffer;
+    private AtomicLongArray sequences;
+    private int mask;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public BoundedMessageQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum number of messages on the queue, rounded up to a power of two of at least two
+     */
+    public BoundedMessageQueue(int capacity) {
+        allocate(capacity);
+    }
+
+    /**
+     * Changes the capacity of the queue, which must be empty
+     *
+     * @param capacity the maximum number of messages on the queue, rounded up to a power of two
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (!isEmpty()) {
+            throw new IllegalStateException("Cannot change the capacity of a message queue in use");
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid message queue capacity : " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        // a single slot could not tell a published message from a slot freed for the next lap
+        size = Math.max(2, size);
+        AtomicLongArray newSequences = new AtomicLongArray(size);
+        long start = tail.get();
+        for (int i = 0; i < size; i++) {
+            // the slot of position p is writable when its sequence is p
+            long position = start + ((i - start) & (size - 1));
+            newSequences.set(i, position);
+        }
+        buffer = new AtomicReferenceArray<MessageContext>(size);
+        sequences = newSequences;
+        mask = size - 1;
+    }
+
+    /**
+     * Adds the message to the queue, unless the queue is full
+     *
+     * @param synCtx the message to add
+     * @return <code>true</code> if the message was added, <code>false</code> if the queue is full
+     */
+    public boolean offer(MessageContext synCtx) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.set(index, synCtx);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                rejectedCount.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    public void add(MessageContext synCtx) {
+        offer(synCtx);
+    }
+
+    public MessageContext get() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    MessageContext synCtx = buffer.getAndSet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return synCtx;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of messages on the queue, which may be momentarily out of date
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the number of messages rejected because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public boolean isPersistent() {
+        return false;
+    }
+
+    public boolean persist() {
+        return false;
+    }
+
+    public void load() {
+        throw new UnsupportedOperationException("Not Implemented");
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.axis2.Constants;
 import org.apache.axis2.context.OperationContext;
 import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
@@ -31,6 +32,7 @@ import org.apache.synapse.mediators.eip.Target;
 
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This implements the well known <code>Sample</code> EIP (Enterprise Integration Pattern), which controls the flow
@@ -39,6 +41,11 @@ import java.util.TimerTask;
  * <p>Please note that the usage of this will require the sampler to be on the out-flow as well to correctly
  * determine & to manage the rate.</p>
  *
+ * <p>When a target latency or a target error rate is given, the sampler runs in adaptive mode, where the
+ * rate follows the health of the backend, as measured by the responses going through the sampler on the
+ * out-flow (see {@link AdaptiveSamplingRate}). The rate then starts at the <code>samplingRate</code> and
+ * stays between the minimum and maximum rates.</p>
+ *
  * @see org.apache.synapse.mediators.AbstractMediator
  */
 public class SamplingThrottleMediator extends AbstractMediator implements ManagedLifecycle {
@@ -63,8 +70,29 @@ public class SamplingThrottleMediator extends AbstractMediator implements Manage
 
     private boolean messageQueueExplicitlySet;
 
+    /** Highest acceptable average backend latency in milliseconds in adaptive mode, not set if -1 */
+    private long targetLatency = -1;
+
+    /** Highest acceptable ratio of failed backend responses in adaptive mode, not set if negative */
+    private double targetErrorRate = -1;
+
+    /** Lowest rate in adaptive mode */
+    private int minRate = 1;
+
+    /** Highest rate in adaptive mode, unbounded if not positive */
+    private int maxRate = 0;
+
+    private AdaptiveSamplingRate adaptiveRate;
+
+    /** Number of messages mediated during the last unit time */
+    private volatile int effectiveRate = 0;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
     private TimerTask messageProcessor;
 
+    private static final String DISPATCH_TIME_PREFIX = "SAMPLER_DISPATCH_TIME_";
+
     public void init(SynapseEnvironment synapseEnvironment) {
 
         if (messageQueue.isPersistent()) {
@@ -72,6 +100,11 @@ public class SamplingThrottleMediator extends AbstractMediator implements Manage
             messageQueue.load();
         }
 
+        if (isAdaptive()) {
+            adaptiveRate = new AdaptiveSamplingRate(samplingRate, minRate, maxRate, targetLatency,
+                    targetErrorRate);
+        }
+
         Timer samplingTimer = synapseEnvironment.getSynapseConfiguration().getSynapseTimer();
         messageProcessor = new MessageProcessor();
         log.info("Scheduling the sampling timer to invoke the message processor " +
@@ -120,8 +153,17 @@ public class SamplingThrottleMediator extends AbstractMediator implements Manage
                 synLog.traceOrDebug("Adding the message with message id : "
                         + messageContext.getMessageID() + " into the message queue for sampling");
             }
-            messageQueue.add(messageContext);
+            if (messageQueue instanceof BoundedMessageQueue) {
+                if (!((BoundedMessageQueue) messageQueue).offer(messageContext)) {
+                    rejectedCount.incrementAndGet();
+                    synLog.auditWarn("The sampling message queue is full, dropping the message with " +
+                            "message id : " + messageContext.getMessageID());
+                }
+            } else {
+                messageQueue.add(messageContext);
+            }
         } else {
+            recordResponse(messageContext);
             synLog.auditWarn("Encountered a response message which will not be sampled");
         }
 
@@ -180,6 +222,105 @@ public class SamplingThrottleMediator extends AbstractMediator implements Manage
         return messageQueueExplicitlySet;
     }
 
+    public long getTargetLatency() {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(long targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public double getTargetErrorRate() {
+        return targetErrorRate;
+    }
+
+    public void setTargetErrorRate(double targetErrorRate) {
+        this.targetErrorRate = targetErrorRate;
+    }
+
+    public int getMinRate() {
+        return minRate;
+    }
+
+    public void setMinRate(int minRate) {
+        this.minRate = minRate;
+    }
+
+    public int getMaxRate() {
+        return maxRate;
+    }
+
+    public void setMaxRate(int maxRate) {
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * @return <code>true</code> if the rate adapts to a target latency or a target error rate
+     */
+    public boolean isAdaptive() {
+        return targetLatency > 0 || targetErrorRate >= 0;
+    }
+
+    /**
+     * @return the number of messages allowed per unit time, which changes over time in adaptive mode
+     */
+    public int getCurrentSamplingRate() {
+        return adaptiveRate != null ? adaptiveRate.getRate() : samplingRate;
+    }
+
+    /**
+     * @return the number of messages mediated during the last unit time
+     */
+    public int getEffectiveRate() {
+        return effectiveRate;
+    }
+
+    /**
+     * @return the number of messages waiting on the queue, or -1 if the queue does not tell
+     */
+    public int getQueueDepth() {
+        if (messageQueue instanceof BoundedMessageQueue) {
+            return ((BoundedMessageQueue) messageQueue).size();
+        }
+        return messageQueue.isEmpty() ? 0 : -1;
+    }
+
+    /**
+     * @return the number of messages dropped because the queue was full
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private String getDispatchTimeProperty() {
+        return DISPATCH_TIME_PREFIX + (id != null ? id : "");
+    }
+
+    /**
+     * Records the latency and the outcome of a response for the adaptive rate
+     */
+    private void recordResponse(MessageContext synCtx) {
+        if (adaptiveRate == null) {
+            return;
+        }
+        Object dispatchTime = synCtx.getProperty(getDispatchTimeProperty());
+        if (!(dispatchTime instanceof Long)) {
+            return;
+        }
+        boolean error = synCtx.isFaultResponse();
+        if (!error && synCtx instanceof Axis2MessageContext) {
+            Object statusCode = ((Axis2MessageContext) synCtx).getAxis2MessageContext().getProperty(
+                    SynapseConstants.HTTP_SC);
+            if (statusCode != null) {
+                try {
+                    error = Integer.parseInt(statusCode.toString()) >= 500;
+                } catch (NumberFormatException ignore) {
+                }
+            }
+        }
+        adaptiveRate.recordResponse(System.currentTimeMillis() - (Long) dispatchTime, error);
+    }
+
     private class MessageProcessor extends TimerTask {
 
         @Override
@@ -187,13 +328,40 @@ public class SamplingThrottleMediator extends AbstractMediator implements Manage
             if (log.isDebugEnabled()) {
                 log.debug("Started running the message processor");
             }
-            for (int i = 0; i < samplingRate && !messageQueue.isEmpty(); i++) {
+            int rate = getCurrentSamplingRate();
+            int count = 0;
+            while (count < rate && !messageQueue.isEmpty()) {
                 MessageContext synCtx = messageQueue.get();
+                if (synCtx == null) {
+                    break;
+                }
+                count++;
                 if (log.isDebugEnabled()) {
                     log.debug("Mediating the message on the message queue with message id : "
                             + synCtx.getMessageID());
                 }
-                target.mediate(synCtx);
+                if (adaptiveRate == null) {
+                    target.mediate(synCtx);
+                    continue;
+                }
+                long dispatchTime = System.currentTimeMillis();
+                synCtx.setProperty(getDispatchTimeProperty(), dispatchTime);
+                try {
+                    target.mediate(synCtx);
+                } catch (RuntimeException e) {
+                    adaptiveRate.recordResponse(System.currentTimeMillis() - dispatchTime, true);
+                    log.error("Error mediating the sampled message with message id : "
+                            + synCtx.getMessageID(), e);
+                }
+            }
+            effectiveRate = count;
+            if (adaptiveRate != null) {
+                int newRate = adaptiveRate.adjust(!messageQueue.isEmpty());
+                if (newRate != rate && log.isDebugEnabled()) {
+                    log.debug("Sampling rate changed from " + rate + " to " + newRate +
+                            ", average backend latency : " + adaptiveRate.getLastAverageLatency() +
+                            " ms, error rate : " + adaptiveRate.getLastErrorRate());
+                }
             }
             if (log.isDebugEnabled()) {
                 log.debug("Message processing completed for the given sampling rate");
@@ -35,6 +35,20 @@ public final class MessageProcessorConstants {
 	 */
 	public static final long THRESHOULD_INTERVAL = 1000;
 
+    /**
+     * Synapse property to schedule the scheduled message processors on the in-process task manager,
+     * which supports intervals below the threshould interval, instead of the configured task manager.
+     * Disabled by default: the in-process task manager keeps the tasks local to each node, so the
+     * tasks are not coordinated across a cluster.
+     */
+    public static final String IN_PROCESS_SCHEDULER = "synapse.message.processor.inprocess.scheduler";
+
+    /**
+     * Synapse property with the number of threads of the in-process task manager
+     */
+    public static final String IN_PROCESS_SCHEDULER_THREADS =
+            "synapse.message.processor.inprocess.scheduler.threads";
+
     /**
      * Message processor parameters
      */
@@ -21,6 +21,7 @@ package org.apache.synapse.message.processor.impl;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.message.MessageConsumer;
@@ -32,6 +33,7 @@ import org.apache.synapse.message.processor.impl.forwarder.ForwardingService;
 import org.apache.synapse.message.processor.impl.sampler.SamplingService;
 import org.apache.synapse.message.senders.blocking.BlockingMsgSender;
 import org.apache.synapse.registry.Registry;
+import org.apache.synapse.task.InProcessTaskManager;
 import org.apache.synapse.task.SynapseTaskException;
 import org.apache.synapse.task.Task;
 import org.apache.synapse.task.TaskDescription;
@@ -103,6 +105,11 @@ public abstract class ScheduledMessageProcessor extends AbstractMessageProcessor
 
 	private static final String CURRENT_SERVER_STATUS = "local_current.server.status";
 
+	/**
+	 * Task manager shared by all the processors scheduled in process
+	 */
+	private static InProcessTaskManager inProcessTaskManager;
+
     @Override
     public void init(SynapseEnvironment se) {
 		this.synapseEnvironment = se;
@@ -114,7 +121,8 @@ public abstract class ScheduledMessageProcessor extends AbstractMessageProcessor
 		 * related to the pending tasks.
 		 */
 		if (taskManager == null) {
-			taskManager = synapseEnvironment.getSynapseConfiguration().getTaskManager();
+			taskManager = isInProcessScheduling() ? getInProcessTaskManager() :
+			              synapseEnvironment.getSynapseConfiguration().getTaskManager();
 		}
 
         if (taskManager == null) {
@@ -182,9 +190,10 @@ public abstract class ScheduledMessageProcessor extends AbstractMessageProcessor
 			 * exception while building the task. So to get around that we are
 			 * setting threshold interval value of 1000 ms to the task
 			 * description here. But actual interval value may be less than 1000
-			 * ms, and hence isThrotling is set to TRUE.
+			 * ms, and hence isThrotling is set to TRUE. The in-process task
+			 * manager takes the actual interval.
 			 */
-			if (interval < MessageProcessorConstants.THRESHOULD_INTERVAL) {
+			if (isThrottling(interval) || interval <= 0) {
 				taskDescription.setInterval(MessageProcessorConstants.THRESHOULD_INTERVAL);
 			} else {
 				taskDescription.setInterval(interval);
@@ -492,7 +501,33 @@ public abstract class ScheduledMessageProcessor extends AbstractMessageProcessor
 	 *         otherwise.
 	 */
 	protected boolean isThrottling(final long interval) {
-		return interval < MessageProcessorConstants.THRESHOULD_INTERVAL;
+		return !isInProcessScheduling() && interval < MessageProcessorConstants.THRESHOULD_INTERVAL;
+	}
+
+	/**
+	 * @return <code>true</code> if the processors are scheduled on the in-process task manager, which
+	 *         runs intervals of any length on a shared pool of threads. Disabled by default, since
+	 *         the in-process task manager does not coordinate the tasks across a cluster
+	 */
+	protected static boolean isInProcessScheduling() {
+		return SynapsePropertiesLoader.getBooleanProperty(MessageProcessorConstants.IN_PROCESS_SCHEDULER, false);
+	}
+
+	private static synchronized TaskManager getInProcessTaskManager() {
+		if (inProcessTaskManager == null) {
+			Properties properties = new Properties();
+			String threads = SynapsePropertiesLoader.getPropertyValue(
+					MessageProcessorConstants.IN_PROCESS_SCHEDULER_THREADS, null);
+			if (threads != null) {
+				properties.setProperty(InProcessTaskManager.THREADS, threads);
+			}
+			InProcessTaskManager manager = new InProcessTaskManager();
+			manager.setName("message-processor-scheduler");
+			manager.init(properties);
+			manager.start();
+			inProcessTaskManager = manager;
+		}
+		return inProcessTaskManager;
 	}
 
 	public boolean isThrottling(final String cronExpression) {
@@ -246,9 +246,10 @@ public class FailoverForwardingService implements Task, ManagedLifecycle {
 			/*
 			 * If the interval is less than 1000 ms, then the scheduling is done
 			 * using the while loop since ntask rejects any intervals whose
-			 * value is less then 1000 ms.
+			 * value is less then 1000 ms. When the task manager takes the
+			 * actual interval the processor does not throttle.
 			 */
-            if (interval > 0 && interval < MessageProcessorConstants.THRESHOULD_INTERVAL) {
+            if (isThrottling && interval > 0 && interval < MessageProcessorConstants.THRESHOULD_INTERVAL) {
                 try {
                     Thread.sleep(interval);
                 } catch (InterruptedException e) {
@@ -47,6 +47,7 @@ import org.apache.synapse.endpoints.AbstractEndpoint;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.endpoints.IndirectEndpoint;
+import org.apache.synapse.endpoints.LoadbalanceEndpoint;
 import org.apache.synapse.endpoints.OAuthConfiguredHTTPEndpoint;
 import org.apache.synapse.endpoints.ResolvingEndpoint;
 import org.apache.synapse.endpoints.TemplateEndpoint;
@@ -469,6 +470,7 @@ public class BlockingMsgSender {
                 if (faultStack.peek() instanceof AbstractEndpoint) {
                     successfulEndpoint = (AbstractEndpoint) faultStack.pop();
                     successfulEndpoint.onSuccess();
+                    LoadbalanceEndpoint.completeTrackedRequests(synapseInMsgCtx, true);
                 }
 
                 if (successfulEndpoint instanceof OAuthConfiguredHTTPEndpoint) {
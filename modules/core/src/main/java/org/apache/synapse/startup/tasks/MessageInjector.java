@@ -49,11 +49,19 @@ import org.apache.synapse.util.PayloadHelper;
 import org.apache.synapse.util.logging.LoggingUtils;
 
 import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Injects a Message into a named sequence or a proxy service configured in the Synapse
@@ -104,6 +112,11 @@ public class MessageInjector implements Task, ManagedLifecycle {
     private final static String INJECT_TO_SEQUENCE = "sequence";
     private final static String INJECT_TO_MAIN_SEQ = "main";
 
+    /**
+     * Property set on each message of a bulk injection, with the index of the message in the trigger
+     */
+    public final static String INJECT_INDEX = "INJECT_INDEX";
+
     /**
      *  Artifact type which message should be injected
      *  Could be one of "proxy" | "sequence" | "main"
@@ -136,6 +149,30 @@ public class MessageInjector implements Task, ManagedLifecycle {
      */
     private Map<String, Object> runtimeProperties = null;
 
+    /**
+     * Number of messages injected on each trigger
+     */
+    private int injectCount = 1;
+
+    /**
+     * Number of threads injecting the messages of a trigger, when more than one message is injected
+     */
+    private int injectConcurrency = 1;
+
+    /**
+     * Maximum number of messages injected per second on each trigger, unlimited if not positive
+     */
+    private double injectRate = 0;
+
+    /**
+     * Path of an XML file, each child element of the document element being a payload to inject
+     */
+    private String payloadFile = null;
+
+    private List<OMElement> payloads = null;
+
+    private volatile BulkInjectionResult lastBulkInjectionResult = null;
+
     /**
      * Initializes the Injector
      *
@@ -237,6 +274,50 @@ public class MessageInjector implements Task, ManagedLifecycle {
         this.registryKey = registryKey;
     }
 
+    /**
+     * Set the number of messages injected on each trigger. Each message is a copy of the message,
+     * of the registry resource or of one of the payloads of the payload file, in turn.
+     *
+     * @param injectCount number of messages, 1 by default
+     */
+    public void setInjectCount(int injectCount) {
+        this.injectCount = injectCount;
+    }
+
+    /**
+     * Set the number of threads injecting the messages of a trigger
+     *
+     * @param injectConcurrency number of threads, 1 by default
+     */
+    public void setInjectConcurrency(int injectConcurrency) {
+        this.injectConcurrency = injectConcurrency;
+    }
+
+    /**
+     * Set the maximum rate at which the messages of a trigger are injected
+     *
+     * @param injectRate messages per second, unlimited if not positive
+     */
+    public void setInjectRate(double injectRate) {
+        this.injectRate = injectRate;
+    }
+
+    /**
+     * Set the XML file holding the payloads to inject, as the children of its document element
+     *
+     * @param payloadFile path of the file
+     */
+    public void setPayloadFile(String payloadFile) {
+        this.payloadFile = payloadFile;
+    }
+
+    /**
+     * @return the result of the last trigger which injected more than one message, or null
+     */
+    public BulkInjectionResult getLastBulkInjectionResult() {
+        return lastBulkInjectionResult;
+    }
+
     /**
      * Set a property to be used at runtime. These properties will get inserted in message context created
      * at here
@@ -281,11 +362,153 @@ public class MessageInjector implements Task, ManagedLifecycle {
             return;
         }
 
-		if (message == null && registryKey == null) {
-            handleError("message or registry-key not set");
+		if (message == null && registryKey == null && payloadFile == null) {
+            handleError("message, registry-key or payload-file not set");
             return;
 		}
 
+        if (injectCount > 1) {
+            injectBulk();
+        } else {
+            inject(getPayloads().get(0), -1);
+        }
+    }
+
+    /**
+     * Injects the messages of a trigger from a number of threads, at the configured rate, and logs the
+     * rate achieved and the time taken to inject the messages. When the messages are mediated
+     * sequentially the time taken to inject a message includes its mediation.
+     */
+    private void injectBulk() {
+        final List<OMElement> templates = getPayloads();
+        final int count = injectCount;
+        final long[] latencies = new long[count];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final long nanosPerMessage = injectRate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / injectRate) : 0;
+        final long start = System.nanoTime();
+
+        Runnable injector = new Runnable() {
+            public void run() {
+                int i;
+                while ((i = next.getAndIncrement()) < count) {
+                    if (nanosPerMessage > 0) {
+                        long wait = start + i * nanosPerMessage - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    long injectStart = System.nanoTime();
+                    try {
+                        inject(templates.get(i % templates.size()), i);
+                    } catch (Throwable e) {
+                        failures.incrementAndGet();
+                        if (log.isDebugEnabled()) {
+                            log.debug("Error injecting message " + i + " of task : " + name, e);
+                        }
+                    }
+                    latencies[i] = System.nanoTime() - injectStart;
+                }
+            }
+        };
+
+        int threadCount = Math.max(1, Math.min(injectConcurrency, count));
+        if (threadCount == 1) {
+            injector.run();
+        } else {
+            Thread[] threads = new Thread[threadCount];
+            for (int i = 0; i < threadCount; i++) {
+                threads[i] = new Thread(injector, "MessageInjector-" + name + "-" + i);
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while waiting for the messages of task : " + name +
+                             " to be injected");
+                    return;
+                }
+            }
+        }
+
+        BulkInjectionResult result = new BulkInjectionResult(latencies, failures.get(),
+                System.nanoTime() - start);
+        lastBulkInjectionResult = result;
+        log.info("Task : " + name + " " + result);
+    }
+
+    /**
+     * @return the payloads to inject, from the payload file, the registry or the message, in this order
+     */
+    private List<OMElement> getPayloads() {
+        if (payloadFile != null) {
+            synchronized (this) {
+                if (payloads == null) {
+                    payloads = loadPayloadFile();
+                }
+                return payloads;
+            }
+        }
+        if (registryKey != null) {
+            return Arrays.asList(getRegistryPayload(synapseEnvironment.getSynapseConfiguration().
+                    getEntry(registryKey)));
+        }
+        return Arrays.asList(message);
+    }
+
+    private List<OMElement> loadPayloadFile() {
+        List<OMElement> elements = new ArrayList<OMElement>();
+        try {
+            String text = new String(Files.readAllBytes(Paths.get(payloadFile)), StandardCharsets.UTF_8);
+            OMElement document = AXIOMUtil.stringToOM(text);
+            document.build();
+            Iterator children = document.getChildElements();
+            while (children.hasNext()) {
+                elements.add((OMElement) children.next());
+            }
+        } catch (IOException e) {
+            handleError("Error reading the payload file : " + payloadFile);
+        } catch (XMLStreamException e) {
+            handleError("Error parsing the payload file : " + payloadFile);
+        }
+        if (elements.isEmpty()) {
+            handleError("No payloads found in the payload file : " + payloadFile);
+        }
+        return elements;
+    }
+
+    private OMElement getRegistryPayload(Object entry) {
+        if (entry == null) {
+            handleError("Key " + registryKey + " not found ");
+        }
+        String text = "";
+        if (entry instanceof OMElement) {
+            OMElement e = ((OMElement) entry).cloneOMElement();
+            removeIndentations(e);
+            text = e.toString();
+        } else if (entry instanceof OMText) {
+            text = ((OMText) entry).getText();
+        } else if (entry instanceof String) {
+            text = (String) entry;
+        }
+        try {
+            return AXIOMUtil.stringToOM(text);
+        } catch (XMLStreamException e) {
+            handleError("Error parsing XML for JSON conversion, please check your property values return valid XML");
+            return null;
+        }
+    }
+
+    /**
+     * Injects a copy of the given payload
+     *
+     * @param payload the payload to inject
+     * @param index   the index of the message in a bulk injection, or -1
+     */
+    private void inject(OMElement payload, int index) {
+
         if (INJECT_TO_PROXY.equalsIgnoreCase(injectTo)) {
 
             if (proxyName == null || proxyName.equals("")) {
@@ -337,15 +560,18 @@ public class MessageInjector implements Task, ManagedLifecycle {
             }
 
             try {
-                PayloadHelper.setXMLPayload(envelope, message.cloneOMElement());
+                PayloadHelper.setXMLPayload(envelope, payload.cloneOMElement());
                 axis2MsgCtx.setEnvelope(envelope);
             } catch (AxisFault axisFault) {
-                handleError("Error in setting the message payload : " + message);
+                handleError("Error in setting the message payload : " + payload);
             }
 
             if (soapAction != null) {
                 axis2MsgCtx.setSoapAction(soapAction);
             }
+            if (index >= 0) {
+                axis2MsgCtx.setProperty(INJECT_INDEX, index);
+            }
 
             try {
                 if (log.isDebugEnabled()) {
@@ -364,64 +590,19 @@ public class MessageInjector implements Task, ManagedLifecycle {
                 mc.setTo(new EndpointReference(to));
             }
 
-            if (registryKey == null) {
-                if (format == null) {
-                    PayloadHelper.setXMLPayload(mc, message.cloneOMElement());
-                } else {
-                    try {
-                        if (SOAP11_FORMAT.equalsIgnoreCase(format)) {
-                            mc.setEnvelope(OMAbstractFactory.getSOAP11Factory().createSOAPEnvelope());
-                        } else if (SOAP12_FORMAT.equalsIgnoreCase(format)) {
-                            mc.setEnvelope(OMAbstractFactory.getSOAP12Factory().createSOAPEnvelope());
-                        } else if (POX_FORMAT.equalsIgnoreCase(format)) {
-                            mc.setDoingPOX(true);
-                        } else if (GET_FORMAT.equalsIgnoreCase(format)) {
-                            mc.setDoingGET(true);
-                        }
-                        PayloadHelper.setXMLPayload(mc, message.cloneOMElement());
-                    } catch (AxisFault axisFault) {
-                        handleError("Error in setting the message payload : " + message);
-                    }
-                }
-            } else {
-                Object entry = mc.getEntry(registryKey);
-                if (entry == null) {
-                    handleError("Key " + registryKey + " not found ");
-                }
-                String text = "";
-                if (entry instanceof OMElement) {
-                    OMElement e = (OMElement) entry;
-                    removeIndentations(e);
-                    text = e.toString();
-                } else if (entry instanceof OMText) {
-                    text = ((OMText) entry).getText();
-                } else if (entry instanceof String) {
-                    text = (String) entry;
-                }
-
-                OMElement omXML = null;
-                try {
-                    omXML = AXIOMUtil.stringToOM(text);
-
-                    if (format == null) {
-                        PayloadHelper.setXMLPayload(mc, omXML);
-                    } else {
-                        if (SOAP11_FORMAT.equalsIgnoreCase(format)) {
-                            mc.setEnvelope(OMAbstractFactory.getSOAP11Factory().createSOAPEnvelope());
-                        } else if (SOAP12_FORMAT.equalsIgnoreCase(format)) {
-                            mc.setEnvelope(OMAbstractFactory.getSOAP12Factory().createSOAPEnvelope());
-                        } else if (POX_FORMAT.equalsIgnoreCase(format)) {
-                            mc.setDoingPOX(true);
-                        } else if (GET_FORMAT.equalsIgnoreCase(format)) {
-                            mc.setDoingGET(true);
-                        }
-                        PayloadHelper.setXMLPayload(mc, omXML);
-                    }
-                } catch (XMLStreamException e) {
-                    handleError("Error parsing XML for JSON conversion, please check your property values return valid XML");
-                } catch (AxisFault axisFault) {
-                    handleError("Error in setting the message payload : " + omXML);
+            try {
+                if (SOAP11_FORMAT.equalsIgnoreCase(format)) {
+                    mc.setEnvelope(OMAbstractFactory.getSOAP11Factory().createSOAPEnvelope());
+                } else if (SOAP12_FORMAT.equalsIgnoreCase(format)) {
+                    mc.setEnvelope(OMAbstractFactory.getSOAP12Factory().createSOAPEnvelope());
+                } else if (POX_FORMAT.equalsIgnoreCase(format)) {
+                    mc.setDoingPOX(true);
+                } else if (GET_FORMAT.equalsIgnoreCase(format)) {
+                    mc.setDoingGET(true);
                 }
+                PayloadHelper.setXMLPayload(mc, payload.cloneOMElement());
+            } catch (AxisFault axisFault) {
+                handleError("Error in setting the message payload : " + payload);
             }
 
             if (soapAction != null) {
@@ -436,6 +617,9 @@ public class MessageInjector implements Task, ManagedLifecycle {
             }
 
             mc.setProperty(SynapseConstants.TASK_NAME, name);
+            if (index >= 0) {
+                mc.setProperty(INJECT_INDEX, index);
+            }
 
             if (INJECT_TO_SEQUENCE.equalsIgnoreCase(injectTo)) {
                 if (sequenceName == null || sequenceName.equals("")) {
@@ -593,4 +777,83 @@ public class MessageInjector implements Task, ManagedLifecycle {
             msgContext.getServiceLog().warn(msg);
         }
     }
+
+    /**
+     * The outcome of a trigger which injected more than one message
+     */
+    public static class BulkInjectionResult {
+
+        private final int count;
+        private final int failures;
+        private final long elapsedTime;
+        private final long averageLatency;
+        private final long percentile99Latency;
+        private final long maxLatency;
+
+        BulkInjectionResult(long[] latencies, int failures, long elapsedNanos) {
+            this.count = latencies.length;
+            this.failures = failures;
+            this.elapsedTime = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long latency : sorted) {
+                total += latency;
+            }
+            this.averageLatency = TimeUnit.NANOSECONDS.toMicros(total / Math.max(1, count));
+            this.percentile99Latency = count == 0 ? 0 :
+                    TimeUnit.NANOSECONDS.toMicros(sorted[(int) Math.ceil(count * 0.99) - 1]);
+            this.maxLatency = count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(sorted[count - 1]);
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return the time taken to inject all the messages, in milliseconds
+         */
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        /**
+         * @return the number of messages injected per second
+         */
+        public double getRate() {
+            return elapsedTime == 0 ? count * 1000.0 : count * 1000.0 / elapsedTime;
+        }
+
+        /**
+         * @return the average time taken to inject a message, in microseconds
+         */
+        public long getAverageLatency() {
+            return averageLatency;
+        }
+
+        /**
+         * @return the 99th percentile of the time taken to inject a message, in microseconds
+         */
+        public long getPercentile99Latency() {
+            return percentile99Latency;
+        }
+
+        /**
+         * @return the maximum time taken to inject a message, in microseconds
+         */
+        public long getMaxLatency() {
+            return maxLatency;
+        }
+
+        public String toString() {
+            return "injected " + count + " messages (" + failures + " failed) in " + elapsedTime +
+                    " ms, " + String.format("%.1f", getRate()) + " messages/s, latency average " +
+                    averageLatency + " us, 99th percentile " + percentile99Latency + " us, max " +
+                    maxLatency + " us";
+        }
+    }
 }
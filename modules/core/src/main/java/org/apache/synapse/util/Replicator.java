@@ -94,6 +94,34 @@ public class Replicator {
         }
     }
 
+    /**
+     * Helper method to replicate the states of the properties with the given keys, which are
+     * already set in the configuration context, in a single replication message
+     *
+     * @param keys      The keys of the properties
+     * @param configCtx Axis2 configuration context
+     */
+    public static void replicateState(String[] keys, ConfigurationContext configCtx) {
+
+        if (configCtx != null && keys != null && keys.length > 0) {
+
+            try {
+                if (log.isDebugEnabled()) {
+                    log.debug("Start replicating " + keys.length + " properties");
+                }
+
+                org.apache.axis2.clustering.state.Replicator.replicate(configCtx, keys);
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Completed replication of " + keys.length + " properties");
+                }
+
+            } catch (ClusteringFault clusteringFault) {
+                handleException("Error during the replicating states ", clusteringFault);
+            }
+        }
+    }
+
     /**
      * Helper methods for handle errors.
      *
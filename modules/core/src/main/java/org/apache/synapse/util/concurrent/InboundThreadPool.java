@@ -33,10 +33,13 @@ public class InboundThreadPool extends ThreadPoolExecutor {
     public static final int INBOUND_THREAD_QLEN   = 1;
     public static final String INBOUND_THREAD_GROUP     = "inbound-thread-group";
     public static final String INBOUND_THREAD_ID_PREFIX = "InboundWorker";
+    public static final int INBOUND_VIRTUAL_MAX_CONCURRENCY = 10000;
 
     // property keys
     public static final String IB_THREAD_CORE     = "inbound.threads.core";
-    public static final String IB_THREAD_MAX      = "inbound.threads.max";  
+    public static final String IB_THREAD_MAX      = "inbound.threads.max";
+    public static final String IB_THREAD_VIRTUAL  = "inbound.threads.virtual";
+    public static final String IB_THREAD_VIRTUAL_MAX_CONCURRENCY = "inbound.threads.virtual.max_concurrency";
 
 
     /**
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.jaxp;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of {@link Validator} instances of a compiled {@link Schema}. Validators are not thread-safe
+ * but can be reused once reset, which avoids creating a new validator (and its internal grammar pool
+ * and symbol tables) for every message validated against the same schema.
+ */
+public class ValidatorPool {
+
+    private static final Log log = LogFactory.getLog(ValidatorPool.class);
+
+    private final Schema schema;
+    private final BlockingQueue<Validator> idle;
+
+    /**
+     * @param schema  the schema of the pooled validators
+     * @param maxIdle the maximum number of idle validators kept in the pool
+     */
+    public ValidatorPool(Schema schema, int maxIdle) {
+        this.schema = schema;
+        this.idle = new ArrayBlockingQueue<Validator>(Math.max(1, maxIdle));
+    }
+
+    /**
+     * Takes an idle validator from the pool, or creates a new one if there is none. The caller has
+     * the exclusive use of the validator until it is released.
+     *
+     * @return a validator of the schema of this pool
+     */
+    public Validator borrow() {
+        Validator validator = idle.poll();
+        return validator != null ? validator : schema.newValidator();
+    }
+
+    /**
+     * Resets a validator and returns it to the pool. The validator is discarded if it cannot be
+     * reset or if the pool is full.
+     *
+     * @param validator a validator taken from this pool
+     */
+    public void release(Validator validator) {
+        try {
+            validator.reset();
+        } catch (RuntimeException e) {
+            log.debug("Discarding a validator which could not be reset", e);
+            return;
+        }
+        idle.offer(validator);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config;
+
+import junit.framework.TestCase;
+import org.apache.synapse.config.ArtifactDependencyGraph.Artifact;
+import org.apache.synapse.config.ArtifactDependencyGraph.ArtifactTimes;
+import org.apache.synapse.config.ArtifactDependencyGraph.ArtifactType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the parallel initialization of artifacts following the references between them.
+ */
+public class ArtifactDependencyGraphTest extends TestCase {
+
+    public void testReferencedArtifactsAreInitializedFirst() {
+        ArtifactDependencyGraph graph = new ArtifactDependencyGraph(4);
+        graph.addReferences(ArtifactType.PROXY_SERVICE, "StockQuoteProxy", Arrays.asList("in", "backend"));
+        graph.addReferences(ArtifactType.SEQUENCE, "in", Arrays.asList("logging", "registry/key"));
+        graph.addReferences(ArtifactType.API, "StockQuoteAPI", Collections.singletonList("in"));
+
+        final List<String> order = new CopyOnWriteArrayList<String>();
+        Map<Artifact, Runnable> initializers = new LinkedHashMap<Artifact, Runnable>();
+        add(initializers, ArtifactType.PROXY_SERVICE, "StockQuoteProxy", order);
+        add(initializers, ArtifactType.API, "StockQuoteAPI", order);
+        add(initializers, ArtifactType.SEQUENCE, "in", order);
+        add(initializers, ArtifactType.SEQUENCE, "logging", order);
+        add(initializers, ArtifactType.ENDPOINT, "backend", order);
+
+        graph.initialize(initializers, null);
+
+        assertEquals(5, order.size());
+        assertTrue(order.indexOf("logging") < order.indexOf("in"));
+        assertTrue(order.indexOf("in") < order.indexOf("StockQuoteProxy"));
+        assertTrue(order.indexOf("backend") < order.indexOf("StockQuoteProxy"));
+        assertTrue(order.indexOf("in") < order.indexOf("StockQuoteAPI"));
+    }
+
+    public void testIndependentArtifactsAreInitializedInParallel() {
+        ArtifactDependencyGraph graph = new ArtifactDependencyGraph(4);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        Map<Artifact, Runnable> initializers = new LinkedHashMap<Artifact, Runnable>();
+        for (int i = 0; i < 20; i++) {
+            initializers.put(new Artifact(ArtifactType.SEQUENCE, "seq" + i), new Runnable() {
+                public void run() {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException ignore) {
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                }
+            });
+        }
+        graph.initialize(initializers, null);
+        assertTrue("Independent artifacts should be initialized concurrently", maxRunning.get() > 1);
+        assertTrue(maxRunning.get() <= 4);
+    }
+
+    public void testArtifactsInACycleAreInitialized() {
+        ArtifactDependencyGraph graph = new ArtifactDependencyGraph(2);
+        graph.addReferences(ArtifactType.SEQUENCE, "a", Collections.singletonList("b"));
+        graph.addReferences(ArtifactType.SEQUENCE, "b", Collections.singletonList("a"));
+        graph.addReferences(ArtifactType.API, "api", Collections.singletonList("a"));
+
+        List<String> order = new CopyOnWriteArrayList<String>();
+        Map<Artifact, Runnable> initializers = new LinkedHashMap<Artifact, Runnable>();
+        add(initializers, ArtifactType.SEQUENCE, "a", order);
+        add(initializers, ArtifactType.SEQUENCE, "b", order);
+        add(initializers, ArtifactType.API, "api", order);
+        add(initializers, ArtifactType.ENDPOINT, "ep", order);
+
+        graph.initialize(initializers, null);
+        assertEquals(4, order.size());
+        assertTrue(order.containsAll(Arrays.asList("a", "b", "api", "ep")));
+    }
+
+    public void testInitializersCanUseTheMonitorOfTheCaller() {
+        final Object monitor = new Object();
+        ArtifactDependencyGraph graph = new ArtifactDependencyGraph(4);
+        final AtomicInteger initialized = new AtomicInteger();
+        Map<Artifact, Runnable> initializers = new LinkedHashMap<Artifact, Runnable>();
+        for (int i = 0; i < 10; i++) {
+            initializers.put(new Artifact(ArtifactType.ENDPOINT, "ep" + i), new Runnable() {
+                public void run() {
+                    synchronized (monitor) {
+                        initialized.incrementAndGet();
+                    }
+                }
+            });
+        }
+        synchronized (monitor) {
+            graph.initialize(initializers, monitor);
+        }
+        assertEquals(10, initialized.get());
+    }
+
+    public void testFailuresDoNotStopTheInitialization() {
+        ArtifactDependencyGraph graph = new ArtifactDependencyGraph(2);
+        graph.addReferences(ArtifactType.PROXY_SERVICE, "proxy", Collections.singletonList("broken"));
+        List<String> order = new CopyOnWriteArrayList<String>();
+        Map<Artifact, Runnable> initializers = new LinkedHashMap<Artifact, Runnable>();
+        initializers.put(new Artifact(ArtifactType.SEQUENCE, "broken"), new Runnable() {
+            public void run() {
+                throw new IllegalStateException("Cannot initialize");
+            }
+        });
+        add(initializers, ArtifactType.PROXY_SERVICE, "proxy", order);
+        graph.initialize(initializers, null);
+        assertEquals(Collections.singletonList("proxy"), order);
+    }
+
+    public void testInterruptionWaitsForTheArtifactsBeingInitialized() throws Exception {
+        final ArtifactDependencyGraph graph = new ArtifactDependencyGraph(2);
+        graph.addReferences(ArtifactType.PROXY_SERVICE, "proxy", Collections.singletonList("slow"));
+        final List<String> order = new CopyOnWriteArrayList<String>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final Map<Artifact, Runnable> initializers = new LinkedHashMap<Artifact, Runnable>();
+        initializers.put(new Artifact(ArtifactType.SEQUENCE, "slow"), new Runnable() {
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException ignore) {
+                }
+                order.add("slow");
+            }
+        });
+        add(initializers, ArtifactType.PROXY_SERVICE, "proxy", order);
+
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        Thread deployer = new Thread(new Runnable() {
+            public void run() {
+                graph.initialize(initializers, null);
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        deployer.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        deployer.interrupt();
+        deployer.join(5000);
+
+        assertFalse(deployer.isAlive());
+        assertTrue("The interruption must be restored", interrupted.get());
+        assertEquals(Arrays.asList("slow", "proxy"), order);
+    }
+
+    public void testDeployTimesAreRecorded() {
+        ArtifactDependencyGraph graph = new ArtifactDependencyGraph(2);
+        graph.recordBuildTime(ArtifactType.SEQUENCE, "fast", "fast.xml", 1000000);
+        graph.recordBuildTime(ArtifactType.SEQUENCE, "slow", "slow.xml", 50000000);
+
+        Map<Artifact, Runnable> initializers = new LinkedHashMap<Artifact, Runnable>();
+        add(initializers, ArtifactType.SEQUENCE, "fast", new CopyOnWriteArrayList<String>());
+        graph.initialize(initializers, null);
+
+        List<ArtifactTimes> times = graph.getDeployTimes();
+        assertEquals(2, times.size());
+        assertEquals("slow", times.get(0).getName());
+        assertEquals(50000000, times.get(0).getBuildTime());
+        assertEquals(1000000, times.get(1).getBuildTime());
+        assertTrue(times.get(1).getInitTime() > 0);
+    }
+
+    private void add(Map<Artifact, Runnable> initializers, ArtifactType type, final String name,
+                     final List<String> order) {
+        initializers.put(new Artifact(type, name), new Runnable() {
+            public void run() {
+                order.add(name);
+            }
+        });
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config;
+
+import junit.framework.TestCase;
+import org.apache.synapse.config.ArtifactDependencyGraph.ArtifactType;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the initialization of artifacts on their first use.
+ */
+public class LazyArtifactInitializerTest extends TestCase {
+
+    public void testLazyArtifacts() {
+        LazyArtifactInitializer all = new LazyArtifactInitializer(true, null);
+        assertTrue(all.isLazy("seq"));
+        assertFalse(all.isLazy(null));
+
+        LazyArtifactInitializer named = new LazyArtifactInitializer(true, Arrays.asList("seq", "ep"));
+        assertTrue(named.isLazy("ep"));
+        assertFalse(named.isLazy("other"));
+
+        LazyArtifactInitializer disabled = new LazyArtifactInitializer(false, Arrays.asList("seq"));
+        assertFalse(disabled.isLazy("seq"));
+    }
+
+    public void testArtifactIsInitializedOnFirstUse() {
+        LazyArtifactInitializer initializer = new LazyArtifactInitializer(true, Arrays.asList("lazy"));
+        final AtomicInteger lazyInits = new AtomicInteger();
+        final AtomicInteger eagerInits = new AtomicInteger();
+        Object lazy = new Object();
+        Object eager = new Object();
+
+        initializer.initializeOrDefer(ArtifactType.SEQUENCE, "lazy", lazy, lazyInits::incrementAndGet);
+        initializer.initializeOrDefer(ArtifactType.SEQUENCE, "eager", eager, eagerInits::incrementAndGet);
+        assertEquals(0, lazyInits.get());
+        assertEquals(1, eagerInits.get());
+        assertTrue(initializer.isPending(lazy));
+        assertFalse(initializer.isPending(eager));
+
+        initializer.ensureInitialized(eager);
+        initializer.ensureInitialized(lazy);
+        initializer.ensureInitialized(lazy);
+        assertEquals(1, lazyInits.get());
+        assertEquals(1, eagerInits.get());
+        assertFalse(initializer.isPending(lazy));
+        assertEquals(0, initializer.getPendingCount());
+
+        LazyArtifactInitializer.InitMetrics metrics = initializer.getMetrics(ArtifactType.SEQUENCE);
+        assertEquals(1, metrics.getStartupCount());
+        assertEquals(1, metrics.getDeferredCount());
+        assertEquals(1, metrics.getLazyCount());
+        assertEquals(0, initializer.getMetrics(ArtifactType.ENDPOINT).getStartupCount());
+    }
+
+    public void testArtifactIsInitializedOnceUnderConcurrentUse() throws Exception {
+        final LazyArtifactInitializer initializer = new LazyArtifactInitializer(true, null);
+        final AtomicInteger inits = new AtomicInteger();
+        final AtomicInteger initialized = new AtomicInteger();
+        final Object artifact = new Object();
+        initializer.defer(ArtifactType.ENDPOINT, "ep", artifact, () -> {
+            inits.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignore) {
+            }
+            initialized.set(1);
+        });
+
+        int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger sawUninitialized = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    initializer.ensureInitialized(artifact);
+                    if (initialized.get() == 0) {
+                        sawUninitialized.incrementAndGet();
+                    }
+                } catch (InterruptedException ignore) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(1, inits.get());
+        assertEquals("All threads must wait for the initialization to complete", 0, sawUninitialized.get());
+    }
+
+    public void testArtifactLookingItselfUpWhileInitialized() {
+        final LazyArtifactInitializer initializer = new LazyArtifactInitializer(true, null);
+        final AtomicInteger inits = new AtomicInteger();
+        final Object artifact = new Object();
+        initializer.defer(ArtifactType.SEQUENCE, "seq", artifact, () -> {
+            inits.incrementAndGet();
+            initializer.ensureInitialized(artifact);
+        });
+        initializer.ensureInitialized(artifact);
+        assertEquals(1, inits.get());
+    }
+
+    public void testFailedInitializationIsNotRetried() {
+        LazyArtifactInitializer initializer = new LazyArtifactInitializer(true, null);
+        final AtomicInteger inits = new AtomicInteger();
+        Object artifact = new Object();
+        initializer.defer(ArtifactType.MESSAGE_STORE, "store", artifact, () -> {
+            inits.incrementAndGet();
+            throw new IllegalStateException("connection refused");
+        });
+        initializer.ensureInitialized(artifact);
+        initializer.ensureInitialized(artifact);
+        assertEquals(1, inits.get());
+    }
+
+    public void testUnusedArtifactsAreDiscarded() {
+        LazyArtifactInitializer initializer = new LazyArtifactInitializer(true, null);
+        final AtomicInteger inits = new AtomicInteger();
+        Object unused = new Object();
+        Object used = new Object();
+        initializer.defer(ArtifactType.ENDPOINT, "unused", unused, inits::incrementAndGet);
+        initializer.defer(ArtifactType.ENDPOINT, "used", used, inits::incrementAndGet);
+        initializer.ensureInitialized(used);
+
+        assertTrue("An unused artifact does not have to be destroyed", initializer.discard(unused));
+        assertFalse(initializer.discard(used));
+        assertFalse(initializer.discard(new Object()));
+        initializer.ensureInitialized(unused);
+        assertEquals(1, inits.get());
+    }
+}
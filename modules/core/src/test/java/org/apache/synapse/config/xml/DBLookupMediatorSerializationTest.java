@@ -80,4 +80,19 @@ public class DBLookupMediatorSerializationTest extends AbstractTestCase {
         assertTrue(serialization(inputXml, dbLookupFactory, dbLookupSerializer));
         assertTrue(serialization(inputXml, dbLookupSerializer));
     }
+
+    public void testDBLookupMediatorSerializationWithBatchingAndCache() throws Exception {
+
+        String inputXml =
+            "<syn:dblookup xmlns:syn=\"http://ws.apache.org/ns/synapse\" batchSize=\"50\" " +
+                    "batchWindow=\"20\" cacheTimeout=\"60000\" cacheMaxSize=\"500\">" +
+                    "<syn:connection><syn:pool><syn:dsName>lookupdb</syn:dsName>" +
+                    "</syn:pool></syn:connection><syn:statement keyColumn=\"source\"><syn:sql>" +
+                    "<![CDATA[select target, source from destinations where source in (?)]]></syn:sql>" +
+                    "<syn:parameter expression=\"//source\" type=\"INTEGER\"/>" +
+                    "<syn:result name=\"target\" column=\"target\"/></syn:statement></syn:dblookup>";
+
+        assertTrue(serialization(inputXml, dbLookupFactory, dbLookupSerializer));
+        assertTrue(serialization(inputXml, dbLookupSerializer));
+    }
 }
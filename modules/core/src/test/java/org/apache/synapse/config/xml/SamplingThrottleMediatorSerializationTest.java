@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config.xml;
+
+public class SamplingThrottleMediatorSerializationTest extends AbstractTestCase {
+
+    private SamplingThrottleMediatorSerializer serializer = null;
+
+    private SamplingThrottleMediatorFactory factory = null;
+
+    public SamplingThrottleMediatorSerializationTest() {
+        serializer = new SamplingThrottleMediatorSerializer();
+        factory = new SamplingThrottleMediatorFactory();
+    }
+
+    public void testSamplerSerialization() throws Exception {
+        String inputXml = "<sampler xmlns=\"http://ws.apache.org/ns/synapse\" id=\"s1\" rate=\"10\" " +
+                "unitTime=\"1000\"><target><sequence><log level=\"full\"/></sequence></target></sampler>";
+
+        assertTrue(serialization(inputXml, factory, serializer));
+    }
+
+    public void testAdaptiveSamplerWithBoundedQueueSerialization() throws Exception {
+        String inputXml = "<sampler xmlns=\"http://ws.apache.org/ns/synapse\" id=\"s1\" rate=\"10\" " +
+                "unitTime=\"1000\" targetLatency=\"200\" targetErrorRate=\"0.05\" minRate=\"2\" maxRate=\"50\">" +
+                "<messageQueue class=\"org.apache.synapse.mediators.eip.sample.BoundedMessageQueue\" " +
+                "capacity=\"256\"/><target><sequence><log level=\"full\"/></sequence></target></sampler>";
+
+        assertTrue(serialization(inputXml, factory, serializer));
+    }
+}
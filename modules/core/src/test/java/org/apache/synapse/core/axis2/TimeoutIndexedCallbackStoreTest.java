@@ -0,0 +1,95 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link TimeoutIndexedCallbackStore}
+ */
+public class TimeoutIndexedCallbackStoreTest extends TestCase {
+
+    public void testOnlyExpiredCallbacksAreReturned() {
+        TimeoutIndexedCallbackStore store = new TimeoutIndexedCallbackStore(100);
+        long now = System.currentTimeMillis();
+        store.put("expired", createCallback(-1000));
+        store.put("pending", createCallback(60000));
+
+        List<String> expired = store.getExpired(now + 200);
+        assertEquals(1, expired.size());
+        assertEquals("expired", expired.get(0));
+        assertEquals("Expired callbacks must stay in the store until removed", 2, store.size());
+
+        assertTrue("A bucket must only be returned once", store.getExpired(now + 200).isEmpty());
+        assertEquals(1, store.getExpired(now + 61000).size());
+    }
+
+    public void testRemovedCallbacksAreSkipped() {
+        TimeoutIndexedCallbackStore store = new TimeoutIndexedCallbackStore(100);
+        store.put("responded", createCallback(0));
+        assertNotNull(store.remove("responded"));
+
+        assertTrue(store.getExpired(System.currentTimeMillis() + 1000).isEmpty());
+        assertEquals(0, store.size());
+    }
+
+    public void testRemovedCallbacksLeaveTheIndex() {
+        TimeoutIndexedCallbackStore store = new TimeoutIndexedCallbackStore(100);
+        for (int i = 0; i < 100; i++) {
+            store.put("msg" + i, createCallback(60000));
+        }
+        store.put("msg0", createCallback(120000));
+        assertEquals(100, store.getIndexedCount());
+
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(store.remove("msg" + i));
+        }
+        assertEquals(0, store.size());
+        assertEquals("Removed callbacks must not stay in their timeout bucket", 0, store.getIndexedCount());
+        assertTrue(store.getExpired(System.currentTimeMillis() + 121000).isEmpty());
+    }
+
+    public void testCallbackIsNotExpiredBeforeItsTimeout() {
+        TimeoutIndexedCallbackStore store = new TimeoutIndexedCallbackStore(1000);
+        AsyncCallback callback = createCallback(1500);
+        store.put("msg", callback);
+
+        assertTrue(store.getExpired(callback.getTimeOutOn() - 1).isEmpty());
+        assertEquals(1, store.getExpired(callback.getTimeOutOn() + 1000).size());
+    }
+
+    public void testReusedMessageIdIsReindexed() {
+        TimeoutIndexedCallbackStore store = new TimeoutIndexedCallbackStore(100);
+        long now = System.currentTimeMillis();
+        store.put("msg", createCallback(0));
+        store.put("msg", createCallback(10000));
+
+        assertTrue(store.getExpired(now + 1000).isEmpty());
+        assertEquals(1, store.getExpired(now + 11000).size());
+    }
+
+    private AsyncCallback createCallback(long timeout) {
+        AsyncCallback callback = new AsyncCallback(null, null);
+        callback.setTimeout(timeout);
+        return callback;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.synapse.endpoints;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the state transitions of the {@link EndpointContext}, and the replication of its state
+ */
+public class EndpointContextTest extends TestCase {
+
+    private EndpointDefinition createDefinition(int retriesOnTimeout) {
+        EndpointDefinition definition = new EndpointDefinition();
+        definition.setRetriesOnTimeoutBeforeSuspend(retriesOnTimeout);
+        definition.setRetryDurationOnTimeout(60000);
+        definition.setInitialSuspendDuration(60000);
+        definition.setSuspendProgressionFactor(2);
+        definition.setSuspendMaximumDuration(300000);
+        return definition;
+    }
+
+    public void testTimeoutsBeforeSuspension() {
+        EndpointContext context = new EndpointContext("endpoint", createDefinition(2), false, null, null);
+        assertTrue(context.readyToSend());
+
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_TIMEOUT));
+        assertFalse(context.readyToSend());
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_TIMEOUT));
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_SUSPENDED));
+        assertFalse(context.readyToSend());
+
+        context.onSuccess();
+        assertTrue(context.isState(EndpointContext.ST_ACTIVE));
+        assertTrue(context.readyToSend());
+
+        assertEquals(1, context.getTransitionCount(EndpointContext.ST_TIMEOUT));
+        assertEquals(1, context.getTransitionCount(EndpointContext.ST_SUSPENDED));
+        assertEquals(1, context.getTransitionCount(EndpointContext.ST_ACTIVE));
+    }
+
+    public void testSwitchOff() {
+        EndpointContext context = new EndpointContext("endpoint", createDefinition(0), false, null, null);
+        context.switchOff();
+        assertFalse(context.readyToSend());
+        context.onSuccess();
+        assertTrue(context.isState(EndpointContext.ST_OFF));
+        context.switchOn();
+        assertTrue(context.readyToSend());
+        assertEquals(1, context.getTransitionCount(EndpointContext.ST_OFF));
+    }
+
+    public void testConcurrentTimeoutsTakeEachRetryOnce() throws Exception {
+        final int retries = 100;
+        final EndpointContext context = new EndpointContext("endpoint", createDefinition(retries), false, null, null);
+        final int threads = 4;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger timeouts = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        while (timeouts.incrementAndGet() <= retries) {
+                            context.onTimeout();
+                        }
+                    } catch (InterruptedException ignore) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(context.isState(EndpointContext.ST_TIMEOUT));
+
+        context.onTimeout();
+        assertTrue(context.isState(EndpointContext.ST_SUSPENDED));
+    }
+
+    public void testMaximumFailoverRetries() {
+        EndpointContext context = new EndpointContext("endpoint", createDefinition(0), false, null, null);
+        context.onFailoverRetryLimit(false);
+        assertTrue(context.isState(EndpointContext.ST_SUSPENDED));
+        assertFalse(context.readyToSend());
+        assertEquals(1, context.getTransitionCount(EndpointContext.ST_SUSPENDED));
+    }
+
+    public void testStateReplication() {
+        ConfigurationContext cfgCtx = new ConfigurationContext(new AxisConfiguration());
+        EndpointContext context = new EndpointContext("replicated", createDefinition(0), true, cfgCtx, null);
+        try {
+            context.onFault();
+            // the state is published by the replicator, not by the thread changing it
+            assertEquals(EndpointContext.ST_ACTIVE,
+                    cfgCtx.getPropertyNonReplicable("synapse.endpoint.replicated.state"));
+
+            context.replicateState();
+            assertEquals(EndpointContext.ST_SUSPENDED,
+                    cfgCtx.getPropertyNonReplicable("synapse.endpoint.replicated.state"));
+            assertEquals(1, context.getReplicationCount());
+
+            // another member of the cluster activates the endpoint
+            cfgCtx.setNonReplicableProperty("synapse.endpoint.replicated.state", EndpointContext.ST_ACTIVE);
+            cfgCtx.setNonReplicableProperty("synapse.endpoint.replicated.next_retry_time", -1L);
+            context.replicateState();
+            assertTrue(context.isState(EndpointContext.ST_ACTIVE));
+            assertTrue(context.readyToSend());
+            assertEquals(1, context.getReplicationCount());
+        } finally {
+            context.destroy();
+        }
+    }
+
+    public void testReplicationDisabled() {
+        ConfigurationContext cfgCtx = new ConfigurationContext(new AxisConfiguration());
+        EndpointDefinition definition = createDefinition(0);
+        definition.setReplicationDisabled(true);
+        EndpointContext context = new EndpointContext("local", definition, true, cfgCtx, null);
+        context.onFault();
+        context.replicateState();
+        assertNull(cfgCtx.getPropertyNonReplicable("synapse.endpoint.local.state"));
+        assertEquals(0, context.getReplicationCount());
+    }
+}
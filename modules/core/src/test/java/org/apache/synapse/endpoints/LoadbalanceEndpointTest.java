@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import junit.framework.TestCase;
+import org.apache.axis2.addressing.EndpointReference;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.TestMessageContext;
+import org.apache.synapse.core.axis2.AsyncCallback;
+import org.apache.synapse.core.axis2.TimeoutHandler;
+import org.apache.synapse.core.axis2.TimeoutIndexedCallbackStore;
+import org.apache.synapse.endpoints.algorithms.LeastOutstandingRequests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the requests a load-balance endpoint tracks for its request tracking algorithms
+ */
+public class LoadbalanceEndpointTest extends TestCase {
+
+    private List<Endpoint> children;
+    private LeastOutstandingRequests algorithm;
+    private LoadbalanceEndpoint endpoint;
+
+    protected void setUp() throws Exception {
+        children = new ArrayList<Endpoint>();
+        children.add(new AddressEndpoint());
+        children.add(new AddressEndpoint());
+        algorithm = new LeastOutstandingRequests();
+        algorithm.setEndpoints(children);
+        endpoint = new LoadbalanceEndpoint();
+        endpoint.setChildren(children);
+        endpoint.setAlgorithm(algorithm);
+    }
+
+    public void testRequestIsCompletedOnResponse() {
+        MessageContext synCtx = new TestMessageContext();
+        endpoint.trackRequestStart(children.get(0), new TestMessageContext());
+        endpoint.trackRequestStart(children.get(0), synCtx);
+        assertEquals(2, algorithm.getOutstandingRequests(children.get(0)));
+
+        LoadbalanceEndpoint.completeTrackedRequests(synCtx, true);
+        assertEquals(1, algorithm.getOutstandingRequests(children.get(0)));
+        LoadbalanceEndpoint.completeTrackedRequests(synCtx, true);
+        assertEquals("A request must only be completed once",
+                1, algorithm.getOutstandingRequests(children.get(0)));
+    }
+
+    public void testIndirectChildRequestIsCompletedOnResponse() {
+        IndirectEndpoint indirect = new IndirectEndpoint();
+        indirect.setKey("backend");
+        children.set(0, indirect);
+        algorithm.setEndpoints(children);
+        endpoint.setChildren(children);
+
+        MessageContext synCtx = new TestMessageContext();
+        endpoint.trackRequestStart(indirect, synCtx);
+        assertEquals(1, algorithm.getOutstandingRequests(indirect));
+
+        // the response is received by the endpoint the key refers to, which is not a child of the
+        // load-balance endpoint, so the request is completed from the message as the receivers do
+        LoadbalanceEndpoint.completeTrackedRequests(synCtx, true);
+        assertEquals(0, algorithm.getOutstandingRequests(indirect));
+        assertEquals(0, algorithm.getOutstandingRequests(children.get(1)));
+    }
+
+    public void testRequestIsCompletedWhenTimeoutActionIsNone() throws Exception {
+        MessageContext synCtx = new TestMessageContext();
+        endpoint.trackRequestStart(children.get(1), new TestMessageContext());
+        endpoint.trackRequestStart(children.get(1), synCtx);
+        assertEquals(2, algorithm.getOutstandingRequests(children.get(1)));
+
+        org.apache.axis2.context.MessageContext axis2Ctx = new org.apache.axis2.context.MessageContext();
+        axis2Ctx.setTo(new EndpointReference("http://localhost:9000/services/SimpleStockQuoteService"));
+        AsyncCallback callback = new AsyncCallback(axis2Ctx, synCtx);
+        callback.setTimeout(-1000);
+        callback.setTimeOutAction(SynapseConstants.NONE);
+        TimeoutIndexedCallbackStore callbackStore = new TimeoutIndexedCallbackStore(100);
+        callbackStore.put("msg", callback);
+
+        new TimeoutHandler(callbackStore, null).run();
+        assertEquals(0, callbackStore.size());
+        assertEquals(1, algorithm.getOutstandingRequests(children.get(1)));
+
+        // a response arriving after the timeout must not complete the request again
+        LoadbalanceEndpoint.completeTrackedRequests(synCtx, true);
+        assertEquals(1, algorithm.getOutstandingRequests(children.get(1)));
+    }
+}
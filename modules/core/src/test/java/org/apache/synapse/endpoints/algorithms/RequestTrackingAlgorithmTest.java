@@ -0,0 +1,227 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.algorithms;
+
+import junit.framework.TestCase;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.endpoints.Endpoint;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the load balancing algorithms choosing the endpoints by their requests in flight and
+ * response times, and compares them with the round robin algorithm against simulated backends of
+ * different speeds.
+ */
+public class RequestTrackingAlgorithmTest extends TestCase {
+
+    private static final long[] BACKEND_DELAYS = {2, 5, 20};
+    private static final int CLIENTS = 12;
+    private static final int REQUESTS_PER_CLIENT = 60;
+
+    public void testLeastOutstandingRequests() {
+        List<Endpoint> endpoints = createEndpoints(3);
+        LeastOutstandingRequests algorithm = new LeastOutstandingRequests();
+        algorithm.setEndpoints(endpoints);
+
+        algorithm.onRequestStart(endpoints.get(0));
+        algorithm.onRequestStart(endpoints.get(0));
+        algorithm.onRequestStart(endpoints.get(1));
+        assertSame(endpoints.get(2), algorithm.getNextEndpoint(null, null));
+
+        algorithm.onRequestStart(endpoints.get(2));
+        algorithm.onRequestStart(endpoints.get(2));
+        assertSame(endpoints.get(1), algorithm.getNextEndpoint(null, null));
+
+        algorithm.onRequestComplete(endpoints.get(0), 1000, true);
+        algorithm.onRequestComplete(endpoints.get(0), 1000, true);
+        assertSame(endpoints.get(0), algorithm.getNextEndpoint(null, null));
+        assertEquals(0, algorithm.getOutstandingRequests(endpoints.get(0)));
+        assertEquals(1, algorithm.getOutstandingRequests(endpoints.get(1)));
+        assertEquals(2, algorithm.getOutstandingRequests(endpoints.get(2)));
+    }
+
+    public void testEndpointsNotReadyAreSkipped() {
+        List<Endpoint> endpoints = createEndpoints(2);
+        ((StubEndpoint) endpoints.get(0)).ready = false;
+        algorithmsSkipEndpoint(new LeastOutstandingRequests(), endpoints);
+        algorithmsSkipEndpoint(new PowerOfTwoChoices(), endpoints);
+
+        ((StubEndpoint) endpoints.get(1)).ready = false;
+        LeastOutstandingRequests algorithm = new LeastOutstandingRequests();
+        algorithm.setEndpoints(endpoints);
+        assertNull(algorithm.getNextEndpoint(null, null));
+    }
+
+    private void algorithmsSkipEndpoint(AbstractRequestTrackingAlgorithm algorithm, List<Endpoint> endpoints) {
+        algorithm.setEndpoints(endpoints);
+        for (int i = 0; i < 100; i++) {
+            assertSame(endpoints.get(1), algorithm.getNextEndpoint(null, null));
+        }
+    }
+
+    public void testPowerOfTwoChoicesPrefersFastEndpoint() {
+        List<Endpoint> endpoints = createEndpoints(2);
+        PowerOfTwoChoices algorithm = new PowerOfTwoChoices();
+        algorithm.setEndpoints(endpoints);
+
+        for (int i = 0; i < 10; i++) {
+            algorithm.onRequestStart(endpoints.get(0));
+            algorithm.onRequestComplete(endpoints.get(0), TimeUnit.MILLISECONDS.toNanos(1), true);
+            algorithm.onRequestStart(endpoints.get(1));
+            algorithm.onRequestComplete(endpoints.get(1), TimeUnit.MILLISECONDS.toNanos(50), true);
+        }
+        assertTrue(algorithm.getAverageLatency(endpoints.get(1)) > algorithm.getAverageLatency(endpoints.get(0)));
+        for (int i = 0; i < 100; i++) {
+            assertSame(endpoints.get(0), algorithm.getNextEndpoint(null, null));
+        }
+    }
+
+    public void testFailuresArePenalized() {
+        List<Endpoint> endpoints = createEndpoints(2);
+        PowerOfTwoChoices algorithm = new PowerOfTwoChoices();
+        algorithm.setEndpoints(endpoints);
+
+        algorithm.onRequestStart(endpoints.get(0));
+        algorithm.onRequestComplete(endpoints.get(0), TimeUnit.MILLISECONDS.toNanos(10), true);
+        algorithm.onRequestStart(endpoints.get(1));
+        algorithm.onRequestComplete(endpoints.get(1), TimeUnit.MILLISECONDS.toNanos(10), false);
+        assertTrue(algorithm.getAverageLatency(endpoints.get(1)) > algorithm.getAverageLatency(endpoints.get(0)));
+    }
+
+    public void testOutstandingRequestsNeverNegative() {
+        List<Endpoint> endpoints = createEndpoints(1);
+        LeastOutstandingRequests algorithm = new LeastOutstandingRequests();
+        algorithm.setEndpoints(endpoints);
+
+        algorithm.onRequestComplete(endpoints.get(0), 1000, true);
+        assertEquals(0, algorithm.getOutstandingRequests(endpoints.get(0)));
+        assertEquals(-1, algorithm.getOutstandingRequests(new StubEndpoint("unknown")));
+    }
+
+    public void testSimulatedBackends() {
+        SimulationResult roundRobin = simulate(new RoundRobin(), false);
+        SimulationResult leastOutstanding = simulate(new LeastOutstandingRequests(), true);
+        SimulationResult powerOfTwo = simulate(new PowerOfTwoChoices(), true);
+
+        int slowest = BACKEND_DELAYS.length - 1;
+        assertTrue(leastOutstanding.share(slowest) < roundRobin.share(slowest));
+        assertTrue(powerOfTwo.share(slowest) < roundRobin.share(slowest));
+        assertTrue(leastOutstanding.meanLatency() < roundRobin.meanLatency());
+        assertTrue(powerOfTwo.meanLatency() < roundRobin.meanLatency());
+    }
+
+    /**
+     * Sends the requests of concurrent clients to backends answering after fixed delays, on a
+     * simulated clock so that the result does not depend on the scheduling of threads.
+     */
+    private SimulationResult simulate(LoadbalanceAlgorithm algorithm, boolean tracking) {
+
+        List<Endpoint> endpoints = createEndpoints(BACKEND_DELAYS.length);
+        algorithm.setEndpoints(endpoints);
+        AlgorithmContext algorithmContext = new AlgorithmContext(false,
+                new ConfigurationContext(new AxisConfiguration()), "simulation");
+        SimulationResult result = new SimulationResult();
+
+        // the responses in flight as {time received, endpoint index}, the earliest first
+        PriorityQueue<long[]> responses = new PriorityQueue<long[]>(CLIENTS, new Comparator<long[]>() {
+            public int compare(long[] r1, long[] r2) {
+                return Long.compare(r1[0], r2[0]);
+            }
+        });
+        int sent = 0;
+        for (; sent < CLIENTS; sent++) {
+            responses.add(send(algorithm, algorithmContext, endpoints, tracking, 0));
+        }
+        while (!responses.isEmpty()) {
+            long[] response = responses.poll();
+            int index = (int) response[1];
+            long latency = TimeUnit.MILLISECONDS.toNanos(BACKEND_DELAYS[index]);
+            if (tracking) {
+                ((RequestTrackingAlgorithm) algorithm).onRequestComplete(endpoints.get(index), latency, true);
+            }
+            result.record(index, latency);
+            if (sent++ < CLIENTS * REQUESTS_PER_CLIENT) {
+                responses.add(send(algorithm, algorithmContext, endpoints, tracking, response[0]));
+            }
+        }
+        assertEquals(CLIENTS * REQUESTS_PER_CLIENT, result.total);
+        return result;
+    }
+
+    private long[] send(LoadbalanceAlgorithm algorithm, AlgorithmContext algorithmContext,
+                        List<Endpoint> endpoints, boolean tracking, long now) {
+        Endpoint endpoint = algorithm.getNextEndpoint(null, algorithmContext);
+        int index = endpoints.indexOf(endpoint);
+        if (tracking) {
+            ((RequestTrackingAlgorithm) algorithm).onRequestStart(endpoint);
+        }
+        return new long[] {now + TimeUnit.MILLISECONDS.toNanos(BACKEND_DELAYS[index]), index};
+    }
+
+    private List<Endpoint> createEndpoints(int count) {
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        for (int i = 0; i < count; i++) {
+            endpoints.add(new StubEndpoint("endpoint" + i));
+        }
+        return endpoints;
+    }
+
+    private static class StubEndpoint extends AddressEndpoint {
+
+        private volatile boolean ready = true;
+
+        StubEndpoint(String name) {
+            setName(name);
+        }
+
+        @Override
+        public boolean readyToSend() {
+            return ready;
+        }
+    }
+
+    private static class SimulationResult {
+
+        private final int[] requests = new int[BACKEND_DELAYS.length];
+        private long totalLatency;
+        private int total;
+
+        void record(int index, long latency) {
+            requests[index]++;
+            totalLatency += latency;
+            total++;
+        }
+
+        double share(int index) {
+            return (double) requests[index] / total;
+        }
+
+        double meanLatency() {
+            return (double) totalLatency / total / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.synapse.eventing.managers;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.SOAPFactory;
+import org.apache.axiom.soap.SOAPHeaderBlock;
+import org.apache.axis2.context.MessageContext;
+import org.apache.synapse.eventing.SynapseSubscription;
+import org.apache.synapse.mediators.TestUtils;
+import org.wso2.eventing.Event;
+import org.wso2.eventing.Subscription;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the lookup of the subscriptions matching the topic of an event
+ */
+public class TopicSubscriptionIndexTest extends TestCase {
+
+    private static final String TOPIC_NS = "http://synapse.apache.org/eventing/topic";
+
+    public void testHierarchicalTopics() {
+        TopicSubscriptionIndex index = new TopicSubscriptionIndex();
+        index.add(subscription("weather"));
+        index.add(subscription("weather/europe"));
+        index.add(subscription("weather/europe/paris"));
+        index.add(subscription("weather/asia"));
+        index.add(subscription("news"));
+
+        assertMatches(index, "weather/europe/paris", "weather", "weather/europe", "weather/europe/paris");
+        assertMatches(index, "weather/europe", "weather", "weather/europe");
+        assertMatches(index, "weather/europeans", "weather");
+        assertMatches(index, "weather", "weather");
+        assertMatches(index, "sports");
+        assertMatches(index, null);
+        assertEquals(5, index.size());
+    }
+
+    public void testWildcards() {
+        TopicSubscriptionIndex index = new TopicSubscriptionIndex();
+        index.add(subscription("weather/*/paris"));
+        index.add(subscription("weather/#/rain"));
+        index.add(subscription("#"));
+
+        assertMatches(index, "weather/europe/paris", "weather/*/paris", "#");
+        assertMatches(index, "weather/europe/paris/rain", "weather/*/paris", "weather/#/rain", "#");
+        assertMatches(index, "weather/rain", "weather/#/rain", "#");
+        assertMatches(index, "weather/asia/tokyo", "#");
+    }
+
+    public void testRemove() {
+        TopicSubscriptionIndex index = new TopicSubscriptionIndex();
+        Subscription europe = subscription("weather/europe");
+        index.add(europe);
+        index.add(subscription("weather"));
+        index.remove(europe);
+
+        assertMatches(index, "weather/europe", "weather");
+        assertEquals(1, index.size());
+    }
+
+    public void testMatchesTopicFilter() {
+        // the index matches the same topics as the topic based event filter
+        String[] filters = {"a", "a/b", "a/b/c", "b", "a/bc"};
+        String[] topics = {"a", "a/b", "a/bc", "a/b/c/d", "ab", "b/a", "c"};
+        TopicSubscriptionIndex index = new TopicSubscriptionIndex();
+        for (String filter : filters) {
+            index.add(subscription(filter));
+        }
+        for (String topic : topics) {
+            Set<String> expected = new HashSet<String>();
+            for (String filter : filters) {
+                if (topic.equals(filter) || topic.startsWith(filter + "/")) {
+                    expected.add(filter);
+                }
+            }
+            assertEquals("Topic " + topic, expected, filterValues(index.getMatchingSubscriptions(topic)));
+        }
+    }
+
+    public void testMatchingSubscriptions() throws Exception {
+        DefaultInMemorySubscriptionManager manager = new DefaultInMemorySubscriptionManager();
+        manager.addProperty("topicHeaderName", "topic");
+        manager.addProperty("topicHeaderNS", TOPIC_NS);
+        manager.init();
+
+        manager.subscribe(subscription("weather"));
+        manager.subscribe(subscription("weather/europe"));
+        Subscription expired = subscription("weather/europe/paris");
+        Calendar yesterday = Calendar.getInstance();
+        yesterday.add(Calendar.DAY_OF_MONTH, -1);
+        expired.setExpires(yesterday);
+        manager.subscribe(expired);
+        Subscription asia = subscription("weather/asia");
+        manager.subscribe(asia);
+        manager.unsubscribe(asia.getId());
+
+        List<Subscription> matches = manager.getMatchingSubscriptions(event("weather/europe/paris"));
+        assertEquals(new HashSet<String>(Arrays.asList("weather", "weather/europe")),
+                filterValues(matches));
+        assertTrue(manager.getMatchingSubscriptions(event("weather/asia")).size() == 1);
+        assertTrue(manager.getMatchingSubscriptions(event(null)).isEmpty());
+    }
+
+    private Event<MessageContext> event(String topic) throws Exception {
+        MessageContext msgCtx = TestUtils.getAxis2MessageContext("<event/>", null).getAxis2MessageContext();
+        if (topic != null) {
+            SOAPEnvelope envelope = msgCtx.getEnvelope();
+            SOAPFactory factory = OMAbstractFactory.getSOAP11Factory();
+            OMNamespace ns = factory.createOMNamespace(TOPIC_NS, "t");
+            if (envelope.getHeader() == null) {
+                factory.createSOAPHeader(envelope);
+            }
+            SOAPHeaderBlock header = envelope.getHeader().addHeaderBlock("topic", ns);
+            header.setText(topic);
+        }
+        Event<MessageContext> event = new Event<MessageContext>();
+        event.setMessage(msgCtx);
+        return event;
+    }
+
+    private Subscription subscription(String filter) {
+        SynapseSubscription subscription = new SynapseSubscription();
+        subscription.setFilterValue(filter);
+        subscription.setEndpointUrl("http://localhost:9000/" + filter);
+        return subscription;
+    }
+
+    private void assertMatches(TopicSubscriptionIndex index, String topic, String... filters) {
+        assertEquals("Topic " + topic, new HashSet<String>(Arrays.asList(filters)),
+                filterValues(index.getMatchingSubscriptions(topic)));
+    }
+
+    private Set<String> filterValues(Collection<Subscription> subscriptions) {
+        Set<String> values = new HashSet<String>();
+        for (Subscription subscription : subscriptions) {
+            values.add(subscription.getFilterValue());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.xml.DBLookupMediatorFactory;
+import org.apache.synapse.config.xml.DBReportMediatorFactory;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.AbstractMediatorTestCase;
+import org.apache.synapse.mediators.TestUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests the batching and result caching modes of the DB mediators against an embedded database
+ */
+public class DBMediatorBatchingTest extends AbstractMediatorTestCase {
+
+    private static final String POOL_CONFIG =
+            "  <connection>\n" +
+            "    <pool>\n" +
+            "      <driver>org.apache.derby.jdbc.EmbeddedDriver</driver>\n" +
+            "      <url>jdbc:derby:%s/target/derbyDB;create=true</url>\n" +
+            "      <user>user</user>\n" +
+            "      <password>pass</password>\n" +
+            "      <property name=\"maxactive\" value=\"20\"/>\n" +
+            "    </pool>\n" +
+            "  </connection>\n";
+
+    private static DBLookupMediator batchedLookup;
+    private static DBLookupMediator cachedLookup;
+    private static DBReportMediator batchedReport;
+
+    public void testBatchedLookup() throws Exception {
+        final String[] expectedTargets = {"svr0", "svr1", "svr2", "svr3", "svr4", "svr5", null, null};
+        List<MessageContext> messages = mediateConcurrently(batchedLookup, expectedTargets.length,
+                new MessageBuilder() {
+                    public String build(int i) {
+                        return "<dummy><source>" + i + "</source></dummy>";
+                    }
+                });
+        for (int i = 0; i < expectedTargets.length; i++) {
+            assertEquals("Wrong lookup result for source " + i, expectedTargets[i],
+                    messages.get(i).getProperty("targetProp"));
+        }
+    }
+
+    public void testBatchedLookupWithDuplicateKeys() throws Exception {
+        List<MessageContext> messages = mediateConcurrently(batchedLookup, 6, new MessageBuilder() {
+            public String build(int i) {
+                return "<dummy><source>" + (i % 2) + "</source></dummy>";
+            }
+        });
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals("svr" + (i % 2), messages.get(i).getProperty("targetProp"));
+        }
+    }
+
+    public void testCachedLookup() throws Exception {
+        MessageContext synCtx = TestUtils.getTestContext("<dummy><source>3</source></dummy>");
+        assertTrue(cachedLookup.mediate(synCtx));
+        assertEquals("svr3", synCtx.getProperty("targetProp"));
+
+        Connection con = cachedLookup.getDataSource().getConnection();
+        try {
+            con.createStatement().executeUpdate("update batch_destinations set target = 'moved' where source = 3");
+        } finally {
+            con.close();
+        }
+
+        synCtx = TestUtils.getTestContext("<dummy><source>3</source></dummy>");
+        assertTrue(cachedLookup.mediate(synCtx));
+        assertEquals("Lookup result is not served from the cache", "svr3", synCtx.getProperty("targetProp"));
+
+        con = cachedLookup.getDataSource().getConnection();
+        try {
+            con.createStatement().executeUpdate("update batch_destinations set target = 'svr3' where source = 3");
+        } finally {
+            con.close();
+        }
+    }
+
+    public void testBatchedReport() throws Exception {
+        int count = 10;
+        List<MessageContext> messages = mediateConcurrently(batchedReport, count, new MessageBuilder() {
+            public String build(int i) {
+                return "<dummy><from>me" + i + "</from><count>" + i + "</count></dummy>";
+            }
+        });
+        for (MessageContext synCtx : messages) {
+            assertEquals(1, synCtx.getProperty(DBReportMediator.MODIFIED_ROW_COUNT_PROP_NAME));
+        }
+
+        Connection con = batchedReport.getDataSource().getConnection();
+        try {
+            ResultSet rs = con.createStatement().executeQuery("select count(*) from batch_audit");
+            assertTrue(rs.next());
+            assertEquals(count, rs.getInt(1));
+        } finally {
+            con.close();
+        }
+    }
+
+    public void testFailedBatchedReportOnlyFailsBadRows() throws Exception {
+        int count = 5;
+        List<MessageContext> messages = new ArrayList<MessageContext>();
+        for (int i = 0; i < count; i++) {
+            // the value of the second message does not fit in the column
+            String from = i == 1 ? "tooLongForTheColumn" : "bad" + i;
+            messages.add(TestUtils.getTestContext("<dummy><from>" + from + "</from><count>" + (100 + i) +
+                    "</count></dummy>"));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (final MessageContext synCtx : messages) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        return batchedReport.mediate(synCtx);
+                    }
+                }));
+            }
+            for (int i = 0; i < count; i++) {
+                try {
+                    assertTrue(results.get(i).get());
+                    assertTrue("The invalid row did not fail", i != 1);
+                    assertEquals(1, messages.get(i).getProperty(DBReportMediator.MODIFIED_ROW_COUNT_PROP_NAME));
+                } catch (ExecutionException e) {
+                    assertEquals("A valid row failed with the invalid one", 1, i);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Connection con = batchedReport.getDataSource().getConnection();
+        try {
+            ResultSet rs = con.createStatement().executeQuery("select count(*) from batch_audit where cnt >= 100");
+            assertTrue(rs.next());
+            assertEquals(count - 1, rs.getInt(1));
+        } finally {
+            con.close();
+        }
+    }
+
+    private interface MessageBuilder {
+        String build(int i);
+    }
+
+    private List<MessageContext> mediateConcurrently(final AbstractDBMediator mediator, int count,
+                                                     MessageBuilder builder) throws Exception {
+        List<MessageContext> messages = new ArrayList<MessageContext>();
+        for (int i = 0; i < count; i++) {
+            messages.add(TestUtils.getTestContext(builder.build(i)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (final MessageContext synCtx : messages) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        return mediator.mediate(synCtx);
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return messages;
+    }
+
+    public static Test suite() {
+        return new TestSetup(new TestSuite(DBMediatorBatchingTest.class)) {
+
+            @Override
+            protected void setUp() throws Exception {
+
+                String baseDir = System.getProperty("basedir");
+                if (baseDir == null) {
+                    baseDir = ".";
+                }
+                String pool = String.format(POOL_CONFIG, baseDir);
+
+                batchedLookup = (DBLookupMediator) new DBLookupMediatorFactory().createMediator(createOMElement(
+                        "<dblookup xmlns=\"http://ws.apache.org/ns/synapse\" batchSize=\"4\" batchWindow=\"50\">\n" +
+                            pool +
+                            "  <statement keyColumn=\"source\">\n" +
+                            "    <sql>select target, source from batch_destinations where source in (?)</sql>\n" +
+                            "    <parameter expression=\"//source\" type=\"INTEGER\"/>\n" +
+                            "    <result name=\"targetProp\" column=\"target\"/>\n" +
+                            "  </statement>\n" +
+                            "</dblookup>"), new Properties());
+                batchedLookup.init(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+
+                cachedLookup = (DBLookupMediator) new DBLookupMediatorFactory().createMediator(createOMElement(
+                        "<dblookup xmlns=\"http://ws.apache.org/ns/synapse\" cacheTimeout=\"60000\">\n" +
+                            pool +
+                            "  <statement>\n" +
+                            "    <sql>select target from batch_destinations where source = ?</sql>\n" +
+                            "    <parameter expression=\"//source\" type=\"INTEGER\"/>\n" +
+                            "    <result name=\"targetProp\" column=\"target\"/>\n" +
+                            "  </statement>\n" +
+                            "</dblookup>"), new Properties());
+                cachedLookup.init(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+
+                batchedReport = (DBReportMediator) new DBReportMediatorFactory().createMediator(createOMElement(
+                        "<dbreport xmlns=\"http://ws.apache.org/ns/synapse\" batchSize=\"5\" batchWindow=\"50\">\n" +
+                            pool +
+                            "  <statement>\n" +
+                            "    <sql>insert into batch_audit values(?, ?)</sql>\n" +
+                            "    <parameter expression=\"//from\" type=\"VARCHAR\"/>\n" +
+                            "    <parameter expression=\"//count\" type=\"INTEGER\"/>\n" +
+                            "  </statement>\n" +
+                            "</dbreport>"), new Properties());
+                batchedReport.init(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+
+                java.sql.Statement s = batchedLookup.getDataSource().getConnection().createStatement();
+                try {
+                    s.execute("drop table batch_destinations");
+                } catch (SQLException ignore) {}
+                try {
+                    s.execute("drop table batch_audit");
+                } catch (SQLException ignore) {}
+                s.execute("create table batch_destinations(target varchar(10), source int)");
+                for (int i = 0; i < 6; i++) {
+                    s.execute("insert into batch_destinations values ('svr" + i + "', " + i + ")");
+                }
+                s.execute("create table batch_audit(fromepr varchar(10), cnt int)");
+                s.close();
+            }
+
+            @Override
+            protected void tearDown() throws Exception {
+                batchedLookup.destroy();
+                cachedLookup.destroy();
+                batchedReport.destroy();
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import junit.framework.TestCase;
+import org.apache.synapse.SynapseException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests how the {@link StatementBatcher} closes and executes the batches
+ */
+public class StatementBatcherTest extends TestCase {
+
+    private final Statement statement = new Statement("insert into audit values(?)");
+
+    public void testLoneRequestIsNotDelayed() throws Exception {
+        StatementBatcher<Integer> batcher = new StatementBatcher<Integer>(statement, 10, 60000,
+                new CountingExecutor(null));
+        long start = System.currentTimeMillis();
+        assertEquals(Integer.valueOf(1), batcher.execute(Collections.singletonList("a"), null));
+        assertTrue("A request without others to batch with waited for the batch window",
+                System.currentTimeMillis() - start < 30000);
+    }
+
+    public void testRequestsAreBatchedWhileAnotherBatchExecutes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        final CountingExecutor executor = new CountingExecutor(release);
+        final StatementBatcher<Integer> batcher = new StatementBatcher<Integer>(statement, 10, 60000, executor);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        batcher.execute(Collections.singletonList("a"), null);
+                    } catch (Exception ignore) {
+                    }
+                }
+            }));
+        }
+        threads.get(0).start();
+        assertTrue(executor.started.await(5, TimeUnit.SECONDS));
+        for (Thread thread : threads.subList(1, threads.size())) {
+            thread.start();
+        }
+        // the requests arriving while the first batch executes wait for it to complete
+        for (Thread thread : threads) {
+            waitUntilBlocked(thread);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertEquals(Integer.valueOf(1), executor.sizes.get(0));
+        assertEquals(Integer.valueOf(3), executor.sizes.get(1));
+    }
+
+    public void testRequestWithoutResultFails() throws Exception {
+        StatementBatcher<Integer> batcher = new StatementBatcher<Integer>(statement, 10, 50,
+                new StatementBatcher.BatchExecutor<Integer>() {
+                    public void execute(Statement statement, List<StatementBatcher.Request<Integer>> batch) {
+                    }
+                });
+        try {
+            batcher.execute(Collections.singletonList("a"), null);
+            fail("A request without a result must fail");
+        } catch (SynapseException expected) {
+        }
+    }
+
+    private void waitUntilBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Completes every request of a batch with a row count of one, recording the batch sizes
+     */
+    private static class CountingExecutor implements StatementBatcher.BatchExecutor<Integer> {
+
+        private final CountDownLatch release;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final List<Integer> sizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+        private CountingExecutor(CountDownLatch release) {
+            this.release = release;
+        }
+
+        public void execute(Statement statement, List<StatementBatcher.Request<Integer>> batch)
+                throws Exception {
+            sizes.add(batch.size());
+            started.countDown();
+            if (release != null) {
+                release.await();
+            }
+            for (StatementBatcher.Request<Integer> request : batch) {
+                request.complete(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.eip.sample;
+
+import junit.framework.TestCase;
+
+public class AdaptiveSamplingRateTest extends TestCase {
+
+    public void testDecreaseOnHighLatency() {
+        AdaptiveSamplingRate rate = new AdaptiveSamplingRate(40, 5, 100, 200, -1);
+        rate.recordResponse(500, false);
+        rate.recordResponse(300, false);
+        assertEquals(20, rate.adjust(true));
+        assertEquals(400, rate.getLastAverageLatency());
+
+        for (int i = 0; i < 5; i++) {
+            rate.recordResponse(1000, false);
+            rate.adjust(true);
+        }
+        assertEquals("The rate must not drop below the minimum", 5, rate.getRate());
+    }
+
+    public void testDecreaseOnErrors() {
+        AdaptiveSamplingRate rate = new AdaptiveSamplingRate(40, 1, 0, 0, 0.1);
+        for (int i = 0; i < 8; i++) {
+            rate.recordResponse(10, false);
+        }
+        rate.recordResponse(10, true);
+        rate.recordResponse(10, true);
+        assertEquals(20, rate.adjust(false));
+        assertEquals(0.2, rate.getLastErrorRate(), 0.0001);
+    }
+
+    public void testAdditiveIncreaseWhenBacklogged() {
+        AdaptiveSamplingRate rate = new AdaptiveSamplingRate(20, 1, 25, 200, -1);
+        rate.recordResponse(50, false);
+        assertEquals(22, rate.adjust(true));
+        assertEquals("The rate must not grow without a backlog", 22, rate.adjust(false));
+        assertEquals(24, rate.adjust(true));
+        assertEquals("The rate must not exceed the maximum", 25, rate.adjust(true));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.eip.sample;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.TestMessageContext;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedMessageQueueTest extends TestCase {
+
+    public void testOrderAndCapacity() {
+        BoundedMessageQueue queue = new BoundedMessageQueue(3);
+        assertEquals(4, queue.getCapacity());
+        assertTrue(queue.isEmpty());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(createMessage(i)));
+        }
+        assertFalse("A full queue must reject messages", queue.offer(createMessage(4)));
+        assertEquals(1, queue.getRejectedCount());
+        assertEquals(4, queue.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(String.valueOf(i), queue.get().getMessageID());
+        }
+        assertNull(queue.get());
+        assertTrue(queue.isEmpty());
+
+        // wrap around the ring buffer
+        for (int i = 0; i < 10; i++) {
+            queue.add(createMessage(i));
+            assertEquals(String.valueOf(i), queue.get().getMessageID());
+        }
+    }
+
+    public void testSingleMessageCapacity() {
+        BoundedMessageQueue queue = new BoundedMessageQueue(1);
+        assertEquals(2, queue.getCapacity());
+        assertTrue(queue.offer(new TestMessageContext()));
+        assertTrue(queue.offer(new TestMessageContext()));
+        assertFalse(queue.offer(new TestMessageContext()));
+        assertEquals(2, queue.size());
+    }
+
+    public void testSetCapacity() {
+        BoundedMessageQueue queue = new BoundedMessageQueue();
+        queue.add(createMessage(0));
+        queue.get();
+        queue.setCapacity(2);
+        assertEquals(2, queue.getCapacity());
+        assertTrue(queue.offer(createMessage(1)));
+        assertTrue(queue.offer(createMessage(2)));
+        assertFalse(queue.offer(createMessage(3)));
+        assertEquals("1", queue.get().getMessageID());
+        try {
+            queue.setCapacity(8);
+            fail("The capacity of a queue in use must not change");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        final BoundedMessageQueue queue = new BoundedMessageQueue(64);
+        final int producers = 4;
+        final int messagesPerProducer = 5000;
+        final Set<String> received = ConcurrentHashMap.newKeySet();
+        final AtomicInteger accepted = new AtomicInteger();
+        final CountDownLatch producersDone = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < messagesPerProducer; i++) {
+                        while (!queue.offer(createMessage(producer * messagesPerProducer + i))) {
+                            Thread.yield();
+                        }
+                        accepted.incrementAndGet();
+                    }
+                    producersDone.countDown();
+                }
+            }).start();
+        }
+
+        Thread[] consumers = new Thread[2];
+        for (int c = 0; c < consumers.length; c++) {
+            consumers[c] = new Thread(new Runnable() {
+                public void run() {
+                    while (producersDone.getCount() > 0 || !queue.isEmpty()) {
+                        MessageContext synCtx = queue.get();
+                        if (synCtx != null) {
+                            assertTrue("Message received twice", received.add(synCtx.getMessageID()));
+                        }
+                    }
+                }
+            });
+            consumers[c].start();
+        }
+
+        assertTrue(producersDone.await(30, TimeUnit.SECONDS));
+        for (Thread consumer : consumers) {
+            consumer.join(30000);
+        }
+        assertEquals(producers * messagesPerProducer, accepted.get());
+        assertEquals(producers * messagesPerProducer, received.size());
+    }
+
+    private static MessageContext createMessage(int id) {
+        MessageContext synCtx = new TestMessageContext();
+        synCtx.setMessageID(String.valueOf(id));
+        return synCtx;
+    }
+}
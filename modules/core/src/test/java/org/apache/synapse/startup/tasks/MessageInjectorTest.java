@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.startup.tasks;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.TestMediateHandler;
+import org.apache.synapse.mediators.TestMediator;
+import org.apache.synapse.mediators.base.SequenceMediator;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tests the bulk injection of messages by the {@link MessageInjector}
+ */
+public class MessageInjectorTest extends TestCase {
+
+    private static final String SEQUENCE_NAME = "bulkSequence";
+
+    private final Set<Object> indexes = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> payloads = new ConcurrentHashMap<String, Integer>();
+
+    private Axis2SynapseEnvironment synEnv;
+
+    protected void setUp() throws Exception {
+        SynapseConfiguration synConfig = new SynapseConfiguration();
+        synEnv = new Axis2SynapseEnvironment(new ConfigurationContext(new AxisConfiguration()), synConfig);
+        synEnv.getTaskManager().init(null, null, null);
+
+        TestMediator mediator = new TestMediator();
+        mediator.setHandler(new TestMediateHandler() {
+            public void handle(MessageContext synCtx) {
+                Object index = synCtx.getProperty(MessageInjector.INJECT_INDEX);
+                if (index != null) {
+                    indexes.add(index);
+                }
+                payloads.merge(synCtx.getEnvelope().getBody().getFirstElement().getLocalName(), 1, Integer::sum);
+            }
+        });
+        SequenceMediator sequence = new SequenceMediator();
+        sequence.addChild(mediator);
+        synConfig.addSequence(SEQUENCE_NAME, sequence);
+    }
+
+    public void testBulkInjection() throws Exception {
+        MessageInjector injector = createInjector();
+        injector.setMessage(AXIOMUtil.stringToOM("<test/>"));
+        injector.setInjectCount(200);
+        injector.setInjectConcurrency(4);
+        injector.execute();
+
+        assertEquals(200, indexes.size());
+        assertEquals(Integer.valueOf(200), payloads.get("test"));
+        MessageInjector.BulkInjectionResult result = injector.getLastBulkInjectionResult();
+        assertEquals(200, result.getCount());
+        assertEquals(0, result.getFailures());
+        assertTrue(result.getMaxLatency() >= result.getPercentile99Latency());
+        assertTrue(result.getPercentile99Latency() >= result.getAverageLatency());
+    }
+
+    public void testInjectionRate() throws Exception {
+        MessageInjector injector = createInjector();
+        injector.setMessage(AXIOMUtil.stringToOM("<test/>"));
+        injector.setInjectCount(21);
+        injector.setInjectRate(100);
+        injector.execute();
+
+        assertEquals(21, indexes.size());
+        // 20 intervals of 10 ms between the first and the last message
+        assertTrue("Messages were injected faster than the rate",
+                injector.getLastBulkInjectionResult().getElapsedTime() >= 190);
+    }
+
+    public void testPayloadFile() throws Exception {
+        File file = File.createTempFile("payloads", ".xml");
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter(file);
+        writer.write("<payloads><a/><b/><c/></payloads>");
+        writer.close();
+
+        MessageInjector injector = createInjector();
+        injector.setPayloadFile(file.getAbsolutePath());
+        injector.setInjectCount(30);
+        injector.setInjectConcurrency(3);
+        injector.execute();
+
+        assertEquals(Integer.valueOf(10), payloads.get("a"));
+        assertEquals(Integer.valueOf(10), payloads.get("b"));
+        assertEquals(Integer.valueOf(10), payloads.get("c"));
+    }
+
+    public void testSingleInjection() throws Exception {
+        MessageInjector injector = createInjector();
+        injector.setMessage(AXIOMUtil.stringToOM("<test/>"));
+        injector.execute();
+
+        assertEquals(Integer.valueOf(1), payloads.get("test"));
+        assertNull(injector.getLastBulkInjectionResult());
+    }
+
+    private MessageInjector createInjector() {
+        MessageInjector injector = new MessageInjector();
+        injector.init(synEnv, "bulkInjector");
+        injector.setInjectTo("sequence");
+        injector.setSequenceName(SEQUENCE_NAME);
+        injector.setSequential(true);
+        return injector;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.jaxp;
+
+import junit.framework.TestCase;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.synapse.util.jaxp.ValidatorPoolTest.SCHEMA;
+import static org.apache.synapse.util.jaxp.ValidatorPoolTest.axiomSource;
+import static org.apache.synapse.util.jaxp.ValidatorPoolTest.document;
+import static org.apache.synapse.util.jaxp.ValidatorPoolTest.order;
+import static org.apache.synapse.util.jaxp.ValidatorPoolTest.streamSource;
+import static org.apache.synapse.util.jaxp.ValidatorPoolTest.validate;
+
+/**
+ * Compares validating pooled validators on a StAX stream of the raw payload with validating new
+ * validators on an AXIOM tree, for 10 KB and 5 MB documents. Not part of the default test run, use
+ * <code>mvn test -Pbenchmark</code> in the core module.
+ */
+public class ValidatorPoolBenchmark extends TestCase {
+
+    private Schema schema;
+
+    protected void setUp() throws Exception {
+        schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(
+                new StreamSource(new StringReader(SCHEMA)));
+    }
+
+    public void testBenchmark10KB() throws Exception {
+        compare(orderCount(10 * 1024), 2000);
+    }
+
+    public void testBenchmark5MB() throws Exception {
+        compare(orderCount(5 * 1024 * 1024), 5);
+    }
+
+    private void compare(int orders, int iterations) throws Exception {
+        byte[] valid = document(orders, true);
+        byte[] invalid = document(orders, false);
+        ValidatorPool pool = new ValidatorPool(schema, 1);
+
+        // both paths must agree before they are timed
+        assertTrue(validate(schema.newValidator(), axiomSource(valid)));
+        assertFalse(validate(schema.newValidator(), axiomSource(invalid)));
+        assertTrue(validate(pool, streamSource(valid)));
+        assertFalse(validate(pool, streamSource(invalid)));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertTrue(validate(schema.newValidator(), axiomSource(valid)));
+        }
+        long axiomTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            assertTrue(validate(pool, streamSource(valid)));
+        }
+        long streamingTime = System.nanoTime() - start;
+
+        System.out.println("Validated a " + (valid.length / 1024) + " KB document " + iterations +
+                " times - new validator on AXIOM: " + TimeUnit.NANOSECONDS.toMillis(axiomTime) +
+                "ms, pooled validator on StAX: " + TimeUnit.NANOSECONDS.toMillis(streamingTime) + "ms");
+    }
+
+    private int orderCount(int size) {
+        return Math.max(1, size / order(0, true).length());
+    }
+}
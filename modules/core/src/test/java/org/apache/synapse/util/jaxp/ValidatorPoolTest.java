@@ -0,0 +1,199 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.jaxp;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.impl.builder.StAXOMBuilder;
+import org.apache.axiom.om.util.StAXUtils;
+import org.apache.synapse.util.AXIOMUtils;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the {@link ValidatorPool}, and that validating pooled validators on a StAX stream of the raw
+ * payload gives the same results as validating new validators on an AXIOM tree.
+ */
+public class ValidatorPoolTest extends TestCase {
+
+    static final String SCHEMA =
+            "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" " +
+            "targetNamespace=\"http://services.samples/xsd\" elementFormDefault=\"qualified\">" +
+            "<xs:element name=\"orders\"><xs:complexType><xs:sequence>" +
+            "<xs:element name=\"order\" maxOccurs=\"unbounded\"><xs:complexType><xs:sequence>" +
+            "<xs:element name=\"symbol\" type=\"xs:string\"/>" +
+            "<xs:element name=\"quantity\" type=\"xs:int\"/>" +
+            "<xs:element name=\"price\" type=\"xs:decimal\"/>" +
+            "</xs:sequence></xs:complexType></xs:element>" +
+            "</xs:sequence></xs:complexType></xs:element></xs:schema>";
+
+    private Schema schema;
+
+    protected void setUp() throws Exception {
+        schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(
+                new StreamSource(new StringReader(SCHEMA)));
+    }
+
+    public void testValidatorsAreReused() {
+        ValidatorPool pool = new ValidatorPool(schema, 2);
+        Validator first = pool.borrow();
+        Validator second = pool.borrow();
+        assertNotSame(first, second);
+
+        pool.release(first);
+        assertEquals(1, pool.getIdleCount());
+        assertSame(first, pool.borrow());
+
+        pool.release(first);
+        pool.release(second);
+        pool.release(schema.newValidator());
+        assertEquals("Idle validators beyond the maximum must be discarded", 2, pool.getIdleCount());
+    }
+
+    public void testReleasedValidatorIsReset() throws Exception {
+        ValidatorPool pool = new ValidatorPool(schema, 1);
+        Validator validator = pool.borrow();
+        ErrorCollector errors = new ErrorCollector();
+        validator.setErrorHandler(errors);
+        validator.validate(streamSource(document(1, false)));
+        assertEquals(1, errors.count);
+        pool.release(validator);
+
+        validator = pool.borrow();
+        assertNull(validator.getErrorHandler());
+        errors = new ErrorCollector();
+        validator.setErrorHandler(errors);
+        validator.validate(streamSource(document(1, true)));
+        assertEquals(0, errors.count);
+    }
+
+    public void testConcurrentValidation() throws Exception {
+        final ValidatorPool pool = new ValidatorPool(schema, 4);
+        final byte[] valid = document(100, true);
+        final byte[] invalid = document(100, false);
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(400);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 400; i++) {
+            final boolean expectValid = i % 2 == 0;
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        if (validate(pool, streamSource(expectValid ? valid : invalid)) != expectValid) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(0, failures.get());
+        assertTrue(pool.getIdleCount() <= 4);
+    }
+
+    public void testStreamingAndAxiomValidationAgree() throws Exception {
+        byte[] valid = document(100, true);
+        byte[] invalid = document(100, false);
+        ValidatorPool pool = new ValidatorPool(schema, 1);
+
+        assertTrue(validate(schema.newValidator(), axiomSource(valid)));
+        assertFalse(validate(schema.newValidator(), axiomSource(invalid)));
+        assertTrue(validate(pool, streamSource(valid)));
+        assertFalse(validate(pool, streamSource(invalid)));
+    }
+
+    static boolean validate(ValidatorPool pool, Source source) throws Exception {
+        Validator validator = pool.borrow();
+        try {
+            return validate(validator, source);
+        } finally {
+            pool.release(validator);
+        }
+    }
+
+    static boolean validate(Validator validator, Source source) throws Exception {
+        ErrorCollector errors = new ErrorCollector();
+        validator.setErrorHandler(errors);
+        validator.validate(source);
+        return errors.count == 0;
+    }
+
+    static Source axiomSource(byte[] document) throws Exception {
+        OMElement element = new StAXOMBuilder(new ByteArrayInputStream(document)).getDocumentElement();
+        element.build();
+        return AXIOMUtils.asSource(element);
+    }
+
+    static Source streamSource(byte[] document) throws Exception {
+        XMLStreamReader reader = StAXUtils.createXMLStreamReader(new ByteArrayInputStream(document));
+        reader.nextTag();
+        return new StAXSource(reader);
+    }
+
+    static byte[] document(int orders, boolean valid) {
+        StringBuilder document = new StringBuilder("<orders xmlns=\"http://services.samples/xsd\">");
+        for (int i = 0; i < orders; i++) {
+            // the last order of an invalid document has a quantity which is not a number
+            document.append(order(i, valid || i < orders - 1));
+        }
+        return document.append("</orders>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String order(int i, boolean valid) {
+        return "<order><symbol>IBM" + i + "</symbol><quantity>" + (valid ? String.valueOf(i) : "many") +
+                "</quantity><price>" + (i % 100) + ".25</price></order>";
+    }
+
+    private static class ErrorCollector extends DefaultHandler {
+
+        private int count;
+
+        public void error(SAXParseException e) throws SAXException {
+            count++;
+        }
+
+        public void fatalError(SAXParseException e) throws SAXException {
+            count++;
+        }
+    }
+}
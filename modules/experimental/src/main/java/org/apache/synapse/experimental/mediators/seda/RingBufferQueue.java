@@ -0,0 +1,387 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded multi-producer multi-consumer queue on a ring buffer. Each slot carries a sequence number which tells
+ * producers and consumers whether the slot is free for the current lap, so offers and polls only contend on a
+ * compare-and-set of the tail or head counter and never take a lock.
+ *
+ * The capacity is rounded up to the next power of two, and is at least two. Blocking operations spin briefly and then wait on a
+ * condition, which the other side only signals when some thread is waiting, so that idle consumers do not wake up
+ * until a message arrives. Removing an element other than the head leaves a tombstone in its slot, which is skipped
+ * by the consumers and counted in the size of the queue until then. The iterator works on a snapshot of the queue.
+ *
+ * @param <E> type of the elements
+ */
+public class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final int SPINS = 64;
+
+    /** marks the slot of an element removed from the middle of the queue */
+    private static final Object REMOVED = new Object();
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Object> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition notEmpty = waitLock.newCondition();
+    private final Condition notFull = waitLock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    public RingBufferQueue(int requestedCapacity) {
+        if (requestedCapacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive : " + requestedCapacity);
+        }
+        // a single slot could not tell a published element from a slot freed for the next lap
+        int size = 2;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<Object>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (!insert(e)) {
+            return false;
+        }
+        if (waitingConsumers.get() > 0) {
+            signal(notEmpty);
+        }
+        return true;
+    }
+
+    public E poll() {
+        E e = extract();
+        // slots of removed elements may have been freed even if no element was found
+        if (waitingProducers.get() > 0) {
+            signal(notFull);
+        }
+        return e;
+    }
+
+    private boolean insert(E e) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, e);
+                    // publish the element for the consumers of this lap
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot still holds the element of the previous lap, so the queue is full
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private E extract() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    Object e = elements.getAndSet(index, null);
+                    // free the slot for the producers of the next lap
+                    sequences.set(index, position + capacity);
+                    if (e != REMOVED) {
+                        return (E) e;
+                    }
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long position = head.get();
+        long end = tail.get();
+        for (; position < end; position++) {
+            int index = (int) position & mask;
+            Object e = elements.get(index);
+            if (sequences.get(index) == position + 1 && e != null && e != REMOVED) {
+                return (E) e;
+            }
+        }
+        return null;
+    }
+
+    public void put(E e) throws InterruptedException {
+        offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        for (int i = 0; i < SPINS; i++) {
+            if (offer(e)) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        long nanos = unit.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        waitingProducers.incrementAndGet();
+        try {
+            while (!insert(e)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = awaitNanos(notFull, nanos);
+            }
+        } finally {
+            waitingProducers.decrementAndGet();
+            waitLock.unlock();
+        }
+        if (waitingConsumers.get() > 0) {
+            signal(notEmpty);
+        }
+        return true;
+    }
+
+    public E take() throws InterruptedException {
+        return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e;
+        for (int i = 0; i < SPINS; i++) {
+            if ((e = poll()) != null) {
+                return e;
+            }
+            Thread.onSpinWait();
+        }
+        long nanos = unit.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        waitingConsumers.incrementAndGet();
+        try {
+            while ((e = extract()) == null) {
+                if (waitingProducers.get() > 0) {
+                    notFull.signal();
+                }
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = awaitNanos(notEmpty, nanos);
+            }
+        } finally {
+            waitingConsumers.decrementAndGet();
+            waitLock.unlock();
+        }
+        if (waitingProducers.get() > 0) {
+            signal(notFull);
+        }
+        return e;
+    }
+
+    /**
+     * Waits on the condition, passing the signal on to another waiting thread if interrupted. A waiting thread
+     * registers itself before checking the queue, and the other side checks for waiting threads after changing the
+     * queue, so a signal cannot be missed. A timeout of Long.MAX_VALUE waits without a timeout.
+     */
+    private long awaitNanos(Condition condition, long nanos) throws InterruptedException {
+        try {
+            if (nanos == Long.MAX_VALUE) {
+                condition.await();
+                return nanos;
+            }
+            return condition.awaitNanos(nanos);
+        } catch (InterruptedException ie) {
+            condition.signal();
+            throw ie;
+        }
+    }
+
+    private void signal(Condition condition) {
+        waitLock.lock();
+        try {
+            condition.signal();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    /**
+     * Removes an occurrence of the given element, leaving a tombstone in its slot which the consumers skip
+     *
+     * @param o the element to remove
+     * @return true if the element was found and removed
+     */
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        long position = head.get();
+        long end = tail.get();
+        for (; position < end; position++) {
+            int index = (int) position & mask;
+            Object e = elements.get(index);
+            if (sequences.get(index) == position + 1 && e != REMOVED && o.equals(e)
+                    && elements.compareAndSet(index, e, REMOVED)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        // read head first so that the difference is never negative
+        long currentHead = head.get();
+        long currentTail = tail.get();
+        return (int) Math.max(0, Math.min(capacity, currentTail - currentHead));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int count = 0;
+        E e;
+        while (count < maxElements && (e = poll()) != null) {
+            c.add(e);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return an iterator over a snapshot of the elements in the queue, which removes the elements from the queue
+     */
+    public Iterator<E> iterator() {
+        return new SnapshotIterator(snapshot());
+    }
+
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<E> snapshot() {
+        List<E> list = new ArrayList<E>();
+        long position = head.get();
+        long end = tail.get();
+        for (; position < end; position++) {
+            int index = (int) position & mask;
+            Object e = elements.get(index);
+            // the slot may have been consumed and refilled in the meantime, then it is skipped
+            if (sequences.get(index) == position + 1 && e != null && e != REMOVED) {
+                list.add((E) e);
+            }
+        }
+        return list;
+    }
+
+    public String toString() {
+        return "RingBufferQueue[size=" + size() + ", capacity=" + capacity + "]";
+    }
+
+    private class SnapshotIterator implements Iterator<E> {
+
+        private final Iterator<E> iterator;
+        private E last;
+
+        SnapshotIterator(List<E> snapshot) {
+            this.iterator = snapshot.iterator();
+        }
+
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        public E next() {
+            if (!iterator.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = iterator.next();
+            return last;
+        }
+
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            RingBufferQueue.this.remove(last);
+            last = null;
+        }
+    }
+}
@@ -1,56 +1,116 @@
-/*
- *  Licensed to the Apache Software Foundation (ASF) under one
- *  or more contributor license agreements.  See the NOTICE file
- *  distributed with this work for additional information
- *  regarding copyright ownership.  The ASF licenses this file
- *  to you under the Apache License, Version 2.0 (the
- *  "License"); you may not use this file except in compliance
- *  with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing,
- *  software distributed under the License is distributed on an
- *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- *  KIND, either express or implied.  See the License for the
- *  specific language governing permissions and limitations
- *  under the License.
- */
-package org.apache.synapse.experimental.mediators.seda;
-
-import org.apache.axiom.om.OMElement;
-import org.apache.synapse.Mediator;
-import org.apache.synapse.SynapseConstants;
-import org.apache.synapse.config.xml.AbstractMediatorFactory;
-
-import javax.xml.namespace.QName;
-import java.util.Properties;
-
-/**
- *
- */
-public class SEDAMediatorFactory extends AbstractMediatorFactory {
-
-    private static final QName SEDA_Q =
-            new QName(SynapseConstants.SYNAPSE_NAMESPACE, "seda");
-
-    public Mediator createSpecificMediator(OMElement elem, Properties properties) {
-
-        final SEDAMediator mediator = new SEDAMediator();
-        processAuditStatus(mediator, elem);
-        String mediatorKey = elem.getAttributeValue(ATT_KEY);
-
-        if (mediatorKey != null && !"".equals(mediatorKey.trim())) {
-            mediator.setConsumer(mediatorKey.trim());
-        }
-        //TODO parse OM element and creates policies
-        mediator.setSedaQueueConsumerPolicy(new SEDAQueueConsumerPolicy());
-        mediator.setSedaQueueProducerPolicy(new SEDAQueueProducerPolicy());
-        mediator.setSedaQueuePolicy(new SEDAQueuePolicy());
-        return mediator;
-    }
-
-    public QName getTagQName() {
-        return SEDA_Q;
-    }
-}
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.synapse.Mediator;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.xml.AbstractMediatorFactory;
+
+import javax.xml.namespace.QName;
+import java.util.Properties;
+
+/**
+ *
+ */
+public class SEDAMediatorFactory extends AbstractMediatorFactory {
+
+    private static final QName SEDA_Q =
+            new QName(SynapseConstants.SYNAPSE_NAMESPACE, "seda");
+    private static final QName ATT_QUEUE_TYPE = new QName("queueType");
+    private static final QName ATT_QUEUE_SIZE = new QName("queueSize");
+    private static final QName ATT_PAUSE_INPUT = new QName("pauseInput");
+    private static final QName ATT_PAUSE_INPUT_THRESHOLD = new QName("pauseInputThreshold");
+    private static final QName ATT_MIN_CONSUMERS = new QName("minConsumers");
+    private static final QName ATT_MAX_CONSUMERS = new QName("maxConsumers");
+    private static final QName ATT_ADJUST_INTERVAL = new QName("adjustInterval");
+
+    public Mediator createSpecificMediator(OMElement elem, Properties properties) {
+
+        final SEDAMediator mediator = new SEDAMediator();
+        processAuditStatus(mediator, elem);
+        String mediatorKey = elem.getAttributeValue(ATT_KEY);
+
+        if (mediatorKey != null && !"".equals(mediatorKey.trim())) {
+            mediator.setConsumer(mediatorKey.trim());
+        }
+        SEDAQueuePolicy queuePolicy = new SEDAQueuePolicy();
+        String queueType = elem.getAttributeValue(ATT_QUEUE_TYPE);
+        if (queueType != null) {
+            queuePolicy.setQueueType(queueType.trim());
+        }
+        Integer queueSize = getIntAttribute(elem, ATT_QUEUE_SIZE);
+        if (queueSize != null) {
+            queuePolicy.setQueueSize(queueSize);
+        }
+        Integer pauseInputThreshold = getIntAttribute(elem, ATT_PAUSE_INPUT_THRESHOLD);
+        if (pauseInputThreshold != null) {
+            queuePolicy.setPauseInputThreshold(pauseInputThreshold);
+        }
+        String pauseInput = elem.getAttributeValue(ATT_PAUSE_INPUT);
+        if (pauseInput != null) {
+            queuePolicy.setPauseInput(Boolean.parseBoolean(pauseInput.trim()));
+        }
+
+        SEDAQueueConsumerPolicy consumerPolicy = new SEDAQueueConsumerPolicy();
+        Integer minConsumers = getIntAttribute(elem, ATT_MIN_CONSUMERS);
+        if (minConsumers != null) {
+            consumerPolicy.setMinConsumers(minConsumers);
+        }
+        Integer maxConsumers = getIntAttribute(elem, ATT_MAX_CONSUMERS);
+        if (maxConsumers != null) {
+            consumerPolicy.setMaxConsumers(maxConsumers);
+        }
+        Integer adjustInterval = getIntAttribute(elem, ATT_ADJUST_INTERVAL);
+        if (adjustInterval != null) {
+            consumerPolicy.setAdjustInterval(adjustInterval);
+        }
+        if (consumerPolicy.getMaxConsumers() < consumerPolicy.getMinConsumers()) {
+            handleException("maxConsumers of the seda mediator cannot be less than minConsumers");
+        }
+
+        mediator.setSedaQueueConsumerPolicy(consumerPolicy);
+        mediator.setSedaQueueProducerPolicy(new SEDAQueueProducerPolicy());
+        mediator.setSedaQueuePolicy(queuePolicy);
+        return mediator;
+    }
+
+    private Integer getIntAttribute(OMElement elem, QName attribute) {
+        String value = elem.getAttributeValue(attribute);
+        if (value == null) {
+            return null;
+        }
+        try {
+            int intValue = Integer.parseInt(value.trim());
+            if (intValue <= 0) {
+                handleException("The " + attribute.getLocalPart() +
+                        " attribute of the seda mediator must be positive : " + value);
+            }
+            return intValue;
+        } catch (NumberFormatException e) {
+            handleException("Invalid " + attribute.getLocalPart() +
+                    " attribute of the seda mediator : " + value);
+            return null;
+        }
+    }
+
+    public QName getTagQName() {
+        return SEDA_Q;
+    }
+}
@@ -1,79 +1,259 @@
-/*
- *  Licensed to the Apache Software Foundation (ASF) under one
- *  or more contributor license agreements.  See the NOTICE file
- *  distributed with this work for additional information
- *  regarding copyright ownership.  The ASF licenses this file
- *  to you under the Apache License, Version 2.0 (the
- *  "License"); you may not use this file except in compliance
- *  with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing,
- *  software distributed under the License is distributed on an
- *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- *  KIND, either express or implied.  See the License for the
- *  specific language governing permissions and limitations
- *  under the License.
- */
-package org.apache.synapse.experimental.mediators.seda;
-
-import org.apache.synapse.MessageContext;
-
-import java.util.concurrent.*;
-
-/**
- *
- */
-public class SEDAQueue {
-
-    private SEDAQueuePolicy queuePolicy;
-    private final BlockingQueue<MessageContext> queue;
-    private SEDAQueueConsumerWorkerFactory workerFactory;
-    private boolean initialized;
-    private static final Executor EXECUTOR
-            = Executors.newFixedThreadPool(10);
-
-    public SEDAQueue(SEDAQueuePolicy queuePolicy, SEDAQueueConsumerWorkerFactory workerFactory) {
-        this.queuePolicy = queuePolicy;
-        this.queue = createBlockingQueue(queuePolicy);
-        this.workerFactory = workerFactory;
-    }
-
-    private BlockingQueue<MessageContext> createBlockingQueue(SEDAQueuePolicy queuePolicy) {
-        BlockingQueue<MessageContext> queue;
-        String queueType = queuePolicy.getQueueType();
-        int capacity = queuePolicy.getQueueSize();
-        if (SEDAQueuePolicy.QUEUE_TYPE_PRIORITY_BLOCKING.equals(queueType)) {
-            queue = new PriorityBlockingQueue<MessageContext>(capacity);
-        } else if (SEDAQueuePolicy.QUEUE_TYPE_SYNCHRONOUS.equals(queueType)) {
-            queue = new SynchronousQueue<MessageContext>();
-        } else {
-            queue = new LinkedBlockingQueue<MessageContext>(capacity);
-        }
-        return queue;
-    }
-
-    public void init() {
-        EXECUTOR.execute(workerFactory.createSEDAQueueConsumerWorker(this));
-    }
-
-    public void destory() {
-    }
-
-    public BlockingQueue<MessageContext> getQueue() {
-        return queue;
-    }
-
-    public boolean isInitialized() {
-        return initialized;
-    }
-
-    public void setInitialized(boolean initialized) {
-        this.initialized = initialized;
-    }
-
-    public SEDAQueuePolicy getQueuePolicy() {
-        return queuePolicy;
-    }
-}
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The queue of a SEDA stage together with the consumers which drain it. The number of consumers is
+ * adjusted periodically to the load of the stage, between the minimum and the maximum of the consumer
+ * policy: following Little's law, the stage needs about as many consumers as the arrival rate multiplied
+ * by the average service time, and one more consumer is added as long as the queue keeps growing.
+ * Consumers are retired one at a time while the queue stays empty.
+ */
+public class SEDAQueue {
+
+    private static final Log log = LogFactory.getLog(SEDAQueue.class);
+
+    /** head room added to the number of consumers computed from the arrival rate */
+    private static final double CONSUMER_HEAD_ROOM = 1.2;
+
+    private static final String MBEAN_CATEGORY = "SEDAStage";
+
+    private SEDAQueuePolicy queuePolicy;
+    private final BlockingQueue<MessageContext> queue;
+    private SEDAQueueConsumerWorkerFactory workerFactory;
+    private SEDAQueueConsumerPolicy consumerPolicy;
+    private final String name;
+    private final SEDAStageMetrics metrics;
+    private boolean initialized;
+    private volatile boolean running;
+
+    private ExecutorService consumerExecutor;
+    private ScheduledExecutorService controller;
+    private final AtomicInteger consumerCount = new AtomicInteger();
+    private final AtomicInteger activeConsumerCount = new AtomicInteger();
+    private final AtomicInteger consumersToRetire = new AtomicInteger();
+    private long lastEnqueuedCount;
+
+    public SEDAQueue(SEDAQueuePolicy queuePolicy, SEDAQueueConsumerWorkerFactory workerFactory) {
+        this("seda", queuePolicy, workerFactory);
+    }
+
+    public SEDAQueue(String name, SEDAQueuePolicy queuePolicy,
+                     SEDAQueueConsumerWorkerFactory workerFactory) {
+        this.name = name;
+        this.queuePolicy = queuePolicy;
+        this.queue = createBlockingQueue(queuePolicy);
+        this.workerFactory = workerFactory;
+        this.consumerPolicy = workerFactory.getQueueConsumerPolicy();
+        this.metrics = new SEDAStageMetrics(this);
+    }
+
+    private BlockingQueue<MessageContext> createBlockingQueue(SEDAQueuePolicy queuePolicy) {
+        BlockingQueue<MessageContext> queue;
+        String queueType = queuePolicy.getQueueType();
+        int capacity = queuePolicy.getQueueSize();
+        if (SEDAQueuePolicy.QUEUE_TYPE_PRIORITY_BLOCKING.equals(queueType)) {
+            queue = new PriorityBlockingQueue<MessageContext>(capacity);
+        } else if (SEDAQueuePolicy.QUEUE_TYPE_SYNCHRONOUS.equals(queueType)) {
+            queue = new SynchronousQueue<MessageContext>();
+        } else if (SEDAQueuePolicy.QUEUE_TYPE_LINKED_BLOCKING.equals(queueType)) {
+            queue = new LinkedBlockingQueue<MessageContext>(capacity);
+        } else {
+            queue = new RingBufferQueue<MessageContext>(capacity);
+        }
+        return queue;
+    }
+
+    public synchronized void init() {
+        if (running) {
+            return;
+        }
+        running = true;
+        final AtomicInteger threadCount = new AtomicInteger();
+        consumerExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "seda-" + name + "-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        int initialConsumers = Math.max(1, getMinConsumers());
+        for (int i = 0; i < initialConsumers; i++) {
+            startConsumer();
+        }
+
+        controller = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "seda-" + name + "-controller");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final long interval = Math.max(10, consumerPolicy.getAdjustInterval());
+        controller.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    adjustConsumers(interval);
+                } catch (Throwable t) {
+                    log.warn("Error adjusting the consumers of the SEDA stage " + name, t);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+
+        MBeanRegistrar.getInstance().registerMBean(metrics, MBEAN_CATEGORY, name);
+        initialized = true;
+    }
+
+    public synchronized void destory() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        controller.shutdownNow();
+        consumerExecutor.shutdownNow();
+        MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, name);
+        initialized = false;
+    }
+
+    private void startConsumer() {
+        consumerCount.incrementAndGet();
+        try {
+            consumerExecutor.execute(workerFactory.createSEDAQueueConsumerWorker(this));
+        } catch (RejectedExecutionException e) {
+            consumerCount.decrementAndGet();
+        }
+    }
+
+    void adjustConsumers(long interval) {
+        long enqueued = metrics.getEnqueuedCount();
+        // the counters go back to zero when the statistics are reset
+        long arrivals = Math.max(0, enqueued - lastEnqueuedCount);
+        lastEnqueuedCount = enqueued;
+
+        double arrivalRate = arrivals / (interval * 1000000.0);
+        int target = (int) Math.ceil(arrivalRate * metrics.getAverageServiceTimeNanos() * CONSUMER_HEAD_ROOM);
+        int current = consumerCount.get() - consumersToRetire.get();
+        int depth = queue.size();
+        if (depth > current) {
+            target = Math.max(target, current + 1);
+        }
+        target = Math.min(Math.max(target, Math.max(1, getMinConsumers())), getMaxConsumers());
+
+        if (target > current) {
+            if (log.isDebugEnabled()) {
+                log.debug("Increasing the consumers of the SEDA stage " + name + " from " + current +
+                        " to " + target);
+            }
+            // cancel the pending retirements first, then start new consumers for the rest
+            final int needed = target - current;
+            int cancelled = Math.min(needed,
+                    consumersToRetire.getAndUpdate(r -> Math.max(0, r - needed)));
+            for (int i = cancelled; i < needed; i++) {
+                startConsumer();
+            }
+        } else if (target < current && depth == 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("Retiring a consumer of the SEDA stage " + name + ", " + current + " running");
+            }
+            consumersToRetire.incrementAndGet();
+        }
+    }
+
+    /**
+     * Called by a consumer which has found the queue empty, to find whether it should stop
+     *
+     * @return true if the consumer must stop
+     */
+    boolean shouldRetire() {
+        if (!running) {
+            return true;
+        }
+        int toRetire;
+        while ((toRetire = consumersToRetire.get()) > 0) {
+            if (consumersToRetire.compareAndSet(toRetire, toRetire - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void consumerStopped() {
+        consumerCount.decrementAndGet();
+    }
+
+    void consumerBusy() {
+        activeConsumerCount.incrementAndGet();
+    }
+
+    void consumerIdle() {
+        activeConsumerCount.decrementAndGet();
+    }
+
+    private int getMinConsumers() {
+        return consumerPolicy.getMinConsumers();
+    }
+
+    private int getMaxConsumers() {
+        return Math.max(Math.max(1, getMinConsumers()), consumerPolicy.getMaxConsumers());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getConsumerCount() {
+        return consumerCount.get();
+    }
+
+    public int getActiveConsumerCount() {
+        return activeConsumerCount.get();
+    }
+
+    public SEDAStageMetrics getMetrics() {
+        return metrics;
+    }
+
+    public BlockingQueue<MessageContext> getQueue() {
+        return queue;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public void setInitialized(boolean initialized) {
+        this.initialized = initialized;
+    }
+
+    public SEDAQueuePolicy getQueuePolicy() {
+        return queuePolicy;
+    }
+}
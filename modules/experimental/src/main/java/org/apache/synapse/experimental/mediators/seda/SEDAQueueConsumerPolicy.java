@@ -1,57 +1,85 @@
-/*
- *  Licensed to the Apache Software Foundation (ASF) under one
- *  or more contributor license agreements.  See the NOTICE file
- *  distributed with this work for additional information
- *  regarding copyright ownership.  The ASF licenses this file
- *  to you under the Apache License, Version 2.0 (the
- *  "License"); you may not use this file except in compliance
- *  with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing,
- *  software distributed under the License is distributed on an
- *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- *  KIND, either express or implied.  See the License for the
- *  specific language governing permissions and limitations
- *  under the License.
- */
-package org.apache.synapse.experimental.mediators.seda;
-
-/**
- *
- */
-public class SEDAQueueConsumerPolicy {
-
-    public static final String TAKE = "take";
-    public static final String POLL = "poll";
-    public static final String DRAINALL = "drainAll";
-    public static final String DRAIN = "drain";
-    private long timeoutOnPoll = 1000;
-    private int maxElementsOnPoll = 5;
-    private String action = POLL;
-
-    public long getTimeoutOnPoll() {
-        return timeoutOnPoll;
-    }
-
-    public void setTimeoutOnPoll(long timeoutOnPoll) {
-        this.timeoutOnPoll = timeoutOnPoll;
-    }
-
-    public int getMaxElementsOnPoll() {
-        return maxElementsOnPoll;
-    }
-
-    public void setMaxElementsOnPoll(int maxElementsOnPoll) {
-        this.maxElementsOnPoll = maxElementsOnPoll;
-    }
-
-    public String getAction() {
-        return action;
-    }
-
-    public void setAction(String action) {
-        this.action = action;
-    }
-}
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+/**
+ *
+ */
+public class SEDAQueueConsumerPolicy {
+
+    public static final String TAKE = "take";
+    public static final String POLL = "poll";
+    public static final String DRAINALL = "drainAll";
+    public static final String DRAIN = "drain";
+    private long timeoutOnPoll = 1000;
+    private int maxElementsOnPoll = 5;
+    private String action = POLL;
+    private int minConsumers = 1;
+    private int maxConsumers = 10;
+    // how often the number of consumers is adjusted to the load, in milliseconds
+    private long adjustInterval = 1000;
+
+    public long getTimeoutOnPoll() {
+        return timeoutOnPoll;
+    }
+
+    public void setTimeoutOnPoll(long timeoutOnPoll) {
+        this.timeoutOnPoll = timeoutOnPoll;
+    }
+
+    public int getMaxElementsOnPoll() {
+        return maxElementsOnPoll;
+    }
+
+    public void setMaxElementsOnPoll(int maxElementsOnPoll) {
+        this.maxElementsOnPoll = maxElementsOnPoll;
+    }
+
+    public int getMinConsumers() {
+        return minConsumers;
+    }
+
+    public void setMinConsumers(int minConsumers) {
+        this.minConsumers = minConsumers;
+    }
+
+    public int getMaxConsumers() {
+        return maxConsumers;
+    }
+
+    public void setMaxConsumers(int maxConsumers) {
+        this.maxConsumers = maxConsumers;
+    }
+
+    public long getAdjustInterval() {
+        return adjustInterval;
+    }
+
+    public void setAdjustInterval(long adjustInterval) {
+        this.adjustInterval = adjustInterval;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+}
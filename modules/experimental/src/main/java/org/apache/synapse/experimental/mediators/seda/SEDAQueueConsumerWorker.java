@@ -1,92 +1,143 @@
-/*
- *  Licensed to the Apache Software Foundation (ASF) under one
- *  or more contributor license agreements.  See the NOTICE file
- *  distributed with this work for additional information
- *  regarding copyright ownership.  The ASF licenses this file
- *  to you under the Apache License, Version 2.0 (the
- *  "License"); you may not use this file except in compliance
- *  with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing,
- *  software distributed under the License is distributed on an
- *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- *  KIND, either express or implied.  See the License for the
- *  specific language governing permissions and limitations
- *  under the License.
- */
-package org.apache.synapse.experimental.mediators.seda;
-
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-import org.apache.synapse.MessageContext;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
-
-/**
- *
- */
-public class SEDAQueueConsumerWorker implements Runnable {
-
-    private static final Log log = LogFactory.getLog(SEDAQueueConsumerWorker.class);
-    private final SEDAQueueConsumerPolicy queueConsumerPolicy;
-    private final SEDAQueue sedaQueue;
-    private final BlockingQueue<MessageContext> queue;
-    private final SEDAQueueConsumer sedaQueueConsumer;
-
-    public SEDAQueueConsumerWorker(SEDAQueue sedaQueue,
-                                   SEDAQueueConsumerPolicy queueConsumerPolicy,
-                                   SEDAQueueConsumer sedaQueueConsumer) {
-        this.sedaQueue = sedaQueue;
-        this.queueConsumerPolicy = queueConsumerPolicy;
-        this.queue = sedaQueue.getQueue();
-        this.sedaQueueConsumer = sedaQueueConsumer;
-    }
-
-    public void run() {
-        String action = queueConsumerPolicy.getAction();
-        if (SEDAQueueConsumerPolicy.TAKE.equals(action)) {
-            try {
-                consume(queue.take());
-            } catch (InterruptedException ignored) {
-                log.debug("Ignored InterruptedException when ocuured calling queue.take()");
-            }
-        } else if (SEDAQueueConsumerPolicy.POLL.equals(action)) {
-            long timeout = queueConsumerPolicy.getTimeoutOnPoll();
-            if (timeout < 0) {
-                consume(queue.poll());
-            } else {
-                try {
-                    consume(queue.poll(timeout, TimeUnit.MILLISECONDS));
-                } catch (InterruptedException ignored) {
-                    log.debug("Ignored InterruptedException when ocuured calling queue.poll()");
-                }
-            }
-        } else if (SEDAQueueConsumerPolicy.DRAIN.equals(action)) {
-            int maxElements = queueConsumerPolicy.getMaxElementsOnPoll();
-            Collection<MessageContext> contexts = new ArrayList<MessageContext>(maxElements);
-            queue.drainTo(contexts, maxElements);
-            consume(contexts);
-        } else if (SEDAQueueConsumerPolicy.DRAINALL.equals(action)) {
-            Collection<MessageContext> contexts = new ArrayList<MessageContext>();
-            queue.drainTo(contexts);
-            consume(contexts);
-        }
-    }
-
-    private void consume(MessageContext context) {
-        if (context != null) {
-            sedaQueueConsumer.consume(context);
-        }
-    }
-
-    private void consume(Collection<MessageContext> contexts) {
-        for (MessageContext context : contexts) {
-            consume(context);
-        }
-    }
-}
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.nio.IOControl;
+import org.apache.synapse.MessageContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A consumer of a SEDA stage. The worker keeps taking messages from the queue of the stage, according
+ * to the action of the consumer policy, until the stage is destroyed or the stage asks it to retire
+ * after finding the queue empty.
+ */
+public class SEDAQueueConsumerWorker implements Runnable {
+
+    private static final Log log = LogFactory.getLog(SEDAQueueConsumerWorker.class);
+
+    /** how long an idle consumer waits for a message before checking whether it should retire */
+    private static final long IDLE_POLL_TIMEOUT = 1000;
+
+    private final SEDAQueueConsumerPolicy queueConsumerPolicy;
+    private final SEDAQueue sedaQueue;
+    private final BlockingQueue<MessageContext> queue;
+    private final SEDAQueueConsumer sedaQueueConsumer;
+
+    public SEDAQueueConsumerWorker(SEDAQueue sedaQueue,
+                                   SEDAQueueConsumerPolicy queueConsumerPolicy,
+                                   SEDAQueueConsumer sedaQueueConsumer) {
+        this.sedaQueue = sedaQueue;
+        this.queueConsumerPolicy = queueConsumerPolicy;
+        this.queue = sedaQueue.getQueue();
+        this.sedaQueueConsumer = sedaQueueConsumer;
+    }
+
+    public void run() {
+        try {
+            while (sedaQueue.isRunning()) {
+                MessageContext first;
+                try {
+                    first = next();
+                } catch (InterruptedException e) {
+                    log.debug("SEDA consumer interrupted while waiting for messages");
+                    break;
+                }
+                if (first == null) {
+                    if (sedaQueue.shouldRetire()) {
+                        break;
+                    }
+                    continue;
+                }
+                String action = queueConsumerPolicy.getAction();
+                if (SEDAQueueConsumerPolicy.DRAIN.equals(action)) {
+                    int maxElements = Math.max(1, queueConsumerPolicy.getMaxElementsOnPoll());
+                    Collection<MessageContext> contexts = new ArrayList<MessageContext>(maxElements);
+                    contexts.add(first);
+                    queue.drainTo(contexts, maxElements - 1);
+                    consume(contexts);
+                } else if (SEDAQueueConsumerPolicy.DRAINALL.equals(action)) {
+                    Collection<MessageContext> contexts = new ArrayList<MessageContext>();
+                    contexts.add(first);
+                    queue.drainTo(contexts);
+                    consume(contexts);
+                } else {
+                    consume(first);
+                }
+            }
+        } finally {
+            sedaQueue.consumerStopped();
+        }
+    }
+
+    private MessageContext next() throws InterruptedException {
+        String action = queueConsumerPolicy.getAction();
+        if (SEDAQueueConsumerPolicy.TAKE.equals(action)) {
+            // the wait is bounded so that the consumer can retire when the stage shrinks
+            return queue.poll(IDLE_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        long timeout = queueConsumerPolicy.getTimeoutOnPoll();
+        if (timeout < 0 || timeout > IDLE_POLL_TIMEOUT) {
+            timeout = IDLE_POLL_TIMEOUT;
+        }
+        return queue.poll(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private void consume(MessageContext context) {
+        if (context == null) {
+            return;
+        }
+        resumeInput(context);
+        sedaQueue.consumerBusy();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            sedaQueueConsumer.consume(context);
+            success = true;
+        } catch (Exception e) {
+            log.error("Error while consuming a message from the SEDA stage " + sedaQueue.getName(), e);
+        } finally {
+            sedaQueue.consumerIdle();
+            sedaQueue.getMetrics().processed(System.nanoTime() - start, success);
+        }
+    }
+
+    private void consume(Collection<MessageContext> contexts) {
+        for (MessageContext context : contexts) {
+            consume(context);
+        }
+    }
+
+    /**
+     * Resumes the input of the source connection of a message, if it was suspended when the message
+     * was queued
+     */
+    private void resumeInput(MessageContext context) {
+        Object conn = context.getProperty(SEDAQueueProducer.PAUSED_SOURCE_CONNECTION);
+        if (conn instanceof IOControl) {
+            context.setProperty(SEDAQueueProducer.PAUSED_SOURCE_CONNECTION, null);
+            ((IOControl) conn).requestInput();
+        }
+    }
+}
@@ -1,69 +1,127 @@
-/*
- *  Licensed to the Apache Software Foundation (ASF) under one
- *  or more contributor license agreements.  See the NOTICE file
- *  distributed with this work for additional information
- *  regarding copyright ownership.  The ASF licenses this file
- *  to you under the Apache License, Version 2.0 (the
- *  "License"); you may not use this file except in compliance
- *  with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing,
- *  software distributed under the License is distributed on an
- *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- *  KIND, either express or implied.  See the License for the
- *  specific language governing permissions and limitations
- *  under the License.
- */
-package org.apache.synapse.experimental.mediators.seda;
-
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
-import org.apache.synapse.MessageContext;
-
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
-
-/**
- *
- */
-public class SEDAQueueProducer {
-
-    private static final Log log = LogFactory.getLog(SEDAQueueProducer.class);
-    private final SEDAQueueProducerPolicy queueProducerPolicy;
-    private final SEDAQueue sedaQueue;
-    private final BlockingQueue<MessageContext> queue;
-
-    public SEDAQueueProducer(SEDAQueueProducerPolicy queueProducerPolicy, SEDAQueue sedaQueue) {
-        this.queueProducerPolicy = queueProducerPolicy;
-        this.sedaQueue = sedaQueue;
-        this.queue = sedaQueue.getQueue();
-    }
-
-    public void produce(MessageContext messageContext) {
-        String action = queueProducerPolicy.getAction();
-        if (SEDAQueueProducerPolicy.ADD.equals(action)) {
-            queue.add(messageContext);
-        } else if (SEDAQueueProducerPolicy.OFFER.equals(action)) {
-            long timeout = queueProducerPolicy.getTimeoutOnInsert();
-            if (timeout < 0) {
-                if (!queue.offer(messageContext)) {
-                    log.warn("Error while offering the message to the queue");    
-                }
-            } else {
-                try {
-                    queue.offer(messageContext, timeout, TimeUnit.MILLISECONDS);
-                } catch (InterruptedException e) {
-                    log.debug("Ignored InterruptedException when ocuured calling queue.offer");
-                }
-            }
-        } else if (SEDAQueueProducerPolicy.PUT.equals(action)) {
-            try {
-                queue.put(messageContext);
-            } catch (InterruptedException e) {
-                log.debug("Ignored InterruptedException when ocuured calling queue.put");
-            }
-        }
-    }
-}
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.nio.IOControl;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts messages into the queue of a SEDA stage. When the depth of the queue reaches the pause
+ * threshold of the queue policy, the input of the source connection of the message is suspended until
+ * a consumer takes the message, so that clients are slowed down instead of filling the queue.
+ */
+public class SEDAQueueProducer {
+
+    /** message property holding the source connection suspended when the message was queued */
+    static final String PAUSED_SOURCE_CONNECTION = "SEDA_PAUSED_SOURCE_CONNECTION";
+
+    private static final Log log = LogFactory.getLog(SEDAQueueProducer.class);
+    private final SEDAQueueProducerPolicy queueProducerPolicy;
+    private final SEDAQueue sedaQueue;
+    private final BlockingQueue<MessageContext> queue;
+
+    public SEDAQueueProducer(SEDAQueueProducerPolicy queueProducerPolicy, SEDAQueue sedaQueue) {
+        this.queueProducerPolicy = queueProducerPolicy;
+        this.sedaQueue = sedaQueue;
+        this.queue = sedaQueue.getQueue();
+    }
+
+    public void produce(MessageContext messageContext) {
+        String action = queueProducerPolicy.getAction();
+        SEDAQueuePolicy queuePolicy = sedaQueue.getQueuePolicy();
+        // the connection is suspended before the message is queued, so that a consumer taking the
+        // message right away always finds the connection to resume
+        IOControl pausedConn = null;
+        if (queuePolicy.isPauseInput() && queue.size() + 1 >= queuePolicy.getPauseInputThreshold()) {
+            pausedConn = pauseInput(messageContext);
+        }
+        boolean queued = false;
+        if (SEDAQueueProducerPolicy.ADD.equals(action)) {
+            try {
+                queued = queue.add(messageContext);
+            } catch (IllegalStateException e) {
+                sedaQueue.getMetrics().rejected();
+                resumeInput(messageContext, pausedConn);
+                throw e;
+            }
+        } else if (SEDAQueueProducerPolicy.OFFER.equals(action)) {
+            long timeout = queueProducerPolicy.getTimeoutOnInsert();
+            if (timeout < 0) {
+                queued = queue.offer(messageContext);
+                if (!queued) {
+                    log.warn("Error while offering the message to the queue");    
+                }
+            } else {
+                try {
+                    queued = queue.offer(messageContext, timeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    log.debug("Ignored InterruptedException when ocuured calling queue.offer");
+                }
+            }
+        } else if (SEDAQueueProducerPolicy.PUT.equals(action)) {
+            try {
+                queue.put(messageContext);
+                queued = true;
+            } catch (InterruptedException e) {
+                log.debug("Ignored InterruptedException when ocuured calling queue.put");
+            }
+        }
+
+        if (queued) {
+            sedaQueue.getMetrics().enqueued(queue.size());
+        } else {
+            sedaQueue.getMetrics().rejected();
+            resumeInput(messageContext, pausedConn);
+        }
+    }
+
+    private IOControl pauseInput(MessageContext messageContext) {
+        if (!(messageContext instanceof Axis2MessageContext)) {
+            return null;
+        }
+        Object conn = ((Axis2MessageContext) messageContext).getAxis2MessageContext().getProperty(
+                PassThroughConstants.PASS_THROUGH_SOURCE_CONNECTION);
+        if (!(conn instanceof IOControl)) {
+            return null;
+        }
+        // resumed by the consumer which takes the message, see SEDAQueueConsumerWorker
+        messageContext.setProperty(PAUSED_SOURCE_CONNECTION, conn);
+        ((IOControl) conn).suspendInput();
+        sedaQueue.getMetrics().inputPaused();
+        if (log.isDebugEnabled()) {
+            log.debug("Suspended the input of the source connection, the SEDA stage " +
+                    sedaQueue.getName() + " has " + queue.size() + " queued messages");
+        }
+        return (IOControl) conn;
+    }
+
+    private void resumeInput(MessageContext messageContext, IOControl conn) {
+        if (conn != null) {
+            messageContext.setProperty(PAUSED_SOURCE_CONNECTION, null);
+            conn.requestInput();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a SEDA stage. Counters are updated by the producers and the consumers of the stage, and the average
+ * service time is an exponentially weighted moving average which the stage also uses to size its consumer pool.
+ */
+public class SEDAStageMetrics implements SEDAStageMetricsMBean {
+
+    /** weight of the latest sample in the moving average of the service time */
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final SEDAQueue sedaQueue;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder pausedInputs = new LongAdder();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    /** moving average of the service time in nanoseconds, stored as the bits of a double */
+    private final AtomicLong averageServiceTime = new AtomicLong(Double.doubleToLongBits(0));
+
+    public SEDAStageMetrics(SEDAQueue sedaQueue) {
+        this.sedaQueue = sedaQueue;
+    }
+
+    void enqueued(int depth) {
+        enqueued.increment();
+        int max;
+        while (depth > (max = maxQueueDepth.get())) {
+            if (maxQueueDepth.compareAndSet(max, depth)) {
+                break;
+            }
+        }
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    void processed(long serviceTime, boolean success) {
+        processed.increment();
+        if (!success) {
+            failed.increment();
+        }
+        long current;
+        long updated;
+        do {
+            current = averageServiceTime.get();
+            double average = Double.longBitsToDouble(current);
+            double next = average == 0 ? serviceTime : average + EWMA_WEIGHT * (serviceTime - average);
+            updated = Double.doubleToLongBits(next);
+        } while (!averageServiceTime.compareAndSet(current, updated));
+    }
+
+    void inputPaused() {
+        pausedInputs.increment();
+    }
+
+    /**
+     * @return the moving average of the service time in nanoseconds
+     */
+    double getAverageServiceTimeNanos() {
+        return Double.longBitsToDouble(averageServiceTime.get());
+    }
+
+    public int getQueueDepth() {
+        return sedaQueue.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return sedaQueue.getQueuePolicy().getQueueSize();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public int getConsumerCount() {
+        return sedaQueue.getConsumerCount();
+    }
+
+    public int getActiveConsumerCount() {
+        return sedaQueue.getActiveConsumerCount();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getProcessedCount() {
+        return processed.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public double getAverageServiceTime() {
+        return getAverageServiceTimeNanos() / 1000000.0;
+    }
+
+    public long getPausedInputCount() {
+        return pausedInputs.sum();
+    }
+
+    public void resetStatistics() {
+        enqueued.reset();
+        rejected.reset();
+        processed.reset();
+        failed.reset();
+        pausedInputs.reset();
+        maxQueueDepth.set(0);
+    }
+}
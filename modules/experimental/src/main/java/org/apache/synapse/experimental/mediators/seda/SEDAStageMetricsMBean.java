@@ -0,0 +1,55 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+/**
+ * JMX view of a SEDA stage
+ */
+public interface SEDAStageMetricsMBean {
+
+    int getQueueDepth();
+
+    int getQueueCapacity();
+
+    int getMaxQueueDepth();
+
+    int getConsumerCount();
+
+    int getActiveConsumerCount();
+
+    long getEnqueuedCount();
+
+    long getRejectedCount();
+
+    long getProcessedCount();
+
+    long getFailedCount();
+
+    /**
+     * @return the average time in milliseconds taken by the consumer to process a message
+     */
+    double getAverageServiceTime();
+
+    /**
+     * @return the number of times the input of a source connection was suspended because the stage was congested
+     */
+    long getPausedInputCount();
+
+    void resetStatistics();
+}
@@ -0,0 +1,252 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests the {@link RingBufferQueue}
+ */
+public class RingBufferQueueTest extends TestCase {
+
+    public void testCapacityIsRoundedUp() {
+        assertEquals(8, new RingBufferQueue<Integer>(5).capacity());
+        assertEquals(2, new RingBufferQueue<Integer>(1).capacity());
+        try {
+            new RingBufferQueue<Integer>(0);
+            fail("A queue without capacity must be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testFullAndEmpty() throws Exception {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(4);
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertEquals(4, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertFalse(queue.offer(4));
+        assertFalse(queue.offer(4, 10, TimeUnit.MILLISECONDS));
+
+        // wrap around the ring several times
+        for (int i = 4; i < 20; i++) {
+            assertEquals(Integer.valueOf(i - 4), queue.poll());
+            assertTrue(queue.offer(i));
+        }
+        assertEquals(Integer.valueOf(16), queue.peek());
+        List<Integer> drained = new ArrayList<Integer>();
+        assertEquals(4, queue.drainTo(drained));
+        assertEquals(Arrays.asList(16, 17, 18, 19), drained);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    public void testCollectionOperations() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(8);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        assertTrue(queue.contains(3));
+        assertFalse(queue.contains(7));
+        assertTrue(Arrays.equals(new Object[] {0, 1, 2, 3, 4}, queue.toArray()));
+
+        assertTrue(queue.remove(2));
+        assertFalse(queue.remove(2));
+        assertFalse(queue.contains(2));
+
+        Iterator<Integer> iterator = queue.iterator();
+        assertEquals(Integer.valueOf(0), iterator.next());
+        iterator.remove();
+        assertEquals(Integer.valueOf(1), iterator.next());
+
+        assertEquals(Integer.valueOf(1), queue.peek());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertEquals(Integer.valueOf(4), queue.poll());
+        assertNull(queue.poll());
+        assertNotNull(queue.toString());
+    }
+
+    public void testConcurrentOfferAndPoll() throws Exception {
+        final int producers = 4;
+        final int consumers = 4;
+        final int items = 20000;
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(64);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(producers * items);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch(producers * items);
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final int base = p * items;
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < items; i++) {
+                            queue.put(base + i);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            Thread consumer = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        while (true) {
+                            seen.incrementAndGet(queue.take());
+                            done.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                        // stopped at the end of the test
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            });
+            consumer.setDaemon(true);
+            threads.add(consumer);
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        assertTrue("Items were not consumed in time", done.await(30, TimeUnit.SECONDS));
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        assertNull(failure.get());
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals("Item " + i + " was not consumed exactly once", 1, seen.get(i));
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    public void testWaitingConsumerIsSignalled() throws Exception {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(4);
+        final AtomicReference<Integer> taken = new AtomicReference<Integer>();
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    taken.set(queue.take());
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        consumer.start();
+        waitForState(consumer, Thread.State.WAITING);
+
+        queue.offer(42);
+        consumer.join(5000);
+        assertEquals(Integer.valueOf(42), taken.get());
+    }
+
+    public void testWaitingProducerIsSignalled() throws Exception {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(2);
+        queue.offer(0);
+        queue.offer(1);
+        assertFalse(queue.offer(2));
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    queue.put(2);
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        producer.start();
+        waitForState(producer, Thread.State.WAITING);
+
+        assertEquals(Integer.valueOf(0), queue.poll());
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(2), queue.poll());
+    }
+
+    public void testShutdownInterruptsWaitingThreads() throws Exception {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(2);
+        final CountDownLatch interrupted = new CountDownLatch(3);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 2; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        queue.take();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+            waitForState(thread, Thread.State.WAITING);
+        }
+        // the consumers are stopped the way SEDAQueue#destory stops them
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join(5000);
+        }
+
+        queue.offer(0);
+        queue.offer(1);
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    queue.put(2);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        producer.start();
+        waitForState(producer, Thread.State.WAITING);
+        producer.interrupt();
+
+        assertTrue("Waiting threads were not released", interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(0), queue.poll());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertNull(queue.poll());
+    }
+
+    private void waitForState(Thread thread, Thread.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(state, thread.getState());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.experimental.mediators.seda;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests a SEDA stage on a ring buffer queue, from its initialization to its destruction
+ */
+public class SEDAQueueTest extends TestCase {
+
+    public void testMessagesAreConsumedUntilDestroyed() throws Exception {
+        final CountDownLatch consumed = new CountDownLatch(100);
+        SEDAQueueConsumerPolicy consumerPolicy = new SEDAQueueConsumerPolicy();
+        consumerPolicy.setMinConsumers(2);
+        consumerPolicy.setMaxConsumers(4);
+        consumerPolicy.setAdjustInterval(50);
+        SEDAQueueConsumerWorkerFactory workerFactory = new SEDAQueueConsumerWorkerFactory(consumerPolicy,
+                new SEDAQueueConsumer() {
+                    public void consume(MessageContext messageContext) {
+                        consumed.countDown();
+                    }
+                });
+        SEDAQueuePolicy queuePolicy = new SEDAQueuePolicy();
+        queuePolicy.setQueueSize(16);
+
+        SEDAQueue sedaQueue = new SEDAQueue("test", queuePolicy, workerFactory);
+        assertTrue(sedaQueue.getQueue() instanceof RingBufferQueue);
+        sedaQueue.init();
+        try {
+            assertEquals(2, sedaQueue.getConsumerCount());
+            for (int i = 0; i < 100; i++) {
+                sedaQueue.getQueue().put(new Axis2MessageContext(
+                        new org.apache.axis2.context.MessageContext(), null, null));
+            }
+            assertTrue("Messages were not consumed", consumed.await(10, TimeUnit.SECONDS));
+        } finally {
+            sedaQueue.destory();
+        }
+
+        // the consumers waiting on the empty queue are interrupted and stop
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sedaQueue.getConsumerCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, sedaQueue.getConsumerCount());
+        assertFalse(sedaQueue.isRunning());
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bsf;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseException;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of GraalJS contexts used by the script mediator to create the JavaScript objects
+ * of the message context. All contexts are bound to a single engine shared by the server, so that
+ * parsed sources and compiled code are reused across contexts instead of being rebuilt for each
+ * message.
+ *
+ * When a context is returned to the pool, the global bindings added while it was borrowed are removed
+ * and the globals which were replaced are restored. A context whose built-in objects reachable from the
+ * message values were changed (Object, Array, Function, their prototypes, and JSON) is discarded instead
+ * of being returned to the pool.
+ */
+public class GraalContextPool {
+
+    private static final Log log = LogFactory.getLog(GraalContextPool.class);
+
+    private static final Source EMPTY_OBJECT_SOURCE = Source.create("js", "({})");
+    private static final Source JSON_SOURCE = Source.create("js", "JSON");
+
+    /**
+     * Snapshots the globals of a context, and the built-in objects reachable from the objects and arrays
+     * handed to scripts along with JSON. Evaluates to a function which restores the globals replaced or
+     * deleted since the snapshot, and returns false if a global could not be restored or one of those
+     * built-in objects was changed.
+     */
+    private static final Source SNAPSHOT_SOURCE = Source.create("js",
+            "(function () {\n" +
+            "    var ownKeys = Reflect.ownKeys, getDescriptor = Reflect.getOwnPropertyDescriptor,\n" +
+            "        defineProperty = Reflect.defineProperty, is = Object.is, global = globalThis;\n" +
+            "    var builtInNames = {Object: 1, Function: 1, Array: 1, JSON: 1};\n" +
+            "    function valueOf(descriptor) {\n" +
+            "        if (descriptor === undefined) {\n" +
+            "            return undefined;\n" +
+            "        }\n" +
+            "        return 'value' in descriptor ? descriptor.value : descriptor.get;\n" +
+            "    }\n" +
+            "    function capture(object) {\n" +
+            "        var keys = ownKeys(object), values = [], descriptors = [];\n" +
+            "        for (var i = 0; i < keys.length; i++) {\n" +
+            "            descriptors[i] = getDescriptor(object, keys[i]);\n" +
+            "            values[i] = valueOf(descriptors[i]);\n" +
+            "        }\n" +
+            "        return {object: object, keys: keys, values: values, descriptors: descriptors};\n" +
+            "    }\n" +
+            "    function unchanged(snapshot) {\n" +
+            "        var keys = ownKeys(snapshot.object);\n" +
+            "        if (keys.length !== snapshot.keys.length) {\n" +
+            "            return false;\n" +
+            "        }\n" +
+            "        for (var i = 0; i < keys.length; i++) {\n" +
+            "            if (keys[i] !== snapshot.keys[i]\n" +
+            "                    || !is(valueOf(getDescriptor(snapshot.object, keys[i])), snapshot.values[i])) {\n" +
+            "                return false;\n" +
+            "            }\n" +
+            "        }\n" +
+            "        return true;\n" +
+            "    }\n" +
+            "    var globals = capture(global), builtIns = [];\n" +
+            "    for (var i = 0; i < globals.keys.length; i++) {\n" +
+            "        var value = globals.values[i];\n" +
+            "        if (builtInNames[globals.keys[i]] === 1 && value !== null\n" +
+            "                && (typeof value === 'object' || typeof value === 'function')) {\n" +
+            "            builtIns[builtIns.length] = capture(value);\n" +
+            "            var prototype = valueOf(getDescriptor(value, 'prototype'));\n" +
+            "            if (prototype !== null && typeof prototype === 'object') {\n" +
+            "                builtIns[builtIns.length] = capture(prototype);\n" +
+            "            }\n" +
+            "        }\n" +
+            "    }\n" +
+            "    return function () {\n" +
+            "        for (var i = 0; i < globals.keys.length; i++) {\n" +
+            "            if (!is(valueOf(getDescriptor(global, globals.keys[i])), globals.values[i])\n" +
+            "                    && !defineProperty(global, globals.keys[i], globals.descriptors[i])) {\n" +
+            "                return false;\n" +
+            "            }\n" +
+            "        }\n" +
+            "        for (var j = 0; j < builtIns.length; j++) {\n" +
+            "            if (!unchanged(builtIns[j])) {\n" +
+            "                return false;\n" +
+            "            }\n" +
+            "        }\n" +
+            "        return true;\n" +
+            "    };\n" +
+            "})()");
+
+    private static volatile Engine sharedEngine;
+
+    private final BlockingQueue<PooledContext> idle;
+    private final Supplier<Context.Builder> contextBuilder;
+    private final int maxSize;
+    private final long waitTimeout;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong executionCount = new AtomicLong();
+    private final AtomicLong totalExecutionTime = new AtomicLong();
+
+    /**
+     * @param contextBuilder supplies the builders of the pooled contexts
+     * @param maxSize        the maximum number of contexts in the pool
+     * @param waitTimeout    the time in milliseconds to wait for a context when all are in use
+     */
+    public GraalContextPool(Supplier<Context.Builder> contextBuilder, int maxSize, long waitTimeout) {
+        this.contextBuilder = contextBuilder;
+        this.maxSize = Math.max(1, maxSize);
+        this.waitTimeout = waitTimeout;
+        this.idle = new LinkedBlockingQueue<PooledContext>(this.maxSize);
+    }
+
+    /**
+     * @return the engine shared by the pooled contexts and the GraalJS script engines
+     */
+    public static Engine getSharedEngine() {
+        if (sharedEngine == null) {
+            synchronized (GraalContextPool.class) {
+                if (sharedEngine == null) {
+                    sharedEngine = Engine.newBuilder().option("engine.WarnInterpreterOnly", "false").build();
+                }
+            }
+        }
+        return sharedEngine;
+    }
+
+    /**
+     * Takes a context from the pool, creating one if the pool has not reached its maximum size, or
+     * waiting for one to be returned otherwise.
+     *
+     * @return a context for the exclusive use of the caller until it is released
+     */
+    public PooledContext borrow() {
+        borrowCount.incrementAndGet();
+        PooledContext pooled = idle.poll();
+        if (pooled != null) {
+            return pooled;
+        }
+        if (size.incrementAndGet() <= maxSize) {
+            try {
+                return new PooledContext(contextBuilder.get().engine(getSharedEngine()).build());
+            } catch (RuntimeException e) {
+                size.decrementAndGet();
+                throw e;
+            }
+        }
+        size.decrementAndGet();
+
+        waitCount.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            pooled = idle.poll(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SynapseException("Interrupted while waiting for a script context", e);
+        } finally {
+            totalWaitTime.addAndGet(System.nanoTime() - start);
+        }
+        if (pooled == null) {
+            throw new SynapseException("Timed out after " + waitTimeout +
+                    "ms waiting for a script context, all " + maxSize + " contexts are in use");
+        }
+        return pooled;
+    }
+
+    /**
+     * Returns a context to the pool, after removing the global bindings added by the last use and
+     * restoring the globals it replaced. The context is discarded if its built-in objects were changed.
+     *
+     * @param pooled the context to release
+     */
+    public void release(PooledContext pooled) {
+        boolean reset;
+        try {
+            reset = pooled.resetBindings();
+        } catch (RuntimeException e) {
+            log.warn("Discarding a script context which could not be reset", e);
+            discard(pooled);
+            return;
+        }
+        if (!reset) {
+            if (log.isDebugEnabled()) {
+                log.debug("Discarding a script context whose built-in objects were changed");
+            }
+            discard(pooled);
+            return;
+        }
+        if (!idle.offer(pooled)) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Records the time taken to run a script with a pooled context
+     *
+     * @param nanos the execution time in nanoseconds
+     */
+    public void recordExecution(long nanos) {
+        executionCount.incrementAndGet();
+        totalExecutionTime.addAndGet(nanos);
+    }
+
+    public void close() {
+        PooledContext pooled;
+        while ((pooled = idle.poll()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private void discard(PooledContext pooled) {
+        size.decrementAndGet();
+        try {
+            pooled.getContext().close();
+        } catch (RuntimeException e) {
+            log.debug("Error closing a script context", e);
+        }
+    }
+
+    public int getSize() {
+        return size.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * @return the number of times a caller had to wait for a context to be returned
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return the total time in milliseconds spent waiting for contexts
+     */
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitTime.get());
+    }
+
+    public long getExecutionCount() {
+        return executionCount.get();
+    }
+
+    /**
+     * @return the total time in milliseconds spent running scripts with pooled contexts
+     */
+    public long getTotalExecutionTime() {
+        return TimeUnit.NANOSECONDS.toMillis(totalExecutionTime.get());
+    }
+
+    /**
+     * A pooled context, with the values of the context which are reused across messages
+     */
+    public static class PooledContext {
+
+        private final Context context;
+        private final Value jsonSerializer;
+        private final Set<String> initialBindings;
+        private final Value restoreGlobals;
+
+        PooledContext(Context context) {
+            this.context = context;
+            this.jsonSerializer = context.eval(JSON_SOURCE);
+            this.initialBindings = new HashSet<String>(context.getBindings("js").getMemberKeys());
+            this.restoreGlobals = context.eval(SNAPSHOT_SOURCE);
+        }
+
+        public Context getContext() {
+            return context;
+        }
+
+        public Value getJsonSerializer() {
+            return jsonSerializer;
+        }
+
+        /**
+         * @return a new empty JavaScript object
+         */
+        public Value newEmptyObject() {
+            return context.eval(EMPTY_OBJECT_SOURCE);
+        }
+
+        /**
+         * @return false if the context could not be brought back to the state it was created in
+         */
+        private boolean resetBindings() {
+            Value bindings = context.getBindings("js");
+            for (String key : new HashSet<String>(bindings.getMemberKeys())) {
+                if (!initialBindings.contains(key)) {
+                    bindings.removeMember(key);
+                }
+            }
+            return restoreGlobals.execute().asBoolean();
+        }
+    }
+}
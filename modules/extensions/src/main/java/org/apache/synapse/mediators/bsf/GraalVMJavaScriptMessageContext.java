@@ -110,6 +110,14 @@ public class GraalVMJavaScriptMessageContext implements ScriptMessageContext {
         this.jsonSerializer = context.eval("js", "JSON");
     }
 
+    public GraalVMJavaScriptMessageContext(MessageContext mc, XMLHelper xmlHelper,
+                                           GraalContextPool.PooledContext context) {
+        this.mc = mc;
+        this.xmlHelper = xmlHelper;
+        this.emptyJsonObject = context.newEmptyObject();
+        this.jsonSerializer = context.getJsonSerializer();
+    }
+
     public Object jsonSerializerCallMember(String key, String value) {
         return jsonSerializer.invokeMember(key, value);
     }
@@ -19,17 +19,38 @@
 
 package org.apache.synapse.mediators.bsf;
 
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * A pooled script engine. A wrapper is only used by one message at a time, so the scripts compiled
+ * on its engine are held without synchronization.
+ */
 public class ScriptEngineWrapper {
 
     private boolean initialized = false;
     private ScriptEngine engine;
+    private ScriptEngine jsEngine;
+    private final Map<String, CompiledSource> compiledScripts = new HashMap<String, CompiledSource>();
 
     public ScriptEngineWrapper(ScriptEngine engine) {
         this.engine = engine;
     }
 
+    /**
+     * @param engine   the script engine
+     * @param jsEngine the JavaScript engine used with this engine for JSON payloads, if the script
+     *                 engine is not thread safe
+     */
+    public ScriptEngineWrapper(ScriptEngine engine, ScriptEngine jsEngine) {
+        this.engine = engine;
+        this.jsEngine = jsEngine;
+    }
+
     public boolean isInitialized() {
         return initialized;
     }
@@ -41,4 +62,39 @@ public class ScriptEngineWrapper {
     public ScriptEngine getEngine() {
         return engine;
     }
+
+    public ScriptEngine getJsEngine() {
+        return jsEngine;
+    }
+
+    /**
+     * Returns the script compiled on this engine, compiling it if it has not been compiled yet or
+     * if its source has changed since.
+     *
+     * @param name   the name of the script, e.g. its registry key
+     * @param source the source of the script
+     * @return the compiled script, or null if the engine does not support compilation
+     * @throws ScriptException if the script cannot be compiled
+     */
+    public CompiledScript getCompiledScript(String name, String source) throws ScriptException {
+        if (!(engine instanceof Compilable) || source == null) {
+            return null;
+        }
+        CompiledSource compiled = compiledScripts.get(name);
+        if (compiled == null || !compiled.source.equals(source)) {
+            compiled = new CompiledSource(source, ((Compilable) engine).compile(source));
+            compiledScripts.put(name, compiled);
+        }
+        return compiled.script;
+    }
+
+    private static class CompiledSource {
+        private final String source;
+        private final CompiledScript script;
+
+        CompiledSource(String source, CompiledScript script) {
+            this.source = source;
+            this.script = script;
+        }
+    }
 }
@@ -48,7 +48,6 @@ import org.apache.synapse.mediators.bsf.access.control.SandboxContextFactory;
 import org.apache.synapse.mediators.eip.EIPUtils;
 import org.apache.synapse.mediators.v2.Utils;
 import org.apache.synapse.mediators.v2.ext.InputArgument;
-import org.graalvm.polyglot.Context;
 import org.jetbrains.annotations.NotNull;
 import org.mozilla.javascript.ClassShutter;
 import org.mozilla.javascript.ContextFactory;
@@ -67,8 +66,13 @@ import java.util.Properties;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
+import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.CONTEXT_POOL_WAIT_TIMEOUT_PROPERTY;
+import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.DEFAULT_CONTEXT_POOL_WAIT_TIMEOUT;
+import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.DEFAULT_POOL_WAIT_TIMEOUT;
 import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.GRAAL_JAVA_SCRIPT;
 import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.JAVA_SCRIPT;
 import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.MC_VAR_NAME;
@@ -76,6 +80,7 @@ import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.NASHORN;
 import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.NASHORN_JAVA_SCRIPT;
 import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.ORACLE_NASHORN_NAME;
 import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.POOL_SIZE_PROPERTY;
+import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.POOL_WAIT_TIMEOUT_PROPERTY;
 import static org.apache.synapse.mediators.bsf.ScriptMediatorConstants.RHINO_JAVA_SCRIPT;
 
 /**
@@ -157,6 +162,18 @@ public class ScriptMediator extends AbstractMediator {
      * Pool ScriptEngine Resources
      */
     private BlockingQueue<ScriptEngineWrapper> pool;
+    /**
+     * Number of script engines created for the pool
+     */
+    private final AtomicInteger poolEngineCount = new AtomicInteger();
+    /**
+     * Time in milliseconds to wait for a pooled script engine when all engines are in use
+     */
+    private long poolWaitTimeout = DEFAULT_POOL_WAIT_TIMEOUT;
+    /**
+     * Pool of GraalJS contexts used to create the JavaScript objects of the message context
+     */
+    private GraalContextPool contextPool;
     /**
      * JSON parser used to parse JSON strings
      */
@@ -186,6 +203,11 @@ public class ScriptMediator extends AbstractMediator {
     private String variableName;
     private Gson gson = new Gson();
 
+    /**
+     * Name under which the pooled engines hold the compiled form of an inline script
+     */
+    private static final String INLINE_SCRIPT_NAME = "inline";
+
     /**
      * Create a script mediator for the given language and given script source.
      *
@@ -221,9 +243,6 @@ public class ScriptMediator extends AbstractMediator {
         }
         this.classAccessControlConfig = ScriptAccessControl.getInstance().getClassAccessControlConfig();
         this.nativeObjectAccessControlConfig = ScriptAccessControl.getInstance().getNativeObjectAccessControlConfig();
-        Properties properties = MiscellaneousUtil.loadProperties("synapse.properties");
-        poolSize = Integer.parseInt(properties.getProperty(POOL_SIZE_PROPERTY, String.valueOf(DEFAULT_POOL_SIZE)));
-
         initScriptEngine();
         if (!(scriptEngine instanceof Invocable)) {
             throw new SynapseException("Script engine is not an Invocable" +
@@ -263,15 +282,7 @@ public class ScriptMediator extends AbstractMediator {
                     (function != null ? " function : " + function : ""));
         }
 
-        boolean returnValue;
-        if (multiThreadedEngine) {
-            returnValue = invokeScript(synCtx);
-        } else {
-            // TODO: change to use a pool of script engines (requires an update to BSF)
-            synchronized (scriptEngine.getClass()) {
-                returnValue = invokeScript(synCtx);
-            }
-        }
+        boolean returnValue = invokeScript(synCtx);
 
         if (synLog.isTraceTraceEnabled()) {
             synLog.traceTrace("Result message after execution of script : " + synCtx.getEnvelope());
@@ -285,7 +296,8 @@ public class ScriptMediator extends AbstractMediator {
 
     private boolean invokeScript(MessageContext synCtx) {
         boolean returnValue;
-        Context context = null;
+        GraalContextPool.PooledContext context = null;
+        long start = System.nanoTime();
         try {
             //if the engine is Rhino then needs to set the class loader specifically
             if (language.equals(RHINO_JAVA_SCRIPT)) {
@@ -296,8 +308,8 @@ public class ScriptMediator extends AbstractMediator {
                 cx.setApplicationClassLoader(this.loader);
             }
             if (language.equals(JAVA_SCRIPT) || language.equals(GRAAL_JAVA_SCRIPT)) {
-                context = AccessControlUtils.createSecureGraalContext(classAccessControlConfig).build();
-                context.enter();
+                context = contextPool.borrow();
+                context.getContext().enter();
             }
 
             Object returnObject;
@@ -335,10 +347,10 @@ public class ScriptMediator extends AbstractMediator {
             if (language.equals(RHINO_JAVA_SCRIPT)) {
                 org.mozilla.javascript.Context.exit();
             }
-            if (language.equals("js") || language.equals(GRAAL_JAVA_SCRIPT)) {
-                if (context != null) {
-                    context.leave();
-                }
+            if (context != null) {
+                context.getContext().leave();
+                contextPool.release(context);
+                contextPool.recordExecution(System.nanoTime() - start);
             }
         }
 
@@ -354,22 +366,16 @@ public class ScriptMediator extends AbstractMediator {
      * @throws ScriptException       For any errors , when compile, run the script
      * @throws NoSuchMethodException If the function is not defined in the script
      */
-    private Object mediateWithExternalScript(MessageContext synCtx, Context context)
+    private Object mediateWithExternalScript(MessageContext synCtx, GraalContextPool.PooledContext context)
             throws ScriptException, NoSuchMethodException {
         ScriptEngineWrapper sew = null;
         Object obj;
         try {
             sew = prepareExternalScript(synCtx);
-            XMLHelper helper;
-            if (language.equalsIgnoreCase(JAVA_SCRIPT) || language.equals(NASHORN_JAVA_SCRIPT) ||
-                    language.equals(RHINO_JAVA_SCRIPT) || language.equals(GRAAL_JAVA_SCRIPT)) {
-                helper = xmlHelper;
-            } else {
-                helper = XMLHelper.getArgHelper(sew.getEngine());
-            }
+            ScriptEngine messageJsEngine = getJsEngine(sew);
             ScriptMessageContext scriptMC;
-            scriptMC = getScriptMessageContext(synCtx, helper, context);
-            processJSONPayload(synCtx, scriptMC);
+            scriptMC = getScriptMessageContext(synCtx, getXMLHelper(sew), context, messageJsEngine);
+            processJSONPayload(synCtx, scriptMC, messageJsEngine);
             Invocable invocableScript = (Invocable) sew.getEngine();
 
             List<Object> scriptArgs = new ArrayList<>();
@@ -387,7 +393,6 @@ public class ScriptMediator extends AbstractMediator {
             obj = invocableScript.invokeFunction(function, scriptArgs.toArray());
         } finally {
           if(sew != null){
-              // return engine to front of queue or drop if queue is full (i.e. if getNewScriptEngine() spawns a new engine)
               pool.offer(sew);
           }
         }
@@ -427,29 +432,28 @@ public class ScriptMediator extends AbstractMediator {
      *
      * @param synCtx message context
      * @param helper Object which help to convert xml into OMelemnt
+     * @param context the pooled GraalJS context, if the language is run on GraalJS
+     * @param messageJsEngine the JavaScript engine used for the JSON payload of the message
      * @return Nashorn or Common script message context according to language attribute
      */
     private ScriptMessageContext getScriptMessageContext(MessageContext synCtx, XMLHelper helper,
-                                                         Context context) {
+                                                         GraalContextPool.PooledContext context,
+                                                         ScriptEngine messageJsEngine) {
         ScriptMessageContext scriptMC;
         if (language.equals(NASHORN_JAVA_SCRIPT)) {
             // nashorn is deprecated and will be removed in the future in favor of graal.js
             try {
                 if(isJDKContainNashorn()) {
-                    scriptMC = new NashornJavaScriptMessageContext(synCtx, helper, jsEngine);
+                    scriptMC = new NashornJavaScriptMessageContext(synCtx, helper, messageJsEngine);
                 } else {
-                    scriptMC = new OpenJDKNashornJavaScriptMessageContext(synCtx, helper, jsEngine);
+                    scriptMC = new OpenJDKNashornJavaScriptMessageContext(synCtx, helper, messageJsEngine);
                 }
             } catch (ScriptException e) {
                 throw new SynapseException("Error occurred while evaluating empty json object", e);
             }
 
         } else if (language.equals(JAVA_SCRIPT) || language.equals(GRAAL_JAVA_SCRIPT)) {
-            try {
-                scriptMC = new GraalVMJavaScriptMessageContext(synCtx, helper, context);
-            } catch (ScriptException e) {
-                throw new SynapseException("Error occurred while evaluating empty json object", e);
-            }
+            scriptMC = new GraalVMJavaScriptMessageContext(synCtx, helper, context);
         } else {
             scriptMC = new CommonScriptMessageContext(synCtx, helper);
         }
@@ -463,30 +467,67 @@ public class ScriptMediator extends AbstractMediator {
      * @return true, or the script return value
      * @throws ScriptException For any errors , when compile , run the script
      */
-    private Object mediateForInlineScript(MessageContext synCtx, Context context) throws ScriptException {
+    private Object mediateForInlineScript(MessageContext synCtx, GraalContextPool.PooledContext context)
+            throws ScriptException {
+        if (multiThreadedEngine) {
+            return evaluateInlineScript(synCtx, context, scriptEngine, compiledScript, xmlHelper, jsEngine);
+        }
+        // engines which are not thread safe are only used by one message at a time
+        ScriptEngineWrapper sew = getNewScriptEngine();
+        try {
+            return evaluateInlineScript(synCtx, context, sew.getEngine(),
+                    sew.getCompiledScript(INLINE_SCRIPT_NAME, scriptSourceCode), getXMLHelper(sew), getJsEngine(sew));
+        } finally {
+            pool.offer(sew);
+        }
+    }
+
+    private Object evaluateInlineScript(MessageContext synCtx, GraalContextPool.PooledContext context,
+                                        ScriptEngine engine, CompiledScript compiled, XMLHelper helper,
+                                        ScriptEngine messageJsEngine) throws ScriptException {
         ScriptMessageContext scriptMC;
-        scriptMC = getScriptMessageContext(synCtx, xmlHelper, context);
-        processJSONPayload(synCtx, scriptMC);
-        Bindings bindings = scriptEngine.createBindings();
+        scriptMC = getScriptMessageContext(synCtx, helper, context, messageJsEngine);
+        processJSONPayload(synCtx, scriptMC, messageJsEngine);
+        Bindings bindings = engine.createBindings();
         bindings.put(MC_VAR_NAME, scriptMC);
 
         Object response;
-        if (compiledScript != null) {
-            response = compiledScript.eval(bindings);
+        if (compiled != null) {
+            response = compiled.eval(bindings);
         } else {
-            response = scriptEngine.eval(scriptSourceCode, bindings);
+            response = engine.eval(scriptSourceCode, bindings);
         }
         return response;
     }
 
-    private void processJSONPayload(MessageContext synCtx, ScriptMessageContext scriptMC) throws ScriptException {
+    /**
+     * @return the XML helper for the scripts run on the given pooled engine
+     */
+    private XMLHelper getXMLHelper(ScriptEngineWrapper sew) {
+        if (language.equalsIgnoreCase(JAVA_SCRIPT) || language.equals(NASHORN_JAVA_SCRIPT) ||
+                language.equals(RHINO_JAVA_SCRIPT) || language.equals(GRAAL_JAVA_SCRIPT)) {
+            return xmlHelper;
+        }
+        return XMLHelper.getArgHelper(sew.getEngine());
+    }
+
+    /**
+     * @return the JavaScript engine of the given pooled engine if the language is not thread safe,
+     * or the shared JavaScript engine of the mediator otherwise
+     */
+    private ScriptEngine getJsEngine(ScriptEngineWrapper sew) {
+        return sew.getJsEngine() != null ? sew.getJsEngine() : jsEngine;
+    }
+
+    private void processJSONPayload(MessageContext synCtx, ScriptMessageContext scriptMC,
+                                    ScriptEngine messageJsEngine) throws ScriptException {
         if (!(synCtx instanceof Axis2MessageContext)) {
             return;
         }
         org.apache.axis2.context.MessageContext messageContext = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
         String jsonString = (String) messageContext.getProperty("JSON_STRING");
         Object jsonObject = null;
-        prepareForJSON(scriptMC);
+        prepareForJSON(scriptMC, messageJsEngine);
         if (JsonUtil.hasAJsonPayload(messageContext)) {
             try {
                 String jsonPayload = JsonUtil.jsonPayloadToString(messageContext);
@@ -500,7 +541,7 @@ public class ScriptMediator extends AbstractMediator {
                     jsonObject = ((GraalVMJavaScriptMessageContext) scriptMC).jsonSerializerCallMember("parse", jsonPayload);
                 } else {
                     String scriptWithJsonParser = "JSON.parse(JSON.stringify(" + jsonPayload + "))";
-                    jsonObject = this.jsEngine.eval('(' + scriptWithJsonParser + ')');
+                    jsonObject = messageJsEngine.eval('(' + scriptWithJsonParser + ')');
                 }
             } catch (ScriptException e) {
                 throw new ScriptException("Invalid JSON payload", e.getFileName(), e.getLineNumber(),
@@ -508,18 +549,18 @@ public class ScriptMediator extends AbstractMediator {
             }
         } else if (jsonString != null) {
             String jsonPayload = EIPUtils.tryParseJsonString(jsonParser, jsonString).toString();
-            jsonObject = this.jsEngine.eval('(' + jsonPayload + ')');
+            jsonObject = messageJsEngine.eval('(' + jsonPayload + ')');
         }
         if (jsonObject != null) {
             scriptMC.setJsonObject(synCtx, jsonObject);
         }
     }
 
-    private void prepareForJSON(ScriptMessageContext scriptMC) {
+    private void prepareForJSON(ScriptMessageContext scriptMC, ScriptEngine messageJsEngine) {
         if (jsonParser == null) {
             jsonParser = new JsonParser();
         }
-        scriptMC.setScriptEngine(this.jsEngine);
+        scriptMC.setScriptEngine(messageJsEngine);
     }
 
     /**
@@ -565,6 +606,25 @@ public class ScriptMediator extends AbstractMediator {
                 (!entry.isCached() || entry.isExpired());
 
         ScriptEngineWrapper sew = getNewScriptEngine();
+        boolean prepared = false;
+        try {
+            loadExternalScript(synCtx, sew, generatedScriptKey, needsReload);
+            prepared = true;
+        } finally {
+            if (!prepared) {
+                // the engine is left uninitialized, so the script is evaluated again when it is next taken
+                pool.offer(sew);
+            }
+        }
+        return sew;
+    }
+
+    /**
+     * Evaluates the external script and its includes on the given engine, reloading them if needed
+     */
+    private void loadExternalScript(MessageContext synCtx, ScriptEngineWrapper sew, String generatedScriptKey,
+                                    boolean needsReload) throws ScriptException {
+
         Bindings engineBinding = sew.getEngine().getBindings(ScriptContext.ENGINE_SCOPE);
         engineBinding.clear(); // if we don't do this, previous state can affect successive executions! ESBJAVA-4583
 
@@ -572,10 +632,10 @@ public class ScriptMediator extends AbstractMediator {
             Object o = synCtx.getEntry(generatedScriptKey);
             if (o instanceof OMElement) {
                 scriptSourceCode = ((OMElement) (o)).getText();
-                sew.getEngine().eval(scriptSourceCode, engineBinding);
+                evaluate(sew, generatedScriptKey, scriptSourceCode, engineBinding);
             } else if (o instanceof String) {
                 scriptSourceCode = (String) o;
-                sew.getEngine().eval(scriptSourceCode, engineBinding);
+                evaluate(sew, generatedScriptKey, scriptSourceCode, engineBinding);
             } else if (o instanceof OMText) {
                 DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
                 if (dataHandler != null) {
@@ -589,7 +649,7 @@ public class ScriptMediator extends AbstractMediator {
                             scriptSB.append(currentLine).append('\n');
                         }
                         scriptSourceCode = scriptSB.toString();
-                        sew.getEngine().eval(scriptSourceCode, engineBinding);
+                        evaluate(sew, generatedScriptKey, scriptSourceCode, engineBinding);
                     } catch (IOException e) {
                         handleException("Error in reading script as a stream ", e, synCtx);
                     } finally {
@@ -607,7 +667,8 @@ public class ScriptMediator extends AbstractMediator {
             }
 
         } else {
-            sew.getEngine().eval(scriptSourceCode, engineBinding); // Will drop TPS, but is required for ESBJAVA-4583
+            // required for ESBJAVA-4583, the script is only compiled once per engine
+            evaluate(sew, generatedScriptKey, scriptSourceCode, engineBinding);
         }
 
         // load <include /> scripts; reload each script if needed
@@ -625,10 +686,10 @@ public class ScriptMediator extends AbstractMediator {
                 Object o = synCtx.getEntry(generatedKey);
                 if (o instanceof OMElement) {
                     includeSourceCode = ((OMElement) (o)).getText();
-                    sew.getEngine().eval(includeSourceCode, engineBinding);
+                    evaluate(sew, generatedKey, includeSourceCode, engineBinding);
                 } else if (o instanceof String) {
                     includeSourceCode = (String) o;
-                    sew.getEngine().eval(includeSourceCode, engineBinding);
+                    evaluate(sew, generatedKey, includeSourceCode, engineBinding);
                 } else if (o instanceof OMText) {
                     DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
                     if (dataHandler != null) {
@@ -642,7 +703,7 @@ public class ScriptMediator extends AbstractMediator {
                                 scriptSB.append(currentLine).append('\n');
                             }
                             includeSourceCode = scriptSB.toString();
-                            sew.getEngine().eval(includeSourceCode, engineBinding);
+                            evaluate(sew, generatedKey, includeSourceCode, engineBinding);
                         } catch (IOException e) {
                             handleException("Error in reading script as a stream ", e, synCtx);
                         } finally {
@@ -660,13 +721,25 @@ public class ScriptMediator extends AbstractMediator {
                 }
                 includes.put(includeKey, includeSourceCode);
             } else {
-                sew.getEngine().eval(includeSourceCode, engineBinding); // Will drop TPS, but required for ESBJAVA-4583
+                evaluate(sew, generatedKey, includeSourceCode, engineBinding); // required for ESBJAVA-4583
             }
         }
 
         sew.setInitialized(true);
+    }
 
-        return sew;
+    /**
+     * Evaluates a script on a pooled engine, using the compiled form of the script held by the engine
+     * if the engine supports compilation
+     */
+    private void evaluate(ScriptEngineWrapper sew, String name, String source, Bindings bindings)
+            throws ScriptException {
+        CompiledScript compiled = sew.getCompiledScript(name, source);
+        if (compiled != null) {
+            compiled.eval(bindings);
+        } else {
+            sew.getEngine().eval(source, bindings);
+        }
     }
 
     protected void initScriptEngine() {
@@ -680,13 +753,22 @@ public class ScriptMediator extends AbstractMediator {
         engineManager.registerEngineExtension("rb", new JRubyScriptEngineFactory());
         engineManager.registerEngineExtension("py", new JythonScriptEngineFactory());
         oracleNashornFactory = getOracleNashornFactory();
+        Properties properties = MiscellaneousUtil.loadProperties("synapse.properties");
+        poolSize = Integer.parseInt(properties.getProperty(POOL_SIZE_PROPERTY, String.valueOf(DEFAULT_POOL_SIZE)));
+        poolWaitTimeout = Long.parseLong(properties.getProperty(POOL_WAIT_TIMEOUT_PROPERTY,
+                String.valueOf(DEFAULT_POOL_WAIT_TIMEOUT)));
 
         if (language.equals(NASHORN_JAVA_SCRIPT)) {
             this.scriptEngine = createNashornEnginePortable();
             this.jsEngine = createNashornEnginePortable();
         } else if (language.equals(GRAAL_JAVA_SCRIPT) || language.equals(JAVA_SCRIPT)) {
-            this.scriptEngine = GraalJSScriptEngine.create(null, AccessControlUtils.createSecureGraalContext(classAccessControlConfig));
-            this.jsEngine = GraalJSScriptEngine.create(null, AccessControlUtils.createSecureGraalContext(classAccessControlConfig));
+            this.scriptEngine = GraalJSScriptEngine.create(GraalContextPool.getSharedEngine(), AccessControlUtils.createSecureGraalContext(classAccessControlConfig));
+            this.jsEngine = GraalJSScriptEngine.create(GraalContextPool.getSharedEngine(), AccessControlUtils.createSecureGraalContext(classAccessControlConfig));
+            long contextWaitTimeout = Long.parseLong(properties.getProperty(CONTEXT_POOL_WAIT_TIMEOUT_PROPERTY,
+                    String.valueOf(DEFAULT_CONTEXT_POOL_WAIT_TIMEOUT)));
+            this.contextPool = new GraalContextPool(
+                    () -> AccessControlUtils.createSecureGraalContext(classAccessControlConfig),
+                    poolSize, contextWaitTimeout);
         } else if (language.equals(RHINO_JAVA_SCRIPT)) {
             engineManager.registerEngineExtension("jsEngine", new RhinoScriptEngineFactory());
             this.scriptEngine = engineManager.getEngineByExtension("jsEngine");
@@ -697,13 +779,10 @@ public class ScriptMediator extends AbstractMediator {
             this.jsEngine = engineManager.getEngineByExtension("jsEngine");
         }
 
+        // engines are added to the pool as they are needed, up to the pool size
         pool = new LinkedBlockingQueue<>(poolSize);
+        poolEngineCount.set(0);
 
-        final Supplier<ScriptEngine> engineSupplier = getScriptEngineSupplier();
-
-        for (int i = 0; i < poolSize; i++) {
-            pool.add(new ScriptEngineWrapper(engineSupplier.get()));
-        }
         if (scriptEngine == null) {
             handleException("No script engine found for language: " + language);
         }
@@ -789,13 +868,26 @@ public class ScriptMediator extends AbstractMediator {
         return ClassLoader.getSystemClassLoader();
     }
 
+    /**
+     * @return the supplier of the JavaScript engines used for the JSON payloads of the messages
+     * processed by a pooled engine
+     */
+    @NotNull
+    private Supplier<ScriptEngine> getJsEngineSupplier() {
+        if (language.equals(NASHORN_JAVA_SCRIPT)) {
+            return () -> createNashornEnginePortable();
+        }
+        return () -> engineManager.getEngineByExtension("jsEngine");
+    }
+
     @NotNull
     private Supplier<ScriptEngine> getScriptEngineSupplier() {
 
         final Supplier<ScriptEngine> engineSupplier;
         if (language.equals(GRAAL_JAVA_SCRIPT) || language.equals(JAVA_SCRIPT)) {
             engineSupplier = () -> GraalJSScriptEngine.create(
-                    null, AccessControlUtils.createSecureGraalContext(classAccessControlConfig)
+                    GraalContextPool.getSharedEngine(),
+                    AccessControlUtils.createSecureGraalContext(classAccessControlConfig)
             );
         } else if (language.equals(NASHORN_JAVA_SCRIPT)) {
             engineSupplier = () -> createNashornEnginePortable();
@@ -840,26 +932,52 @@ public class ScriptMediator extends AbstractMediator {
         this.loader = loader;
     }
 
+    /**
+     * Takes a script engine from the pool of the mediator, creating one if the pool has not reached
+     * its maximum size, or waiting for one to be returned otherwise. The engine must be returned to
+     * the pool once the message has been processed.
+     *
+     * @return a script engine for the exclusive use of the caller
+     */
     public ScriptEngineWrapper getNewScriptEngine() {
 
         ScriptEngineWrapper scriptEngineWrapper = pool.poll();
-        if (scriptEngineWrapper == null) {
-            if (language.equals(GRAAL_JAVA_SCRIPT) || language.equals(JAVA_SCRIPT)) {
-                scriptEngineWrapper = new ScriptEngineWrapper(
-                        GraalJSScriptEngine.create(null, AccessControlUtils.createSecureGraalContext(classAccessControlConfig))
-                );
-            } else if (language.equals(NASHORN_JAVA_SCRIPT)) {
-                scriptEngineWrapper = new ScriptEngineWrapper(createNashornEnginePortable());
-            } else if (language.equals(RHINO_JAVA_SCRIPT)) {
-                scriptEngineWrapper = new ScriptEngineWrapper(engineManager.getEngineByExtension("jsEngine"));
-            } else {
-                scriptEngineWrapper = new ScriptEngineWrapper(engineManager.getEngineByExtension(language));
+        if (scriptEngineWrapper != null) {
+            return scriptEngineWrapper;
+        }
+        if (poolEngineCount.incrementAndGet() <= poolSize) {
+            try {
+                // engines which are not thread safe also need their own engine for JSON payloads
+                return new ScriptEngineWrapper(getScriptEngineSupplier().get(),
+                        multiThreadedEngine ? null : getJsEngineSupplier().get());
+            } catch (RuntimeException e) {
+                poolEngineCount.decrementAndGet();
+                throw e;
             }
         }
-        // fall back
+        poolEngineCount.decrementAndGet();
+
+        try {
+            scriptEngineWrapper = pool.poll(poolWaitTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SynapseException("Interrupted while waiting for a " + language + " script engine", e);
+        }
+        if (scriptEngineWrapper == null) {
+            handleException("Timed out after " + poolWaitTimeout + "ms waiting for a " + language +
+                    " script engine, all " + poolSize + " engines are in use");
+        }
         return scriptEngineWrapper;
     }
 
+    /**
+     * @return the pool of GraalJS contexts, with its wait and execution time metrics, or null if the
+     * language is not run on GraalJS
+     */
+    public GraalContextPool getContextPool() {
+        return contextPool;
+    }
+
     public boolean isContentAltering() {
         return true;
     }
@@ -65,6 +65,26 @@ public class ScriptMediatorConstants {
      */
     public static String POOL_SIZE_PROPERTY = "synapse.script.mediator.pool.size";
 
+    /**
+     * Time in milliseconds to wait for a pooled script engine when all engines are in use
+     */
+    public static String POOL_WAIT_TIMEOUT_PROPERTY = "synapse.script.mediator.pool.wait.timeout";
+
+    /**
+     * Default wait time for a pooled script engine
+     */
+    public static final long DEFAULT_POOL_WAIT_TIMEOUT = 30000;
+
+    /**
+     * Time in milliseconds to wait for a pooled GraalJS context when all contexts are in use
+     */
+    public static String CONTEXT_POOL_WAIT_TIMEOUT_PROPERTY = "synapse.script.mediator.context.wait.timeout";
+
+    /**
+     * Default wait time for a pooled GraalJS context
+     */
+    public static final long DEFAULT_CONTEXT_POOL_WAIT_TIMEOUT = 30000;
+
     /**
      * Default Script Engine
      */
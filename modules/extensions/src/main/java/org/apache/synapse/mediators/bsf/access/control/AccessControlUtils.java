@@ -34,6 +34,11 @@ import org.graalvm.polyglot.Value;
  */
 public class AccessControlUtils {
 
+    /**
+     * Host access of the GraalJS contexts, shared so that contexts on the same engine can share code.
+     */
+    private static final HostAccess NASHORN_HOST_ACCESS = createNashornHostAccess();
+
     /**
      * Returns whether the provided string which represents a Java class or native object is accessible or not.
      * The allowing/blocking will be determined by the provided AccessControlConfig, based on the matching/comparing
@@ -90,7 +95,7 @@ public class AccessControlUtils {
                 .allowEnvironmentAccess(EnvironmentAccess.INHERIT)
                 .useSystemExit(true)
                 .allowAllAccess(true)
-                .allowHostAccess(createNashornHostAccess())
+                .allowHostAccess(NASHORN_HOST_ACCESS)
                 .allowHostClassLookup(s -> isAccessAllowed(s, classAccessControlConfig, new Comparator<String>() {
                     @Override
                     public int compare(String o1, String o2) {
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bsf;
+
+import junit.framework.TestCase;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.mediators.bsf.access.control.AccessControlUtils;
+import org.graalvm.polyglot.Context;
+
+import java.util.function.Supplier;
+
+public class GraalContextPoolTest extends TestCase {
+
+    private static final Supplier<Context.Builder> BUILDER = new Supplier<Context.Builder>() {
+        public Context.Builder get() {
+            return AccessControlUtils.createSecureGraalContext(null);
+        }
+    };
+
+    public void testBindingsAreResetOnRelease() {
+        GraalContextPool pool = new GraalContextPool(BUILDER, 1, 1000);
+        GraalContextPool.PooledContext context = pool.borrow();
+        context.getContext().eval("js", "var leaked = 'previous message';");
+        assertTrue(context.getContext().getBindings("js").hasMember("leaked"));
+        pool.release(context);
+
+        GraalContextPool.PooledContext reused = pool.borrow();
+        assertSame(context, reused);
+        assertFalse(reused.getContext().getBindings("js").hasMember("leaked"));
+        assertEquals("{\"a\":1}", reused.getJsonSerializer().invokeMember("stringify",
+                reused.getJsonSerializer().invokeMember("parse", "{\"a\":1}")).asString());
+        pool.release(reused);
+        pool.close();
+    }
+
+    public void testReplacedGlobalsAreRestoredOnRelease() {
+        GraalContextPool pool = new GraalContextPool(BUILDER, 1, 1000);
+        GraalContextPool.PooledContext context = pool.borrow();
+        context.getContext().eval("js", "JSON = {stringify: function () { return 'leaked'; }};"
+                + "parseInt = function () { return -1; };");
+        pool.release(context);
+
+        GraalContextPool.PooledContext reused = pool.borrow();
+        assertSame(context, reused);
+        assertEquals("{\"a\":1}", reused.getContext().eval("js", "JSON.stringify({a: 1})").asString());
+        assertEquals(7, reused.getContext().eval("js", "parseInt('7')").asInt());
+        pool.release(reused);
+        pool.close();
+    }
+
+    public void testContextWithChangedBuiltInsIsDiscarded() {
+        GraalContextPool pool = new GraalContextPool(BUILDER, 1, 1000);
+        GraalContextPool.PooledContext context = pool.borrow();
+        context.getContext().eval("js", "Array.prototype.leaked = 'previous message';");
+        pool.release(context);
+        assertEquals(0, pool.getSize());
+
+        GraalContextPool.PooledContext fresh = pool.borrow();
+        assertNotSame(context, fresh);
+        assertTrue(fresh.getContext().eval("js", "[].leaked === undefined").asBoolean());
+        pool.release(fresh);
+        assertEquals(1, pool.getIdleCount());
+        pool.close();
+    }
+
+    public void testBorrowWaitsWhenPoolIsExhausted() {
+        GraalContextPool pool = new GraalContextPool(BUILDER, 1, 100);
+        GraalContextPool.PooledContext context = pool.borrow();
+        try {
+            pool.borrow();
+            fail("The pool must not grow beyond its maximum size");
+        } catch (SynapseException expected) {
+        }
+        assertEquals(1, pool.getWaitCount());
+        assertEquals(1, pool.getSize());
+        pool.release(context);
+        assertSame(context, pool.borrow());
+        pool.release(context);
+        pool.close();
+    }
+}
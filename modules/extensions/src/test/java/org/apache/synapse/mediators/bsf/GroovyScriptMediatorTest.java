@@ -20,8 +20,16 @@
 package org.apache.synapse.mediators.bsf;
 
 import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
 import org.apache.synapse.mediators.TestUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class GroovyScriptMediatorTest extends TestCase {
 
     public void testXMLMediator2() throws Exception {
@@ -30,6 +38,33 @@ public class GroovyScriptMediatorTest extends TestCase {
        assertTrue(mediator.mediate(TestUtils.getTestContext("<a><b>petra</b></a>")));
     }
 
+    public void testConcurrentMediationWithPooledEngines() throws Exception {
+        final ScriptMediator mediator = new ScriptMediator("groovy",
+                "def el = mc.getEnvelope().getBody().getFirstElement()\n" +
+                "el.setText(String.valueOf(Integer.parseInt(el.getText()) * 2))", null);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<MessageContext>> results = new ArrayList<Future<MessageContext>>();
+            for (int i = 0; i < 40; i++) {
+                final int value = i;
+                results.add(executor.submit(new Callable<MessageContext>() {
+                    public MessageContext call() throws Exception {
+                        MessageContext synCtx = TestUtils.getTestContext("<value>" + value + "</value>");
+                        assertTrue(mediator.mediate(synCtx));
+                        return synCtx;
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                MessageContext synCtx = results.get(i).get();
+                assertEquals(String.valueOf(i * 2),
+                        synCtx.getEnvelope().getBody().getFirstElement().getText());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
 // TODO: doesn't work yet
 //  public void testXMLMediator3() throws Exception {
 //  String script = 
@@ -28,6 +28,7 @@ import org.apache.axiom.attachments.ByteArrayDataSource;
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMText;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
 import org.apache.synapse.commons.json.JsonUtil;
 import org.apache.synapse.config.Entry;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
@@ -57,6 +58,17 @@ public class ScriptMediatorTest extends TestCase {
         assertTrue(responese);
     }
 
+    public void testGraalContextsAreReused() throws Exception {
+        ScriptMediator mediator = new ScriptMediator("js", inlinescript, null);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(mediator.mediate(TestUtils.getTestContext("<foo/>", null)));
+        }
+        GraalContextPool contextPool = mediator.getContextPool();
+        assertEquals(1, contextPool.getSize());
+        assertEquals(1, contextPool.getIdleCount());
+        assertEquals(3, contextPool.getExecutionCount());
+    }
+
     /**
      * Test functionality of mediate with inline script in rhinoJs.
      *
@@ -199,6 +211,36 @@ public class ScriptMediatorTest extends TestCase {
         assertEquals(true, result);
     }
 
+    /**
+     * A script that fails to load must not keep its pooled engine, otherwise the pool is exhausted
+     * once the script is fixed.
+     *
+     * @throws Exception
+     */
+    public void testBrokenExternalScriptReleasesEngine() throws Exception {
+        String scriptSrcKey = "conf:/repository/esb/broken.js";
+        Entry e = new Entry();
+        e.setKey(scriptSrcKey);
+        e.setValue("function transform(mc) {");
+        MessageContext mc = TestUtils.getTestContext("<foo/>", null);
+        mc.getConfiguration().addEntry(scriptSrcKey, e);
+        ScriptMediator mediator = new ScriptMediator("js", new LinkedHashMap<Value, Object>(),
+                new Value(scriptSrcKey), "transform", null);
+
+        // more failures than the default pool size of 15 engines
+        for (int i = 0; i < 20; i++) {
+            try {
+                mediator.mediate(mc);
+                fail("The broken script must not be evaluated");
+            } catch (SynapseException expected) {
+                // expected
+            }
+        }
+
+        e.setValue("function transform(mc) { return true; }");
+        assertTrue(mediator.mediate(mc));
+    }
+
     public static Test suite() {
         TestSuite suite = new TestSuite();
         for (int i = 0; i < 10; i++) {
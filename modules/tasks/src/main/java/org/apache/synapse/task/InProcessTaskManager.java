@@ -0,0 +1,543 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.task;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A task manager which runs the tasks in process, without going through Quartz. A single timer
+ * thread triggers the runs, and each run is handed to a pool of worker threads which grows with the
+ * number of tasks executing at the same time, so that a task blocking for a long time does not hold
+ * back the others. Tasks may be scheduled with intervals of a few milliseconds or with
+ * cron expressions. A task never runs concurrently with itself: its next run is scheduled when the
+ * current run completes, at the time it was due according to the interval so that the runs do not
+ * drift, or right away if that time has already passed. Runs missed while a task was busy are
+ * skipped rather than run back to back.
+ *
+ * Tasks can be paused and resumed individually. A paused task holds no thread and no timer.
+ */
+public class InProcessTaskManager implements TaskManager {
+
+    private static final Log logger = LogFactory.getLog(InProcessTaskManager.class.getName());
+
+    /**
+     * The number of worker threads kept alive while idle, defaults to the number of processors
+     * (at least 2). More threads are created when more tasks execute at the same time.
+     */
+    public static final String THREADS = "threads";
+
+    /** Time an idle worker thread above the core number of threads is kept alive */
+    private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
+    private final ConcurrentHashMap<String, ScheduledTask> tasks = new ConcurrentHashMap<String, ScheduledTask>();
+
+    private final List<TaskManagerObserver> observers = new CopyOnWriteArrayList<TaskManagerObserver>();
+
+    private final Map<String, Object> properties = new ConcurrentHashMap<String, Object>(5);
+
+    private Properties configProperties = new Properties();
+
+    /** Triggers the runs of the tasks when they are due */
+    private volatile ScheduledThreadPoolExecutor timer;
+
+    /** Executes the runs of the tasks, with a thread for each task executing at the moment */
+    private volatile ThreadPoolExecutor workers;
+
+    private volatile boolean initialized = false;
+
+    private String name;
+
+    public boolean schedule(TaskDescription taskDescription) {
+        assertInitialized();
+        if (taskDescription == null) {
+            throw new SynapseTaskException("Task Description cannot be found", logger);
+        }
+        String taskName = taskDescription.getName();
+        Object instance = taskDescription.getResource(TaskDescription.INSTANCE);
+        if (!(instance instanceof Task)) {
+            logger.error("Could not schedule task [" + taskName + "]. A task instance is required.");
+            return false;
+        }
+        if (taskDescription.getCount() == 0) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Task [" + taskName + "] has a count of 0 and is not scheduled.");
+            }
+            return true;
+        }
+
+        CronExpression cronExpression = null;
+        String cron = taskDescription.getCronExpression();
+        if (cron != null && !"".equals(cron.trim())) {
+            try {
+                cronExpression = new CronExpression(cron);
+            } catch (ParseException e) {
+                throw new SynapseTaskException("Invalid cron expression [" + cron + "] of task [" +
+                                               taskName + "]", e, logger);
+            }
+        }
+        long interval = taskDescription.getIntervalInMs() ? taskDescription.getInterval() :
+                        taskDescription.getInterval() * 1000;
+        if (cronExpression == null && interval <= 0) {
+            throw new SynapseTaskException("Invalid interval [" + taskDescription.getInterval() +
+                                           "] of task [" + taskName + "]", logger);
+        }
+
+        ScheduledTask task = new ScheduledTask(taskDescription, (Task) instance, interval, cronExpression);
+        if (tasks.putIfAbsent(taskName, task) != null) {
+            logger.warn("Did not schedule task [" + taskName + "]. A task with the same name is " +
+                        "already scheduled.");
+            return false;
+        }
+        task.scheduleFirst();
+        logger.info("Scheduled task [" + taskName + "::" + taskDescription.getTaskGroup() + "]");
+        return true;
+    }
+
+    public boolean reschedule(String name, TaskDescription taskDescription) {
+        ScheduledTask task = tasks.remove(name);
+        if (task != null) {
+            task.cancel();
+        }
+        return schedule(taskDescription);
+    }
+
+    public boolean delete(String nameGroup) {
+        if (nameGroup == null) {
+            return false;
+        }
+        String taskName = nameGroup.split("::")[0];
+        ScheduledTask task = tasks.remove(taskName);
+        if (task == null) {
+            return false;
+        }
+        task.cancel();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Deleted task [" + nameGroup + "]");
+        }
+        return true;
+    }
+
+    public boolean pause(String name) {
+        ScheduledTask task = tasks.get(name);
+        if (task == null) {
+            return false;
+        }
+        task.pause();
+        return true;
+    }
+
+    public boolean pauseAll() {
+        for (ScheduledTask task : tasks.values()) {
+            task.pause();
+        }
+        return true;
+    }
+
+    public boolean resume(String name) {
+        ScheduledTask task = tasks.get(name);
+        if (task == null) {
+            return false;
+        }
+        task.resume();
+        return true;
+    }
+
+    public boolean resumeAll() {
+        for (ScheduledTask task : tasks.values()) {
+            task.resume();
+        }
+        return true;
+    }
+
+    public TaskDescription getTask(String name) {
+        ScheduledTask task = tasks.get(name);
+        return task == null ? null : task.description;
+    }
+
+    public String[] getTaskNames() {
+        return tasks.keySet().toArray(new String[0]);
+    }
+
+    public boolean init(Properties properties) {
+        if (initialized) {
+            return true;
+        }
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        if (properties != null) {
+            configProperties = properties;
+            String value = properties.getProperty(THREADS);
+            if (value != null) {
+                try {
+                    threads = Integer.parseInt(value.trim());
+                } catch (NumberFormatException e) {
+                    logger.warn("Invalid number of threads [" + value + "], using " + threads);
+                }
+            }
+        }
+        final String prefix = "synapse-task-" + poolCount.incrementAndGet() + "-";
+        ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(1, new TaskThreadFactory(prefix + "timer-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        // a task never runs concurrently with itself, so the number of threads is bounded by the
+        // number of scheduled tasks
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, Integer.MAX_VALUE,
+                WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new TaskThreadFactory(prefix));
+        timer = scheduler;
+        workers = pool;
+        initialized = true;
+        logger.info("Initialized the in-process task manager with " + threads + " core threads");
+        for (TaskManagerObserver observer : observers) {
+            observer.update();
+        }
+        return true;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public boolean start() {
+        assertInitialized();
+        return true;
+    }
+
+    public boolean stop() {
+        if (!initialized) {
+            return true;
+        }
+        initialized = false;
+        for (ScheduledTask task : tasks.values()) {
+            task.cancel();
+        }
+        tasks.clear();
+        timer.shutdownNow();
+        workers.shutdownNow();
+        return true;
+    }
+
+    /**
+     * @return the number of tasks which are executing at the moment
+     */
+    public int getRunningTaskCount() {
+        int count = 0;
+        for (ScheduledTask task : tasks.values()) {
+            if (task.executing) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isTaskRunning(Object taskKey) {
+        return taskKey instanceof String && isTaskRunning((String) taskKey);
+    }
+
+    public boolean setProperties(Map<String, Object> properties) {
+        if (properties == null) {
+            return false;
+        }
+        this.properties.putAll(properties);
+        return true;
+    }
+
+    public boolean setProperty(String name, Object property) {
+        if (name == null || property == null) {
+            return false;
+        }
+        properties.put(name, property);
+        return true;
+    }
+
+    public Object getProperty(String name) {
+        return name == null ? null : properties.get(name);
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getProviderClass() {
+        return this.getClass().getName();
+    }
+
+    public Properties getConfigurationProperties() {
+        return configProperties;
+    }
+
+    public void setConfigurationProperties(Properties properties) {
+        this.configProperties = properties;
+    }
+
+    public void addObserver(TaskManagerObserver o) {
+        observers.add(o);
+    }
+
+    public boolean isTaskDeactivated(String taskName) {
+        ScheduledTask task = tasks.get(taskName);
+        return task != null && task.paused;
+    }
+
+    /**
+     * A task is blocked while it is executing.
+     */
+    public boolean isTaskBlocked(String taskName) {
+        ScheduledTask task = tasks.get(taskName);
+        return task != null && task.executing;
+    }
+
+    /**
+     * A task is running while it is scheduled and not paused.
+     */
+    public boolean isTaskRunning(String taskName) {
+        ScheduledTask task = tasks.get(taskName);
+        return task != null && !task.paused;
+    }
+
+    public void sendClusterMessage(Callable<Void> task) {
+        // tasks are local to this node, there is no cluster to send the message to
+    }
+
+    public boolean isTaskExist(String taskName) {
+        return tasks.containsKey(taskName);
+    }
+
+    private void assertInitialized() {
+        if (!initialized) {
+            throw new SynapseTaskException("The in-process task manager has not been initialized", logger);
+        }
+    }
+
+    private static class TaskThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        TaskThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * A scheduled task, which schedules its next run once the current run completes
+     */
+    private class ScheduledTask {
+
+        private final TaskDescription description;
+        private final Task task;
+        private final long intervalNanos;
+        private final CronExpression cronExpression;
+        private final long endTime;
+
+        private ScheduledFuture<?> future;
+        /** incremented whenever the pending run is replaced or withdrawn, so that stale runs are ignored */
+        private long generation = 0;
+        /** the time the next run is due, in terms of System.nanoTime() */
+        private long nextRun;
+        private int runs = 0;
+        private boolean cancelled = false;
+        private volatile boolean paused = false;
+        private volatile boolean executing = false;
+
+        ScheduledTask(TaskDescription description, Task task, long interval, CronExpression cronExpression) {
+            this.description = description;
+            this.task = task;
+            this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+            this.cronExpression = cronExpression;
+            this.endTime = description.getEndTime() != null ?
+                           description.getEndTime().getTimeInMillis() : Long.MAX_VALUE;
+        }
+
+        synchronized void scheduleFirst() {
+            long now = System.currentTimeMillis();
+            long start = description.getStartTime() != null ?
+                         Math.max(now, description.getStartTime().getTimeInMillis()) : now;
+            if (cronExpression != null) {
+                Date next = cronExpression.getNextValidTimeAfter(new Date(start - 1));
+                if (next == null) {
+                    finish();
+                    return;
+                }
+                start = next.getTime();
+            }
+            if (start > endTime) {
+                finish();
+                return;
+            }
+            nextRun = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(start - now);
+            submit();
+        }
+
+        private void run(long scheduledGeneration) {
+            synchronized (this) {
+                if (scheduledGeneration != generation || cancelled || paused || executing) {
+                    return;
+                }
+                executing = true;
+                future = null;
+            }
+            try {
+                task.execute();
+            } catch (Throwable t) {
+                logger.error("Error executing task [" + description.getName() + "]", t);
+            } finally {
+                synchronized (this) {
+                    executing = false;
+                    runs++;
+                    scheduleNext();
+                }
+            }
+        }
+
+        private void scheduleNext() {
+            if (cancelled || paused) {
+                return;
+            }
+            if (description.getCount() > 0 && runs >= description.getCount()) {
+                finish();
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long nanoNow = System.nanoTime();
+            if (cronExpression != null) {
+                Date next = cronExpression.getNextValidTimeAfter(new Date(now));
+                if (next == null || next.getTime() > endTime) {
+                    finish();
+                    return;
+                }
+                nextRun = nanoNow + TimeUnit.MILLISECONDS.toNanos(next.getTime() - now);
+            } else {
+                nextRun += intervalNanos;
+                if (nextRun - nanoNow < 0) {
+                    // skip the runs missed while the task was executing
+                    nextRun = nanoNow;
+                }
+                if (now + TimeUnit.NANOSECONDS.toMillis(nextRun - nanoNow) > endTime) {
+                    finish();
+                    return;
+                }
+            }
+            submit();
+        }
+
+        private void submit() {
+            final long scheduledGeneration = ++generation;
+            try {
+                future = timer.schedule(new Runnable() {
+                    public void run() {
+                        execute(scheduledGeneration);
+                    }
+                }, nextRun - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Task [" + description.getName() + "] not scheduled after shutdown");
+                }
+            }
+        }
+
+        /**
+         * Hands the run over to a worker thread, so that the timer is never blocked by a task
+         */
+        private void execute(final long scheduledGeneration) {
+            try {
+                workers.execute(new Runnable() {
+                    public void run() {
+                        ScheduledTask.this.run(scheduledGeneration);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Task [" + description.getName() + "] not executed after shutdown");
+                }
+            }
+        }
+
+        private void finish() {
+            cancelled = true;
+            tasks.remove(description.getName(), this);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Task [" + description.getName() + "] completed its schedule");
+            }
+        }
+
+        synchronized void pause() {
+            paused = true;
+            generation++;
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+
+        synchronized void resume() {
+            if (!paused) {
+                return;
+            }
+            paused = false;
+            if (!executing && future == null && !cancelled) {
+                nextRun = System.nanoTime();
+                if (cronExpression != null) {
+                    scheduleNext();
+                } else {
+                    submit();
+                }
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            generation++;
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+    }
+}
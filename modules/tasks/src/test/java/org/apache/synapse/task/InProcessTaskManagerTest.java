@@ -0,0 +1,208 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.task;
+
+import junit.framework.Assert;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test class for InProcessTaskManager
+ */
+public class InProcessTaskManagerTest {
+
+    private InProcessTaskManager taskManager;
+
+    @Before
+    public void setUp() {
+        taskManager = new InProcessTaskManager();
+        Properties properties = new Properties();
+        properties.setProperty(InProcessTaskManager.THREADS, "2");
+        taskManager.init(properties);
+        taskManager.start();
+    }
+
+    @After
+    public void tearDown() {
+        taskManager.stop();
+    }
+
+    @Test
+    public void testSubSecondIntervalWithCount() throws Exception {
+        CountingTask task = new CountingTask(0);
+        Assert.assertTrue(taskManager.schedule(createTaskDescription("count", task, 10, 5)));
+        Assert.assertTrue("Task did not run 5 times", task.await(5, 5000));
+        Thread.sleep(100);
+        Assert.assertEquals(5, task.runs.get());
+        Assert.assertFalse("Task should be removed once it completes", taskManager.isTaskExist("count"));
+    }
+
+    @Test
+    public void testIntervalDoesNotDrift() throws Exception {
+        CountingTask task = new CountingTask(5);
+        long start = System.nanoTime();
+        taskManager.schedule(createTaskDescription("drift", task, 20, 25));
+        Assert.assertTrue(task.await(25, 5000));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 24 intervals of 20ms, the time spent executing the task must not add up
+        Assert.assertTrue("Runs drifted: " + elapsed + "ms", elapsed < 24 * 20 + 200);
+    }
+
+    @Test
+    public void testTaskDoesNotOverlap() throws Exception {
+        final AtomicInteger concurrent = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(10);
+        Task task = new Task() {
+            public void execute() {
+                int current = concurrent.incrementAndGet();
+                maxConcurrent.accumulateAndGet(current, Math::max);
+                try {
+                    Thread.sleep(15);
+                } catch (InterruptedException ignore) {
+                } finally {
+                    concurrent.decrementAndGet();
+                    done.countDown();
+                }
+            }
+        };
+        taskManager.schedule(createTaskDescription("overlap", task, 1, 10));
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, maxConcurrent.get());
+    }
+
+    @Test
+    public void testBlockedTasksDoNotStarveOthers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            taskManager.schedule(createTaskDescription("blocking" + i, new Task() {
+                public void execute() {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            }, 10, 1));
+        }
+        try {
+            // more tasks are blocked than the 2 core threads of the task manager
+            Assert.assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            CountingTask task = new CountingTask(0);
+            taskManager.schedule(createTaskDescription("free", task, 10, 3));
+            Assert.assertTrue("Task was starved by the blocked tasks", task.await(3, 5000));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testPauseAndResume() throws Exception {
+        CountingTask task = new CountingTask(0);
+        taskManager.schedule(createTaskDescription("pause", task, 10, -1));
+        Assert.assertTrue(task.await(3, 5000));
+        Assert.assertTrue(taskManager.isTaskRunning("pause"));
+
+        Assert.assertTrue(taskManager.pause("pause"));
+        Assert.assertTrue(taskManager.isTaskDeactivated("pause"));
+        Thread.sleep(50);
+        int runs = task.runs.get();
+        Thread.sleep(100);
+        Assert.assertEquals("Paused task was executed", runs, task.runs.get());
+
+        Assert.assertTrue(taskManager.resume("pause"));
+        Assert.assertFalse(taskManager.isTaskDeactivated("pause"));
+        Assert.assertTrue(task.await(runs + 3, 5000));
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        CountingTask task = new CountingTask(0);
+        taskManager.schedule(createTaskDescription("delete", task, 10, -1));
+        Assert.assertTrue(task.await(2, 5000));
+        Assert.assertTrue(taskManager.delete("delete::" + TaskDescription.DEFAULT_GROUP));
+        Assert.assertFalse(taskManager.isTaskExist("delete"));
+        Thread.sleep(50);
+        int runs = task.runs.get();
+        Thread.sleep(100);
+        Assert.assertEquals("Deleted task was executed", runs, task.runs.get());
+    }
+
+    @Test
+    public void testCronExpression() throws Exception {
+        CountingTask task = new CountingTask(0);
+        TaskDescription taskDescription = createTaskDescription("cron", task, 0, -1);
+        taskDescription.setCronExpression("* * * * * ?");
+        Assert.assertTrue(taskManager.schedule(taskDescription));
+        Assert.assertTrue("Cron task did not run every second", task.await(2, 3500));
+    }
+
+    @Test(expected = SynapseTaskException.class)
+    public void testInvalidCronExpression() {
+        TaskDescription taskDescription = createTaskDescription("invalid", new CountingTask(0), 0, -1);
+        taskDescription.setCronExpression("not a cron expression");
+        taskManager.schedule(taskDescription);
+    }
+
+    private TaskDescription createTaskDescription(String name, Task task, long interval, int count) {
+        TaskDescription taskDescription = new TaskDescription();
+        taskDescription.setName(name);
+        taskDescription.setTaskGroup(TaskDescription.DEFAULT_GROUP);
+        taskDescription.setInterval(interval);
+        taskDescription.setIntervalInMs(true);
+        taskDescription.setCount(count);
+        taskDescription.addResource(TaskDescription.INSTANCE, task);
+        return taskDescription;
+    }
+
+    private static class CountingTask implements Task {
+
+        private final AtomicInteger runs = new AtomicInteger();
+        private final long executionTime;
+
+        CountingTask(long executionTime) {
+            this.executionTime = executionTime;
+        }
+
+        public void execute() {
+            if (executionTime > 0) {
+                try {
+                    Thread.sleep(executionTime);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            runs.incrementAndGet();
+        }
+
+        boolean await(int count, long timeout) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeout;
+            while (runs.get() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            return runs.get() >= count;
+        }
+    }
+}
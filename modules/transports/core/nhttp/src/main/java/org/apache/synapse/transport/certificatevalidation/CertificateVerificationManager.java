@@ -21,6 +21,7 @@ package org.apache.synapse.transport.certificatevalidation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.transport.certificatevalidation.cache.CertCache;
+import org.apache.synapse.transport.certificatevalidation.cache.RevocationCacheStore;
 import org.apache.synapse.transport.certificatevalidation.crl.CRLCache;
 import org.apache.synapse.transport.certificatevalidation.crl.CRLVerifier;
 import org.apache.synapse.transport.certificatevalidation.ocsp.OCSPCache;
@@ -30,6 +31,8 @@ import org.apache.synapse.transport.nhttp.config.TrustStoreHolder;
 
 import java.security.cert.Certificate;
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -65,6 +68,18 @@ public class CertificateVerificationManager {
                                           boolean isFullCertChainValidationEnabled,
                                           boolean isCertExpiryValidationEnabled) {
 
+        this(cacheAllocatedSize, cacheDelayMins, isFullCertChainValidationEnabled, isCertExpiryValidationEnabled,
+                null);
+    }
+
+    /**
+     * @param cacheDirectory directory to persist the OCSP responses and CRLs in, so that they are reused after a
+     *                       restart. The revocation caches are kept in memory only if null.
+     */
+    public CertificateVerificationManager(Integer cacheAllocatedSize, Integer cacheDelayMins,
+                                          boolean isFullCertChainValidationEnabled,
+                                          boolean isCertExpiryValidationEnabled, String cacheDirectory) {
+
         if (cacheAllocatedSize != null && cacheAllocatedSize > Constants.CACHE_MIN_ALLOCATED_SIZE
                 && cacheAllocatedSize < Constants.CACHE_MAX_ALLOCATED_SIZE) {
             this.cacheSize = cacheAllocatedSize;
@@ -82,6 +97,18 @@ public class CertificateVerificationManager {
 
         this.isFullCertChainValidationEnabled = isFullCertChainValidationEnabled;
         this.isCertExpiryValidationEnabled = isCertExpiryValidationEnabled;
+
+        if (cacheDirectory != null && !cacheDirectory.trim().isEmpty()) {
+            try {
+                RevocationCacheStore cacheStore = new RevocationCacheStore(new File(cacheDirectory.trim()));
+                // load the persisted entries now rather than during the first handshake
+                OCSPCache.getCache(this.cacheSize, this.cacheDelayMins).setStore(cacheStore);
+                CRLCache.getCache(this.cacheSize, this.cacheDelayMins).setStore(cacheStore);
+            } catch (IOException e) {
+                log.warn("Cannot use " + cacheDirectory + " to persist the revocation caches. Hence, the " +
+                        "caches are kept in memory only.", e);
+            }
+        }
     }
 
     /**
@@ -30,6 +30,13 @@ public interface Constants {
     public static final int CACHE_MIN_DELAY_MINS = 1;
     public static final int CACHE_DEFAULT_DELAY_MINS = 15;
 
+    // Fraction of the validity period of a cached OCSP response or CRL after which it is refreshed in the background
+    public static final double CACHE_REFRESH_RATIO = 0.8;
+    // How long a failed revocation lookup is remembered before the responder is contacted again
+    public static final long NEGATIVE_CACHE_TIMEOUT_MILLIS = 60 * 1000;
+    // Connect and read timeout of the requests sent to OCSP responders and CRL distribution points
+    public static final int REVOCATION_LOOKUP_TIMEOUT_MILLIS = 5000;
+
     public static final String BOUNCY_CASTLE_PROVIDER = "BC";
     public static final String BOUNCY_CASTLE_FIPS_PROVIDER = "BCFIPS";
 }
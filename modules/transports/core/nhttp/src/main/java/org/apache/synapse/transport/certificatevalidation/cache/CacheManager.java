@@ -121,6 +121,16 @@ public class CacheManager {
         return false;
     }
 
+    /**
+     * Runs a task on the thread of this cache manager. Used to refresh cache values in the background, so that
+     * the threads reading the cache never wait for a remote call.
+     *
+     * @param task the task to run
+     */
+    public void execute(Runnable task) {
+        scheduler.execute(task);
+    }
+
     public boolean isRunning() {
         return !scheduledFuture.isCancelled();
     }
@@ -159,6 +169,8 @@ public class CacheManager {
                 if (!nextCacheValue.isValid()) {
                     log.info("Updating Invalid Cache Value by Manager");
                     nextCacheValue.updateCacheWithNewValue();
+                } else if (nextCacheValue.isDueForRefresh()) {
+                    nextCacheValue.refreshInBackground();
                 }
 
                 //There are LRU entries tobe removed since cacheSize > maxCacheSize. So collect them.
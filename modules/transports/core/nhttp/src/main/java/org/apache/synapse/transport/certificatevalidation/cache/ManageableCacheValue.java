@@ -32,4 +32,12 @@ public interface ManageableCacheValue {
     public void removeThisCacheValue();
 
     public void updateCacheWithNewValue();
+
+    //To refresh a valid entry in the background before it expires.
+    public default boolean isDueForRefresh() {
+        return false;
+    }
+
+    public default void refreshInBackground() {
+    }
 }
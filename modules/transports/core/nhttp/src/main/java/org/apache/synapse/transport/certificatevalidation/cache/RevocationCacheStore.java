@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.certificatevalidation.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the entries of the revocation caches on disk, so that OCSP responses and CRLs which are still valid
+ * survive a restart and the first handshakes after a restart do not wait for the responders. Each entry is
+ * stored in its own file, which is replaced atomically when the entry is updated.
+ */
+public class RevocationCacheStore {
+
+    private static final Log log = LogFactory.getLog(RevocationCacheStore.class);
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    public RevocationCacheStore(File directory) throws IOException {
+        this.directory = directory.toPath();
+        Files.createDirectories(this.directory);
+    }
+
+    public File getDirectory() {
+        return directory.toFile();
+    }
+
+    /**
+     * Writes an entry, replacing the previous content of the entry if there is one. Failures are logged since a
+     * cache entry which is not persisted is only fetched again after a restart.
+     *
+     * @param name name of the entry, which must be usable as a file name
+     * @param data content of the entry
+     */
+    public void store(String name, byte[] data) {
+        Path target = directory.resolve(name + ENTRY_SUFFIX);
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        try {
+            Files.write(temp, data);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot persist the revocation cache entry " + name + " to " + directory, e);
+        }
+    }
+
+    public void remove(String name) {
+        try {
+            Files.deleteIfExists(directory.resolve(name + ENTRY_SUFFIX));
+        } catch (IOException e) {
+            log.warn("Cannot remove the revocation cache entry " + name + " from " + directory, e);
+        }
+    }
+
+    /**
+     * @param prefix prefix of the names of the entries to load
+     * @return the content of the stored entries against their names
+     */
+    public Map<String, byte[]> loadAll(String prefix) {
+        Map<String, byte[]> entries = new HashMap<String, byte[]>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + ENTRY_SUFFIX)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                try {
+                    entries.put(fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length()),
+                            Files.readAllBytes(path));
+                } catch (IOException e) {
+                    log.warn("Cannot read the revocation cache entry " + path, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read the revocation cache entries from " + directory, e);
+        }
+        return entries;
+    }
+}
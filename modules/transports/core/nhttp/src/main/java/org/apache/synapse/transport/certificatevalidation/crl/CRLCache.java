@@ -21,21 +21,37 @@ package org.apache.synapse.transport.certificatevalidation.crl;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.transport.certificatevalidation.Constants;
 import org.apache.synapse.transport.certificatevalidation.cache.CacheController;
 import org.apache.synapse.transport.certificatevalidation.cache.CacheManager;
 import org.apache.synapse.transport.certificatevalidation.cache.ManageableCache;
 import org.apache.synapse.transport.certificatevalidation.cache.ManageableCacheValue;
+import org.apache.synapse.transport.certificatevalidation.cache.RevocationCacheStore;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Since a CRL maps to a CRL URL, the CRLCache should have x509CRL entries against CRL URLs.
  * This cache is a Singleton since it is shared by any transport which needs SSL certificate validation
  * and more than one CRLCache should not be allowed per system.
+ *
+ * Like the OCSP cache, CRLs are downloaded again in the background before they expire, failed downloads are
+ * remembered for a short time and CRLs can be persisted in a {@link RevocationCacheStore}.
  */
 public class CRLCache implements ManageableCache {
 
@@ -43,7 +59,10 @@ public class CRLCache implements ManageableCache {
     private static volatile Map<String, CRLCacheValue> hashMap = new ConcurrentHashMap<String, CRLCacheValue>();
     private static volatile Iterator<Map.Entry<String, CRLCacheValue>> iterator = hashMap.entrySet().iterator();
     private static volatile CacheManager cacheManager;
+    private static volatile Map<String, Long> failedLookups = new ConcurrentHashMap<String, Long>();
+    private static volatile RevocationCacheStore store;
     private static CRLVerifier crlVerifier = new CRLVerifier(null);
+    private static final String STORE_ENTRY_PREFIX = "crl-";
     private static final Log log = LogFactory.getLog(CRLCache.class);
 
     private CRLCache() {
@@ -109,9 +128,9 @@ public class CRLCache implements ManageableCache {
         iterator = hashMap.entrySet().iterator();
     }
 
-    private synchronized void replaceNewCacheValue(CRLCacheValue cacheValue) {
+    private synchronized void replaceNewCacheValue(CRLCacheValue cacheValue, boolean background) {
         //If someone has updated with the new value before current Thread.
-        if (cacheValue.isValid())
+        if (hashMap.get(cacheValue.crlUrl) != cacheValue || (!background && cacheValue.isValid()))
             return;
 
         try {
@@ -119,13 +138,18 @@ public class CRLCache implements ManageableCache {
             X509CRL x509CRL = crlVerifier.downloadCRLFromWeb(crlUrl);
             this.setCacheValue(crlUrl, x509CRL);
         } catch (Exception e) {
+            if (background) {
+                //The current value is still valid. It will be downloaded again when it expires.
+                log.warn("Cant refresh the CRL of " + cacheValue.crlUrl + " in the background", e);
+                return;
+            }
             log.info("Cant replace old CacheValue with new CacheValue. So remove", e);
             //If cant be replaced remove.
             cacheValue.removeThisCacheValue();
         }
     }
 
-    public synchronized X509CRL getCacheValue(String crlUrl) {
+    public X509CRL getCacheValue(String crlUrl) {
         CRLCacheValue cacheValue = hashMap.get(crlUrl);
         if (cacheValue != null) {
             //If who ever gets this cache value before Cache manager task found its invalid, update it and get the
@@ -136,25 +160,124 @@ public class CRLCache implements ManageableCache {
                 return (crlCacheValue != null ? crlCacheValue.getValue() : null);
             }
 
+            if (cacheValue.isDueForRefresh()) {
+                cacheValue.refreshInBackground();
+            }
             return cacheValue.getValue();
         } else
             return null;
     }
 
-    public synchronized void setCacheValue(String crlUrl, X509CRL crl) {
+    public void setCacheValue(String crlUrl, X509CRL crl) {
         CRLCacheValue cacheValue = new CRLCacheValue(crlUrl, crl);
         log.info("Before set- HashMap size " + hashMap.size());
         hashMap.put(crlUrl, cacheValue);
+        failedLookups.remove(crlUrl);
         log.info("After set - HashMap size " + hashMap.size());
+
+        RevocationCacheStore currentStore = store;
+        if (currentStore != null) {
+            try {
+                currentStore.store(getStoreEntryName(crlUrl), encode(crlUrl, crl));
+            } catch (IOException | CRLException e) {
+                log.warn("Cannot encode the CRL of " + crlUrl + " to persist it", e);
+            }
+        }
     }
 
-    public synchronized void removeCacheValue(String crlUrl) {
+    public void removeCacheValue(String crlUrl) {
         log.info("Before remove - HashMap size " + hashMap.size());
         hashMap.remove(crlUrl);
         log.info("After remove - HashMap size " + hashMap.size());
 
     }
 
+    /**
+     * Records a failed CRL download, so that the URL is not tried again until
+     * {@link Constants#NEGATIVE_CACHE_TIMEOUT_MILLIS} has elapsed.
+     */
+    public void setNegativeCacheValue(String crlUrl) {
+        if (failedLookups.size() >= Constants.CACHE_MAX_ALLOCATED_SIZE) {
+            long now = System.currentTimeMillis();
+            failedLookups.values().removeIf(expiry -> expiry <= now);
+        }
+        failedLookups.put(crlUrl, System.currentTimeMillis() + Constants.NEGATIVE_CACHE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @return true if downloading the CRL from the URL failed recently
+     */
+    public boolean isNegativelyCached(String crlUrl) {
+        Long expiry = failedLookups.get(crlUrl);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry <= System.currentTimeMillis()) {
+            failedLookups.remove(crlUrl, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the cached CRLs in the given store from now on, and loads the CRLs persisted in the store which are
+     * still valid. CRLs which have expired are removed from the store.
+     *
+     * @param newStore the store to keep the CRLs in
+     */
+    public synchronized void setStore(RevocationCacheStore newStore) {
+        if (store == newStore) {
+            return;
+        }
+        store = newStore;
+        int loaded = 0;
+        for (Map.Entry<String, byte[]> entry : newStore.loadAll(STORE_ENTRY_PREFIX).entrySet()) {
+            CRLCacheValue cacheValue;
+            try {
+                cacheValue = decode(entry.getValue());
+            } catch (Exception e) {
+                log.warn("Ignoring the unreadable persisted CRL " + entry.getKey(), e);
+                newStore.remove(entry.getKey());
+                continue;
+            }
+            if (!cacheValue.isValid()) {
+                newStore.remove(entry.getKey());
+            } else if (hashMap.putIfAbsent(cacheValue.crlUrl, cacheValue) == null) {
+                loaded++;
+            }
+        }
+        log.info("Loaded " + loaded + " persisted CRLs from " + newStore.getDirectory());
+    }
+
+    private static String getStoreEntryName(String crlUrl) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(crlUrl.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(STORE_ENTRY_PREFIX);
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static byte[] encode(String crlUrl, X509CRL crl) throws IOException, CRLException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(crlUrl);
+        out.write(crl.getEncoded());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private CRLCacheValue decode(byte[] data) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        String crlUrl = in.readUTF();
+        X509CRL crl = (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(in);
+        return new CRLCacheValue(crlUrl, crl);
+    }
+
     /**
      * This is the wrapper class of the actual cache value which is a X509CRL.
      */
@@ -163,6 +286,7 @@ public class CRLCache implements ManageableCache {
         private String crlUrl;
         private X509CRL crl;
         private long timeStamp = System.currentTimeMillis();
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
 
         public CRLCacheValue(String crlUrl, X509CRL crl) {
             this.crlUrl = crlUrl;
@@ -199,7 +323,36 @@ public class CRLCache implements ManageableCache {
         }
 
         public void updateCacheWithNewValue() {
-            replaceNewCacheValue(this);
+            replaceNewCacheValue(this, false);
+        }
+
+        /**
+         * A CRL is downloaded again once {@link Constants#CACHE_REFRESH_RATIO} of its validity period has elapsed.
+         */
+        public boolean isDueForRefresh() {
+            Date thisUpdate = crl.getThisUpdate();
+            Date nextUpdate = crl.getNextUpdate();
+            if (thisUpdate == null || nextUpdate == null) {
+                return false;
+            }
+            long refreshTime = thisUpdate.getTime() +
+                    (long) ((nextUpdate.getTime() - thisUpdate.getTime()) * Constants.CACHE_REFRESH_RATIO);
+            return System.currentTimeMillis() >= refreshTime;
+        }
+
+        public void refreshInBackground() {
+            if (cacheManager == null || !refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            cacheManager.execute(new Runnable() {
+                public void run() {
+                    try {
+                        replaceNewCacheValue(CRLCacheValue.this, true);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
         }
     }
 }
@@ -21,6 +21,7 @@ package org.apache.synapse.transport.certificatevalidation.crl;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.transport.certificatevalidation.CertificateVerificationException;
+import org.apache.synapse.transport.certificatevalidation.Constants;
 import org.apache.synapse.transport.certificatevalidation.RevocationVerifier;
 import org.apache.synapse.transport.certificatevalidation.RevocationStatus;
 import org.bouncycastle.asn1.ASN1IA5String;
@@ -38,6 +39,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.security.cert.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -83,6 +85,11 @@ public class CRLVerifier implements RevocationVerifier {
                 }
             }
 
+            if (cache != null && cache.isNegativelyCached(crlUrl)) {
+                log.info("Downloading the CRL from " + crlUrl + " failed recently. So check with the next url.");
+                continue;
+            }
+
             //todo: Do we need to check if URL has the same domain name as issuerCert?
             //todo: What if this certificate is Unknown?????
             try {
@@ -93,6 +100,8 @@ public class CRLVerifier implements RevocationVerifier {
                     return getRevocationStatus(x509CRL, peerCert);
                 }
             } catch (Exception e) {
+                if (cache != null)
+                    cache.setNegativeCacheValue(crlUrl);
                 log.info("Either url is bad or cant build X509CRL. So check with the next url in the list.", e);
             }
         }
@@ -115,7 +124,10 @@ public class CRLVerifier implements RevocationVerifier {
         InputStream crlStream = null;
         try {
             URL url = new URL(crlURL);
-            crlStream = url.openStream();
+            URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(Constants.REVOCATION_LOOKUP_TIMEOUT_MILLIS);
+            connection.setReadTimeout(Constants.REVOCATION_LOOKUP_TIMEOUT_MILLIS);
+            crlStream = connection.getInputStream();
             CertificateFactory cf = CertificateFactory.getInstance("X.509");
             return (X509CRL) cf.generateCRL(crlStream);
         } catch (MalformedURLException e) {
@@ -22,26 +22,39 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.certificatevalidation.CertificateVerificationException;
+import org.apache.synapse.transport.certificatevalidation.Constants;
 import org.apache.synapse.transport.certificatevalidation.cache.CacheController;
 import org.apache.synapse.transport.certificatevalidation.cache.CacheManager;
 import org.apache.synapse.transport.certificatevalidation.cache.ManageableCache;
 import org.apache.synapse.transport.certificatevalidation.cache.ManageableCacheValue;
+import org.apache.synapse.transport.certificatevalidation.cache.RevocationCacheStore;
 import org.bouncycastle.asn1.ocsp.OCSPResponseStatus;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.bouncycastle.cert.ocsp.OCSPReq;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.cert.ocsp.SingleResp;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This is a cache to store OSCP responses against Certificate Serial Number since an OCSP response depends on
  * the certificate. This is a singleton since more than one cache of this kind should not be allowed. This cache
  * can be shared by many transports which need SSL validation through OCSP.
+ *
+ * Responses are refreshed in the background once most of their validity period has elapsed, so that handshakes
+ * do not wait for the OCSP responder while a response is being renewed. Lookups which failed are remembered for a
+ * short time (negative caching) so that an unreachable responder is not contacted for every handshake. If a
+ * {@link RevocationCacheStore} is set, responses are also kept on disk and reloaded after a restart.
  */
 public class OCSPCache implements ManageableCache {
 
@@ -49,7 +62,10 @@ public class OCSPCache implements ManageableCache {
     private static volatile Map<BigInteger,OCSPCacheValue> hashMap = new ConcurrentHashMap<BigInteger, OCSPCacheValue>();
     private static volatile Iterator<Map.Entry<BigInteger,OCSPCacheValue>> iterator = hashMap.entrySet().iterator();
     private static volatile CacheManager cacheManager;
+    private static volatile Map<BigInteger, Long> failedLookups = new ConcurrentHashMap<BigInteger, Long>();
+    private static volatile RevocationCacheStore store;
     private static OCSPVerifier ocspVerifier = new OCSPVerifier(null);
+    private static final String STORE_ENTRY_PREFIX = "ocsp-";
     private static final Log log = LogFactory.getLog(OCSPCache.class);
 
     private OCSPCache() {}
@@ -113,9 +129,9 @@ public class OCSPCache implements ManageableCache {
     }
 
     //This has to be synchronized coz several threads will try to replace cache value (cacheManager and Reactor thread)
-    private synchronized void replaceNewCacheValue(OCSPCacheValue cacheValue){
+    private synchronized void replaceNewCacheValue(OCSPCacheValue cacheValue, boolean background) {
         //If someone has updated with the new value before current Thread.
-        if(cacheValue.isValid())
+        if (hashMap.get(cacheValue.serialNumber) != cacheValue || (!background && cacheValue.isValid()))
             return;
 
         try {
@@ -133,16 +149,22 @@ public class OCSPCache implements ManageableCache {
                 throw new CertificateVerificationException("Cant get OCSP response");
 
             SingleResp resp = responses[0];
-            this.setCacheValue(cacheValue.serialNumber, resp, request, serviceUrl);
+            this.setCacheValue(cacheValue.serialNumber, resp, request, serviceUrl, response);
 
         } catch (Exception e){
+            if (background) {
+                //The current value is still valid. It will be fetched again when it expires.
+                log.warn("Cant refresh the OCSP response of the certificate with serial number " +
+                        cacheValue.serialNumber + " in the background", e);
+                return;
+            }
             log.info("Cant replace old CacheValue with new CacheValue. So remove", e);
             //If cant be replaced remove.
             cacheValue.removeThisCacheValue();
         }
     }
 
-    public synchronized SingleResp getCacheValue(BigInteger serialNumber) {
+    public SingleResp getCacheValue(BigInteger serialNumber) {
         OCSPCacheValue cacheValue = hashMap.get(serialNumber);
         if(cacheValue != null) {
             //If who ever gets this cache value before Cache manager task found its invalid, update it and get the
@@ -153,25 +175,147 @@ public class OCSPCache implements ManageableCache {
                 return (ocspCacheValue!=null? ocspCacheValue.getValue(): null);
             }
 
+            if (cacheValue.isDueForRefresh()) {
+                cacheValue.refreshInBackground();
+            }
             return cacheValue.getValue();
         }
         else
             return null;
     }
 
-    public synchronized void setCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
+    public void setCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
         OCSPCacheValue cacheValue = new OCSPCacheValue(serialNumber, singleResp, request, serviceUrl);
         log.info("Before set - HashMap size " + hashMap.size());
         hashMap.put(serialNumber, cacheValue);
+        failedLookups.remove(serialNumber);
         log.info("After set - HashMap size " + hashMap.size());
     }
 
-    public synchronized void removeCacheValue(BigInteger serialNumber) {
+    /**
+     * Caches the status of a certificate taken from the given OCSP response, and persists the response if a store
+     * is set.
+     *
+     * @param response the OCSP response which contains singleResp
+     */
+    public void setCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl,
+                              OCSPResp response) {
+        setCacheValue(serialNumber, singleResp, request, serviceUrl);
+        RevocationCacheStore currentStore = store;
+        if (currentStore != null && response != null) {
+            try {
+                currentStore.store(getStoreEntryName(serialNumber), encode(serviceUrl, request, response));
+            } catch (IOException e) {
+                log.warn("Cannot encode the OCSP response of the certificate with serial number " +
+                        serialNumber + " to persist it", e);
+            }
+        }
+    }
+
+    public void removeCacheValue(BigInteger serialNumber) {
         log.info("Before remove - HashMap size " + hashMap.size());
         hashMap.remove(serialNumber);
         log.info("After remove - HashMap size " + hashMap.size());
     }
 
+    /**
+     * Records a failed OCSP lookup, so that the responders are not contacted again for the same certificate until
+     * {@link Constants#NEGATIVE_CACHE_TIMEOUT_MILLIS} has elapsed.
+     */
+    public void setNegativeCacheValue(BigInteger serialNumber) {
+        if (failedLookups.size() >= Constants.CACHE_MAX_ALLOCATED_SIZE) {
+            long now = System.currentTimeMillis();
+            failedLookups.values().removeIf(expiry -> expiry <= now);
+        }
+        failedLookups.put(serialNumber, System.currentTimeMillis() + Constants.NEGATIVE_CACHE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @return true if an OCSP lookup for the certificate failed recently
+     */
+    public boolean isNegativelyCached(BigInteger serialNumber) {
+        Long expiry = failedLookups.get(serialNumber);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry <= System.currentTimeMillis()) {
+            failedLookups.remove(serialNumber, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the cached responses in the given store from now on, and loads the responses persisted in the store
+     * which are still valid. Responses which have expired are removed from the store.
+     *
+     * @param newStore the store to keep the responses in
+     */
+    public synchronized void setStore(RevocationCacheStore newStore) {
+        if (store == newStore) {
+            return;
+        }
+        store = newStore;
+        int loaded = 0;
+        for (Map.Entry<String, byte[]> entry : newStore.loadAll(STORE_ENTRY_PREFIX).entrySet()) {
+            OCSPCacheValue cacheValue;
+            try {
+                BigInteger serialNumber = new BigInteger(entry.getKey().substring(STORE_ENTRY_PREFIX.length()), 16);
+                cacheValue = decode(serialNumber, entry.getValue());
+            } catch (Exception e) {
+                log.warn("Ignoring the unreadable persisted OCSP response " + entry.getKey(), e);
+                newStore.remove(entry.getKey());
+                continue;
+            }
+            if (cacheValue == null || !cacheValue.isValid()) {
+                newStore.remove(entry.getKey());
+            } else if (hashMap.putIfAbsent(cacheValue.serialNumber, cacheValue) == null) {
+                loaded++;
+            }
+        }
+        log.info("Loaded " + loaded + " persisted OCSP responses from " + newStore.getDirectory());
+    }
+
+    private static String getStoreEntryName(BigInteger serialNumber) {
+        return STORE_ENTRY_PREFIX + serialNumber.toString(16);
+    }
+
+    private static byte[] encode(String serviceUrl, OCSPReq request, OCSPResp response) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(serviceUrl != null ? serviceUrl : "");
+        byte[] requestBytes = request != null ? request.getEncoded() : new byte[0];
+        out.writeInt(requestBytes.length);
+        out.write(requestBytes);
+        byte[] responseBytes = response.getEncoded();
+        out.writeInt(responseBytes.length);
+        out.write(responseBytes);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private OCSPCacheValue decode(BigInteger serialNumber, byte[] data) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        String serviceUrl = in.readUTF();
+        byte[] requestBytes = new byte[in.readInt()];
+        in.readFully(requestBytes);
+        byte[] responseBytes = new byte[in.readInt()];
+        in.readFully(responseBytes);
+
+        BasicOCSPResp basicResponse = (BasicOCSPResp) new OCSPResp(responseBytes).getResponseObject();
+        if (basicResponse == null) {
+            return null;
+        }
+        for (SingleResp resp : basicResponse.getResponses()) {
+            if (serialNumber.equals(resp.getCertID().getSerialNumber())) {
+                return new OCSPCacheValue(serialNumber, resp,
+                        requestBytes.length > 0 ? new OCSPReq(requestBytes) : null,
+                        serviceUrl.isEmpty() ? null : serviceUrl);
+            }
+        }
+        return null;
+    }
+
     /**
      * This is the wrapper class of the actual cache value which is a SingleResp.
      */
@@ -182,6 +326,7 @@ public class OCSPCache implements ManageableCache {
         private OCSPReq request;
         private String serviceUrl;
         private long timeStamp = System.currentTimeMillis();
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
 
         public OCSPCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
             this.serialNumber = serialNumber;
@@ -222,7 +367,36 @@ public class OCSPCache implements ManageableCache {
         }
 
         public void updateCacheWithNewValue() {
-            replaceNewCacheValue(this);
+            replaceNewCacheValue(this, false);
+        }
+
+        /**
+         * A response is refreshed once {@link Constants#CACHE_REFRESH_RATIO} of its validity period has elapsed.
+         */
+        public boolean isDueForRefresh() {
+            Date thisUpdate = singleResp.getThisUpdate();
+            Date nextUpdate = singleResp.getNextUpdate();
+            if (serviceUrl == null || request == null || thisUpdate == null || nextUpdate == null) {
+                return false;
+            }
+            long refreshTime = thisUpdate.getTime() +
+                    (long) ((nextUpdate.getTime() - thisUpdate.getTime()) * Constants.CACHE_REFRESH_RATIO);
+            return System.currentTimeMillis() >= refreshTime;
+        }
+
+        public void refreshInBackground() {
+            if (cacheManager == null || !refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            cacheManager.execute(new Runnable() {
+                public void run() {
+                    try {
+                        replaceNewCacheValue(OCSPCacheValue.this, true);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
         }
     }
 }
@@ -104,6 +104,10 @@ public class OCSPVerifier implements RevocationVerifier {
                 log.info("OCSP response taken from cache....");
                 return status;
             }
+            if (cache.isNegativelyCached(peerCert.getSerialNumber())) {
+                throw new CertificateVerificationException("OCSP lookup of the certificate with serial number " +
+                        peerCert.getSerialNumber() + " failed recently. Not contacting the responders again yet.");
+            }
         }
 
         OCSPReq request = generateOCSPRequest(issuerCert, peerCert.getSerialNumber());
@@ -113,8 +117,9 @@ public class OCSPVerifier implements RevocationVerifier {
         for (String serviceUrl : locations) {
 
             SingleResp[] responses;
+            OCSPResp ocspResponse;
             try {
-                OCSPResp ocspResponse = getOCSPResponce(serviceUrl, request);
+                ocspResponse = getOCSPResponce(serviceUrl, request);
                 if (OCSPResponseStatus.SUCCESSFUL != ocspResponse.getStatus()) {
                     continue; // Server didn't give the response right.
                 }
@@ -130,10 +135,13 @@ public class OCSPVerifier implements RevocationVerifier {
                 SingleResp resp = responses[0];
                 RevocationStatus status = getRevocationStatus(resp);
                 if (cache != null)
-                    cache.setCacheValue(peerCert.getSerialNumber(), resp, request, serviceUrl);
+                    cache.setCacheValue(peerCert.getSerialNumber(), resp, request, serviceUrl, ocspResponse);
                 return status;
             }
         }
+        if (cache != null) {
+            cache.setNegativeCacheValue(peerCert.getSerialNumber());
+        }
         throw new CertificateVerificationException("Cant get Revocation Status from OCSP.");
     }
 
@@ -170,7 +178,10 @@ public class OCSPVerifier implements RevocationVerifier {
 
             // adding request timeout configurations
             if (httpPost.getConfig() == null) {
-                httpPost.setConfig(RequestConfig.custom().build());
+                httpPost.setConfig(RequestConfig.custom()
+                        .setConnectTimeout(Constants.REVOCATION_LOOKUP_TIMEOUT_MILLIS)
+                        .setConnectionRequestTimeout(Constants.REVOCATION_LOOKUP_TIMEOUT_MILLIS)
+                        .setSocketTimeout(Constants.REVOCATION_LOOKUP_TIMEOUT_MILLIS).build());
             }
             httpPost.addHeader(CONTENT_TYPE, OCSP_REQUEST_TYPE);
             httpPost.addHeader(ACCEPT_TYPE, OCSP_RESPONSE_TYPE);
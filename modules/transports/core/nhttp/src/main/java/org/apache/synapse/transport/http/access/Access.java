@@ -56,6 +56,11 @@ public class Access {
     private static LinkedBlockingQueue<HttpRequestWrapper> requestQueue;
     private static LinkedBlockingQueue<HttpResponseWrapper> responseQueue;
 
+    /**
+     * Writes the accesses in asynchronous mode, null otherwise
+     */
+    private AsyncAccessLogWriter asyncWriter;
+
     private Date date;
 
     /**
@@ -68,10 +73,31 @@ public class Access {
         super();
         Access.log = log;
         Access.accessLogger = accessLogger;
-        requestQueue = new LinkedBlockingQueue<HttpRequestWrapper>();
-        responseQueue = new LinkedBlockingQueue<HttpResponseWrapper>();
         logElements = createLogElements();
-        logAccesses();
+        AccessConfiguration config = AccessConfiguration.getInstance();
+        if (config.getBooleanProperty(AccessConstants.CONFIG_ASYNC_LOGGING, false)) {
+            String policy = config.getStringProperty(AccessConstants.CONFIG_ASYNC_FULL_POLICY,
+                    AccessConstants.ASYNC_FULL_POLICY_DROP);
+            asyncWriter = new AsyncAccessLogWriter(this,
+                    config.getIntProperty(AccessConstants.CONFIG_ASYNC_BUFFER_SIZE,
+                            AccessConstants.DEFAULT_ASYNC_BUFFER_SIZE),
+                    config.getIntProperty(AccessConstants.CONFIG_ASYNC_BATCH_SIZE,
+                            AccessConstants.DEFAULT_ASYNC_BATCH_SIZE),
+                    AccessConstants.ASYNC_FULL_POLICY_BLOCK.equalsIgnoreCase(policy.trim()));
+            asyncWriter.start();
+            // the writer thread is a daemon, write the accesses left in the buffer before the JVM exits
+            final long closeTimeout = config.getIntProperty(AccessConstants.CONFIG_ASYNC_CLOSE_TIMEOUT,
+                    AccessConstants.DEFAULT_ASYNC_CLOSE_TIMEOUT);
+            Runtime.getRuntime().addShutdownHook(new Thread("access-log-shutdown") {
+                public void run() {
+                    close(closeTimeout);
+                }
+            });
+        } else {
+            requestQueue = new LinkedBlockingQueue<HttpRequestWrapper>();
+            responseQueue = new LinkedBlockingQueue<HttpResponseWrapper>();
+            logAccesses();
+        }
     }
 
     /**
@@ -80,6 +106,10 @@ public class Access {
      * @param request - HttpRequest
      */
     public void addAccessToQueue(HttpRequest request) {
+        if (asyncWriter != null) {
+            asyncWriter.submit(AccessRecord.of(request, System.currentTimeMillis()));
+            return;
+        }
         HttpRequestWrapper requestWrapper = new HttpRequestWrapper();
         requestWrapper.setHttpRequest(request);
         requestWrapper.setDate(new Date(AccessTimeUtil.getDate().getTime()));
@@ -92,6 +122,10 @@ public class Access {
      * @param response - HttpResponse
      */
     public void addAccessToQueue(HttpResponse response) {
+        if (asyncWriter != null) {
+            asyncWriter.submit(AccessRecord.of(response, System.currentTimeMillis()));
+            return;
+        }
         HttpResponseWrapper responseWrapper = new HttpResponseWrapper();
         responseWrapper.setHttpResponse(response);
         responseWrapper.setDate(new Date(AccessTimeUtil.getDate().getTime()));
@@ -883,4 +917,52 @@ public class Access {
             accessLogger.log(logString);      //log to the file
         }
     }
+
+    /**
+     * Formats an access recorded in asynchronous mode.
+     *
+     * @param record - the access record
+     * @return - the log line
+     */
+    String format(AccessRecord record) {
+        Date dateOfOperation = new Date(record.getTime());
+        HttpRequest request = record.isRequest() ? record.toRequest() : null;
+        HttpResponse response = record.isRequest() ? null : record.toResponse();
+
+        StringBuilder result = new StringBuilder(128);
+        for (AccessLogElement logElement : logElements) {
+            logElement.addElement(result, dateOfOperation, request, response);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes a batch of log lines formatted in asynchronous mode.
+     *
+     * @param lines - the log lines
+     */
+    void write(List<String> lines) {
+        for (String line : lines) {
+            accesslog.info(line);      //log to the console
+        }
+        if (accessLogger.isLoggingEnabled) {
+            accessLogger.log(lines);      //log to the file
+        }
+    }
+
+    /**
+     * Stops writing the accesses in asynchronous mode, after writing the accesses already recorded.
+     * Called when the JVM shuts down.
+     *
+     * @param timeout - the time in milliseconds to wait for the recorded accesses to be written
+     */
+    public void close(long timeout) {
+        if (asyncWriter != null) {
+            asyncWriter.close(timeout);
+        }
+    }
+
+    AsyncAccessLogWriter getAsyncWriter() {
+        return asyncWriter;
+    }
 }
@@ -77,6 +77,37 @@ public class AccessConstants {
 
     public static final String CONFIG_ENABLE_LOGGING = "access_log_enable";
 
+    /**
+     * Formats and writes the accesses from a single thread, the IO threads only record the accesses
+     * in a bounded buffer.
+     */
+    public static final String CONFIG_ASYNC_LOGGING = "access_log_async";
+
+    public static final String CONFIG_ASYNC_BUFFER_SIZE = "access_log_async_buffer_size";
+
+    public static final String CONFIG_ASYNC_BATCH_SIZE = "access_log_async_batch_size";
+
+    /**
+     * What to do when the buffer of the asynchronous access log is full, drop or block.
+     */
+    public static final String CONFIG_ASYNC_FULL_POLICY = "access_log_async_full_policy";
+
+    public static final String ASYNC_FULL_POLICY_DROP = "drop";
+
+    public static final String ASYNC_FULL_POLICY_BLOCK = "block";
+
+    public static final int DEFAULT_ASYNC_BUFFER_SIZE = 16384;
+
+    public static final int DEFAULT_ASYNC_BATCH_SIZE = 512;
+
+    /**
+     * The time in milliseconds the JVM shutdown waits for the asynchronous access log to write the
+     * accesses left in its buffer.
+     */
+    public static final String CONFIG_ASYNC_CLOSE_TIMEOUT = "access_log_async_close_timeout";
+
+    public static final int DEFAULT_ASYNC_CLOSE_TIMEOUT = 5000;
+
 
     public static String getLogPattern() {
         return AccessConfiguration.getInstance().getStringProperty(CONFIG_PATTERN, LOG_PATTERN);
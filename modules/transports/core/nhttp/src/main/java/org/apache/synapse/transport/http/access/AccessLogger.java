@@ -35,6 +35,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.TimeZone;
@@ -62,6 +63,8 @@ public class AccessLogger {
 
     private static final String IS_LOG_ROTATABLE = "nhttp.is.log.rotatable";
 
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
     private static Log log = LogFactory.getLog(ACCESS_LOG_ID);
 
     public AccessLogger(final Log log) {
@@ -130,6 +133,44 @@ public class AccessLogger {
      * @param message Message to be logged
      */
     public void log(String message) {
+        checkLogFile();
+
+        // Log this message
+        synchronized (this) {
+            if (writer != null) {
+                writer.println(message);
+
+                if (!buffered) {
+                    writer.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Log a batch of messages to the log file, switching files if the date has changed since the
+     * previous log call. The file is flushed once for the whole batch.
+     *
+     * @param messages Messages to be logged
+     */
+    public void log(List<String> messages) {
+        checkLogFile();
+
+        synchronized (this) {
+            if (writer != null) {
+                for (String message : messages) {
+                    writer.write(message);
+                    writer.write(LINE_SEPARATOR);
+                }
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Switches the log file if the date has changed, or if the file was removed.
+     */
+    private void checkLogFile() {
         if (isRotatable) {
             // Only do a logfile switch check once a second, max.
             long systime = System.currentTimeMillis();
@@ -172,17 +213,6 @@ public class AccessLogger {
                 }
             }
         }
-
-        // Log this message
-        synchronized (this) {
-            if (writer != null) {
-                writer.println(message);
-
-                if (!buffered) {
-                    writer.flush();
-                }
-            }
-        }
     }
 
     /**
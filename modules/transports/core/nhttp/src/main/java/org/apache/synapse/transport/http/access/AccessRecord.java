@@ -0,0 +1,106 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.access;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.RequestLine;
+import org.apache.http.StatusLine;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+
+/**
+ * A compact record of an access, taken on the IO thread when the request is received or the
+ * response is sent and formatted later by the access log writer. It only keeps the request or
+ * status line, the references to the (immutable) headers, the remote address and the content length,
+ * so the message itself and its entity are not retained until the access is logged.
+ */
+final class AccessRecord {
+
+    private static final String REMOTE_ADDRESS_PARAM = "http.remote.addr";
+
+    private final long time;
+    private final RequestLine requestLine;
+    private final StatusLine statusLine;
+    private final Header[] headers;
+    private final String remoteAddress;
+    private final boolean hasEntity;
+    private final long contentLength;
+
+    private AccessRecord(long time, RequestLine requestLine, StatusLine statusLine, Header[] headers,
+                         String remoteAddress, HttpEntity entity) {
+        this.time = time;
+        this.requestLine = requestLine;
+        this.statusLine = statusLine;
+        this.headers = headers;
+        this.remoteAddress = remoteAddress;
+        this.hasEntity = entity != null;
+        this.contentLength = entity != null ? entity.getContentLength() : -1;
+    }
+
+    static AccessRecord of(HttpRequest request, long time) {
+        return new AccessRecord(time, request.getRequestLine(), null, request.getAllHeaders(),
+                (String) request.getParams().getParameter(REMOTE_ADDRESS_PARAM), null);
+    }
+
+    static AccessRecord of(HttpResponse response, long time) {
+        return new AccessRecord(time, null, response.getStatusLine(), response.getAllHeaders(),
+                (String) response.getParams().getParameter(REMOTE_ADDRESS_PARAM), response.getEntity());
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    boolean isRequest() {
+        return requestLine != null;
+    }
+
+    /**
+     * @return a request holding the recorded values, to be formatted by the log elements
+     */
+    HttpRequest toRequest() {
+        BasicHttpRequest request = new BasicHttpRequest(requestLine);
+        request.setHeaders(headers);
+        if (remoteAddress != null) {
+            request.getParams().setParameter(REMOTE_ADDRESS_PARAM, remoteAddress);
+        }
+        return request;
+    }
+
+    /**
+     * @return a response holding the recorded values, to be formatted by the log elements
+     */
+    HttpResponse toResponse() {
+        BasicHttpResponse response = new BasicHttpResponse(statusLine);
+        response.setHeaders(headers);
+        if (remoteAddress != null) {
+            response.getParams().setParameter(REMOTE_ADDRESS_PARAM, remoteAddress);
+        }
+        if (hasEntity) {
+            BasicHttpEntity entity = new BasicHttpEntity();
+            entity.setContentLength(contentLength);
+            response.setEntity(entity);
+        }
+        return response;
+    }
+}
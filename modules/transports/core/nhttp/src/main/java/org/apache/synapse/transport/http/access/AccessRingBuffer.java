@@ -0,0 +1,107 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.access;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded ring buffer of access records, written by the IO threads and read by the single access
+ * log writer thread. Producers claim a slot with a single CAS on the tail and publish the record
+ * through the sequence of the slot, so adding a record never takes a lock.
+ */
+final class AccessRingBuffer {
+
+    private final AtomicReferenceArray<AccessRecord> slots;
+    /** the position a slot can be written at, or that position + 1 once the slot is published */
+    private final AtomicLongArray sequences;
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    /** only updated by the consumer */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity the minimum capacity of the buffer, rounded up to a power of two
+     */
+    AccessRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<AccessRecord>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds a record to the buffer
+     *
+     * @param record the record to add
+     * @return false if the buffer is full
+     */
+    boolean offer(AccessRecord record) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.lazySet(index, record);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest record of the buffer, to be called by a single consumer thread
+     *
+     * @return the record, or null if the buffer is empty
+     */
+    AccessRecord poll() {
+        long position = head.get();
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        AccessRecord record = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.lazySet(index, position + capacity);
+        head.lazySet(position + 1);
+        return record;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
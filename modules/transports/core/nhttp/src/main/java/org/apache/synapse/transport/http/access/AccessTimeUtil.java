@@ -65,6 +65,14 @@ public class AccessTimeUtil {
         }
     }
 
+    private static String getTimeZone(long time) {
+        try {
+            return calculateTimeZoneOffset(TimeZone.getDefault().getOffset(time));
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
     /**
      * AccessDateStruct Class
      */
@@ -77,12 +85,23 @@ public class AccessTimeUtil {
 
         private SimpleDateFormat timeFormatter = new SimpleDateFormat("HH:mm:ss.SSS");
 
+        private SimpleDateFormat secondFormatter = new SimpleDateFormat("HH:mm:ss");
+
+        /**
+         * The second of the cached date prefix, e.g. "[01/Jan/2024:10:15:30." and suffix,
+         * e.g. " +0530]", which only change once a second.
+         */
+        private long cachedSecond = Long.MIN_VALUE;
+        private String cachedPrefix;
+        private String cachedSuffix;
+
         public AccessDateStruct() {
             TimeZone tz = TimeZone.getDefault();
             dayFormatter.setTimeZone(tz);
             monthFormatter.setTimeZone(tz);
             yearFormatter.setTimeZone(tz);
             timeFormatter.setTimeZone(tz);
+            secondFormatter.setTimeZone(tz);
         }
     }
 
@@ -183,18 +202,36 @@ public class AccessTimeUtil {
      */
     private static String getAccessDateFormatted(Date date) {
         AccessDateStruct struct = currentDateStruct.get();
+        long time = date.getTime();
+        long second = Math.floorDiv(time, 1000L);
+        if (second != struct.cachedSecond) {
+            // the date formatters are only used once a second, the milliseconds are appended below
+            StringBuilder prefix = new StringBuilder(32);
+            prefix.append('[');
+            prefix.append(struct.dayFormatter.format(date));
+            prefix.append('/');
+            prefix.append(lookup(struct.monthFormatter.format(date)));
+            prefix.append('/');
+            prefix.append(struct.yearFormatter.format(date));
+            prefix.append(':');
+            prefix.append(struct.secondFormatter.format(date));
+            prefix.append('.');
+            struct.cachedPrefix = prefix.toString();
+            struct.cachedSuffix = ' ' + getTimeZone(time) + ']';
+            struct.cachedSecond = second;
+        }
+
+        int millis = (int) Math.floorMod(time, 1000L);
         StringBuilder current = new StringBuilder(32);
-        current.append('[');
-        current.append(struct.dayFormatter.format(date));
-        current.append('/');
-        current.append(lookup(struct.monthFormatter.format(date)));
-        current.append('/');
-        current.append(struct.yearFormatter.format(date));
-        current.append(':');
-        current.append(struct.timeFormatter.format(date));
-        current.append(' ');
-        current.append(AccessTimeUtil.getTimeZone());
-        current.append(']');
+        current.append(struct.cachedPrefix);
+        if (millis < 100) {
+            current.append('0');
+        }
+        if (millis < 10) {
+            current.append('0');
+        }
+        current.append(millis);
+        current.append(struct.cachedSuffix);
 
         return current.toString();
     }
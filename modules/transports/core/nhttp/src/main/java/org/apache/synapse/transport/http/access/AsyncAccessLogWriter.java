@@ -0,0 +1,173 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.access;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the accesses recorded by the IO threads to the access logs from a single thread. The IO
+ * threads only add a compact {@link AccessRecord} to a bounded {@link AccessRingBuffer}, while the
+ * writer thread formats the records and writes them in batches, flushing the log file once per
+ * batch. When the buffer is full, records are either dropped (and the number of dropped records
+ * logged) or the IO thread waits for the writer to catch up, depending on the configured policy.
+ */
+class AsyncAccessLogWriter implements Runnable {
+
+    private static final Log log = LogFactory.getLog(AsyncAccessLogWriter.class);
+
+    /** time the writer waits for new records when the buffer is empty */
+    private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** time an IO thread waits before retrying to add a record to a full buffer */
+    private static final long FULL_WAIT = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Access access;
+    private final AccessRingBuffer buffer;
+    private final int batchSize;
+    private final boolean blockWhenFull;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private long reportedDroppedCount = 0;
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * @param access        formats and writes the records
+     * @param bufferSize    the number of records the buffer can hold
+     * @param batchSize     the maximum number of records written at once
+     * @param blockWhenFull whether the IO threads wait when the buffer is full instead of dropping records
+     */
+    AsyncAccessLogWriter(Access access, int bufferSize, int batchSize, boolean blockWhenFull) {
+        this.access = access;
+        this.buffer = new AccessRingBuffer(bufferSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.blockWhenFull = blockWhenFull;
+        this.thread = new Thread(this, "access-log-writer");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+        if (log.isDebugEnabled()) {
+            log.debug("Started the asynchronous access log writer with a buffer of " + buffer.capacity() +
+                    " records, " + (blockWhenFull ? "blocking" : "dropping records") + " when full");
+        }
+    }
+
+    /**
+     * Adds a record to be written, called by the IO threads
+     *
+     * @param record the access record
+     */
+    void submit(AccessRecord record) {
+        if (buffer.offer(record)) {
+            return;
+        }
+        if (!blockWhenFull) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        while (!buffer.offer(record)) {
+            if (!running || Thread.currentThread().isInterrupted()) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            LockSupport.parkNanos(FULL_WAIT);
+        }
+    }
+
+    public void run() {
+        List<String> lines = new ArrayList<String>(batchSize);
+        while (running) {
+            if (writeBatch(lines) == 0) {
+                LockSupport.parkNanos(IDLE_WAIT);
+            }
+        }
+        while (writeBatch(lines) > 0) {
+            // write the records added before the writer was closed
+        }
+    }
+
+    private int writeBatch(List<String> lines) {
+        AccessRecord record;
+        while (lines.size() < batchSize && (record = buffer.poll()) != null) {
+            try {
+                lines.add(access.format(record));
+            } catch (Throwable t) {
+                AccessTimeUtil.handleThrowable(t);
+                log.debug("Error while formatting an access log record", t);
+            }
+        }
+        int count = lines.size();
+        if (count > 0) {
+            try {
+                access.write(lines);
+            } catch (Throwable t) {
+                AccessTimeUtil.handleThrowable(t);
+                log.warn("Error while writing the access logs", t);
+            }
+            writtenCount.addAndGet(count);
+            lines.clear();
+        }
+
+        long dropped = droppedCount.get();
+        if (dropped != reportedDroppedCount) {
+            log.warn("Dropped " + (dropped - reportedDroppedCount) + " access log records as the " +
+                    "access log buffer of " + buffer.capacity() + " records was full");
+            reportedDroppedCount = dropped;
+        }
+        return count;
+    }
+
+    /**
+     * Stops the writer after writing the records in the buffer
+     *
+     * @param timeout the time in milliseconds to wait for the remaining records to be written
+     */
+    void close(long timeout) {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    int getPendingCount() {
+        return buffer.size();
+    }
+}
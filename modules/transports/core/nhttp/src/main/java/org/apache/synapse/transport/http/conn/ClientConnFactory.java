@@ -196,6 +196,7 @@ public class ClientConnFactory {
      */
     private SSLIOSession createClientModeSSLsession(IOSession iosession, SSLContext customContext) {
         final SocketAddress address = iosession.getRemoteAddress();
+        SSLHandshakeMetrics.markHandshakeStart(iosession);
         SSLIOSession ssliosession;
         if (address instanceof InetSocketAddress) {
             final String endpoint = (String) iosession.getAttribute("endPointURI");
@@ -51,6 +51,9 @@ public class ClientSSLSetupHandler implements SSLSetupHandler {
      **/
     private String[] preferredCiphers;
 
+    /** Counts the handshakes per route, null if not collected */
+    private SSLHandshakeMetrics handshakeMetrics;
+
     static {
         Arrays.sort(LOCALHOSTS);
     }
@@ -165,6 +168,9 @@ public class ClientSSLSetupHandler implements SSLSetupHandler {
 
     public void verify(IOSession iosession, SSLSession sslsession) throws SSLException {
         SocketAddress remoteAddress = iosession.getRemoteAddress();
+        if (handshakeMetrics != null) {
+            handshakeMetrics.recordHandshake(getRoute(remoteAddress), iosession, sslsession);
+        }
         String address;
         String endpoint = (String) iosession.getAttribute(SynapseHTTPRequestFactory.ENDPOINT_URL);
         if (endpoint != null && !endpoint.isEmpty()) {
@@ -220,4 +226,25 @@ public class ClientSSLSetupHandler implements SSLSetupHandler {
         this.preferredCiphers = enabledCiphers;
     }
 
+    /**
+     * Set the metrics to record the handshakes with the backends in
+     *
+     * @param handshakeMetrics handshake metrics of the sender
+     */
+    public void setHandshakeMetrics(SSLHandshakeMetrics handshakeMetrics) {
+        this.handshakeMetrics = handshakeMetrics;
+    }
+
+    public SSLHandshakeMetrics getHandshakeMetrics() {
+        return handshakeMetrics;
+    }
+
+    private static String getRoute(SocketAddress remoteAddress) {
+        if (remoteAddress instanceof InetSocketAddress) {
+            InetSocketAddress address = (InetSocketAddress) remoteAddress;
+            return address.getHostString() + ":" + address.getPort();
+        }
+        return String.valueOf(remoteAddress);
+    }
+
 }
\ No newline at end of file
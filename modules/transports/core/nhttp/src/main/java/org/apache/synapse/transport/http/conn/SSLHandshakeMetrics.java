@@ -0,0 +1,178 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.conn;
+
+import org.apache.http.nio.reactor.IOSession;
+
+import javax.net.ssl.SSLSession;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the full and resumed TLS handshakes of a listener or a sender, and the time they take, for each listener
+ * address or route. Handshakes are timed from the creation of the SSL session of the connection, which the
+ * connection factories record with {@link #markHandshakeStart(IOSession)}, to the verification of the peer.
+ *
+ * A handshake is counted as resumed if the negotiated session was created before the handshake started.
+ */
+public class SSLHandshakeMetrics implements SSLHandshakeMetricsMBean {
+
+    /** Transport parameter enabling the handshake metrics of a listener or a sender, false by default */
+    public static final String METRICS_ENABLED = "SSLHandshakeMetrics";
+
+    /**
+     * IO session attribute holding the time at which the handshake started, as System.nanoTime() and
+     * System.currentTimeMillis()
+     */
+    public static final String HANDSHAKE_START = "SSL_HANDSHAKE_START";
+
+    private final HandshakeCounters total = new HandshakeCounters();
+    private final ConcurrentMap<String, HandshakeCounters> countersByKey =
+            new ConcurrentHashMap<String, HandshakeCounters>();
+
+    public static void markHandshakeStart(IOSession iosession) {
+        iosession.setAttribute(HANDSHAKE_START, new long[]{System.nanoTime(), System.currentTimeMillis()});
+    }
+
+    /**
+     * Records a completed handshake. Called by the SSL setup handlers when the peer is verified.
+     *
+     * @param key        the listener address or the route of the connection
+     * @param iosession  the IO session of the connection
+     * @param sslsession the negotiated SSL session
+     */
+    public void recordHandshake(String key, IOSession iosession, SSLSession sslsession) {
+        long now = System.nanoTime();
+        Object start = iosession.getAttribute(HANDSHAKE_START);
+        long duration = -1;
+        boolean resumed = false;
+        if (start instanceof long[]) {
+            long[] startTime = (long[]) start;
+            duration = now - startTime[0];
+            resumed = sslsession.getCreationTime() < startTime[1];
+            iosession.removeAttribute(HANDSHAKE_START);
+        }
+        total.record(resumed, duration);
+        HandshakeCounters counters = countersByKey.get(key);
+        if (counters == null) {
+            counters = new HandshakeCounters();
+            HandshakeCounters existing = countersByKey.putIfAbsent(key, counters);
+            if (existing != null) {
+                counters = existing;
+            }
+        }
+        counters.record(resumed, duration);
+    }
+
+    public long getFullHandshakeCount() {
+        return total.fullCount.sum();
+    }
+
+    public long getResumedHandshakeCount() {
+        return total.resumedCount.sum();
+    }
+
+    public double getResumptionRatio() {
+        return total.getResumptionRatio();
+    }
+
+    public double getAverageFullHandshakeTime() {
+        return average(total.fullTime, total.fullTimed);
+    }
+
+    public double getAverageResumedHandshakeTime() {
+        return average(total.resumedTime, total.resumedTimed);
+    }
+
+    public Map<String, String> getHandshakeStatistics() {
+        Map<String, String> statistics = new TreeMap<String, String>();
+        for (Map.Entry<String, HandshakeCounters> entry : countersByKey.entrySet()) {
+            HandshakeCounters counters = entry.getValue();
+            statistics.put(entry.getKey(), "full=" + counters.fullCount.sum() +
+                    ", resumed=" + counters.resumedCount.sum() +
+                    ", avgFullMs=" + String.format("%.2f", average(counters.fullTime, counters.fullTimed)) +
+                    ", avgResumedMs=" + String.format("%.2f", average(counters.resumedTime, counters.resumedTimed)));
+        }
+        return statistics;
+    }
+
+    public long getFullHandshakeCount(String key) {
+        HandshakeCounters counters = countersByKey.get(key);
+        return counters != null ? counters.fullCount.sum() : 0;
+    }
+
+    public long getResumedHandshakeCount(String key) {
+        HandshakeCounters counters = countersByKey.get(key);
+        return counters != null ? counters.resumedCount.sum() : 0;
+    }
+
+    public void reset() {
+        total.reset();
+        countersByKey.clear();
+    }
+
+    private static double average(LongAdder nanos, LongAdder count) {
+        long n = count.sum();
+        return n == 0 ? 0 : nanos.sum() / (n * 1000000.0);
+    }
+
+    private static class HandshakeCounters {
+
+        private final LongAdder fullCount = new LongAdder();
+        private final LongAdder resumedCount = new LongAdder();
+        private final LongAdder fullTime = new LongAdder();
+        private final LongAdder fullTimed = new LongAdder();
+        private final LongAdder resumedTime = new LongAdder();
+        private final LongAdder resumedTimed = new LongAdder();
+
+        void record(boolean resumed, long duration) {
+            if (resumed) {
+                resumedCount.increment();
+                if (duration >= 0) {
+                    resumedTime.add(duration);
+                    resumedTimed.increment();
+                }
+            } else {
+                fullCount.increment();
+                if (duration >= 0) {
+                    fullTime.add(duration);
+                    fullTimed.increment();
+                }
+            }
+        }
+
+        double getResumptionRatio() {
+            long resumed = resumedCount.sum();
+            long all = resumed + fullCount.sum();
+            return all == 0 ? 0 : (double) resumed / all;
+        }
+
+        void reset() {
+            fullCount.reset();
+            resumedCount.reset();
+            fullTime.reset();
+            fullTimed.reset();
+            resumedTime.reset();
+            resumedTimed.reset();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.conn;
+
+import java.util.Map;
+
+/**
+ * JMX view of the TLS handshakes of a listener or a sender.
+ */
+public interface SSLHandshakeMetricsMBean {
+
+    long getFullHandshakeCount();
+
+    long getResumedHandshakeCount();
+
+    /**
+     * @return the share of handshakes which resumed a previous session, between 0 and 1
+     */
+    double getResumptionRatio();
+
+    /**
+     * @return the average time in milliseconds taken by a full handshake
+     */
+    double getAverageFullHandshakeTime();
+
+    /**
+     * @return the average time in milliseconds taken by a resumed handshake
+     */
+    double getAverageResumedHandshakeTime();
+
+    /**
+     * @return a summary of the handshakes against each listener address or route
+     */
+    Map<String, String> getHandshakeStatistics();
+
+    void reset();
+}
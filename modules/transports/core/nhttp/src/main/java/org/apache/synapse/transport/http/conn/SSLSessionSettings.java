@@ -0,0 +1,104 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.conn;
+
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.description.Parameter;
+import org.apache.axis2.description.ParameterInclude;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * TLS session resumption settings of a listener or a sender, read from the following transport parameters:
+ * <pre>
+ * &lt;parameter name="SSLSessionCacheSize"&gt;10000&lt;/parameter&gt;
+ * &lt;parameter name="SSLSessionTimeout"&gt;86400&lt;/parameter&gt;
+ * </pre>
+ * The cache size and the timeout (in seconds) apply to the session cache of the SSL contexts of the transport.
+ * The client session cache of a sender is keyed by the host and port of the backend, so a new connection to a
+ * route resumes the session of a previous connection to the same route instead of doing a full handshake.
+ *
+ * Session tickets (RFC 5077) cannot be set per transport: JSSE reads the jdk.tls.client.enableSessionTicketExtension
+ * and jdk.tls.server.enableSessionTicketExtension system properties once, before the first SSL context is created,
+ * so they must be passed as JVM startup flags, e.g. -Djdk.tls.server.enableSessionTicketExtension=true.
+ */
+public class SSLSessionSettings {
+
+    public static final String SESSION_CACHE_SIZE = "SSLSessionCacheSize";
+    public static final String SESSION_TIMEOUT = "SSLSessionTimeout";
+
+    private final Integer cacheSize;
+    private final Integer timeout;
+
+    public SSLSessionSettings(Integer cacheSize, Integer timeout) {
+        this.cacheSize = cacheSize;
+        this.timeout = timeout;
+    }
+
+    public static SSLSessionSettings parse(ParameterInclude transport) throws AxisFault {
+        return new SSLSessionSettings(getIntValue(transport, SESSION_CACHE_SIZE),
+                getIntValue(transport, SESSION_TIMEOUT));
+    }
+
+    public void applyToClient(SSLContext sslContext) {
+        apply(sslContext.getClientSessionContext());
+    }
+
+    public void applyToServer(SSLContext sslContext) {
+        apply(sslContext.getServerSessionContext());
+    }
+
+    private void apply(SSLSessionContext sessionContext) {
+        if (sessionContext == null) {
+            return;
+        }
+        if (cacheSize != null) {
+            sessionContext.setSessionCacheSize(cacheSize);
+        }
+        if (timeout != null) {
+            sessionContext.setSessionTimeout(timeout);
+        }
+    }
+
+    private static String getValue(ParameterInclude transport, String name) {
+        Parameter parameter = transport.getParameter(name);
+        if (parameter == null || parameter.getValue() == null) {
+            return null;
+        }
+        String value = parameter.getValue().toString().trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer getIntValue(ParameterInclude transport, String name) throws AxisFault {
+        String value = getValue(transport, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            int intValue = Integer.parseInt(value);
+            if (intValue < 0) {
+                throw new AxisFault("The " + name + " transport parameter cannot be negative");
+            }
+            return intValue;
+        } catch (NumberFormatException e) {
+            throw new AxisFault("Invalid value for the " + name + " transport parameter : " + value, e);
+        }
+    }
+}
@@ -91,6 +91,7 @@ public class ServerConnFactory {
         }
         IOSession customSession;
         if (customSSL != null) {
+            SSLHandshakeMetrics.markHandshakeStart(iosession);
             customSession = new SSLIOSession(
                 iosession, SSLMode.SERVER, customSSL.getContext(), customSSL.getHandler());
             iosession.setAttribute(SSLIOSession.SESSION_KEY, customSession);
@@ -38,6 +38,8 @@ public class ServerSSLSetupHandler implements SSLSetupHandler {
     private CertificateVerificationManager verificationManager;
     /** Ciphers enabled in axis2.xml, enabled all if null*/
     private final String[] preferredCiphers;
+    /** Counts the handshakes per listener address, null if not collected */
+    private SSLHandshakeMetrics handshakeMetrics;
 
     public ServerSSLSetupHandler(final SSLClientAuth clientAuth, final String[] httpsProtocols,
             final CertificateVerificationManager verificationManager, final String[] preferredCiphers) {
@@ -75,6 +77,10 @@ public class ServerSSLSetupHandler implements SSLSetupHandler {
             final IOSession iosession,
             final SSLSession sslsession) throws SSLException {
 
+        if (handshakeMetrics != null) {
+            handshakeMetrics.recordHandshake(getListenerAddress(iosession), iosession, sslsession);
+        }
+
         if (verificationManager != null) {
             try {
                 verificationManager.verifyCertificateValidity(sslsession.getPeerCertificates());
@@ -98,4 +104,23 @@ public class ServerSSLSetupHandler implements SSLSetupHandler {
 
     }
 
+    public void setHandshakeMetrics(SSLHandshakeMetrics handshakeMetrics) {
+        this.handshakeMetrics = handshakeMetrics;
+    }
+
+    public SSLHandshakeMetrics getHandshakeMetrics() {
+        return handshakeMetrics;
+    }
+
+    private static String getListenerAddress(IOSession iosession) {
+        SocketAddress localAddress = iosession.getLocalAddress();
+        if (localAddress instanceof InetSocketAddress) {
+            InetSocketAddress address = (InetSocketAddress) localAddress;
+            return address.getAddress() != null ?
+                    address.getAddress().getHostAddress() + ":" + address.getPort() :
+                    address.getHostString() + ":" + address.getPort();
+        }
+        return String.valueOf(localAddress);
+    }
+
 }
\ No newline at end of file
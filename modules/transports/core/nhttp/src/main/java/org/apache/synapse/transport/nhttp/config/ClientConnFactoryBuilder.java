@@ -32,12 +32,15 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.conn.ssl.X509HostnameVerifier;
 import org.apache.http.params.HttpParams;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.certificatevalidation.CertificateVerificationManager;
 import org.apache.synapse.transport.exceptions.InvalidConfigurationException;
 import org.apache.synapse.transport.http.conn.ClientConnFactory;
 import org.apache.synapse.transport.http.conn.ClientSSLSetupHandler;
 import org.apache.synapse.transport.http.conn.RequestDescriptor;
 import org.apache.synapse.transport.http.conn.SSLContextDetails;
+import org.apache.synapse.transport.http.conn.SSLHandshakeMetrics;
+import org.apache.synapse.transport.http.conn.SSLSessionSettings;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.transport.nhttp.NoValidateCertTrustManager;
 import org.apache.synapse.transport.nhttp.util.SecureVaultValueReader;
@@ -73,6 +76,8 @@ public class ClientConnFactoryBuilder {
 
     private SSLContextDetails ssl = null;
     private Map<RequestDescriptor, SSLContext> sslByHostMap = null;
+    private SSLSessionSettings sessionSettings = null;
+    private SSLHandshakeMetrics handshakeMetrics = null;
     private  ConfigurationContext configurationContext;
     private static final String PKIX = "PKIX";
     private static final String JCE_PROVIDER = "security.jce.provider";
@@ -146,7 +151,9 @@ public class ClientConnFactoryBuilder {
                 cacheDelay = new Integer(cacheDelayString);
             } catch (NumberFormatException e) {
             }
-            certificateVerifier = new CertificateVerificationManager(cacheSize, cacheDelay);
+            OMElement cacheDirectoryEl = cvp.getParameterElement().getFirstChildWithName(new QName("CacheDirectory"));
+            certificateVerifier = new CertificateVerificationManager(cacheSize, cacheDelay, true, false,
+                    cacheDirectoryEl != null ? cacheDirectoryEl.getText() : null);
         }
 
         // Process HttpProtocols
@@ -172,6 +179,9 @@ public class ClientConnFactoryBuilder {
         if (null != httpsProtocols) {
             clientSSLSetupHandler.setHttpsProtocols(httpsProtocols);
         }
+        if (ParamUtils.getOptionalParamBoolean(transportOut, SSLHandshakeMetrics.METRICS_ENABLED, false)) {
+            clientSSLSetupHandler.setHandshakeMetrics(getHandshakeMetrics());
+        }
 
         //Process enabled ciphers
         OMElement preferredCiphersEl = preferredCiphersParam != null ? preferredCiphersParam.getParameterElement() :
@@ -450,6 +460,7 @@ public class ClientConnFactoryBuilder {
             final String sslProtocol = sslpParameter != null ? sslpParameter.getValue().toString() : "TLS";
             SSLContext sslcontext = SSLContext.getInstance(sslProtocol);
             sslcontext.init(keymanagers, trustManagers, null);
+            applySessionSettings(sslcontext);
             return sslcontext;
 
         } catch (GeneralSecurityException gse) {
@@ -540,6 +551,7 @@ public class ClientConnFactoryBuilder {
             final String sslProtocol = sslpParameter != null ? sslpParameter.getValue().toString() : "TLS";
             SSLContext sslcontext = SSLContext.getInstance(sslProtocol);
             sslcontext.init(keymanagers, trustManagers, null);
+            applySessionSettings(sslcontext);
             return sslcontext;
 
         } catch (GeneralSecurityException gse) {
@@ -609,6 +621,28 @@ public class ClientConnFactoryBuilder {
         return ssl;
     }
 
+    /**
+     * @return the metrics of the TLS handshakes of the sender with its backends
+     */
+    public synchronized SSLHandshakeMetrics getHandshakeMetrics() {
+        if (handshakeMetrics == null) {
+            handshakeMetrics = new SSLHandshakeMetrics();
+            MBeanRegistrar.getInstance().registerMBean(handshakeMetrics, "SSLHandshakes", name + "-Sender");
+        }
+        return handshakeMetrics;
+    }
+
+    /**
+     * Applies the session cache settings of the sender to a new SSL context. The JSSE client session cache of the
+     * context is keyed by the host and port of the backend, so each route resumes its own sessions.
+     */
+    private void applySessionSettings(SSLContext sslContext) throws AxisFault {
+        if (sessionSettings == null) {
+            sessionSettings = SSLSessionSettings.parse(transportOut);
+        }
+        sessionSettings.applyToClient(sslContext);
+    }
+
     private static String getKeyManagerType() {
         String provider = System.getProperty(JCE_PROVIDER);
         if (StringUtils.isNotEmpty(provider)) {
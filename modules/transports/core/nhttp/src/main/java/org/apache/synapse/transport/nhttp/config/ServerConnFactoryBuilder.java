@@ -31,9 +31,12 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpHost;
 import org.apache.http.params.HttpParams;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.certificatevalidation.CertificateVerificationManager;
 import org.apache.synapse.transport.http.conn.SSLClientAuth;
 import org.apache.synapse.transport.http.conn.SSLContextDetails;
+import org.apache.synapse.transport.http.conn.SSLHandshakeMetrics;
+import org.apache.synapse.transport.http.conn.SSLSessionSettings;
 import org.apache.synapse.transport.http.conn.ServerConnFactory;
 import org.apache.synapse.transport.http.conn.ServerSSLSetupHandler;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
@@ -74,6 +77,7 @@ public class ServerConnFactoryBuilder {
     private Map<InetSocketAddress, SSLContextDetails> sslByIPMap = null;
     private ConfigurationContext configurationContext;
     CertificateVerificationManager certificateVerifier = null;
+    private SSLHandshakeMetrics handshakeMetrics;
     private static final String PKIX = "PKIX";
     private static final String JCE_PROVIDER = "security.jce.provider";
 
@@ -278,11 +282,18 @@ public class ServerConnFactoryBuilder {
             final String sslProtocolValue = sslProtocol != null ? sslProtocol : "TLS";
             SSLContext sslContext = SSLContext.getInstance(sslProtocolValue);
             sslContext.init(keymanagers, trustManagers, null);
+            SSLSessionSettings.parse(transportIn).applyToServer(sslContext);
 
+            // a setup handler is only needed for client auth, protocol or cipher settings, or to count the handshakes
+            boolean metricsEnabled =
+                    ParamUtils.getOptionalParamBoolean(transportIn, SSLHandshakeMetrics.METRICS_ENABLED, false);
             ServerSSLSetupHandler sslSetupHandler = (clientAuth != null || httpsProtocols != null
-                    || preferredCiphers != null) ?
+                    || preferredCiphers != null || metricsEnabled) ?
                     new ServerSSLSetupHandler(clientAuth, httpsProtocols, verificationManager, preferredCiphers) :
                     null;
+            if (metricsEnabled) {
+                sslSetupHandler.setHandshakeMetrics(getHandshakeMetrics());
+            }
 
             return new SSLContextDetails(sslContext, sslSetupHandler);
         } catch (GeneralSecurityException gse) {
@@ -291,6 +302,17 @@ public class ServerConnFactoryBuilder {
         }
     }
 
+    /**
+     * @return the metrics of the TLS handshakes of the listener, shared by all its SSL contexts
+     */
+    public synchronized SSLHandshakeMetrics getHandshakeMetrics() {
+        if (handshakeMetrics == null) {
+            handshakeMetrics = new SSLHandshakeMetrics();
+            MBeanRegistrar.getInstance().registerMBean(handshakeMetrics, "SSLHandshakes", name + "-Listener");
+        }
+        return handshakeMetrics;
+    }
+
     public ServerConnFactoryBuilder parseSSL() throws AxisFault {
         Parameter keyParam = transportIn.getParameter("keystore");
         Parameter trustParam = transportIn.getParameter("truststore");
@@ -339,8 +361,12 @@ public class ServerConnFactoryBuilder {
                 isCertExpiryValidationEnabled = true;
             }
 
+            OMElement cacheDirectoryConfig = cvp.getParameterElement()
+                    .getFirstChildWithName(new QName("CacheDirectory"));
+
             certificateVerifier = new CertificateVerificationManager(cacheSize, cacheDelay,
-                    isFullCertChainValidationEnabled, isCertExpiryValidationEnabled);
+                    isFullCertChainValidationEnabled, isCertExpiryValidationEnabled,
+                    cacheDirectoryConfig != null ? cacheDirectoryConfig.getText() : null);
         }
 
         ssl = createSSLContext(keyStoreEl, trustStoreEl, clientAuthEl, httpsProtocolsEl, preferredCiphersEl,
@@ -419,8 +445,12 @@ public class ServerConnFactoryBuilder {
                         isCertExpiryValidationEnabled = true;
                     }
 
+                    OMElement cacheDirectoryConfig = revocationVerifierConfig
+                            .getFirstChildWithName(new QName("CacheDirectory"));
+
                     certificateVerifier = new CertificateVerificationManager(cacheSize, cacheDelay,
-                            isFullCertChainValidationEnabled, isCertExpiryValidationEnabled);
+                            isFullCertChainValidationEnabled, isCertExpiryValidationEnabled,
+                            cacheDirectoryConfig != null ? cacheDirectoryConfig.getText() : null);
                 }
             }
 
@@ -28,6 +28,7 @@ import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.params.HttpProtocolParams;
 import org.apache.http.protocol.HTTP;
+import org.apache.synapse.commons.executors.VirtualThreadWorkerPool;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.util.BufferFactory;
@@ -99,6 +100,16 @@ public abstract class BaseConfiguration {
     public void build() throws AxisFault {
         iOBufferSize = conf.getIOBufferSize();
 
+        if (workerPool == null && conf.isWorkerPoolVirtualThreads()) {
+            workerPool = new VirtualThreadWorkerPool(PASSTHROUGH_THREAD_ID,
+                    conf.getWorkerPoolVirtualMaxConcurrency());
+        }
+
+        if (secondaryWorkerPool == null && conf.isWorkerPoolVirtualThreads()) {
+            secondaryWorkerPool = new VirtualThreadWorkerPool(SECONDARY_PASSTHROUGH_THREAD_ID,
+                    conf.getWorkerPoolVirtualMaxConcurrency());
+        }
+
         if (workerPool == null) {
             workerPool = WorkerPoolFactory.getWorkerPool(
                             conf.getWorkerPoolCoreSize(),
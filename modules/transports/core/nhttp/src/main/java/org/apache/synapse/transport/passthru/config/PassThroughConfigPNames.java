@@ -44,6 +44,18 @@ public interface PassThroughConfigPNames {
      */
     public String WORKER_POOL_QUEUE_LENGTH = "worker_pool_queue_length";
 
+    /**
+     * Defines whether the worker pools run each task on a virtual thread instead of a pool of
+     * platform threads. The pool sizes and queue lengths are ignored when enabled.
+     */
+    public String WORKER_POOL_VIRTUAL_THREADS = "worker_pool_virtual_threads";
+
+    /**
+     * Defines the maximum number of tasks a virtual thread worker pool runs at the same time.
+     * Further tasks are queued, without limit, and run as the running tasks complete.
+     */
+    public String WORKER_POOL_VIRTUAL_MAX_CONCURRENCY = "worker_pool_virtual_max_concurrency";
+
     /**
      * Defines the number of IO dispatcher threads used per reactor
      */
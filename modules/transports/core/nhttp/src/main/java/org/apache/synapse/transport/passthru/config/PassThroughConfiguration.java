@@ -45,6 +45,7 @@ public class PassThroughConfiguration {
     private static final int DEFAULT_WORKER_POOL_SIZE_MAX        = 200;
     private static final int DEFAULT_WORKER_THREAD_KEEPALIVE_SEC = 60;
     private static final int DEFAULT_WORKER_POOL_QUEUE_LENGTH    = -1;
+    private static final int DEFAULT_WORKER_POOL_VIRTUAL_MAX_CONCURRENCY = 10000;
     private static final int DEFAULT_IO_BUFFER_SIZE              = 8 * 1024;
     private static final int DEFAULT_IO_THREADS_PER_REACTOR      =
                                                          Runtime.getRuntime().availableProcessors();
@@ -130,6 +131,16 @@ public class PassThroughConfiguration {
                 DEFAULT_WORKER_POOL_QUEUE_LENGTH, props);
     }
 
+    public boolean isWorkerPoolVirtualThreads() {
+        return ConfigurationBuilderUtil.getBooleanProperty(PassThroughConfigPNames.WORKER_POOL_VIRTUAL_THREADS,
+                false, props);
+    }
+
+    public int getWorkerPoolVirtualMaxConcurrency() {
+        return ConfigurationBuilderUtil.getIntProperty(PassThroughConfigPNames.WORKER_POOL_VIRTUAL_MAX_CONCURRENCY,
+                DEFAULT_WORKER_POOL_VIRTUAL_MAX_CONCURRENCY, props);
+    }
+
     public int getIOThreadsPerReactor() {
         return ConfigurationBuilderUtil.getIntProperty(PassThroughConfigPNames.IO_THREADS_PER_REACTOR,
                 DEFAULT_IO_THREADS_PER_REACTOR, props);
@@ -51,12 +51,15 @@ public class SSLServerConnFactoryBuilder extends ServerConnFactoryBuilder {
             Iterator iterator = cvp.getChildElements();
             String cacheDelayString = null;
             String cacheSizeString = null;
+            String cacheDirectory = null;
             while(iterator.hasNext()) {
                 Object obj = iterator.next();
                 if (obj instanceof OMElement && ((OMElement) obj).getLocalName().equals("CacheSize")) {
                     cacheSizeString = ((OMElement)obj).getText();
                 } else if (obj instanceof OMElement && ((OMElement) obj).getLocalName().equals("CacheDelay")) {
                     cacheDelayString = ((OMElement)obj).getText();
+                } else if (obj instanceof OMElement && ((OMElement) obj).getLocalName().equals("CacheDirectory")) {
+                    cacheDirectory = ((OMElement)obj).getText();
                 }
             }
             Integer cacheSize = null;
@@ -69,7 +72,8 @@ public class SSLServerConnFactoryBuilder extends ServerConnFactoryBuilder {
             } catch (NumberFormatException e) {
                 log.error("Please specify correct Integer numbers for CacheDelay and CacheSize");
             }
-            revocationVerifier = new CertificateVerificationManager(cacheSize, cacheDelay);
+            revocationVerifier = new CertificateVerificationManager(cacheSize, cacheDelay, true, false,
+                    cacheDirectory);
         }
         ssl = createSSLContext(keyStoreEl, trustStoreEl, clientAuthEl, httpsProtocolsEl, preferredCiphers,
                 revocationVerifier,
@@ -0,0 +1,244 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.certificatevalidation;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.apache.synapse.commons.crypto.CryptoConstants;
+import org.apache.synapse.transport.certificatevalidation.cache.RevocationCacheStore;
+import org.apache.synapse.transport.certificatevalidation.ocsp.OCSPCache;
+import org.apache.synapse.transport.certificatevalidation.ocsp.OCSPVerifier;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RespID;
+import org.bouncycastle.crypto.util.PrivateKeyFactory;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.DefaultDigestAlgorithmIdentifierFinder;
+import org.bouncycastle.operator.DefaultSignatureAlgorithmIdentifierFinder;
+import org.bouncycastle.operator.bc.BcRSAContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the caching of OCSP responses against a stand-in OCSP responder running in the test, which signs GOOD
+ * responses with a fake CA and counts the requests it receives.
+ */
+public class RevocationCacheTest extends TestCase {
+
+    private KeyPair caKeyPair;
+    private X509Certificate caCert;
+    private StandInResponder responder;
+
+    protected void setUp() throws Exception {
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+        Utils utils = new Utils();
+        caKeyPair = utils.generateRSAKeyPair();
+        caCert = utils.generateFakeRootCert(caKeyPair);
+        responder = new StandInResponder();
+    }
+
+    protected void tearDown() throws Exception {
+        responder.stop();
+    }
+
+    public void testCachedResponseAvoidsResponderRequest() throws Exception {
+        X509Certificate peerCert = generatePeerCert(BigInteger.valueOf(1001));
+        OCSPVerifier verifier = new OCSPVerifier(OCSPCache.getCache(5, 5));
+
+        assertEquals(RevocationStatus.GOOD, verifier.checkRevocationStatus(peerCert, caCert));
+        assertEquals(1, responder.requests.get());
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RevocationStatus.GOOD, verifier.checkRevocationStatus(peerCert, caCert));
+        }
+        assertEquals("A cached response must not be requested again", 1, responder.requests.get());
+    }
+
+    public void testFailedLookupIsNegativelyCached() throws Exception {
+        X509Certificate peerCert = generatePeerCert(BigInteger.valueOf(1002));
+        OCSPVerifier verifier = new OCSPVerifier(OCSPCache.getCache(5, 5));
+        responder.statusCode = 500;
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                verifier.checkRevocationStatus(peerCert, caCert);
+                fail("The revocation status cannot be known when the responder fails");
+            } catch (CertificateVerificationException expected) {
+            }
+        }
+        assertEquals("The responder must not be contacted again after a failure", 1, responder.requests.get());
+    }
+
+    public void testResponseIsRefreshedBeforeNextUpdate() throws Exception {
+        X509Certificate peerCert = generatePeerCert(BigInteger.valueOf(1003));
+        OCSPVerifier verifier = new OCSPVerifier(OCSPCache.getCache(5, 5));
+        // responses which are 80% through their validity period after about 1.6 seconds, and expire after 3
+        responder.thisUpdateOffset = -8000;
+        responder.nextUpdateOffset = 4000;
+
+        assertEquals(RevocationStatus.GOOD, verifier.checkRevocationStatus(peerCert, caCert));
+        assertEquals(1, responder.requests.get());
+
+        Thread.sleep(2200);
+        // hold the refresh in the responder, so the check only returns if it does not wait for it
+        responder.gate = new CountDownLatch(1);
+        assertEquals(RevocationStatus.GOOD, verifier.checkRevocationStatus(peerCert, caCert));
+        assertEquals("The check must not wait for the refresh", 1, responder.responses.get());
+        responder.gate.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (responder.requests.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals("The response must be refreshed in the background", 2, responder.requests.get());
+    }
+
+    public void testResponsesArePersisted() throws Exception {
+        BigInteger serialNumber = BigInteger.valueOf(1004);
+        X509Certificate peerCert = generatePeerCert(serialNumber);
+        File directory = Files.createTempDirectory("ocsp-cache").toFile();
+        OCSPCache cache = OCSPCache.getCache(5, 5);
+        cache.setStore(new RevocationCacheStore(directory));
+        OCSPVerifier verifier = new OCSPVerifier(cache);
+
+        assertEquals(RevocationStatus.GOOD, verifier.checkRevocationStatus(peerCert, caCert));
+        assertEquals(1, responder.requests.get());
+
+        // simulate a restart: drop the entry from memory and load the persisted entries again
+        cache.removeCacheValue(serialNumber);
+        responder.stop();
+        cache.setStore(new RevocationCacheStore(directory));
+
+        assertEquals(RevocationStatus.GOOD, verifier.checkRevocationStatus(peerCert, caCert));
+        assertEquals(1, responder.requests.get());
+    }
+
+    private X509Certificate generatePeerCert(BigInteger serialNumber) throws Exception {
+        Utils utils = new Utils();
+        KeyPair peerKeyPair = utils.generateRSAKeyPair();
+        X509v3CertificateBuilder certBuilder = utils.getUsableCertificateBuilder(peerKeyPair.getPublic(),
+                serialNumber);
+        certBuilder.addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(
+                new AccessDescription(AccessDescription.id_ad_ocsp,
+                        new GeneralName(GeneralName.uniformResourceIdentifier, responder.getUrl()))));
+
+        AlgorithmIdentifier sigAlgId = new DefaultSignatureAlgorithmIdentifierFinder()
+                .find("SHA1WithRSAEncryption");
+        AlgorithmIdentifier digAlgId = new DefaultDigestAlgorithmIdentifierFinder().find(sigAlgId);
+        ContentSigner contentSigner = new BcRSAContentSignerBuilder(sigAlgId, digAlgId)
+                .build(PrivateKeyFactory.createKey(caKeyPair.getPrivate().getEncoded()));
+        return new JcaX509CertificateConverter().setProvider(CryptoConstants.BOUNCY_CASTLE_PROVIDER)
+                .getCertificate(certBuilder.build(contentSigner));
+    }
+
+    /**
+     * An OCSP responder which says that every certificate it is asked about is GOOD.
+     */
+    private class StandInResponder implements HttpHandler {
+
+        private final HttpServer server;
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicInteger responses = new AtomicInteger();
+        private volatile CountDownLatch gate;
+        private volatile int statusCode = 200;
+        private volatile long thisUpdateOffset = 0;
+        private volatile long nextUpdateOffset = TestConstants.NEXT_UPDATE_PERIOD;
+
+        StandInResponder() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/ocsp", this);
+            server.start();
+        }
+
+        String getUrl() {
+            return "http://localhost:" + server.getAddress().getPort() + "/ocsp";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            try {
+                CountDownLatch gate = this.gate;
+                if (gate != null) {
+                    gate.await(10, TimeUnit.SECONDS);
+                }
+                if (statusCode != 200) {
+                    exchange.sendResponseHeaders(statusCode, -1);
+                    return;
+                }
+                byte[] response = generateResponse(new OCSPReq(exchange.getRequestBody().readAllBytes()));
+                exchange.getResponseHeaders().add("Content-Type", OCSPVerifier.OCSP_RESPONSE_TYPE);
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+                responses.incrementAndGet();
+            }
+        }
+
+        private byte[] generateResponse(OCSPReq request) throws Exception {
+            X509CertificateHolder caHolder = new X509CertificateHolder(caCert.getEncoded());
+            BasicOCSPRespBuilder builder = new BasicOCSPRespBuilder(new RespID(caHolder.getSubject()));
+            long now = System.currentTimeMillis();
+            for (Req req : request.getRequestList()) {
+                builder.addResponse(req.getCertID(), CertificateStatus.GOOD, new Date(now + thisUpdateOffset),
+                        new Date(now + nextUpdateOffset), (Extensions) null);
+            }
+            ContentSigner signer = new JcaContentSignerBuilder("SHA1withRSA").setProvider("BC")
+                    .build(caKeyPair.getPrivate());
+            BasicOCSPResp basicResp = builder.build(signer, new X509CertificateHolder[]{caHolder}, new Date());
+            return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basicResp).getEncoded();
+        }
+    }
+}
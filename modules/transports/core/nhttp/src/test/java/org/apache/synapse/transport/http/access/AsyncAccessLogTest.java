@@ -0,0 +1,183 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.access;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the asynchronous access log mode, its ring buffer and the cached formatting of the dates.
+ */
+public class AsyncAccessLogTest {
+
+    private final Log log = LogFactory.getLog(AsyncAccessLogTest.class);
+
+    @Before
+    public void setUp() {
+        System.setProperty(AccessConstants.CONFIG_ASYNC_LOGGING, "true");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(AccessConstants.CONFIG_ASYNC_LOGGING);
+        System.clearProperty(AccessConstants.CONFIG_ASYNC_BUFFER_SIZE);
+        System.clearProperty(AccessConstants.CONFIG_ASYNC_FULL_POLICY);
+    }
+
+    @Test
+    public void testRingBufferOrderAndCapacity() {
+        AccessRingBuffer buffer = new AccessRingBuffer(5);
+        Assert.assertEquals(8, buffer.capacity());
+        List<AccessRecord> records = new ArrayList<AccessRecord>();
+        for (int i = 0; i < 8; i++) {
+            AccessRecord record = newRecord("/" + i);
+            records.add(record);
+            Assert.assertTrue(buffer.offer(record));
+        }
+        Assert.assertFalse(buffer.offer(newRecord("/full")));
+        Assert.assertEquals(8, buffer.size());
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 8; i++) {
+                Assert.assertSame(records.get(i), buffer.poll());
+                Assert.assertTrue(buffer.offer(records.get(i)));
+            }
+        }
+        for (int i = 0; i < 8; i++) {
+            Assert.assertSame(records.get(i), buffer.poll());
+        }
+        Assert.assertNull(buffer.poll());
+        Assert.assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testRingBufferWithConcurrentProducers() throws Exception {
+        final AccessRingBuffer buffer = new AccessRingBuffer(64);
+        final int producers = 4;
+        final int perProducer = 20000;
+        final AccessRecord record = newRecord("/");
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(record)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        int consumed = 0;
+        long deadline = System.currentTimeMillis() + 30000;
+        while (consumed < producers * perProducer && System.currentTimeMillis() < deadline) {
+            if (buffer.poll() != null) {
+                consumed++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        Assert.assertEquals(producers * perProducer, consumed);
+        Assert.assertNull(buffer.poll());
+    }
+
+    @Test
+    public void testCachedAccessDateFormatting() {
+        SimpleDateFormat expected = new SimpleDateFormat("'['dd/MMM/yyyy:HH:mm:ss.SSS Z']'", Locale.ENGLISH);
+        long time = System.currentTimeMillis();
+        long[] times = {time, time + 1, time + 7, time + 45, time + 999, time + 1000, time + 86400000L, 0};
+        for (long t : times) {
+            Date date = new Date(t);
+            Assert.assertEquals(expected.format(date), AccessTimeUtil.getAccessDate(date));
+        }
+    }
+
+    @Test
+    public void testRecordsAreFormattedByTheWriter() throws Exception {
+        Access access = new Access(log, new AccessLogger(log));
+        AsyncAccessLogWriter writer = access.getAsyncWriter();
+        Assert.assertNotNull(writer);
+
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/services/StockQuote?wsdl", HttpVersion.HTTP_1_1);
+        request.addHeader("User-Agent", "test-agent");
+        request.getParams().setParameter("http.remote.addr", "10.0.0.1");
+        String line = access.format(AccessRecord.of(request, System.currentTimeMillis()));
+        Assert.assertTrue(line, line.startsWith("- 10.0.0.1 - - ["));
+        Assert.assertTrue(line, line.contains("\"GET /services/StockQuote?wsdl HTTP/1.1\""));
+        Assert.assertTrue(line, line.endsWith("\"test-agent\""));
+
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 202, "Accepted");
+        line = access.format(AccessRecord.of(response, System.currentTimeMillis()));
+        Assert.assertTrue(line, line.contains(" 202 "));
+
+        for (int i = 0; i < 100; i++) {
+            access.addAccessToQueue(request);
+            access.addAccessToQueue(response);
+        }
+        access.close(TimeUnit.SECONDS.toMillis(10));
+        Assert.assertEquals(200, writer.getWrittenCount() + writer.getDroppedCount());
+        Assert.assertEquals(0, writer.getPendingCount());
+    }
+
+    @Test
+    public void testRecordsAreDroppedWhenTheBufferIsFull() throws Exception {
+        System.setProperty(AccessConstants.CONFIG_ASYNC_BUFFER_SIZE, "2");
+        Access access = new Access(log, new AccessLogger(log));
+        AsyncAccessLogWriter writer = access.getAsyncWriter();
+        // stop the writer so that the buffer is not drained
+        writer.close(TimeUnit.SECONDS.toMillis(10));
+
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/", HttpVersion.HTTP_1_1);
+        for (int i = 0; i < 10; i++) {
+            access.addAccessToQueue(request);
+        }
+        Assert.assertEquals(2, writer.getPendingCount());
+        Assert.assertEquals(8, writer.getDroppedCount());
+    }
+
+    private static AccessRecord newRecord(String uri) {
+        return AccessRecord.of(new BasicHttpRequest("GET", uri, HttpVersion.HTTP_1_1), 0);
+    }
+}
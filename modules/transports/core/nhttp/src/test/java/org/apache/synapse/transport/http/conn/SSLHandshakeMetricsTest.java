@@ -0,0 +1,209 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.http.conn;
+
+import org.apache.http.nio.reactor.IOSession;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.TrustManagerFactory;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs TLS handshakes between in-memory SSL engines, and checks that the client and server session caches are
+ * used to resume sessions and that the handshakes are counted accordingly.
+ */
+public class SSLHandshakeMetricsTest {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+    private static final String PROTOCOL = "TLSv1.2";
+
+    private SSLContext serverContext;
+    private SSLContext clientContext;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        X500Name subject = new X500Name("CN=localhost");
+        long now = System.currentTimeMillis();
+        X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(
+                new JcaX509v3CertificateBuilder(subject, BigInteger.ONE, new Date(now - 60000),
+                        new Date(now + 3600000), subject, keyPair.getPublic())
+                        .build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("server", keyPair.getPrivate(), PASSWORD, new Certificate[]{certificate});
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, PASSWORD);
+        serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("server", certificate);
+        TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustManagerFactory.getTrustManagers(), null);
+    }
+
+    @Test
+    public void testSessionSettingsAreApplied() {
+        SSLSessionSettings settings = new SSLSessionSettings(128, 600);
+        settings.applyToClient(clientContext);
+        settings.applyToServer(serverContext);
+
+        Assert.assertEquals(128, clientContext.getClientSessionContext().getSessionCacheSize());
+        Assert.assertEquals(600, clientContext.getClientSessionContext().getSessionTimeout());
+        Assert.assertEquals(128, serverContext.getServerSessionContext().getSessionCacheSize());
+        Assert.assertEquals(600, serverContext.getServerSessionContext().getSessionTimeout());
+    }
+
+    @Test
+    public void testResumedHandshakesAreCounted() throws Exception {
+        SSLHandshakeMetrics clientMetrics = new SSLHandshakeMetrics();
+        SSLHandshakeMetrics serverMetrics = new SSLHandshakeMetrics();
+
+        for (int i = 0; i < 3; i++) {
+            connect("backend", 8243, clientMetrics, serverMetrics);
+        }
+        // the client session cache is keyed by route, so a new route needs a full handshake
+        connect("other-backend", 8243, clientMetrics, serverMetrics);
+
+        Assert.assertEquals(1, clientMetrics.getFullHandshakeCount("backend:8243"));
+        Assert.assertEquals(2, clientMetrics.getResumedHandshakeCount("backend:8243"));
+        Assert.assertEquals(1, clientMetrics.getFullHandshakeCount("other-backend:8243"));
+        Assert.assertEquals(2, clientMetrics.getFullHandshakeCount());
+        Assert.assertEquals(2, clientMetrics.getResumedHandshakeCount());
+        Assert.assertEquals(2, serverMetrics.getResumedHandshakeCount("listener"));
+        Assert.assertEquals(0.5, clientMetrics.getResumptionRatio(), 0.001);
+        Assert.assertTrue(clientMetrics.getAverageFullHandshakeTime() > 0);
+        Assert.assertEquals(2, clientMetrics.getHandshakeStatistics().size());
+
+        clientMetrics.reset();
+        Assert.assertEquals(0, clientMetrics.getFullHandshakeCount());
+        Assert.assertTrue(clientMetrics.getHandshakeStatistics().isEmpty());
+    }
+
+    private void connect(String host, int port, SSLHandshakeMetrics clientMetrics,
+                         SSLHandshakeMetrics serverMetrics) throws Exception {
+        SSLEngine client = clientContext.createSSLEngine(host, port);
+        client.setUseClientMode(true);
+        client.setEnabledProtocols(new String[]{PROTOCOL});
+        SSLEngine server = serverContext.createSSLEngine();
+        server.setUseClientMode(false);
+        server.setEnabledProtocols(new String[]{PROTOCOL});
+
+        // make sure resumed sessions were created strictly before the handshake starts
+        Thread.sleep(5);
+        IOSession clientSession = newIOSession();
+        IOSession serverSession = newIOSession();
+        SSLHandshakeMetrics.markHandshakeStart(clientSession);
+        SSLHandshakeMetrics.markHandshakeStart(serverSession);
+
+        handshake(client, server);
+
+        clientMetrics.recordHandshake(host + ":" + port, clientSession, client.getSession());
+        serverMetrics.recordHandshake("listener", serverSession, server.getSession());
+    }
+
+    private static IOSession newIOSession() {
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        IOSession session = mock(IOSession.class);
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(session).setAttribute(anyString(), any());
+        when(session.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.getArgument(0)));
+        when(session.removeAttribute(anyString()))
+                .thenAnswer(invocation -> attributes.remove(invocation.getArgument(0)));
+        return session;
+    }
+
+    private static void handshake(SSLEngine client, SSLEngine server) throws SSLException {
+        ByteBuffer clientToServer = ByteBuffer.allocate(65536);
+        ByteBuffer serverToClient = ByteBuffer.allocate(65536);
+        ByteBuffer clientApp = ByteBuffer.allocate(client.getSession().getApplicationBufferSize());
+        ByteBuffer serverApp = ByteBuffer.allocate(server.getSession().getApplicationBufferSize());
+
+        client.beginHandshake();
+        server.beginHandshake();
+        for (int i = 0; i < 1000; i++) {
+            if (isDone(client) && isDone(server)) {
+                return;
+            }
+            step(client, clientToServer, serverToClient, clientApp);
+            step(server, serverToClient, clientToServer, serverApp);
+        }
+        Assert.fail("The handshake did not complete");
+    }
+
+    private static boolean isDone(SSLEngine engine) {
+        HandshakeStatus status = engine.getHandshakeStatus();
+        return status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED;
+    }
+
+    private static void step(SSLEngine engine, ByteBuffer out, ByteBuffer in, ByteBuffer app) throws SSLException {
+        switch (engine.getHandshakeStatus()) {
+            case NEED_WRAP:
+                engine.wrap(ByteBuffer.allocate(0), out);
+                break;
+            case NEED_UNWRAP:
+                in.flip();
+                engine.unwrap(in, app);
+                in.compact();
+                break;
+            case NEED_TASK:
+                Runnable task;
+                while ((task = engine.getDelegatedTask()) != null) {
+                    task.run();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
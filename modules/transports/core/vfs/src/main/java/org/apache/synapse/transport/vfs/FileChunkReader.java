@@ -0,0 +1,336 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.apache.synapse.transport.vfs;
+
+import org.apache.axiom.om.util.StAXUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Splits the content of a file into chunks without loading the whole file into memory. A file can be
+ * split by lines, by an arbitrary delimiter, or by a repeating XML element. Each chunk is returned as
+ * a self contained byte array which can be built into a message on its own. Empty lines and records are
+ * kept, unless the poll table entry asks to skip them.
+ */
+abstract class FileChunkReader implements Closeable {
+
+    public static final String CHUNK_BY_LINE = "line";
+    public static final String CHUNK_BY_DELIMITER = "delimiter";
+    public static final String CHUNK_BY_ELEMENT = "element";
+
+    private static final String LINE_SEPARATOR_PATTERN = "\r?\n";
+
+    /**
+     * Creates a chunk reader for the given chunking mode of the poll table entry
+     *
+     * @param entry   the poll table entry defining the chunking mode
+     * @param in      the file content
+     * @param charset the character set of the file content
+     * @return the chunk reader
+     * @throws IOException if the chunk reader cannot be created
+     */
+    static FileChunkReader create(PollTableEntry entry, InputStream in, Charset charset) throws IOException {
+        String mode = entry.getChunkMode();
+        if (CHUNK_BY_LINE.equalsIgnoreCase(mode)) {
+            return new DelimitedChunkReader(in, charset, Pattern.compile(LINE_SEPARATOR_PATTERN), "\n",
+                    entry.getChunkSize(), entry.isChunkSkipEmptyRecords());
+        } else if (CHUNK_BY_DELIMITER.equalsIgnoreCase(mode)) {
+            String delimiter = entry.getChunkDelimiter();
+            return new DelimitedChunkReader(in, charset, Pattern.compile(Pattern.quote(delimiter)), delimiter,
+                    entry.getChunkSize(), entry.isChunkSkipEmptyRecords());
+        } else if (CHUNK_BY_ELEMENT.equalsIgnoreCase(mode)) {
+            try {
+                return new ElementChunkReader(in, entry.getChunkElement(), charset, entry.getChunkSize());
+            } catch (XMLStreamException e) {
+                throw new IOException("Error creating XML reader to split the file by element : "
+                        + entry.getChunkElement(), e);
+            }
+        }
+        throw new IOException("Unsupported chunk mode : " + mode);
+    }
+
+    /**
+     * Reads the next chunk of the file
+     *
+     * @return the content of the chunk, or null if the end of the file is reached
+     * @throws IOException on error reading the file
+     */
+    abstract byte[] next() throws IOException;
+
+    /**
+     * Splits text content by a delimiter, grouping a configurable number of records into a chunk
+     */
+    private static class DelimitedChunkReader extends FileChunkReader {
+
+        private final Scanner scanner;
+        private final String separator;
+        private final int recordsPerChunk;
+        private final boolean skipEmptyRecords;
+        private final Charset charset;
+        /** whether the content starts with a delimiter, which ends an empty first record */
+        private boolean leadingEmptyRecord;
+
+        DelimitedChunkReader(InputStream in, Charset charset, Pattern delimiter, String separator,
+                             int recordsPerChunk, boolean skipEmptyRecords) {
+            this.scanner = new Scanner(new InputStreamReader(in, charset)).useDelimiter(delimiter);
+            this.separator = separator;
+            this.recordsPerChunk = recordsPerChunk;
+            this.skipEmptyRecords = skipEmptyRecords;
+            this.charset = charset;
+            // the scanner skips a delimiter at the start of the content, so it is looked for here
+            scanner.skip("(?:" + delimiter.pattern() + ")?");
+            this.leadingEmptyRecord = !scanner.match().group().isEmpty();
+        }
+
+        @Override
+        byte[] next() throws IOException {
+            StringBuilder chunk = null;
+            int records = 0;
+            while (records < recordsPerChunk && (leadingEmptyRecord || scanner.hasNext())) {
+                String record;
+                if (leadingEmptyRecord) {
+                    leadingEmptyRecord = false;
+                    record = "";
+                } else {
+                    record = scanner.next();
+                }
+                if (record.isEmpty() && skipEmptyRecords) {
+                    continue;
+                }
+                if (chunk == null) {
+                    chunk = new StringBuilder(record.length() * recordsPerChunk);
+                } else {
+                    chunk.append(separator);
+                }
+                chunk.append(record);
+                records++;
+            }
+            if (scanner.ioException() != null) {
+                throw scanner.ioException();
+            }
+            return chunk == null ? null : chunk.toString().getBytes(charset);
+        }
+
+        public void close() {
+            scanner.close();
+        }
+    }
+
+    /**
+     * Splits XML content by a repeating element. Each occurrence of the element (including its descendants)
+     * becomes a chunk, or when more than one element is grouped into a chunk, the sibling elements of a chunk
+     * are wrapped in an element with the name of their parent element.
+     */
+    private static class ElementChunkReader extends FileChunkReader {
+
+        private final InputStream in;
+        private final XMLStreamReader reader;
+        private final String elementName;
+        private final Charset charset;
+        private final int elementsPerChunk;
+
+        /** prefix, local name and namespace of the ancestors of the current position of the reader */
+        private final Deque<String[]> ancestors = new ArrayDeque<String[]>();
+        /** whether the reader is at an element which starts the next chunk */
+        private boolean pending = false;
+
+        ElementChunkReader(InputStream in, String elementName, Charset charset, int elementsPerChunk)
+                throws XMLStreamException {
+            this.in = in;
+            this.reader = StAXUtils.createXMLStreamReader(in);
+            this.elementName = elementName;
+            this.charset = charset;
+            this.elementsPerChunk = elementsPerChunk;
+        }
+
+        @Override
+        byte[] next() throws IOException {
+            try {
+                if (!nextElement(-1)) {
+                    return null;
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                XMLStreamWriter writer = StAXUtils.createXMLStreamWriter(out, charset.name());
+                String[] parent = elementsPerChunk > 1 ? ancestors.peek() : null;
+                if (parent != null) {
+                    writer.writeStartElement(parent[0], parent[1], parent[2]);
+                    if (parent[0].isEmpty() && !parent[2].isEmpty()) {
+                        writer.writeDefaultNamespace(parent[2]);
+                    } else if (!parent[2].isEmpty()) {
+                        writer.writeNamespace(parent[0], parent[2]);
+                    }
+                }
+                int depth = ancestors.size();
+                int elements = 0;
+                do {
+                    if (ancestors.size() != depth) {
+                        // not a sibling of the elements of this chunk, it starts the next chunk
+                        pending = true;
+                        break;
+                    }
+                    copyElement(writer);
+                    elements++;
+                } while (elements < elementsPerChunk && nextElement(depth));
+                if (parent != null) {
+                    writer.writeEndElement();
+                }
+                writer.flush();
+                writer.close();
+                return out.toByteArray();
+            } catch (XMLStreamException e) {
+                throw new IOException("Error splitting the file by element : " + elementName, e);
+            }
+        }
+
+        /**
+         * Moves the reader to the next occurrence of the element, keeping track of its ancestors
+         *
+         * @param depth the number of ancestors below which the search stops, or -1 to search the whole file
+         * @return true if the reader is at an occurrence of the element
+         */
+        private boolean nextElement(int depth) throws XMLStreamException {
+            if (pending) {
+                pending = false;
+                return true;
+            }
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (elementName.equals(reader.getLocalName())) {
+                        return true;
+                    }
+                    ancestors.push(new String[] {emptyIfNull(reader.getPrefix()), reader.getLocalName(),
+                            emptyIfNull(reader.getNamespaceURI())});
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    ancestors.pop();
+                    if (ancestors.size() < depth) {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Copies the element at the current position of the reader, re-declaring the namespaces of the
+         * element and its attributes which were declared on its ancestors
+         */
+        private void copyElement(XMLStreamWriter writer) throws XMLStreamException {
+            int depth = 0;
+            while (true) {
+                switch (reader.getEventType()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        writeStartElement(writer, depth == 0);
+                        depth++;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        writer.writeEndElement();
+                        depth--;
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.SPACE:
+                        writer.writeCharacters(reader.getText());
+                        break;
+                    case XMLStreamConstants.CDATA:
+                        writer.writeCData(reader.getText());
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        writer.writeComment(reader.getText());
+                        break;
+                    default:
+                        break;
+                }
+                if (depth == 0) {
+                    return;
+                }
+                reader.next();
+            }
+        }
+
+        private void writeStartElement(XMLStreamWriter writer, boolean root) throws XMLStreamException {
+            String prefix = emptyIfNull(reader.getPrefix());
+            String namespace = emptyIfNull(reader.getNamespaceURI());
+            writer.writeStartElement(prefix, reader.getLocalName(), namespace);
+
+            Set<String> declaredPrefixes = new HashSet<String>();
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                String nsPrefix = emptyIfNull(reader.getNamespacePrefix(i));
+                declaredPrefixes.add(nsPrefix);
+                if (nsPrefix.isEmpty()) {
+                    writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+                } else {
+                    writer.writeNamespace(nsPrefix, reader.getNamespaceURI(i));
+                }
+            }
+            if (root) {
+                declareInheritedNamespace(writer, declaredPrefixes, prefix, namespace);
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    declareInheritedNamespace(writer, declaredPrefixes,
+                            emptyIfNull(reader.getAttributePrefix(i)), emptyIfNull(reader.getAttributeNamespace(i)));
+                }
+            }
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                writer.writeAttribute(emptyIfNull(reader.getAttributePrefix(i)),
+                        emptyIfNull(reader.getAttributeNamespace(i)), reader.getAttributeLocalName(i),
+                        reader.getAttributeValue(i));
+            }
+        }
+
+        private void declareInheritedNamespace(XMLStreamWriter writer, Set<String> declaredPrefixes,
+                                               String prefix, String namespace) throws XMLStreamException {
+            if (namespace.isEmpty() || !declaredPrefixes.add(prefix)) {
+                return;
+            }
+            if (prefix.isEmpty()) {
+                writer.writeDefaultNamespace(namespace);
+            } else {
+                writer.writeNamespace(prefix, namespace);
+            }
+        }
+
+        private static String emptyIfNull(String value) {
+            return value == null ? "" : value;
+        }
+
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new IOException("Error closing the XML reader", e);
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
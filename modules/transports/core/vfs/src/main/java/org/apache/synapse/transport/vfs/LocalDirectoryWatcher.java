@@ -0,0 +1,158 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.apache.synapse.transport.vfs;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.vfs.VFSUtils;
+import org.apache.synapse.transport.vfs.VFSTransportErrorHandler.LogType;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a local directory of a VFS poll table entry using the native file system notification
+ * mechanism ({@link WatchService}), and triggers a scan of the files which were created or modified as
+ * soon as they are reported. Events which arrive within the debounce interval are coalesced into a single
+ * scan. The regular polling of the entry continues at the configured poll interval and acts as a
+ * reconciliation scan in case an event is missed.
+ */
+class LocalDirectoryWatcher implements Runnable {
+
+    private static final Log log = LogFactory.getLog(LocalDirectoryWatcher.class);
+
+    private final VFSTransportListener listener;
+    private final PollTableEntry entry;
+    private final Path directory;
+    private final long debounceInterval;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+    private volatile boolean running;
+
+    LocalDirectoryWatcher(VFSTransportListener listener, PollTableEntry entry, Path directory,
+                          long debounceInterval) {
+        this.listener = listener;
+        this.entry = entry;
+        this.directory = directory;
+        this.debounceInterval = debounceInterval;
+    }
+
+    /**
+     * Registers the directory with a new watch service and starts the watcher thread
+     *
+     * @throws IOException if the directory cannot be watched
+     */
+    synchronized void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        watcherThread = new Thread(this, "vfs-watcher-" + entry.getServiceName());
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        if (log.isDebugEnabled()) {
+            log.debug("Started watching directory : " + directory + " for service : " + entry.getServiceName());
+        }
+    }
+
+    synchronized void stop() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Error while closing the watch service of directory : " + directory, e);
+            }
+            watchService = null;
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            watcherThread = null;
+        }
+    }
+
+    public void run() {
+        while (running) {
+            try {
+                WatchKey key = watchService.take();
+                Set<String> changedFiles = new LinkedHashSet<String>();
+                boolean overflow = collectEvents(key, changedFiles);
+                // coalesce the events of files which are written in several steps or in bulk
+                long deadline = System.currentTimeMillis() + debounceInterval;
+                long remaining;
+                while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+                    key = watchService.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (key == null) {
+                        break;
+                    }
+                    overflow |= collectEvents(key, changedFiles);
+                }
+                if (!running) {
+                    return;
+                }
+                if (overflow) {
+                    // events were lost, fall back to a full scan of the directory
+                    listener.scanChangedFiles(entry, null);
+                } else if (!changedFiles.isEmpty()) {
+                    listener.scanChangedFiles(entry, changedFiles);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                VFSTransportErrorHandler.logException(log, LogType.ERROR, "Error while processing file events of "
+                        + "directory : " + VFSUtils.maskURLPassword(entry.getFileURI()), entry.getServiceName(), e);
+            }
+        }
+    }
+
+    /**
+     * Collects the names of the files reported by the given key, and resets the key
+     *
+     * @return true if some events were lost
+     */
+    private boolean collectEvents(WatchKey key, Set<String> changedFiles) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else {
+                changedFiles.add(((Path) event.context()).getFileName().toString());
+            }
+        }
+        if (!key.reset()) {
+            // the directory is no longer accessible, the reconciliation scan will report it
+            log.warn("Watch key of directory : " + directory + " is no longer valid. Falling back to polling.");
+            running = false;
+        }
+        return overflow;
+    }
+}
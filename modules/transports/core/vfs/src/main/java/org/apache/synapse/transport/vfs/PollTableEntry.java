@@ -38,6 +38,12 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -116,6 +122,55 @@ public class PollTableEntry extends AbstractPollTableEntry {
     
     private Integer fileProcessingCount;
 
+    /** number of files of a directory scan that are processed concurrently, 1 means sequential processing */
+    private int fileProcessingParallelism = VFSConstants.DEFAULT_FILE_PROCESSING_PARALLELISM;
+
+    /** whether concurrently processed files are moved/deleted in the order of the directory listing */
+    private boolean fileProcessingOrdered;
+
+    /** bounded worker pool used for concurrent file processing, created on the first parallel scan */
+    private ExecutorService fileProcessingExecutor;
+
+    /** total number of files processed for this entry */
+    private final AtomicLong processedFileCount = new AtomicLong();
+
+    /** number of files of the current scan which are waiting to be or being processed */
+    private final AtomicInteger fileProcessingBacklog = new AtomicInteger();
+
+    /** throughput of the last completed directory scan */
+    private volatile double lastScanFilesPerSecond;
+
+    /** whether a local directory is watched for file system notifications in addition to polling */
+    private boolean watchDirectory;
+
+    /** time in [ms] to coalesce file system notifications before scanning */
+    private long watchDebounceInterval = VFSConstants.DEFAULT_FILE_WATCH_DEBOUNCE_INTERVAL;
+
+    /** watcher of the local directory, if watching is enabled and the directory is local */
+    private LocalDirectoryWatcher directoryWatcher;
+
+    /** serializes the scans triggered by polling and by file system notifications */
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    /** how a file is split into separately mediated chunks, null to build one message out of the whole file */
+    private String chunkMode;
+
+    private String chunkDelimiter;
+
+    private String chunkElement;
+
+    /** number of lines, records or elements grouped into a chunk */
+    private int chunkSize = VFSConstants.DEFAULT_FILE_CHUNK_SIZE;
+
+    /** whether empty lines or records are skipped instead of being added to a chunk */
+    private boolean chunkSkipEmptyRecords = false;
+
+    /** maximum number of chunks of a file mediated at the same time */
+    private int maxInFlightChunks = VFSConstants.DEFAULT_FILE_MAX_INFLIGHT_CHUNKS;
+
+    /** bounded worker pool used to mediate the chunks of a file concurrently */
+    private ExecutorService chunkProcessingExecutor;
+
     private Map<String, String> vfsSchemeProperties;
     private boolean autoLockRelease;
 
@@ -263,6 +318,152 @@ public class PollTableEntry extends AbstractPollTableEntry {
 		return fileProcessingCount;
 	}
 
+    public int getFileProcessingParallelism() {
+        return fileProcessingParallelism;
+    }
+
+    public boolean isParallelFileProcessing() {
+        return fileProcessingParallelism > 1;
+    }
+
+    public boolean isFileProcessingOrdered() {
+        return fileProcessingOrdered;
+    }
+
+    /**
+     * Returns the bounded worker pool used to process the files of this entry concurrently. The pool is
+     * created lazily with {@link #getFileProcessingParallelism()} threads.
+     *
+     * @return the file processing executor
+     */
+    public synchronized ExecutorService getFileProcessingExecutor() {
+        if (fileProcessingExecutor == null) {
+            fileProcessingExecutor = newWorkerPool(fileProcessingParallelism, "vfs-file-processor-");
+        }
+        return fileProcessingExecutor;
+    }
+
+    /**
+     * Returns the bounded worker pool used to mediate the chunks of a file concurrently. The pool is
+     * created lazily with {@link #getMaxInFlightChunks()} threads.
+     *
+     * @return the chunk processing executor
+     */
+    public synchronized ExecutorService getChunkProcessingExecutor() {
+        if (chunkProcessingExecutor == null) {
+            chunkProcessingExecutor = newWorkerPool(maxInFlightChunks, "vfs-chunk-processor-");
+        }
+        return chunkProcessingExecutor;
+    }
+
+    /**
+     * Shuts down the file and chunk processing worker pools of this entry, if they were created. Files
+     * which are being processed are allowed to complete.
+     */
+    public synchronized void shutdownFileProcessingExecutor() {
+        if (fileProcessingExecutor != null) {
+            fileProcessingExecutor.shutdown();
+            fileProcessingExecutor = null;
+        }
+        if (chunkProcessingExecutor != null) {
+            chunkProcessingExecutor.shutdown();
+            chunkProcessingExecutor = null;
+        }
+    }
+
+    private ExecutorService newWorkerPool(int size, String threadNamePrefix) {
+        final String prefix = threadNamePrefix + getServiceName() + "-";
+        return Executors.newFixedThreadPool(size, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public boolean isChunkedIngestion() {
+        return chunkMode != null;
+    }
+
+    public String getChunkMode() {
+        return chunkMode;
+    }
+
+    public String getChunkDelimiter() {
+        return chunkDelimiter;
+    }
+
+    public String getChunkElement() {
+        return chunkElement;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public boolean isChunkSkipEmptyRecords() {
+        return chunkSkipEmptyRecords;
+    }
+
+    public int getMaxInFlightChunks() {
+        return maxInFlightChunks;
+    }
+
+    public boolean isWatchDirectory() {
+        return watchDirectory;
+    }
+
+    public long getWatchDebounceInterval() {
+        return watchDebounceInterval;
+    }
+
+    public LocalDirectoryWatcher getDirectoryWatcher() {
+        return directoryWatcher;
+    }
+
+    public void setDirectoryWatcher(LocalDirectoryWatcher directoryWatcher) {
+        this.directoryWatcher = directoryWatcher;
+    }
+
+    public ReentrantLock getScanLock() {
+        return scanLock;
+    }
+
+    public long getProcessedFileCount() {
+        return processedFileCount.get();
+    }
+
+    public void incrementProcessedFileCount() {
+        processedFileCount.incrementAndGet();
+    }
+
+    public int getFileProcessingBacklog() {
+        return fileProcessingBacklog.get();
+    }
+
+    public void setFileProcessingBacklog(int backlog) {
+        fileProcessingBacklog.set(backlog);
+    }
+
+    public void incrementFileProcessingBacklog() {
+        fileProcessingBacklog.incrementAndGet();
+    }
+
+    public void decrementFileProcessingBacklog() {
+        fileProcessingBacklog.decrementAndGet();
+    }
+
+    public double getLastScanFilesPerSecond() {
+        return lastScanFilesPerSecond;
+    }
+
+    public void setLastScanFilesPerSecond(double lastScanFilesPerSecond) {
+        this.lastScanFilesPerSecond = lastScanFilesPerSecond;
+    }
+
 	private void setMoveAfterProcess(String moveAfterProcess) throws AxisFault {
         if (moveAfterProcess == null) {
             this.moveAfterProcess = null;
@@ -754,6 +955,58 @@ public class PollTableEntry extends AbstractPollTableEntry {
                 }
             }
 
+            String strFileProcessingParallelism = ParamUtils.getOptionalParam(params,
+                    VFSConstants.TRANSPORT_FILE_PROCESSING_PARALLELISM);
+            fileProcessingParallelism = VFSConstants.DEFAULT_FILE_PROCESSING_PARALLELISM;
+            if (strFileProcessingParallelism != null) {
+                try {
+                    fileProcessingParallelism = Math.max(1, Integer.parseInt(strFileProcessingParallelism));
+                } catch (NumberFormatException nfe) {
+                    String message = "VFS File Processing Parallelism not set correctly. Current value is : "
+                            + strFileProcessingParallelism;
+                    VFSTransportErrorHandler.logException(log, LogType.WARN, message, nfe);
+                }
+            }
+            fileProcessingOrdered = ParamUtils.getOptionalParamBoolean(params,
+                    VFSConstants.TRANSPORT_FILE_PROCESSING_ORDERED, false);
+
+            chunkMode = ParamUtils.getOptionalParam(params, VFSConstants.TRANSPORT_FILE_CHUNK_MODE);
+            if (chunkMode != null) {
+                chunkDelimiter = ParamUtils.getOptionalParam(params, VFSConstants.TRANSPORT_FILE_CHUNK_DELIMITER);
+                chunkElement = ParamUtils.getOptionalParam(params, VFSConstants.TRANSPORT_FILE_CHUNK_ELEMENT);
+                if (FileChunkReader.CHUNK_BY_DELIMITER.equalsIgnoreCase(chunkMode) && chunkDelimiter == null) {
+                    VFSTransportErrorHandler.handleException(log, "The parameter "
+                            + VFSConstants.TRANSPORT_FILE_CHUNK_DELIMITER + " is required for chunk mode : " + chunkMode);
+                } else if (FileChunkReader.CHUNK_BY_ELEMENT.equalsIgnoreCase(chunkMode) && chunkElement == null) {
+                    VFSTransportErrorHandler.handleException(log, "The parameter "
+                            + VFSConstants.TRANSPORT_FILE_CHUNK_ELEMENT + " is required for chunk mode : " + chunkMode);
+                } else if (!FileChunkReader.CHUNK_BY_LINE.equalsIgnoreCase(chunkMode)
+                        && !FileChunkReader.CHUNK_BY_DELIMITER.equalsIgnoreCase(chunkMode)
+                        && !FileChunkReader.CHUNK_BY_ELEMENT.equalsIgnoreCase(chunkMode)) {
+                    VFSTransportErrorHandler.handleException(log, "Invalid chunk mode : " + chunkMode);
+                }
+                chunkSize = parsePositiveInt(params, VFSConstants.TRANSPORT_FILE_CHUNK_SIZE,
+                        VFSConstants.DEFAULT_FILE_CHUNK_SIZE);
+                chunkSkipEmptyRecords = ParamUtils.getOptionalParamBoolean(params,
+                        VFSConstants.TRANSPORT_FILE_CHUNK_SKIP_EMPTY, false);
+                maxInFlightChunks = parsePositiveInt(params, VFSConstants.TRANSPORT_FILE_MAX_INFLIGHT_CHUNKS,
+                        VFSConstants.DEFAULT_FILE_MAX_INFLIGHT_CHUNKS);
+            }
+
+            watchDirectory = ParamUtils.getOptionalParamBoolean(params, VFSConstants.TRANSPORT_FILE_WATCH, false);
+            String strWatchDebounceInterval = ParamUtils.getOptionalParam(params,
+                    VFSConstants.TRANSPORT_FILE_WATCH_DEBOUNCE_INTERVAL);
+            watchDebounceInterval = VFSConstants.DEFAULT_FILE_WATCH_DEBOUNCE_INTERVAL;
+            if (strWatchDebounceInterval != null) {
+                try {
+                    watchDebounceInterval = Long.parseLong(strWatchDebounceInterval);
+                } catch (NumberFormatException nfe) {
+                    String message = "VFS Watch Debounce Interval not set correctly. Current value is : "
+                            + strWatchDebounceInterval;
+                    VFSTransportErrorHandler.logException(log, LogType.WARN, message, nfe);
+                }
+            }
+
             String strMinimumAge = ParamUtils.getOptionalParam(params, VFSConstants.TRANSPORT_FILE_MINIMUM_AGE);
             if(strMinimumAge != null){
                 try {
@@ -873,6 +1126,19 @@ public class PollTableEntry extends AbstractPollTableEntry {
         }
     }
 
+    private int parsePositiveInt(ParameterInclude params, String paramName, int defaultValue) throws AxisFault {
+        String strValue = ParamUtils.getOptionalParam(params, paramName);
+        if (strValue != null) {
+            try {
+                return Math.max(1, Integer.parseInt(strValue));
+            } catch (NumberFormatException nfe) {
+                String message = paramName + " not set correctly. Current value is : " + strValue;
+                VFSTransportErrorHandler.logException(log, LogType.WARN, message, nfe);
+            }
+        }
+        return defaultValue;
+    }
+
     private String resolveHostAtDeployment(String uri) throws AxisFault {
         if (!resolveHostsDynamically) {
             try {
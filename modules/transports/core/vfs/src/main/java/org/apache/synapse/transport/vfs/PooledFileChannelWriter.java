@@ -0,0 +1,363 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.apache.synapse.transport.vfs;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.vfs.VFSConstants;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a buffered {@link FileChannel} open per local target file, so that messages appended to the same
+ * file do not reopen it for every message. Buffered content is written out when the buffer is full and
+ * periodically by a flush task, which also closes channels which were not used for a while. The number
+ * of open channels is capped, the least recently used channel being closed to open a new one. A file is
+ * rotated (renamed with a timestamp suffix) when it exceeds the configured size or age.
+ */
+public class PooledFileChannelWriter {
+
+    private static final Log log = LogFactory.getLog(PooledFileChannelWriter.class);
+
+    /** channels which were not written to for this many flush intervals are closed */
+    private static final int IDLE_FLUSH_INTERVALS = 60;
+
+    private static final String ROTATION_TIMESTAMP_FORMAT = "yyyyMMddHHmmssSSS";
+
+    private final Map<Path, PooledChannel> channels = new ConcurrentHashMap<Path, PooledChannel>();
+
+    private final ScheduledExecutorService flushScheduler;
+
+    private final long flushInterval;
+
+    private final int maxOpenFiles;
+
+    public PooledFileChannelWriter(long flushInterval) {
+        this(flushInterval, VFSConstants.DEFAULT_WRITER_MAX_OPEN_FILES);
+    }
+
+    /**
+     * @param flushInterval the interval at which the buffered content is written out, in milliseconds
+     * @param maxOpenFiles  the maximum number of channels kept open at a time
+     */
+    public PooledFileChannelWriter(long flushInterval, int maxOpenFiles) {
+        this.flushInterval = flushInterval;
+        this.maxOpenFiles = Math.max(1, maxOpenFiles);
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "vfs-file-channel-flusher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        flushScheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                flushAndEvictIdle();
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the pooled channel of the given file, opening it if required. Callers must synchronize on the
+     * returned channel while writing a message so that messages are not interleaved. A file is written
+     * through a single channel, hence it must always be written with the same buffer and rotation settings.
+     *
+     * @param file         the target file
+     * @param bufferSize   the size of the write buffer, content is flushed to the file when it is full
+     * @param rotateSize   the size in bytes after which the file is rotated, or a non positive value
+     * @param rotateAge    the time in milliseconds after which the file is rotated, or a non positive value
+     * @param createFolder whether to create the parent folders of the file if they do not exist
+     * @return the pooled channel
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if the file is open with different buffer or rotation settings
+     */
+    public PooledChannel getChannel(Path file, int bufferSize, long rotateSize, long rotateAge,
+                                    boolean createFolder) throws IOException {
+        PooledChannel channel = channels.get(file);
+        if (channel == null) {
+            synchronized (channels) {
+                channel = channels.get(file);
+                if (channel == null) {
+                    if (createFolder && file.getParent() != null) {
+                        Files.createDirectories(file.getParent());
+                    }
+                    if (channels.size() >= maxOpenFiles) {
+                        evictLeastRecentlyUsed();
+                    }
+                    channel = new PooledChannel(file, bufferSize, rotateSize, rotateAge);
+                    channels.put(file, channel);
+                }
+            }
+        }
+        if (channel.buffer.capacity() != bufferSize || channel.rotateSize != rotateSize
+                || channel.rotateAge != rotateAge) {
+            throw new IllegalArgumentException("File : " + file + " is already open with a buffer size of "
+                    + channel.buffer.capacity() + ", a rotate size of " + channel.rotateSize
+                    + " and a rotate interval of " + channel.rotateAge + ", it cannot be written with a buffer "
+                    + "size of " + bufferSize + ", a rotate size of " + rotateSize + " and a rotate interval of "
+                    + rotateAge);
+        }
+        return channel;
+    }
+
+    /**
+     * @return the number of channels open at the moment
+     */
+    public int getOpenFileCount() {
+        return channels.size();
+    }
+
+    /**
+     * Flushes and closes all the pooled channels and stops the flush task
+     */
+    public void close() {
+        flushScheduler.shutdown();
+        Iterator<PooledChannel> iterator = channels.values().iterator();
+        while (iterator.hasNext()) {
+            PooledChannel channel = iterator.next();
+            iterator.remove();
+            synchronized (channel) {
+                channel.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Closes the channel which was written to the least recently. Called with the pool locked.
+     */
+    private void evictLeastRecentlyUsed() {
+        PooledChannel eldest = null;
+        for (PooledChannel channel : channels.values()) {
+            if (eldest == null || channel.lastWriteTime < eldest.lastWriteTime) {
+                eldest = channel;
+            }
+        }
+        if (eldest != null) {
+            // writers still holding this channel will find it closed and obtain a new one
+            channels.remove(eldest.file, eldest);
+            synchronized (eldest) {
+                eldest.closeQuietly();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Closed the least recently used file : " + eldest.file);
+            }
+        }
+    }
+
+    private void flushAndEvictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledChannel> iterator = channels.values().iterator();
+        while (iterator.hasNext()) {
+            PooledChannel channel = iterator.next();
+            synchronized (channel) {
+                if (now - channel.lastWriteTime > IDLE_FLUSH_INTERVALS * flushInterval) {
+                    // writers still holding this channel will find it closed and obtain a new one
+                    iterator.remove();
+                    channel.closeQuietly();
+                } else {
+                    try {
+                        channel.flush();
+                    } catch (IOException e) {
+                        log.warn("Error flushing file : " + channel.file, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A buffered channel to a single file
+     */
+    public static class PooledChannel {
+
+        private final Path file;
+        private final ByteBuffer buffer;
+        private final long rotateSize;
+        private final long rotateAge;
+        private final OutputStream outputStream = new ChannelOutputStream();
+
+        private FileChannel channel;
+        private long openedTime;
+        private volatile long lastWriteTime;
+        private boolean closed;
+
+        PooledChannel(Path file, int bufferSize, long rotateSize, long rotateAge) throws IOException {
+            this.file = file;
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+            this.rotateSize = rotateSize;
+            this.rotateAge = rotateAge;
+            open();
+        }
+
+        private void open() throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            openedTime = System.currentTimeMillis();
+            lastWriteTime = openedTime;
+        }
+
+        /**
+         * Prepares the channel for a new message, rotating the file if it has reached its size or age limit
+         *
+         * @return false if the channel was closed because it was idle, and a new one has to be obtained
+         * @throws IOException on error rotating the file
+         */
+        public boolean beginMessage() throws IOException {
+            if (closed) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            if ((rotateSize > 0 && channel.size() + buffer.position() >= rotateSize)
+                    || (rotateAge > 0 && now - openedTime >= rotateAge)) {
+                rotate();
+            }
+            lastWriteTime = now;
+            return true;
+        }
+
+        /**
+         * @return a stream which writes to the buffer of this channel
+         */
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        /**
+         * Appends the content of the given stream to the file. Content of local files is transferred
+         * directly between the file channels without copying it through the heap.
+         *
+         * @param in the content to append
+         * @return the number of bytes written
+         * @throws IOException on error writing the file
+         */
+        public long transferFrom(InputStream in) throws IOException {
+            flush();
+            long position = channel.size();
+            long transferred;
+            if (in instanceof FileInputStream) {
+                FileChannel source = ((FileInputStream) in).getChannel();
+                long count = source.size() - source.position();
+                transferred = 0;
+                while (transferred < count) {
+                    long bytes = source.transferTo(source.position() + transferred, count - transferred, channel);
+                    if (bytes <= 0) {
+                        // the source was truncated while being transferred
+                        throw new IOException("Transferred only " + transferred + " bytes out of " + count
+                                + " to file : " + file);
+                    }
+                    transferred += bytes;
+                }
+            } else {
+                transferred = channel.transferFrom(Channels.newChannel(in), position, Long.MAX_VALUE);
+            }
+            lastWriteTime = System.currentTimeMillis();
+            return transferred;
+        }
+
+        /**
+         * Writes the buffered content to the file
+         *
+         * @throws IOException on error writing the file
+         */
+        public void flush() throws IOException {
+            if (closed || buffer.position() == 0) {
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void rotate() throws IOException {
+            flush();
+            channel.close();
+            String suffix = new SimpleDateFormat(ROTATION_TIMESTAMP_FORMAT).format(new Date());
+            Path rotated = file.resolveSibling(file.getFileName() + "." + suffix);
+            Files.move(file, rotated, StandardCopyOption.ATOMIC_MOVE);
+            if (log.isDebugEnabled()) {
+                log.debug("Rotated file : " + file + " to : " + rotated);
+            }
+            open();
+        }
+
+        private void closeQuietly() {
+            try {
+                flush();
+            } catch (IOException e) {
+                log.warn("Error flushing file : " + file, e);
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Error closing file : " + file, e);
+            }
+            closed = true;
+        }
+
+        private class ChannelOutputStream extends OutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                if (!buffer.hasRemaining()) {
+                    PooledChannel.this.flush();
+                }
+                buffer.put((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    if (!buffer.hasRemaining()) {
+                        PooledChannel.this.flush();
+                    }
+                    int count = Math.min(len, buffer.remaining());
+                    buffer.put(b, off, count);
+                    off += count;
+                    len -= count;
+                }
+            }
+
+            @Override
+            public void close() {
+                // the pooled channel outlives the message, it is closed by the pool
+            }
+        }
+    }
+}
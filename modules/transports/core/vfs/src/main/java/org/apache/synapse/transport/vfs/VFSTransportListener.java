@@ -62,19 +62,38 @@ import org.wso2.securevault.SecureVaultException;
 import org.wso2.securevault.commons.MiscellaneousUtil;
 import org.apache.synapse.transport.vfs.VFSTransportErrorHandler.LogType;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.mail.internet.ContentType;
 import javax.mail.internet.ParseException;
@@ -169,6 +188,16 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
 
     private final AtomicInteger inFlightMessages = new AtomicInteger(0);
 
+    private static final String LOCAL_FILE_SCHEME = "file";
+
+    /** marks scans triggered by file system notifications, which run outside the regular poll schedule */
+    private final ThreadLocal<Boolean> notificationTriggeredScan = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return Boolean.FALSE;
+        }
+    };
+
     @Override
     protected void doInit() throws AxisFault {
         super.doInit();
@@ -194,7 +223,36 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
 
     @Override
     protected void poll(PollTableEntry entry) {
-        scanFileOrDirectory(entry, entry.getFileURI());
+        entry.getScanLock().lock();
+        try {
+            scanFileOrDirectory(entry, entry.getFileURI());
+        } finally {
+            entry.getScanLock().unlock();
+        }
+    }
+
+    @Override
+    protected void onPollCompletion(PollTableEntry entry) {
+        // scans triggered by file system notifications must not reschedule the regular poll of the entry
+        if (!notificationTriggeredScan.get()) {
+            super.onPollCompletion(entry);
+        }
+    }
+
+    /**
+     * Scan the given files of the directory of the entry, as reported by file system notifications
+     * @param entry the poll table entry of the watched directory
+     * @param changedFiles base names of the created or modified files, or null to scan the whole directory
+     */
+    void scanChangedFiles(PollTableEntry entry, Set<String> changedFiles) {
+        notificationTriggeredScan.set(Boolean.TRUE);
+        entry.getScanLock().lock();
+        try {
+            scanFileOrDirectory(entry, entry.getFileURI(), changedFiles);
+        } finally {
+            entry.getScanLock().unlock();
+            notificationTriggeredScan.remove();
+        }
     }
 
     /**
@@ -205,6 +263,18 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
      * @param fileURI the file or directory to be scanned
      */
     protected void scanFileOrDirectory(final PollTableEntry entry, String fileURI) {
+        scanFileOrDirectory(entry, fileURI, null);
+    }
+
+    /**
+     * Search for files that match the given regex pattern and create a list
+     * Then process each of these files and update the status of the scan on
+     * the poll table
+     * @param entry the poll table entry for the scan
+     * @param fileURI the file or directory to be scanned
+     * @param changedFiles if not null, only these files of the directory are scanned
+     */
+    protected void scanFileOrDirectory(final PollTableEntry entry, String fileURI, Set<String> changedFiles) {
         String serviceName = entry.getServiceName();
         if (log.isDebugEnabled()) {
             log.debug("Polling: " + VFSUtils.maskURLPassword(fileURI));
@@ -297,6 +367,7 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
         }
         inFlightMessages.incrementAndGet();
 
+        ParallelFileDispatcher dispatcher = null;
         try {
             if (fileObject.exists() && fileObject.isReadable()) {
 
@@ -304,7 +375,11 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
                 entry.setLastPollState(PollTableEntry.NONE);
                 FileObject[] children = null;
                 try {
-                    children = fileObject.getChildren();
+                    if (changedFiles == null) {
+                        children = fileObject.getChildren();
+                    } else {
+                        children = resolveChangedFiles(fileObject, changedFiles);
+                    }
                     for (FileObject child : children) {
                         child.setIsMounted(fileObject.getIsMounted());
                     }
@@ -445,12 +520,19 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
                         }
                         log.debug("End Sorting the files.");
                     }                 
+                    if (entry.isParallelFileProcessing()) {
+                        dispatcher = new ParallelFileDispatcher(entry, fso);
+                    }
+                    long scanStartTime = System.currentTimeMillis();
+                    entry.setFileProcessingBacklog(children.length);
                     for (FileObject child : children) {
                         // Stop processing any further when put to maintenance mode (shutting down or restarting),
                         // when service get undeployed, or the proxy is stopped
                         if (shouldStopScanning(entry)) {
                             return;
                         }
+                        entry.decrementFileProcessingBacklog();
+                        boolean dispatched = false;
                         //skipping *.lock file
                         if(child.getName().getBaseName().endsWith(".lock")){
                             continue;
@@ -504,67 +586,31 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
                             if (log.isDebugEnabled()) {
                                 log.debug("Matching file : " + child.getName().getBaseName());
                             }
-                            boolean runPostProcess = true;
                             if((!entry.isFileLockingEnabled()
                                     || (entry.isFileLockingEnabled()
                                         && acquireLock(getFsManager(), child, entry, fso, true)))
                                     && !isFailedRecord){
                                 //process the file
-                                try {
-                                    if (log.isDebugEnabled()) {
-                                        log.debug("Processing file :"
-                                        		+ VFSUtils.maskURLPassword(child.toString()));
-                                    }
-                                    processCount++;
-
-                                    if (child.getType() == FileType.FILE) {
-                                        boolean status = processFile(entry, child);
-                                        if (status) {
-                                            successCount++;
-                                            entry.setLastPollState(PollTableEntry.SUCCSESSFUL);
-                                        } else {
-                                            entry.setLastPollState(PollTableEntry.FAILED);
-                                        }
-                                        metrics.incrementMessagesReceived();
-                                    } else {
-                                        runPostProcess = false;
-                                    }
-                                } catch (Exception e) {
-                                    if (e.getCause() instanceof FileNotFoundException) {
-                                        log.warn("Error processing File URI : " +
-                                                 VFSUtils.maskURLPassword(child.getName().toString()) +
-                                                 ". This can be due to file moved from another process.");
-                                        runPostProcess = false;
-                                    } else {
-                                        logException("Error processing File URI : " +
-                                                     VFSUtils.maskURLPassword(child.getName().getURI()), e);
-                                        failCount++;
-                                        // tell moveOrDeleteAfterProcessing() file failed
-                                        entry.setLastPollState(PollTableEntry.FAILED);
-                                        metrics.incrementFaultsReceiving();
-                                    }
+                                if (log.isDebugEnabled()) {
+                                    log.debug("Processing file :"
+                                    		+ VFSUtils.maskURLPassword(child.toString()));
                                 }
-                                //skipping un-locking file if failed to do delete/move after process
-                                boolean skipUnlock = false;
-                                if (runPostProcess) {
-                                    try {
-                                        moveOrDeleteAfterProcessing(entry, child, fso);
-                                    } catch (AxisFault axisFault) {
-                                        logException(
-                                                "File object '" + VFSUtils.maskURLPassword(child.getURL().toString()) +
-                                                "'cloud not be moved, will remain in \"locked\" state", axisFault);
-                                        skipUnlock = true;
+                                processCount++;
+
+                                if (dispatcher != null) {
+                                    // the worker closes the file once it is processed
+                                    dispatcher.dispatch(child);
+                                    dispatched = true;
+                                } else {
+                                    FileProcessingResult result = processLockedFile(entry, child, fso, true);
+                                    if (result.succeeded) {
+                                        successCount++;
+                                        entry.setLastPollState(PollTableEntry.SUCCSESSFUL);
+                                    } else if (result.failed) {
                                         failCount++;
                                         entry.setLastPollState(PollTableEntry.FAILED);
-                                        String timeStamp =
-                                                VFSUtils.getSystemTime(entry.getFailedRecordTimestampFormat());
-                                        addFailedRecord(entry, child, timeStamp);
                                     }
                                 }
-                                // if there is a failure or not we'll try to release the lock
-                                if (entry.isFileLockingEnabled() && !skipUnlock) {
-                                    VFSUtils.releaseLock(getFsManager(), child, fso);
-                                }
                             }
                         }else if(entry.getFileNamePattern()!=null &&
                                 !child.getName().getBaseName().matches(entry.getFileNamePattern())){
@@ -589,7 +635,9 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
                                 		+ "process");
                             }
                         }
-                        close(child);
+                        if (!dispatched) {
+                            close(child);
+                        }
 
                         if (shouldStopScanning(entry)) {
                             // in a server shutting down scenario or in a service undeployment, it is unnecessary
@@ -614,6 +662,16 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
                         }
                     }
 
+                    if (dispatcher != null) {
+                        dispatcher.awaitCompletion();
+                        successCount += dispatcher.getSuccessCount();
+                        failCount += dispatcher.getFailCount();
+                    }
+                    long scanTime = System.currentTimeMillis() - scanStartTime;
+                    if (processCount > 0) {
+                        entry.setLastScanFilesPerSecond(processCount * 1000.0 / Math.max(scanTime, 1));
+                    }
+
                     if (failCount == 0 && successCount > 0) {
                         entry.setLastPollState(PollTableEntry.SUCCSESSFUL);
                     } else if (successCount == 0 && failCount > 0) {
@@ -660,10 +718,37 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
             closeFileSystem(fileObject);
             processFailure("Un-handled exception thrown when processing the file : ", ex, entry);
         } finally {
+            if (dispatcher != null) {
+                // make sure files handed over to the worker pool are completed and unlocked before
+                // the scan is reported as complete
+                dispatcher.awaitCompletion();
+            }
+            entry.setFileProcessingBacklog(0);
             inFlightMessages.decrementAndGet();
         }
     }
 
+    /**
+     * Resolve the notified files of a directory, skipping the ones which no longer exist
+     * @param directory the scanned directory
+     * @param changedFiles base names of the notified files
+     * @return the existing files
+     */
+    private FileObject[] resolveChangedFiles(FileObject directory, Set<String> changedFiles)
+            throws FileSystemException {
+        if (directory.getType() != FileType.FOLDER) {
+            throw new FileNotFolderException(directory.getName());
+        }
+        List<FileObject> files = new ArrayList<FileObject>(changedFiles.size());
+        for (String fileName : changedFiles) {
+            FileObject file = directory.resolveFile(fileName);
+            if (file.exists()) {
+                files.add(file);
+            }
+        }
+        return files.toArray(new FileObject[files.size()]);
+    }
+
     @Override
     public void destroy() {
         log.info("Shutting down the VFS transport listener...");
@@ -760,11 +845,24 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
      */
     protected void moveOrDeleteAfterProcessing(final PollTableEntry entry, FileObject fileObject, FileSystemOptions fso)
             throws AxisFault {
+        moveOrDeleteAfterProcessing(entry, fileObject, fso, entry.getLastPollState());
+    }
+
+    /**
+     * Take specified action to either move or delete the processed file, depending on the given outcome. Unlike
+     * {@link #moveOrDeleteAfterProcessing(PollTableEntry, FileObject, FileSystemOptions)} this does not rely on
+     * the last poll state of the entry, and hence can be used when files of an entry are processed concurrently
+     * @param entry the PollTableEntry for the file that has been processed
+     * @param fileObject the FileObject representing the file to be moved or deleted
+     * @param pollState the processing outcome of the file
+     */
+    protected void moveOrDeleteAfterProcessing(final PollTableEntry entry, FileObject fileObject,
+                                               FileSystemOptions fso, int pollState) throws AxisFault {
 
         String serviceName = entry.getServiceName();
         String moveToDirectoryURI = null;
         try {
-            switch (entry.getLastPollState()) {
+            switch (pollState) {
                 case PollTableEntry.SUCCSESSFUL:
                     if (entry.getActionAfterProcess() == PollTableEntry.NONE) {
                         return;
@@ -880,6 +978,85 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
         }
     }
 
+    /**
+     * Process a file of a directory scan for which the lock (if file locking is enabled) has already been
+     * acquired. The processing outcome is tracked per file so that several files of the same entry can be
+     * processed concurrently.
+     * @param entry the PollTableEntry for the directory being scanned
+     * @param child the file to be processed
+     * @param fso the file system options of the scan
+     * @param postProcess whether to move/delete and unlock the file once it is processed
+     * @return the outcome of processing the file
+     */
+    private FileProcessingResult processLockedFile(PollTableEntry entry, FileObject child, FileSystemOptions fso,
+                                                   boolean postProcess) {
+        FileProcessingResult result = new FileProcessingResult(child);
+        try {
+            if (child.getType() == FileType.FILE) {
+                if (processFile(entry, child)) {
+                    result.succeeded = true;
+                } else {
+                    result.failed = true;
+                }
+                metrics.incrementMessagesReceived();
+            } else {
+                result.runPostProcess = false;
+            }
+        } catch (Exception e) {
+            if (e.getCause() instanceof FileNotFoundException) {
+                log.warn("Error processing File URI : " +
+                         VFSUtils.maskURLPassword(child.getName().toString()) +
+                         ". This can be due to file moved from another process.");
+                result.runPostProcess = false;
+            } else {
+                logException("Error processing File URI : " +
+                             VFSUtils.maskURLPassword(child.getName().getURI()), e);
+                result.failed = true;
+                metrics.incrementFaultsReceiving();
+            }
+        }
+        if (postProcess) {
+            postProcessFile(entry, result, fso);
+        }
+        return result;
+    }
+
+    /**
+     * Move or delete a processed file according to its outcome and release its lock
+     * @param entry the PollTableEntry for the directory being scanned
+     * @param result the outcome of processing the file
+     * @param fso the file system options of the scan
+     */
+    private void postProcessFile(PollTableEntry entry, FileProcessingResult result, FileSystemOptions fso) {
+        FileObject child = result.file;
+        //skipping un-locking file if failed to do delete/move after process
+        boolean skipUnlock = false;
+        if (result.runPostProcess) {
+            try {
+                moveOrDeleteAfterProcessing(entry, child, fso,
+                        result.failed ? PollTableEntry.FAILED : PollTableEntry.SUCCSESSFUL);
+            } catch (AxisFault axisFault) {
+                try {
+                    logException("File object '" + VFSUtils.maskURLPassword(child.getURL().toString()) +
+                                 "'cloud not be moved, will remain in \"locked\" state", axisFault);
+                } catch (FileSystemException e) {
+                    logException("File object '" + VFSUtils.maskURLPassword(child.toString()) +
+                                 "'cloud not be moved, will remain in \"locked\" state", axisFault);
+                }
+                skipUnlock = true;
+                result.succeeded = false;
+                result.failed = true;
+                String timeStamp = VFSUtils.getSystemTime(entry.getFailedRecordTimestampFormat());
+                addFailedRecord(entry, child, timeStamp);
+            }
+        }
+        // if there is a failure or not we'll try to release the lock
+        if (entry.isFileLockingEnabled() && !skipUnlock) {
+            VFSUtils.releaseLock(getFsManager(), child, fso);
+        }
+        entry.incrementProcessedFileCount();
+    }
+
     /**
      * Process a single file through Axis2
      * @param entry the PollTableEntry for the file (or its parent directory or archive)
@@ -970,6 +1147,10 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
                 }
             }
 
+            if (entry.isChunkedIngestion()) {
+                return processFileInChunks(entry, file, contentType, builder, transportHeaders);
+            }
+
             // set the message payload to the message context
             InputStream in;
             ManagedDataSource dataSource;
@@ -1039,6 +1220,115 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
         return processFileStatus;
     }
 
+    /**
+     * Split a file into chunks and inject each chunk as a separate message, so that memory usage does not
+     * depend on the size of the file. At most {@link PollTableEntry#getMaxInFlightChunks()} chunks are read
+     * ahead and mediated at the same time, and the method returns only after all the chunks of the file are
+     * mediated, so that the file can then be moved or deleted.
+     * @param entry the PollTableEntry for the file (or its parent directory or archive)
+     * @param file the file to be split
+     * @param contentType the content type of the file
+     * @param builder the message builder used to build each chunk
+     * @param fileHeaders the transport headers describing the file
+     * @return true if all the chunks were mediated successfully
+     */
+    private boolean processFileInChunks(final PollTableEntry entry, FileObject file, final String contentType,
+                                        final Builder builder, final Map<String, Object> fileHeaders)
+            throws AxisFault {
+        String charSetEnc = null;
+        try {
+            if (contentType != null) {
+                charSetEnc = new ContentType(contentType).getParameter("charset");
+            }
+        } catch (ParseException ignore) {
+            // use the default character set
+        }
+        final String charSetEncoding = charSetEnc;
+        Charset charset = charSetEnc != null ? Charset.forName(charSetEnc) : StandardCharsets.UTF_8;
+
+        final int maxInFlightChunks = entry.getMaxInFlightChunks();
+        final Semaphore inFlightChunks = new Semaphore(maxInFlightChunks);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService executor = maxInFlightChunks > 1 ? entry.getChunkProcessingExecutor() : null;
+
+        int chunkCount = 0;
+        try {
+            FileChunkReader reader = FileChunkReader.create(entry, file.getContent().getInputStream(), charset);
+            try {
+                byte[] chunk;
+                while ((chunk = reader.next()) != null) {
+                    final byte[] chunkContent = chunk;
+                    final int chunkIndex = chunkCount++;
+                    Runnable task = new Runnable() {
+                        public void run() {
+                            try {
+                                if (!injectChunk(entry, chunkContent, chunkIndex, contentType, charSetEncoding,
+                                        builder, fileHeaders)) {
+                                    failed.set(true);
+                                }
+                            } catch (Exception e) {
+                                logException("Error processing chunk " + chunkIndex + " of File URI : " +
+                                        VFSUtils.maskURLPassword(String.valueOf(fileHeaders.get(VFSConstants.FILE_URI))),
+                                        e);
+                                failed.set(true);
+                            } finally {
+                                inFlightChunks.release();
+                            }
+                        }
+                    };
+                    // bounds the number of chunks held in memory
+                    inFlightChunks.acquireUninterruptibly();
+                    if (executor == null) {
+                        task.run();
+                    } else {
+                        try {
+                            executor.execute(task);
+                        } catch (RejectedExecutionException e) {
+                            task.run();
+                        }
+                    }
+                }
+            } finally {
+                // wait for all the chunks of the file to be mediated
+                inFlightChunks.acquireUninterruptibly(maxInFlightChunks);
+                inFlightChunks.release(maxInFlightChunks);
+                reader.close();
+            }
+        } catch (IOException e) {
+            handleException("Error reading chunks of file : " + VFSUtils.maskURLPassword(file.toString()), e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Processed file : " + VFSUtils.maskURLPassword(file.toString()) + " in " + chunkCount
+                    + " chunks of Content-type : " + contentType);
+        }
+        return !failed.get();
+    }
+
+    /**
+     * Build a chunk of a file into a message and inject it
+     * @return true if the message was mediated successfully
+     */
+    private boolean injectChunk(PollTableEntry entry, byte[] chunk, int chunkIndex, String contentType,
+                                String charSetEnc, Builder builder, Map<String, Object> fileHeaders)
+            throws AxisFault {
+        MessageContext msgContext = entry.createMessageContext();
+        if (charSetEnc != null) {
+            msgContext.setProperty(Constants.Configuration.CHARACTER_SET_ENCODING, charSetEnc);
+        }
+        String replyFileURI = entry.getReplyFileURI();
+        if (replyFileURI != null) {
+            msgContext.setProperty(Constants.OUT_TRANSPORT_INFO,
+                    new VFSOutTransportInfo(replyFileURI, entry.isFileLockingEnabled()));
+        }
+        Map<String, Object> transportHeaders = new HashMap<String, Object>(fileHeaders);
+        transportHeaders.put(VFSConstants.FILE_CHUNK_INDEX, chunkIndex);
+
+        OMElement documentElement = builder.processDocument(new ByteArrayInputStream(chunk), contentType, msgContext);
+        msgContext.setEnvelope(TransportUtils.createSOAPEnvelope(documentElement));
+        handleIncomingMessage(msgContext, transportHeaders, null, contentType);
+        return StringUtils.isEmpty((String) transportHeaders.get(VFSConstants.ERROR_CODE));
+    }
+
     @Override
     protected PollTableEntry createEndpoint() {
         PollTableEntry entry = new PollTableEntry(globalFileLockingFlag);
@@ -1046,12 +1336,56 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
         return entry;
     }
 
+    @Override
+    protected void startEndpoint(PollTableEntry endpoint) throws AxisFault {
+        super.startEndpoint(endpoint);
+        if (endpoint.isWatchDirectory()) {
+            startDirectoryWatcher(endpoint);
+        }
+    }
+
+    /**
+     * Start watching the directory of the given entry for file system notifications. Only local directories
+     * can be watched, other entries continue to be polled only.
+     * @param entry the poll table entry
+     */
+    private void startDirectoryWatcher(PollTableEntry entry) {
+        String fileURI = entry.getFileURI();
+        if (!fileURI.startsWith(LOCAL_FILE_SCHEME + ":")) {
+            log.warn("Directory watching is only supported for local file URIs, polling : "
+                    + VFSUtils.maskURLPassword(fileURI));
+            return;
+        }
+        try {
+            FileObject directory = getFsManager().resolveFile(fileURI);
+            if (directory.getType() != FileType.FOLDER) {
+                log.warn("Directory watching is only supported for directories, polling : " + fileURI);
+                return;
+            }
+            Path path = Paths.get(URI.create(directory.getName().getURI()));
+            LocalDirectoryWatcher watcher =
+                    new LocalDirectoryWatcher(this, entry, path, entry.getWatchDebounceInterval());
+            watcher.start();
+            entry.setDirectoryWatcher(watcher);
+            log.info("Watching directory : " + path + " for service : " + entry.getServiceName()
+                    + ", reconciliation scan interval : " + entry.getPollInterval() + "ms");
+        } catch (Exception e) {
+            VFSTransportErrorHandler.logException(log, LogType.WARN, "Unable to watch directory : " + fileURI
+                    + ", falling back to polling", entry.getServiceName(), e);
+        }
+    }
+
     @Override
     protected void stopEndpoint(PollTableEntry endpoint) {
         log.info("Stopping VFS listener for : " + VFSUtils.maskURLPassword(endpoint.getFileURI()));
         synchronized (endpoint) {
             endpoint.setCanceled(true);
         }
+        if (endpoint.getDirectoryWatcher() != null) {
+            endpoint.getDirectoryWatcher().stop();
+            endpoint.setDirectoryWatcher(null);
+        }
+        endpoint.shutdownFileProcessingExecutor();
         super.stopEndpoint(endpoint);
     }
 
@@ -1255,6 +1589,136 @@ public class VFSTransportListener extends AbstractPollingTransportListener<PollT
         }
     }
 
+    /**
+     * Outcome of processing a single file of a directory scan
+     */
+    private static class FileProcessingResult {
+        private final FileObject file;
+        private boolean succeeded;
+        private boolean failed;
+        private boolean runPostProcess = true;
+
+        FileProcessingResult(FileObject file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Hands over the files of a single directory scan to the worker pool of the poll table entry. At most
+     * {@link PollTableEntry#getFileProcessingParallelism()} files are in flight at any time, and the polling
+     * thread blocks when this limit is reached. Files are locked by the polling thread before they are
+     * dispatched. When ordered processing is enabled, files are processed concurrently but moved/deleted
+     * and unlocked by the polling thread in the order in which they were dispatched.
+     */
+    private class ParallelFileDispatcher {
+        private final PollTableEntry entry;
+        private final FileSystemOptions fso;
+        private final int parallelism;
+        private final boolean ordered;
+        private final ExecutorService executor;
+        private final CompletionService<FileProcessingResult> completionService;
+        private final Deque<Future<FileProcessingResult>> orderedResults =
+                new ArrayDeque<Future<FileProcessingResult>>();
+        private int inFlight;
+        private int successCount;
+        private int failCount;
+
+        ParallelFileDispatcher(PollTableEntry entry, FileSystemOptions fso) {
+            this.entry = entry;
+            this.fso = fso;
+            this.parallelism = entry.getFileProcessingParallelism();
+            this.ordered = entry.isFileProcessingOrdered();
+            this.executor = entry.getFileProcessingExecutor();
+            this.completionService = new ExecutorCompletionService<FileProcessingResult>(executor);
+        }
+
+        void dispatch(final FileObject child) {
+            while (inFlight >= parallelism) {
+                completeNext();
+            }
+            Callable<FileProcessingResult> task = new Callable<FileProcessingResult>() {
+                public FileProcessingResult call() {
+                    try {
+                        return processLockedFile(entry, child, fso, !ordered);
+                    } finally {
+                        close(child);
+                    }
+                }
+            };
+            try {
+                if (ordered) {
+                    orderedResults.add(executor.submit(task));
+                } else {
+                    completionService.submit(task);
+                }
+                inFlight++;
+                entry.incrementFileProcessingBacklog();
+            } catch (RejectedExecutionException e) {
+                // the entry is being stopped, complete the already locked file on the polling thread
+                FileProcessingResult result = processLockedFile(entry, child, fso, true);
+                close(child);
+                tally(result);
+            }
+        }
+
+        void awaitCompletion() {
+            while (inFlight > 0) {
+                completeNext();
+            }
+        }
+
+        private void completeNext() {
+            boolean interrupted = false;
+            Future<FileProcessingResult> future = null;
+            try {
+                while (true) {
+                    try {
+                        if (future == null) {
+                            future = ordered ? orderedResults.poll() : completionService.take();
+                        }
+                        FileProcessingResult result = future.get();
+                        if (ordered) {
+                            postProcessFile(entry, result, fso);
+                        }
+                        tally(result);
+                        return;
+                    } catch (InterruptedException e) {
+                        // the files in flight are locked by this scan, hence wait for them regardless
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        VFSTransportErrorHandler.logException(log, LogType.ERROR,
+                                "Unexpected error while processing file in parallel", entry.getServiceName(),
+                                e.getCause());
+                        failCount++;
+                        return;
+                    }
+                }
+            } finally {
+                inFlight--;
+                entry.decrementFileProcessingBacklog();
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void tally(FileProcessingResult result) {
+            if (result.succeeded) {
+                successCount++;
+            } else if (result.failed) {
+                failCount++;
+            }
+        }
+
+        int getSuccessCount() {
+            return successCount;
+        }
+
+        int getFailCount() {
+            return failCount;
+        }
+    }
+
     public boolean isFileSystemClosed() {
         return isFileSystemClosed;
     }
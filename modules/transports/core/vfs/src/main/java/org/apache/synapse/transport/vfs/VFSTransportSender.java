@@ -18,7 +18,10 @@
 */
 package org.apache.synapse.transport.vfs;
 
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNode;
 import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.om.OMText;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.context.MessageContext;
@@ -27,6 +30,7 @@ import org.apache.axis2.description.TransportOutDescription;
 import org.apache.axis2.transport.MessageFormatter;
 import org.apache.axis2.transport.OutTransportInfo;
 import org.apache.axis2.transport.base.AbstractTransportSender;
+import org.apache.axis2.transport.base.BaseConstants;
 import org.apache.axis2.transport.base.BaseTransportException;
 import org.apache.axis2.transport.base.BaseUtils;
 import org.apache.axis2.transport.base.ManagementSupport;
@@ -48,7 +52,13 @@ import org.apache.synapse.commons.vfs.VFSUtils;
 import org.apache.synapse.transport.vfs.VFSTransportErrorHandler.LogType;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.ConcurrentHashMap;
+import javax.activation.DataHandler;
 
 /**
  * axis2.xml - transport definition
@@ -77,6 +87,15 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
      */
     private static final ConcurrentHashMap<String,WriteLockObject> lockingObjects = new ConcurrentHashMap<>();
 
+    private static final String LOCAL_FILE_SCHEME = "file:";
+
+    /** Pool of open file channels used to append to local files, created on first use */
+    private PooledFileChannelWriter pooledWriter = null;
+
+    private long writerFlushInterval = VFSConstants.DEFAULT_WRITER_FLUSH_INTERVAL;
+
+    private int writerMaxOpenFiles = VFSConstants.DEFAULT_WRITER_MAX_OPEN_FILES;
+
 
     /**
      * The public constructor
@@ -153,6 +172,26 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
                 }
 
             }
+            Parameter flushIntervalParam = transportOut.getParameter(VFSConstants.WRITER_FLUSH_INTERVAL);
+            if (flushIntervalParam != null && flushIntervalParam.getValue() != null) {
+                try {
+                    writerFlushInterval = Long.parseLong(flushIntervalParam.getValue().toString());
+                } catch (NumberFormatException e) {
+                    String message = "VFS writer flush interval is not set properly. Given value is : "
+                            + flushIntervalParam.getValue() + ", defaults to - " + writerFlushInterval;
+                    VFSTransportErrorHandler.logException(log, LogType.WARN, message, e);
+                }
+            }
+            Parameter maxOpenFilesParam = transportOut.getParameter(VFSConstants.WRITER_MAX_OPEN_FILES);
+            if (maxOpenFilesParam != null && maxOpenFilesParam.getValue() != null) {
+                try {
+                    writerMaxOpenFiles = Integer.parseInt(maxOpenFilesParam.getValue().toString());
+                } catch (NumberFormatException e) {
+                    String message = "VFS writer max open files is not set properly. Given value is : "
+                            + maxOpenFilesParam.getValue() + ", defaults to - " + writerMaxOpenFiles;
+                    VFSTransportErrorHandler.logException(log, LogType.WARN, message, e);
+                }
+            }
             vfsParamDTO = new VFSParamDTO();
             vfsParamDTO.setAutoLockRelease(autoLockRelease);
             vfsParamDTO.setAutoLockReleaseInterval(autoLockReleaseInterval);
@@ -174,7 +213,12 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
         setOutOnlyMep(msgCtx);
         VFSOutTransportInfo vfsOutInfo = null;
         if (targetAddress != null) {
-            vfsOutInfo = new VFSOutTransportInfo(targetAddress, globalFileLockingFlag);
+            try {
+                vfsOutInfo = new VFSOutTransportInfo(targetAddress, globalFileLockingFlag);
+            } catch (IllegalArgumentException e) {
+                VFSTransportErrorHandler.handleException(log, "Invalid VFS transport configuration of : "
+                        + VFSUtils.maskURLPassword(targetAddress) + ". " + e.getMessage(), e);
+            }
         } else if (outTransportInfo != null && outTransportInfo instanceof VFSOutTransportInfo) {
             vfsOutInfo = (VFSOutTransportInfo) outTransportInfo;
         }
@@ -213,6 +257,11 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
 
     protected void writeFile(MessageContext msgCtx, VFSOutTransportInfo vfsOutInfo) throws AxisFault {
         String configName = (String) msgCtx.getProperty("_INTERNAL_TRIGGER_NAME");
+        if (vfsOutInfo != null && vfsOutInfo.isPooledWriter() && vfsOutInfo.isAppend()
+                && vfsOutInfo.getOutFileURI().startsWith(LOCAL_FILE_SCHEME)) {
+            writeToPooledChannel(msgCtx, vfsOutInfo, configName);
+            return;
+        }
         FileSystemOptions fso = null;
         try {
             fso = VFSUtils.attachFileSystemOptions(vfsOutInfo.getOutFileSystemOptionsMap(), getFsManager());
@@ -421,6 +470,100 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
         }
     }
 
+    /**
+     * Append the message to a local file through a pooled file channel, which is kept open across messages.
+     * Binary payloads are transferred to the file from the stream of their data handler instead of being
+     * serialized by a message formatter. Messages to the same file are serialized within this node, hence
+     * VFS lock files are not used in this mode. Only messages appended to a file are written this way, a message
+     * replacing the content of the file is written by {@link #writeFile} as usual.
+     *
+     * @param msgCtx the axis2 message context
+     * @param vfsOutInfo the out transport information of the local file or folder
+     * @param configName the name of the artifact sending the message
+     * @throws AxisFault on error writing the file
+     */
+    protected void writeToPooledChannel(MessageContext msgCtx, VFSOutTransportInfo vfsOutInfo, String configName)
+            throws AxisFault {
+        String outFileURI = vfsOutInfo.getOutFileURI();
+        int queryIndex = outFileURI.indexOf('?');
+        if (queryIndex > -1) {
+            outFileURI = outFileURI.substring(0, queryIndex);
+        }
+        try {
+            Path target = Paths.get(URI.create(outFileURI));
+            if (Files.isDirectory(target)) {
+                target = target.resolve(VFSUtils.getFileName(msgCtx, vfsOutInfo));
+            }
+            DataHandler binaryPayload = getBinaryPayload(msgCtx);
+            long bytesWritten;
+            while (true) {
+                PooledFileChannelWriter.PooledChannel channel = getPooledWriter().getChannel(target,
+                        vfsOutInfo.getWriterBufferSize(), vfsOutInfo.getWriterRotateSize(),
+                        vfsOutInfo.getWriterRotateInterval(), vfsOutInfo.isForceCreateFolder(msgCtx));
+                synchronized (channel) {
+                    if (!channel.beginMessage()) {
+                        // the channel was closed as idle in the meantime
+                        continue;
+                    }
+                    if (binaryPayload != null) {
+                        InputStream in = binaryPayload.getInputStream();
+                        try {
+                            bytesWritten = channel.transferFrom(in);
+                        } finally {
+                            in.close();
+                        }
+                    } else {
+                        CountingOutputStream os = new CountingOutputStream(channel.getOutputStream());
+                        getMessageFormatter(msgCtx).writeTo(msgCtx, BaseUtils.getOMOutputFormat(msgCtx), os, false);
+                        bytesWritten = os.getByteCount();
+                    }
+                    break;
+                }
+            }
+            metrics.incrementMessagesSent(msgCtx);
+            metrics.incrementBytesSent(msgCtx, bytesWritten);
+        } catch (IOException | IllegalArgumentException e) {
+            metrics.incrementFaultsSending();
+            String message = "IO Error while writing to file : " + VFSUtils.maskURLPassword(outFileURI);
+            VFSTransportErrorHandler.handleException(log, message, configName, e);
+        }
+    }
+
+    /**
+     * Returns the data handler of the message if it carries a binary payload
+     */
+    private DataHandler getBinaryPayload(MessageContext msgCtx) {
+        if (msgCtx.getEnvelope() == null) {
+            return null;
+        }
+        OMElement firstElement = msgCtx.getEnvelope().getBody().getFirstElement();
+        if (firstElement != null && BaseConstants.DEFAULT_BINARY_WRAPPER.equals(firstElement.getQName())) {
+            OMNode node = firstElement.getFirstOMChild();
+            if (node instanceof OMText && ((OMText) node).isBinary()) {
+                return (DataHandler) ((OMText) node).getDataHandler();
+            }
+        }
+        return null;
+    }
+
+    private synchronized PooledFileChannelWriter getPooledWriter() {
+        if (pooledWriter == null) {
+            pooledWriter = new PooledFileChannelWriter(writerFlushInterval, writerMaxOpenFiles);
+        }
+        return pooledWriter;
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            if (pooledWriter != null) {
+                pooledWriter.close();
+                pooledWriter = null;
+            }
+        }
+        super.stop();
+    }
+
     protected void acquireLockForSending(FileObject responseFile, VFSOutTransportInfo vfsOutInfo,
                                          FileSystemOptions fso, String configName)
             throws AxisFault {
@@ -0,0 +1,161 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+import org.apache.axis2.description.AxisService;
+import org.apache.axis2.description.Parameter;
+import org.apache.synapse.commons.vfs.VFSConstants;
+import org.junit.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link FileChunkReader}
+ */
+public class FileChunkReaderTest extends TestCase {
+
+    public void testSplitByLine() throws Exception {
+        PollTableEntry entry = createEntry(FileChunkReader.CHUNK_BY_LINE, null, null, "2");
+        List<String> chunks = readChunks(entry, "a,1\r\nb,2\nc,3\n\nd,4\n");
+
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals("a,1\nb,2", chunks.get(0));
+        Assert.assertEquals("c,3\n", chunks.get(1));
+        Assert.assertEquals("d,4", chunks.get(2));
+    }
+
+    public void testSplitByLineSkippingEmptyLines() throws Exception {
+        PollTableEntry entry = createEntry(FileChunkReader.CHUNK_BY_LINE, null, null, "2", true);
+        List<String> chunks = readChunks(entry, "a,1\r\nb,2\nc,3\n\nd,4\n");
+
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertEquals("a,1\nb,2", chunks.get(0));
+        Assert.assertEquals("c,3\nd,4", chunks.get(1));
+    }
+
+    public void testSplitByDelimiter() throws Exception {
+        PollTableEntry entry = createEntry(FileChunkReader.CHUNK_BY_DELIMITER, "$$", null, null);
+        List<String> chunks = readChunks(entry, "first$$second$$third");
+
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals("second", chunks.get(1));
+    }
+
+    public void testEmptyRecordsAreKept() throws Exception {
+        PollTableEntry entry = createEntry(FileChunkReader.CHUNK_BY_DELIMITER, "$$", null, null);
+        List<String> chunks = readChunks(entry, "first$$$$third");
+
+        Assert.assertEquals(3, chunks.size());
+        Assert.assertEquals("", chunks.get(1));
+        Assert.assertEquals("third", chunks.get(2));
+
+        chunks = readChunks(entry, "$$second");
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertEquals("", chunks.get(0));
+        Assert.assertEquals("second", chunks.get(1));
+    }
+
+    public void testSplitByElement() throws Exception {
+        PollTableEntry entry = createEntry(FileChunkReader.CHUNK_BY_ELEMENT, null, "order", null);
+        List<String> chunks = readChunks(entry, "<ns:orders xmlns:ns=\"http://orders\">"
+                + "<ns:order id=\"1\"><item>a</item></ns:order>"
+                + "<ns:order id=\"2\"><item>b</item></ns:order>"
+                + "</ns:orders>");
+
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertTrue("Inherited namespace is not declared on the chunk",
+                chunks.get(0).contains("xmlns:ns=\"http://orders\""));
+        Assert.assertTrue(chunks.get(1).contains("<item>b</item>"));
+    }
+
+    public void testSplitByElementInGroups() throws Exception {
+        PollTableEntry entry = createEntry(FileChunkReader.CHUNK_BY_ELEMENT, null, "order", "2");
+        List<String> chunks = readChunks(entry, "<ns:orders xmlns:ns=\"http://orders\">"
+                + "<ns:order id=\"1\"/><ns:order id=\"2\"/><ns:order id=\"3\"/>"
+                + "</ns:orders>");
+
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertTrue("Grouped elements are not wrapped in their parent",
+                chunks.get(0).startsWith("<ns:orders xmlns:ns=\"http://orders\">"));
+        Assert.assertTrue(chunks.get(0).contains("id=\"1\"") && chunks.get(0).contains("id=\"2\""));
+        Assert.assertTrue(chunks.get(1).contains("id=\"3\""));
+        Assert.assertTrue(chunks.get(1).endsWith("</ns:orders>"));
+    }
+
+    public void testElementGroupsDoNotSpanParents() throws Exception {
+        PollTableEntry entry = createEntry(FileChunkReader.CHUNK_BY_ELEMENT, null, "order", "3");
+        List<String> chunks = readChunks(entry, "<customers>"
+                + "<customer><order id=\"1\"/><order id=\"2\"/></customer>"
+                + "<customer><order id=\"3\"/></customer>"
+                + "</customers>");
+
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertEquals("<customer><order id=\"1\"/><order id=\"2\"/></customer>",
+                chunks.get(0).replace("></order>", "/>"));
+        Assert.assertEquals("<customer><order id=\"3\"/></customer>", chunks.get(1).replace("></order>", "/>"));
+    }
+
+    private PollTableEntry createEntry(String mode, String delimiter, String element, String chunkSize)
+            throws Exception {
+        return createEntry(mode, delimiter, element, chunkSize, false);
+    }
+
+    private PollTableEntry createEntry(String mode, String delimiter, String element, String chunkSize,
+                                       boolean skipEmptyRecords) throws Exception {
+        AxisService axisService = new AxisService("testVFSChunkService");
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_FILE_URI, "file:///tmp/vfs/in"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CONTENT_TYPE, "text/plain"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CHUNK_MODE, mode));
+        if (delimiter != null) {
+            axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CHUNK_DELIMITER, delimiter));
+        }
+        if (element != null) {
+            axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CHUNK_ELEMENT, element));
+        }
+        if (chunkSize != null) {
+            axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CHUNK_SIZE, chunkSize));
+        }
+        if (skipEmptyRecords) {
+            axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CHUNK_SKIP_EMPTY, "true"));
+        }
+        PollTableEntry entry = new PollTableEntry(false);
+        entry.loadConfiguration(axisService);
+        Assert.assertTrue("Chunked ingestion not enabled", entry.isChunkedIngestion());
+        return entry;
+    }
+
+    private List<String> readChunks(PollTableEntry entry, String content) throws Exception {
+        List<String> chunks = new ArrayList<String>();
+        FileChunkReader reader = FileChunkReader.create(entry,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        try {
+            byte[] chunk;
+            while ((chunk = reader.next()) != null) {
+                chunks.add(new String(chunk, StandardCharsets.UTF_8));
+            }
+        } finally {
+            reader.close();
+        }
+        return chunks;
+    }
+}
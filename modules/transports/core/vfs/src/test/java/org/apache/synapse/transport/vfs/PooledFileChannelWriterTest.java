@@ -0,0 +1,145 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+import org.junit.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Unit tests for {@link PooledFileChannelWriter}
+ */
+public class PooledFileChannelWriterTest extends TestCase {
+
+    public void testAppendToPooledChannel() throws Exception {
+        Path dir = Files.createTempDirectory("vfs-pooled-writer");
+        Path target = dir.resolve("out/messages.txt");
+        PooledFileChannelWriter writer = new PooledFileChannelWriter(1000);
+        try {
+            write(writer, target, "first\n", -1);
+            write(writer, target, "second\n", -1);
+
+            File source = dir.resolve("source.bin").toFile();
+            Files.write(source.toPath(), "third\n".getBytes(StandardCharsets.UTF_8));
+            PooledFileChannelWriter.PooledChannel channel = writer.getChannel(target, 4, -1, -1, true);
+            synchronized (channel) {
+                Assert.assertTrue(channel.beginMessage());
+                InputStream in = new FileInputStream(source);
+                try {
+                    Assert.assertEquals(6, channel.transferFrom(in));
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        Assert.assertEquals("first\nsecond\nthird\n",
+                new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+
+    public void testRotateBySize() throws Exception {
+        Path dir = Files.createTempDirectory("vfs-pooled-writer");
+        Path target = dir.resolve("messages.txt");
+        PooledFileChannelWriter writer = new PooledFileChannelWriter(1000);
+        try {
+            write(writer, target, "0123456789", 10);
+            write(writer, target, "abc", 10);
+        } finally {
+            writer.close();
+        }
+        Assert.assertEquals("abc", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        Assert.assertEquals("Rotated file not found", 2, dir.toFile().list().length);
+    }
+
+    public void testStreamContentIsBuffered() throws Exception {
+        Path dir = Files.createTempDirectory("vfs-pooled-writer");
+        Path target = dir.resolve("messages.txt");
+        PooledFileChannelWriter writer = new PooledFileChannelWriter(60000);
+        try {
+            PooledFileChannelWriter.PooledChannel channel = writer.getChannel(target, 1024, -1, -1, false);
+            synchronized (channel) {
+                Assert.assertTrue(channel.beginMessage());
+                channel.transferFrom(new ByteArrayInputStream("payload".getBytes(StandardCharsets.UTF_8)));
+                channel.getOutputStream().write("buffered".getBytes(StandardCharsets.UTF_8));
+            }
+            Assert.assertEquals("Buffered content must not be written before a flush", 7, Files.size(target));
+        } finally {
+            writer.close();
+        }
+        Assert.assertEquals("payloadbuffered", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+
+    public void testLeastRecentlyUsedChannelIsClosed() throws Exception {
+        Path dir = Files.createTempDirectory("vfs-pooled-writer");
+        PooledFileChannelWriter writer = new PooledFileChannelWriter(60000, 2);
+        try {
+            write(writer, dir.resolve("a.txt"), "a1", -1);
+            Thread.sleep(5);
+            write(writer, dir.resolve("b.txt"), "b1", -1);
+            Thread.sleep(5);
+            write(writer, dir.resolve("a.txt"), "a2", -1);
+            Thread.sleep(5);
+            write(writer, dir.resolve("c.txt"), "c1", -1);
+            Assert.assertEquals(2, writer.getOpenFileCount());
+            // b.txt was closed and flushed to open c.txt
+            Assert.assertEquals("b1", new String(Files.readAllBytes(dir.resolve("b.txt")), StandardCharsets.UTF_8));
+            write(writer, dir.resolve("b.txt"), "b2", -1);
+            Assert.assertEquals(2, writer.getOpenFileCount());
+        } finally {
+            writer.close();
+        }
+        Assert.assertEquals("a1a2", new String(Files.readAllBytes(dir.resolve("a.txt")), StandardCharsets.UTF_8));
+        Assert.assertEquals("b1b2", new String(Files.readAllBytes(dir.resolve("b.txt")), StandardCharsets.UTF_8));
+        Assert.assertEquals("c1", new String(Files.readAllBytes(dir.resolve("c.txt")), StandardCharsets.UTF_8));
+    }
+
+    public void testMismatchingSettingsAreRejected() throws Exception {
+        Path dir = Files.createTempDirectory("vfs-pooled-writer");
+        Path target = dir.resolve("messages.txt");
+        PooledFileChannelWriter writer = new PooledFileChannelWriter(60000);
+        try {
+            writer.getChannel(target, 1024, -1, -1, false);
+            try {
+                writer.getChannel(target, 1024, 10, -1, false);
+                fail("A file open with other rotation settings must not be shared");
+            } catch (IllegalArgumentException expected) {
+            }
+            Assert.assertNotNull(writer.getChannel(target, 1024, -1, -1, false));
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void write(PooledFileChannelWriter writer, Path target, String content, long rotateSize)
+            throws Exception {
+        PooledFileChannelWriter.PooledChannel channel = writer.getChannel(target, 4, rotateSize, -1, true);
+        synchronized (channel) {
+            Assert.assertTrue(channel.beginMessage());
+            channel.getOutputStream().write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
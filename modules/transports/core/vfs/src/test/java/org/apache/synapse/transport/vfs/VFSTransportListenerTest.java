@@ -19,6 +19,7 @@
 package org.apache.synapse.transport.vfs;
 
 import junit.framework.TestCase;
+import org.apache.axis2.AxisFault;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.description.AxisService;
 import org.apache.axis2.description.Parameter;
@@ -28,13 +29,25 @@ import org.apache.axis2.transport.base.ProtocolEndpoint;
 import org.apache.axis2.transport.testkit.axis2.TransportDescriptionFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemOptions;
 import org.apache.commons.vfs2.FileType;
 import org.apache.synapse.commons.vfs.VFSConstants;
 import org.junit.Assert;
 import org.wso2.carbon.inbound.endpoint.protocol.file.MockFile;
 import org.wso2.carbon.inbound.endpoint.protocol.file.MockFileHolder;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Unit testcase to test functionality {@link VFSTransportListener} and {@link PollTableEntry}
@@ -113,6 +126,196 @@ public class VFSTransportListenerTest extends TestCase {
 
     }
 
+    /**
+     * Testcase to test the parallel file processing configuration of {@link PollTableEntry}
+     * @throws Exception
+     */
+    public void testParallelFileProcessingConfiguration() throws Exception {
+
+        String fileUri = "test1:///foo/bar/test-" + System.currentTimeMillis() + "/DIR/IN/";
+
+        AxisService axisService = new AxisService("testVFSParallelService");
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_FILE_URI, fileUri));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CONTENT_TYPE, "text/xml"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_PROCESSING_PARALLELISM, "8"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_PROCESSING_ORDERED, "true"));
+
+        PollTableEntry pollTableEntry = new PollTableEntry(true);
+        pollTableEntry.loadConfiguration(axisService);
+
+        Assert.assertTrue("Parallel processing not enabled", pollTableEntry.isParallelFileProcessing());
+        Assert.assertEquals("Wrong parallelism", 8, pollTableEntry.getFileProcessingParallelism());
+        Assert.assertTrue("Ordered processing not enabled", pollTableEntry.isFileProcessingOrdered());
+        Assert.assertEquals("Backlog must be empty before scanning", 0, pollTableEntry.getFileProcessingBacklog());
+
+        AxisService sequentialService = new AxisService("testVFSSequentialService");
+        sequentialService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_FILE_URI, fileUri));
+        sequentialService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CONTENT_TYPE, "text/xml"));
+        sequentialService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_PROCESSING_PARALLELISM, "0"));
+
+        PollTableEntry sequentialEntry = new PollTableEntry(true);
+        sequentialEntry.loadConfiguration(sequentialService);
+        Assert.assertFalse("Parallelism below one must fall back to sequential processing",
+                sequentialEntry.isParallelFileProcessing());
+    }
+
+    /**
+     * Testcase to test the processing of the files of a directory scan through the worker pool of the
+     * {@link PollTableEntry}, in ordered mode
+     * @throws Exception
+     */
+    public void testParallelFileProcessing() throws Exception {
+
+        final int fileCount = 10;
+        File inDir = Files.createTempDirectory("vfs-parallel-in").toFile();
+        File outDir = Files.createTempDirectory("vfs-parallel-out").toFile();
+        List<String> fileNames = new ArrayList<String>();
+        for (int i = 0; i < fileCount; i++) {
+            String fileName = "file-" + i + ".txt";
+            Files.write(new File(inDir, fileName).toPath(), ("<test>" + i + "</test>").getBytes());
+            fileNames.add(fileName);
+        }
+
+        AxisService axisService = new AxisService("testVFSParallelProcessingService");
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_FILE_URI,
+                "file://" + inDir.getAbsolutePath()));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CONTENT_TYPE, "text/xml"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_FILE_NAME_PATTERN, ".*\\.txt"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_ACTION_AFTER_PROCESS, VFSTransportListener.MOVE));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_MOVE_AFTER_PROCESS,
+                "file://" + outDir.getAbsolutePath()));
+        axisService.addParameter(new Parameter(VFSConstants.FILE_SORT_PARAM, VFSConstants.FILE_SORT_VALUE_NAME));
+        axisService.addParameter(new Parameter(VFSConstants.FILE_SORT_ORDER, "true"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_PROCESSING_PARALLELISM, "4"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_PROCESSING_ORDERED, "true"));
+
+        final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> moved = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        VFSTransportListener vfsTransportListener = new VFSTransportListener() {
+            @Override
+            protected boolean processFile(PollTableEntry entry, FileObject file) {
+                String fileName = file.getName().getBaseName();
+                int running = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(running, Math::max);
+                try {
+                    // the first files take the longest, so that they complete after the later ones
+                    Thread.sleep((fileCount - fileNames.indexOf(fileName)) * 10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                processed.add(fileName);
+                return true;
+            }
+
+            @Override
+            protected void moveOrDeleteAfterProcessing(PollTableEntry entry, FileObject fileObject,
+                                                       FileSystemOptions fso, int pollState) throws AxisFault {
+                moved.add(fileObject.getName().getBaseName());
+                super.moveOrDeleteAfterProcessing(entry, fileObject, fso, pollState);
+            }
+        };
+
+        TransportInDescription transportInDescription =
+                new VFSTransportDescriptionFactory().createTransportInDescription();
+        transportInDescription.setReceiver(vfsTransportListener);
+        vfsTransportListener.init(new ConfigurationContext(new AxisConfiguration()), transportInDescription);
+        vfsTransportListener.doInit();
+        vfsTransportListener.start();
+
+        PollTableEntry pollTableEntry = vfsTransportListener.createEndpoint();
+        pollTableEntry.loadConfiguration(axisService);
+        populatePollTableEntry(pollTableEntry, axisService, vfsTransportListener);
+        try {
+            vfsTransportListener.poll(pollTableEntry);
+        } finally {
+            pollTableEntry.shutdownFileProcessingExecutor();
+            vfsTransportListener.stop();
+        }
+
+        Assert.assertEquals("All files must be processed", fileCount, pollTableEntry.getProcessedFileCount());
+        Assert.assertEquals(fileCount, processed.size());
+        Assert.assertTrue("Files must be processed concurrently", maxInFlight.get() > 1);
+        Assert.assertTrue("No more files than the parallelism may be in flight", maxInFlight.get() <= 4);
+        Assert.assertFalse("Later files must complete first", fileNames.equals(processed));
+        Assert.assertEquals("Files must be moved in listing order", fileNames, moved);
+        Assert.assertEquals("Backlog must be empty after the scan", 0, pollTableEntry.getFileProcessingBacklog());
+        Assert.assertEquals(PollTableEntry.SUCCSESSFUL, pollTableEntry.getLastPollState());
+
+        String[] remaining = inDir.list((dir, name) -> name.endsWith(".txt"));
+        Assert.assertEquals("Processed files must be moved", 0, remaining.length);
+        for (String fileName : fileNames) {
+            Assert.assertTrue(fileName + " must be moved", new File(outDir, fileName).exists());
+        }
+    }
+
+    /**
+     * Testcase to test the directory watching configuration of {@link PollTableEntry}
+     * @throws Exception
+     */
+    public void testWatchDirectoryConfiguration() throws Exception {
+
+        AxisService axisService = new AxisService("testVFSWatchService");
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_FILE_URI, "file:///tmp/vfs/in"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CONTENT_TYPE, "text/xml"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_WATCH, "true"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_WATCH_DEBOUNCE_INTERVAL, "200"));
+
+        PollTableEntry pollTableEntry = new PollTableEntry(true);
+        pollTableEntry.loadConfiguration(axisService);
+
+        Assert.assertTrue("Directory watching not enabled", pollTableEntry.isWatchDirectory());
+        Assert.assertEquals("Wrong debounce interval", 200, pollTableEntry.getWatchDebounceInterval());
+        Assert.assertNull("Watcher must not be started before the endpoint", pollTableEntry.getDirectoryWatcher());
+    }
+
+    /**
+     * Testcase to test that {@link LocalDirectoryWatcher} triggers a scan of the files created in the watched
+     * directory, coalescing the events which arrive within the debounce interval
+     * @throws Exception
+     */
+    public void testDirectoryWatcherTriggersScan() throws Exception {
+
+        File watchedDir = Files.createTempDirectory("vfs-watch").toFile();
+
+        AxisService axisService = new AxisService("testVFSWatcherService");
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_FILE_URI,
+                "file://" + watchedDir.getAbsolutePath()));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_CONTENT_TYPE, "text/xml"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_WATCH, "true"));
+        axisService.addParameter(new Parameter(VFSConstants.TRANSPORT_FILE_WATCH_DEBOUNCE_INTERVAL, "500"));
+
+        final BlockingQueue<Set<String>> scans = new LinkedBlockingQueue<Set<String>>();
+        VFSTransportListener vfsTransportListener = new VFSTransportListener() {
+            @Override
+            void scanChangedFiles(PollTableEntry entry, Set<String> changedFiles) {
+                scans.add(changedFiles);
+            }
+        };
+        PollTableEntry pollTableEntry = new PollTableEntry(true);
+        pollTableEntry.loadConfiguration(axisService);
+        populatePollTableEntry(pollTableEntry, axisService, vfsTransportListener);
+
+        LocalDirectoryWatcher watcher = new LocalDirectoryWatcher(vfsTransportListener, pollTableEntry,
+                watchedDir.toPath(), pollTableEntry.getWatchDebounceInterval());
+        watcher.start();
+        try {
+            Files.write(new File(watchedDir, "first.xml").toPath(), "<test>1</test>".getBytes());
+            Files.write(new File(watchedDir, "second.xml").toPath(), "<test>2</test>".getBytes());
+
+            Set<String> changedFiles = scans.poll(30, TimeUnit.SECONDS);
+            Assert.assertNotNull("No scan was triggered for the created files", changedFiles);
+            Assert.assertTrue("The created file must be scanned", changedFiles.contains("first.xml"));
+            Assert.assertTrue("Files created within the debounce interval must be scanned together",
+                    changedFiles.contains("second.xml"));
+        } finally {
+            watcher.stop();
+        }
+    }
+
     /**
      * Function to extract {@link VFSTransportListener} object resides as private field withing
      * {@link TransportInDescription} object
@@ -103,6 +103,8 @@ public class FIXConstants {
 
     public static final String FIX_DROP_EXTRA_RESPONSES = "transport.fix.DropExtraResponses";
 
+    public static final String FIX_DEFER_XML_CONVERSION = "transport.fix.DeferXMLConversion";
+
     public static final String FIX_ACCEPTOR_EVENT_HANDLER = "transport.fix.AcceptorSessionEventHandler";
     public static final String FIX_INITIATOR_EVENT_HANDLER = "transport.fix.InitiatorSessionEventHandler";
 
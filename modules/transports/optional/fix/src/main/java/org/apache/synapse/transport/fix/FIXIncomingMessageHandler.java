@@ -77,6 +77,7 @@ public class FIXIncomingMessageHandler implements Application {
     private Queue<MessageContext> outgoingMessages;
     private boolean allNewApproach = true;
     private boolean dropExtraResponses = false;
+    private boolean deferXMLConversion = true;
     private Semaphore semaphore;
     private SessionEventHandler eventHandler;
 
@@ -125,6 +126,11 @@ public class FIXIncomingMessageHandler implements Application {
         if (dropResponsesParam != null && "true".equals(dropResponsesParam.getValue().toString())) {
             dropExtraResponses = true;
         }
+
+        Parameter deferParam = service.getParameter(FIXConstants.FIX_DEFER_XML_CONVERSION);
+        if (deferParam != null && "false".equals(deferParam.getValue().toString())) {
+            deferXMLConversion = false;
+        }
     }
 
     public void setOutgoingMessageContext(MessageContext msgCtx) {
@@ -404,7 +410,8 @@ public class FIXIncomingMessageHandler implements Application {
 
             try {
                 //Put the FIX message in a SOAPEnvelope
-                FIXUtils.getInstance().setSOAPEnvelope(message, counter, sessionID.toString(), msgCtx);
+                FIXUtils.getInstance().setSOAPEnvelope(message, counter, sessionID.toString(), msgCtx,
+                        deferXMLConversion);
                 trpListener.handleIncomingMessage(
                         msgCtx,
                         FIXUtils.getTransportHeaders(service.getName(), fixApplication),
@@ -424,7 +431,8 @@ public class FIXIncomingMessageHandler implements Application {
 
             try {
                 //Put the FIX message in a SOAPEnvelope
-                FIXUtils.getInstance().setSOAPEnvelope(message, counter, sessionID.toString(), msgCtx);
+                FIXUtils.getInstance().setSOAPEnvelope(message, counter, sessionID.toString(), msgCtx,
+                        deferXMLConversion);
                 msgCtx.setServerSide(true);
                 trpSender.handleIncomingMessage(
                         msgCtx,
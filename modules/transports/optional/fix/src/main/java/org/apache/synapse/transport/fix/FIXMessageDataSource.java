@@ -0,0 +1,306 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.fix;
+
+import org.apache.axiom.om.OMDataSourceExt;
+import org.apache.axiom.om.OMException;
+import org.apache.axiom.om.OMFactory;
+import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.om.OMSourcedElement;
+import org.apache.axiom.om.ds.OMDataSourceExtBase;
+import org.apache.axiom.om.impl.MTOMXMLStreamWriter;
+import org.apache.axiom.om.impl.llom.OMSourcedElementImpl;
+import org.apache.axiom.om.util.StAXUtils;
+import quickfix.Field;
+import quickfix.FieldMap;
+import quickfix.FieldNotFound;
+import quickfix.Group;
+import quickfix.Message;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An OMDataSource backed by a FIX message. The XML infoset of the message (see
+ * {@link FIXUtils#setSOAPEnvelope(Message, int, String, org.apache.axis2.context.MessageContext)})
+ * is only generated when the element is expanded or serialized, so that messages which are routed
+ * without looking at their content are never converted to XML and can be relayed as they are.
+ * Fields can be read from the FIX message without expanding the element, using a path of the
+ * form section/tag (e.g. header/35, body/55 or body/453[2]/448 for a field of a repeating group).
+ */
+public class FIXMessageDataSource extends OMDataSourceExtBase {
+
+    private static final QName MESSAGE_QNAME = new QName(FIXConstants.FIX_MESSAGE);
+
+    /** Field ids written to the XML infoset, cached for the commonly used tags */
+    private static final String[] TAG_IDS = new String[2048];
+
+    static {
+        for (int i = 0; i < TAG_IDS.length; i++) {
+            TAG_IDS[i] = String.valueOf(i);
+        }
+    }
+
+    private final Message message;
+    private final int counter;
+    private final String sessionID;
+
+    public FIXMessageDataSource(Message message, int counter, String sessionID) {
+        this.message = message;
+        this.counter = counter;
+        this.sessionID = sessionID;
+    }
+
+    public static OMSourcedElement createOMSourcedElement(Message message, int counter,
+                                                          String sessionID, OMFactory fac) {
+        FIXMessageDataSource dataSource = new FIXMessageDataSource(message, counter, sessionID);
+        return new OMSourcedElementImpl(MESSAGE_QNAME, fac, dataSource);
+    }
+
+    /**
+     * @return the FIX message, which must not be modified while it is held by an OM element
+     */
+    public Message getMessage() {
+        return message;
+    }
+
+    public int getCounter() {
+        return counter;
+    }
+
+    public String getSessionID() {
+        return sessionID;
+    }
+
+    /**
+     * Reads a field of the FIX message
+     *
+     * @param section the section of the message, one of header, body or trailer
+     * @param tag     the tag of the field
+     * @return the value of the field or null if the field is not set
+     */
+    public String getFieldValue(String section, int tag) {
+        return getFieldValue(getSection(section), tag);
+    }
+
+    /**
+     * Reads a field of the FIX message using a path of the form section/tag. Fields of repeating
+     * groups are addressed by the group tag and the 1-based index of the group, e.g.
+     * body/453[2]/448 refers to the field 448 of the second group of 453.
+     *
+     * @param path the path of the field
+     * @return the value of the field or null if the field is not set
+     */
+    public String getFieldValue(String path) {
+        String[] steps = path.split("/");
+        if (steps.length < 2) {
+            throw new IllegalArgumentException("Invalid FIX field path: " + path);
+        }
+
+        FieldMap fieldMap = getSection(steps[0]);
+        try {
+            for (int i = 1; i < steps.length - 1 && fieldMap != null; i++) {
+                String step = steps[i];
+                int index = 1;
+                int bracket = step.indexOf('[');
+                if (bracket != -1) {
+                    index = Integer.parseInt(step.substring(bracket + 1, step.indexOf(']')));
+                    step = step.substring(0, bracket);
+                }
+                List<Group> groups = fieldMap.getGroups(Integer.parseInt(step));
+                fieldMap = index > 0 && index <= groups.size() ? groups.get(index - 1) : null;
+            }
+            return getFieldValue(fieldMap, Integer.parseInt(steps[steps.length - 1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid FIX field path: " + path, e);
+        }
+    }
+
+    private FieldMap getSection(String section) {
+        if (FIXConstants.FIX_HEADER.equals(section)) {
+            return message.getHeader();
+        } else if (FIXConstants.FIX_BODY.equals(section)) {
+            return message;
+        } else if (FIXConstants.FIX_TRAILER.equals(section)) {
+            return message.getTrailer();
+        }
+        throw new IllegalArgumentException("Invalid FIX message section: " + section);
+    }
+
+    private static String getFieldValue(FieldMap fieldMap, int tag) {
+        if (fieldMap == null || !fieldMap.isSetField(tag)) {
+            return null;
+        }
+        try {
+            return fieldMap.getString(tag);
+        } catch (FieldNotFound e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the FIX message has binary fields, which have to be added to the message
+     * as attachments and cannot be serialized by this data source
+     *
+     * @param fieldMap the FIX message or a section of it
+     * @return true if a binary field is found
+     */
+    public static boolean hasBinaryFields(FieldMap fieldMap) {
+        Iterator<Field<?>> iter = fieldMap.iterator();
+        while (iter.hasNext()) {
+            if (iter.next().getObject() instanceof byte[]) {
+                return true;
+            }
+        }
+        Iterator<Integer> groupKeyItr = fieldMap.groupKeyIterator();
+        while (groupKeyItr.hasNext()) {
+            for (Group group : fieldMap.getGroups(groupKeyItr.next())) {
+                if (hasBinaryFields(group)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void serialize(OutputStream out, OMOutputFormat format) throws XMLStreamException {
+        XMLStreamWriter writer = new MTOMXMLStreamWriter(out, format);
+        serialize(writer);
+        writer.flush();
+    }
+
+    @Override
+    public void serialize(Writer writer, OMOutputFormat format) throws XMLStreamException {
+        MTOMXMLStreamWriter xmlWriter =
+            new MTOMXMLStreamWriter(StAXUtils.createXMLStreamWriter(writer));
+        xmlWriter.setOutputFormat(format);
+        serialize(xmlWriter);
+        xmlWriter.flush();
+    }
+
+    @Override
+    public void serialize(XMLStreamWriter xmlWriter) throws XMLStreamException {
+        xmlWriter.writeStartElement(FIXConstants.FIX_MESSAGE);
+        xmlWriter.writeAttribute(FIXConstants.FIX_MESSAGE_INCOMING_SESSION, sessionID);
+        xmlWriter.writeAttribute(FIXConstants.FIX_MESSAGE_COUNTER, String.valueOf(counter));
+
+        xmlWriter.writeStartElement(FIXConstants.FIX_HEADER);
+        writeFields(xmlWriter, message.getHeader());
+        xmlWriter.writeEndElement();
+
+        xmlWriter.writeStartElement(FIXConstants.FIX_BODY);
+        writeBody(xmlWriter, message);
+        xmlWriter.writeEndElement();
+
+        xmlWriter.writeStartElement(FIXConstants.FIX_TRAILER);
+        writeFields(xmlWriter, message.getTrailer());
+        xmlWriter.writeEndElement();
+
+        xmlWriter.writeEndElement();
+    }
+
+    private void writeBody(XMLStreamWriter xmlWriter, FieldMap fieldMap) throws XMLStreamException {
+        writeFields(xmlWriter, fieldMap);
+
+        Iterator<Integer> groupKeyItr = fieldMap.groupKeyIterator();
+        while (groupKeyItr.hasNext()) {
+            int groupKey = groupKeyItr.next();
+            xmlWriter.writeStartElement(FIXConstants.FIX_GROUPS);
+            xmlWriter.writeAttribute(FIXConstants.FIX_FIELD_ID, getTagId(groupKey));
+            for (Group group : fieldMap.getGroups(groupKey)) {
+                xmlWriter.writeStartElement(FIXConstants.FIX_GROUP);
+                writeBody(xmlWriter, group);
+                xmlWriter.writeEndElement();
+            }
+            xmlWriter.writeEndElement();
+        }
+    }
+
+    private void writeFields(XMLStreamWriter xmlWriter, FieldMap fieldMap)
+            throws XMLStreamException {
+        Iterator<Field<?>> iter = fieldMap.iterator();
+        while (iter.hasNext()) {
+            Field<?> field = iter.next();
+            xmlWriter.writeStartElement(FIXConstants.FIX_FIELD);
+            xmlWriter.writeAttribute(FIXConstants.FIX_FIELD_ID, getTagId(field.getTag()));
+            Object value = field.getObject();
+            if (value instanceof byte[]) {
+                throw new XMLStreamException("Binary field " + field.getTag() +
+                        " cannot be serialized without converting the message to XML");
+            }
+            xmlWriter.writeCharacters(value.toString());
+            xmlWriter.writeEndElement();
+        }
+    }
+
+    private static String getTagId(int tag) {
+        return tag >= 0 && tag < TAG_IDS.length ? TAG_IDS[tag] : String.valueOf(tag);
+    }
+
+    public XMLStreamReader getReader() throws XMLStreamException {
+        StringWriter out = new StringWriter();
+        XMLStreamWriter writer = StAXUtils.createXMLStreamWriter(out);
+        serialize(writer);
+        writer.flush();
+        return StAXUtils.createXMLStreamReader(new StringReader(out.toString()));
+    }
+
+    public Object getObject() {
+        return message;
+    }
+
+    public boolean isDestructiveRead() {
+        return false;
+    }
+
+    public boolean isDestructiveWrite() {
+        return false;
+    }
+
+    public byte[] getXMLBytes(String encoding) throws UnsupportedEncodingException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OMOutputFormat format = new OMOutputFormat();
+        format.setCharSetEncoding(encoding);
+        try {
+            serialize(out, format);
+        } catch (XMLStreamException e) {
+            throw new OMException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public void close() {
+    }
+
+    public OMDataSourceExt copy() {
+        return new FIXMessageDataSource(message, counter, sessionID);
+    }
+}
@@ -22,6 +22,7 @@ package org.apache.synapse.transport.fix;
 import org.apache.axiom.attachments.ByteArrayDataSource;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.OMSourcedElement;
 import org.apache.axiom.soap.SOAPBody;
 import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axiom.soap.SOAPFactory;
@@ -75,12 +76,44 @@ public class FIXUtils {
      */
     public void setSOAPEnvelope(Message message, int counter, String sessionID,
                                 MessageContext msgCtx) throws AxisFault {
+        setSOAPEnvelope(message, counter, sessionID, msgCtx, false);
+    }
+
+    /**
+     * Put the FIX message into an Axis2 MessageContext. When the conversion is deferred, the
+     * message element of the SOAP body is backed by a {@link FIXMessageDataSource} and the XML
+     * infoset is only created if the element is expanded (e.g. by a content aware mediator).
+     * Messages with binary fields are always converted, since the binary fields are added to
+     * the message context as attachments.
+     *
+     * @param message   the FIX message
+     * @param counter   application level sequence number of the message
+     * @param sessionID the incoming session
+     * @param msgCtx    the Axis2 MessageContext to hold the FIX message
+     * @param deferred  whether the conversion to XML should be deferred
+     * @throws AxisFault the exception thrown when invalid soap envelopes are set to the msgCtx
+     */
+    public void setSOAPEnvelope(Message message, int counter, String sessionID,
+                                MessageContext msgCtx, boolean deferred) throws AxisFault {
+
+        SOAPFactory soapFactory = new SOAP11Factory();
+        if (deferred && !FIXMessageDataSource.hasBinaryFields(message.getHeader()) &&
+                !FIXMessageDataSource.hasBinaryFields(message) &&
+                !FIXMessageDataSource.hasBinaryFields(message.getTrailer())) {
+            if (log.isDebugEnabled()) {
+                log.debug("Creating SOAP envelope with a deferred FIX message...");
+            }
+            SOAPEnvelope envelope = soapFactory.getDefaultEnvelope();
+            envelope.getBody().addChild(FIXMessageDataSource.createOMSourcedElement(
+                    message, counter, sessionID, soapFactory));
+            msgCtx.setEnvelope(envelope);
+            return;
+        }
 
         if (log.isDebugEnabled()) {
             log.debug("Creating SOAP envelope for FIX message...");
         }
 
-        SOAPFactory soapFactory = new SOAP11Factory();
         OMElement msg = soapFactory.createOMElement(FIXConstants.FIX_MESSAGE, null);
         msg.addAttribute(soapFactory.createOMAttribute(FIXConstants.FIX_MESSAGE_INCOMING_SESSION,
                 null, sessionID));
@@ -311,6 +344,12 @@ public class FIXUtils {
                     msgCtx.getMessageID() + ")");
         }
 
+        FIXMessageDataSource dataSource = getFIXMessageDataSource(msgCtx);
+        if (dataSource != null) {
+            // the payload has not been touched, relay a copy of the original FIX message
+            return (Message) dataSource.getMessage().clone();
+        }
+
         boolean withNs = false;
         String nsPrefix = null;
         String nsURI = null;
@@ -717,6 +756,11 @@ public class FIXUtils {
      * @return application level sequence number or -1
      */
     public static int getSequenceNumber(MessageContext msgCtx) {
+        FIXMessageDataSource dataSource = getFIXMessageDataSource(msgCtx);
+        if (dataSource != null) {
+            return dataSource.getCounter();
+        }
+
         int seqNum;
         SOAPBody body = msgCtx.getEnvelope().getBody();
         OMNamespace ns = getNamespaceOfFIXPayload(body);
@@ -762,6 +806,11 @@ public class FIXUtils {
      * @return a String uniquely identifying a session or null
      */
     public static String getSourceSession(MessageContext msgCtx) {
+        FIXMessageDataSource dataSource = getFIXMessageDataSource(msgCtx);
+        if (dataSource != null) {
+            return dataSource.getSessionID();
+        }
+
         String srcSession;
         SOAPBody body = msgCtx.getEnvelope().getBody();
         OMNamespace ns = getNamespaceOfFIXPayload(body);
@@ -790,6 +839,70 @@ public class FIXUtils {
                    FIXConstants.FIX_MESSAGE_INCOMING_SESSION, ns.getPrefix()));
     }
 
+    /**
+     * Finds the data source of a FIX message which has not been converted to XML yet
+     *
+     * @param msgCtx Axis2 MessageContext
+     * @return the data source of the FIX message or null if the payload has been expanded
+     */
+    public static FIXMessageDataSource getFIXMessageDataSource(MessageContext msgCtx) {
+        SOAPEnvelope envelope = msgCtx.getEnvelope();
+        if (envelope == null) {
+            return null;
+        }
+        OMElement payload = envelope.getBody().getFirstElement();
+        if (payload instanceof OMSourcedElement) {
+            OMSourcedElement sourcedElement = (OMSourcedElement) payload;
+            if (!sourcedElement.isExpanded() &&
+                    sourcedElement.getDataSource() instanceof FIXMessageDataSource) {
+                return (FIXMessageDataSource) sourcedElement.getDataSource();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a field of the FIX message in the SOAP body, without converting the message to XML
+     * if it has not been converted yet
+     *
+     * @param msgCtx  Axis2 MessageContext
+     * @param section the section of the message, one of header, body or trailer
+     * @param tag     the tag of the field
+     * @return the value of the field or null if the field is not found
+     */
+    public static String getFieldValue(MessageContext msgCtx, String section, int tag) {
+        FIXMessageDataSource dataSource = getFIXMessageDataSource(msgCtx);
+        if (dataSource != null) {
+            return dataSource.getFieldValue(section, tag);
+        }
+
+        SOAPBody body = msgCtx.getEnvelope().getBody();
+        OMNamespace ns = getNamespaceOfFIXPayload(body);
+        String nsURI = ns != null ? ns.getNamespaceURI() : null;
+        OMElement messageNode = body.getFirstChildWithName(new QName(nsURI,
+                FIXConstants.FIX_MESSAGE));
+        OMElement sectionNode = messageNode != null ?
+                messageNode.getFirstChildWithName(new QName(nsURI, section)) : null;
+        if (sectionNode == null) {
+            return null;
+        }
+
+        String id = String.valueOf(tag);
+        Iterator fields = sectionNode.getChildrenWithName(new QName(nsURI, FIXConstants.FIX_FIELD));
+        while (fields.hasNext()) {
+            OMElement field = (OMElement) fields.next();
+            String fieldId = ns != null ? field.getAttributeValue(new QName(nsURI,
+                    FIXConstants.FIX_FIELD_ID)) : null;
+            if (fieldId == null) {
+                fieldId = field.getAttributeValue(new QName(FIXConstants.FIX_FIELD_ID));
+            }
+            if (id.equals(fieldId)) {
+                return field.getText();
+            }
+        }
+        return null;
+    }
+
     /**
      * Creates a text node within a CDATA section selectively by looking at the enclosing text.
      * @param soapFactory
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *   or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.fix;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.axis2.context.MessageContext;
+import org.custommonkey.xmlunit.XMLTestCase;
+import quickfix.Group;
+import quickfix.Message;
+import quickfix.field.*;
+import quickfix.fix41.NewOrderSingle;
+
+import javax.xml.namespace.QName;
+
+public class FIXMessageDataSourceTest extends XMLTestCase {
+
+    private static final int SEQ_NUM            = 5;
+    private static final String SESSION_ID      = "FIX.4.1:BANZAI->SYNAPSE";
+
+    public void testDeferredConversion() throws Exception {
+        Message message = createMessage("A & B <C>");
+
+        MessageContext eagerMsgCtx = new MessageContext();
+        FIXUtils.getInstance().setSOAPEnvelope(message, SEQ_NUM, SESSION_ID, eagerMsgCtx);
+        assertNull(FIXUtils.getFIXMessageDataSource(eagerMsgCtx));
+
+        MessageContext msgCtx = new MessageContext();
+        FIXUtils.getInstance().setSOAPEnvelope(message, SEQ_NUM, SESSION_ID, msgCtx, true);
+        assertNotNull(FIXUtils.getFIXMessageDataSource(msgCtx));
+
+        String expected = eagerMsgCtx.getEnvelope().getBody().getFirstElement().toString();
+        String result = msgCtx.getEnvelope().getBody().getFirstElement().toString();
+        assertXMLEqual(AXIOMUtil.stringToOM(expected).toString(),
+                AXIOMUtil.stringToOM(result).toString());
+
+        // navigating the payload converts the message to XML
+        OMElement body = msgCtx.getEnvelope().getBody().getFirstElement().getFirstChildWithName(
+                new QName(FIXConstants.FIX_BODY));
+        assertNotNull(body);
+        assertNull(FIXUtils.getFIXMessageDataSource(msgCtx));
+        assertEquals(SEQ_NUM, FIXUtils.getSequenceNumber(msgCtx));
+        assertEquals(SESSION_ID, FIXUtils.getSourceSession(msgCtx));
+    }
+
+    public void testFieldAccessWithoutConversion() throws Exception {
+        Message message = createMessage("APACHE");
+        MessageContext msgCtx = new MessageContext();
+        FIXUtils.getInstance().setSOAPEnvelope(message, SEQ_NUM, SESSION_ID, msgCtx, true);
+
+        assertEquals(SEQ_NUM, FIXUtils.getSequenceNumber(msgCtx));
+        assertEquals(SESSION_ID, FIXUtils.getSourceSession(msgCtx));
+        assertEquals(NewOrderSingle.MSGTYPE,
+                FIXUtils.getFieldValue(msgCtx, FIXConstants.FIX_HEADER, MsgType.FIELD));
+        assertEquals("APACHE", FIXUtils.getFieldValue(msgCtx, FIXConstants.FIX_BODY, Symbol.FIELD));
+        assertNull(FIXUtils.getFieldValue(msgCtx, FIXConstants.FIX_BODY, Price.FIELD));
+
+        FIXMessageDataSource dataSource = FIXUtils.getFIXMessageDataSource(msgCtx);
+        assertNotNull(dataSource);
+        assertEquals("67890", dataSource.getFieldValue("trailer/" + CheckSum.FIELD));
+        assertEquals("ABC", dataSource.getFieldValue("body/" + NoAllocs.FIELD + "/" +
+                AllocAccount.FIELD));
+        assertEquals("XYZ", dataSource.getFieldValue("body/" + NoAllocs.FIELD + "[2]/" +
+                IndividualAllocID.FIELD));
+        assertNull(dataSource.getFieldValue("body/" + NoAllocs.FIELD + "[3]/" +
+                IndividualAllocID.FIELD));
+        try {
+            dataSource.getFieldValue("body");
+            fail("Invalid path accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // none of the above should have converted the message to XML
+        assertSame(dataSource, FIXUtils.getFIXMessageDataSource(msgCtx));
+
+        // the same fields are read from the XML infoset once the message has been converted
+        msgCtx.getEnvelope().getBody().getFirstElement().getFirstElement();
+        assertNull(FIXUtils.getFIXMessageDataSource(msgCtx));
+        assertEquals("APACHE", FIXUtils.getFieldValue(msgCtx, FIXConstants.FIX_BODY, Symbol.FIELD));
+        assertEquals(NewOrderSingle.MSGTYPE,
+                FIXUtils.getFieldValue(msgCtx, FIXConstants.FIX_HEADER, MsgType.FIELD));
+        assertNull(FIXUtils.getFieldValue(msgCtx, FIXConstants.FIX_BODY, Price.FIELD));
+    }
+
+    public void testPassThrough() throws Exception {
+        Message message = createMessage("APACHE");
+        MessageContext msgCtx = new MessageContext();
+        FIXUtils.getInstance().setSOAPEnvelope(message, SEQ_NUM, SESSION_ID, msgCtx, true);
+
+        Message relayed = FIXUtils.getInstance().createFIXMessage(msgCtx);
+        assertNotSame(message, relayed);
+        assertEquals(message.toString(), relayed.toString());
+
+        // changes made to the relayed message by the sender must not affect the original
+        relayed.getHeader().setField(new DeliverToCompID("OTHER"));
+        assertFalse(message.getHeader().isSetField(DeliverToCompID.FIELD));
+
+        // once converted, the message is created from the XML infoset
+        msgCtx.getEnvelope().getBody().getFirstElement().getFirstElement();
+        Message converted = FIXUtils.getInstance().createFIXMessage(msgCtx);
+        assertEquals(message.getString(Symbol.FIELD), converted.getString(Symbol.FIELD));
+        assertEquals(2, converted.getGroupCount(NoAllocs.FIELD));
+    }
+
+    private Message createMessage(String symbol) {
+        Message message = new NewOrderSingle();
+        message.getHeader().setField(new BeginString("FIX.4.1"));
+        message.getHeader().setField(new SenderCompID("BANZAI"));
+        message.getHeader().setField(new TargetCompID("SYNAPSE"));
+        message.getHeader().setField(new MsgSeqNum(SEQ_NUM));
+
+        message.setField(new Symbol(symbol));
+        message.setField(new ClOrdID("12345"));
+
+        Group g1 = new Group(NoAllocs.FIELD, AllocAccount.FIELD);
+        g1.setField(new AllocAccount("ABC"));
+        g1.setField(new IndividualAllocID("PQR"));
+        message.addGroup(g1);
+        Group g2 = new Group(NoAllocs.FIELD, AllocAccount.FIELD);
+        g2.setField(new AllocAccount("MNO"));
+        g2.setField(new IndividualAllocID("XYZ"));
+        message.addGroup(g2);
+
+        message.getTrailer().setField(new CheckSum("67890"));
+        return message;
+    }
+}